@@ -0,0 +1,122 @@
+package com.example.akka.common;
+
+import akka.NotUsed;
+import akka.http.javadsl.model.ContentType;
+import akka.http.javadsl.model.ContentTypes;
+import akka.http.javadsl.model.HttpCharsets;
+import akka.http.javadsl.model.HttpEntities;
+import akka.http.javadsl.model.HttpResponse;
+import akka.http.javadsl.model.MediaTypes;
+import akka.javasdk.JsonSupport;
+import akka.stream.javadsl.Source;
+import akka.util.ByteString;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Newline delimited JSON for the bulk import endpoints. Unlike {@code Framing.delimiter} followed by a JSON read,
+ * a line that is too long or not valid JSON does not fail the stream: it becomes a {@link Malformed} line, so the
+ * import reports it and carries on with the next line.
+ */
+public final class Ndjson {
+
+    public static final ContentType CONTENT_TYPE =
+            ContentTypes.create(MediaTypes.applicationWithFixedCharset("x-ndjson", HttpCharsets.UTF_8));
+
+    private static final byte NEWLINE = '\n';
+    private static final ByteString NEWLINE_BYTES = ByteString.fromString("\n");
+
+    private Ndjson() {}
+
+    /**
+     * One non-blank line of the body. {@code number} is the 1-based line number in the body, blank lines included.
+     */
+    public sealed interface Line<T> {
+
+        long number();
+
+        <R> Line<R> map(Function<T, R> mapper);
+    }
+
+    public record Value<T>(long number, T value) implements Line<T> {
+
+        @Override
+        public <R> Line<R> map(Function<T, R> mapper) {
+            return new Value<>(number, mapper.apply(value));
+        }
+    }
+
+    public record Malformed<T>(long number, String error) implements Line<T> {
+
+        @Override
+        public <R> Line<R> map(Function<T, R> mapper) {
+            return new Malformed<>(number, error);
+        }
+    }
+
+    /**
+     * Reads every non-blank line of {@code body} as a {@code type}, in order.
+     */
+    public static <T> Source<Line<T>, NotUsed> lines(ByteString body, int maxLineLength, Class<T> type) {
+        return Source.fromIterator(() -> new RawLines(body))
+                .filter(line -> !line.text().isBlank())
+                .map(line -> parse(line, maxLineLength, type));
+    }
+
+    /**
+     * A chunked NDJSON response with one JSON line per element.
+     */
+    public static HttpResponse response(Source<?, NotUsed> elements) {
+        var lines = elements.map(element ->
+                ByteString.fromString(JsonSupport.getObjectMapper().writeValueAsString(element)).concat(NEWLINE_BYTES));
+        return HttpResponse.create().withEntity(HttpEntities.createChunked(CONTENT_TYPE, lines));
+    }
+
+    private static <T> Line<T> parse(RawLine line, int maxLineLength, Class<T> type) {
+        if (line.length() > maxLineLength) {
+            return new Malformed<>(line.number(), "Line is longer than " + maxLineLength + " bytes");
+        }
+        try {
+            var value = JsonSupport.getObjectMapper().readValue(line.text(), type);
+            return value == null
+                    ? new Malformed<>(line.number(), "Line is not a JSON object")
+                    : new Value<>(line.number(), value);
+        } catch (JsonProcessingException e) {
+            return new Malformed<>(line.number(), "Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private record RawLine(long number, int length, String text) {}
+
+    private static final class RawLines implements Iterator<RawLine> {
+
+        private final ByteString body;
+        private int position;
+        private long number;
+
+        RawLines(ByteString body) {
+            this.body = body;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < body.size();
+        }
+
+        @Override
+        public RawLine next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            var newline = body.indexOf(NEWLINE, position);
+            var end = newline < 0 ? body.size() : newline;
+            var bytes = body.slice(position, end);
+            position = end + 1;
+            number++;
+            return new RawLine(number, bytes.size(), bytes.utf8String());
+        }
+    }
+}
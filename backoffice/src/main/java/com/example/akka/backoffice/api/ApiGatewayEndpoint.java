@@ -1,16 +1,28 @@
 package com.example.akka.backoffice.api;
 
+import akka.http.javadsl.model.ContentTypes;
+import akka.http.javadsl.model.HttpCharsets;
+import akka.http.javadsl.model.HttpEntities;
+import akka.http.javadsl.model.HttpResponse;
+import akka.http.javadsl.model.MediaTypes;
+import akka.javasdk.JsonSupport;
 import akka.javasdk.annotations.Acl;
 import akka.javasdk.annotations.http.*;
 import akka.javasdk.http.AbstractHttpEndpoint;
+import akka.javasdk.http.HttpException;
+import akka.javasdk.http.HttpResponses;
+import akka.util.ByteString;
 import com.example.akka.account.api.*;
 import com.example.akka.payments.api.CardGrpcEndpointClient;
 import com.example.akka.payments.api.TransactionGrpcEndpointClient;
 
+import java.util.Optional;
+
 @HttpEndpoint("/api")
 @Acl(allow = @Acl.Matcher(principal = Acl.Principal.ALL))
 public class ApiGatewayEndpoint extends AbstractHttpEndpoint {
 
+    private static final ByteString NEWLINE = ByteString.fromString("\n");
     private final AccountGrpcEndpointClient accountClient;
     private final CardGrpcEndpointClient cardClient;
     private final TransactionGrpcEndpointClient transactionClient;
@@ -53,9 +65,36 @@ public class ApiGatewayEndpoint extends AbstractHttpEndpoint {
         );
     }
 
+    /**
+     * Server-sent events with the current balances of the account followed by every change.
+     * GET /api/accounts/{accountId}/updates
+     */
+    @Get("/accounts/{accountId}/updates")
+    public HttpResponse streamAccountUpdates(String accountId) {
+        var grpcRequest = StreamAccountUpdatesRequest.newBuilder()
+                .setAccountId(accountId)
+                .build();
+        var updates = accountClient.streamAccountUpdates()
+                .invoke(grpcRequest)
+                .map(account -> new ApiGatewayModel.Account(
+                        account.getAccountId(),
+                        account.getAvailableBalance(),
+                        account.getPostedBalance()));
+        return HttpResponses.serverSentEvents(updates);
+    }
+
+    /**
+     * One page of accounts; pass nextPageToken back as pageToken for the next page. An invalid pageSize is a bad
+     * request.
+     * GET /api/accounts?pageToken={token}&pageSize={size}
+     */
     @Get("/accounts")
     public ApiGatewayModel.GetAllAccountsResponse getAllAccounts() {
-        var grpcRequest = com.example.akka.account.api.GetAllAccountsRequest.newBuilder().build();
+        var queryParams = requestContext().queryParams();
+        var grpcRequest = com.example.akka.account.api.GetAllAccountsRequest.newBuilder()
+                .setPageToken(queryParams.getString("pageToken").orElse(""))
+                .setPageSize(pageSizeParam(queryParams.getString("pageSize")))
+                .build();
 
         var grpcResponse = accountClient.getAllAccounts().invoke(grpcRequest);
         var accounts = grpcResponse.getAccountsList().stream()
@@ -66,7 +105,25 @@ public class ApiGatewayEndpoint extends AbstractHttpEndpoint {
                 ))
                 .toList();
 
-        return new ApiGatewayModel.GetAllAccountsResponse(accounts);
+        return new ApiGatewayModel.GetAllAccountsResponse(accounts, grpcResponse.getNextPageToken());
+    }
+
+    /**
+     * All accounts as NDJSON, streamed from corebanking one account at a time.
+     * GET /api/accounts-stream
+     */
+    @Get("/accounts-stream")
+    public HttpResponse streamAllAccounts() {
+        var accounts = accountClient.streamAllAccounts()
+                .invoke(StreamAllAccountsRequest.getDefaultInstance())
+                .map(account -> ByteString.fromString(JsonSupport.encodeToString(new ApiGatewayModel.Account(
+                        account.getAccountId(),
+                        account.getAvailableBalance(),
+                        account.getPostedBalance()
+                ))).concat(NEWLINE));
+        return HttpResponse.create().withEntity(HttpEntities.createChunked(
+                ContentTypes.create(MediaTypes.applicationWithFixedCharset("x-ndjson", HttpCharsets.UTF_8)),
+                accounts));
     }
 
     @Post("/cards")
@@ -163,28 +220,68 @@ public class ApiGatewayEndpoint extends AbstractHttpEndpoint {
         return new ApiGatewayModel.CancelTransactionResponse(grpcResponse.getResult().name());
     }
 
+    /**
+     * One page of the transactions of an account; pass nextPageToken back as pageToken for the next page. An invalid
+     * pageSize is a bad request.
+     * GET /api/accounts/{accountId}/transactions?pageToken={token}&pageSize={size}
+     */
     @Get("/accounts/{accountId}/transactions")
     public ApiGatewayModel.TransactionsByAccountResponse getTransactionsByAccount(String accountId) {
+        var queryParams = requestContext().queryParams();
         var grpcRequest = com.example.akka.payments.api.GetTransactionsByAccountRequest.newBuilder()
                 .setAccountId(accountId)
+                .setPageToken(queryParams.getString("pageToken").orElse(""))
+                .setPageSize(pageSizeParam(queryParams.getString("pageSize")))
                 .build();
 
         var grpcResponse = transactionClient.getTransactionsByAccount().invoke(grpcRequest);
 
         var transactions = grpcResponse.getTransactionsList().stream()
-                .map(t -> new ApiGatewayModel.TransactionSummary(
-                        t.getIdempotencyKey(),
-                        t.getTransactionId(),
-                        t.getAccountId(),
-                        t.getAuthResult(),
-                        t.getAuthStatus(),
-                        t.getCaptureResult(),
-                        t.getCaptureStatus(),
-                        t.getCancelResult(),
-                        t.getCancelStatus()
-                ))
+                .map(this::fromTransactionSummary)
                 .toList();
 
-        return new ApiGatewayModel.TransactionsByAccountResponse(transactions);
+        return new ApiGatewayModel.TransactionsByAccountResponse(transactions, grpcResponse.getNextPageToken());
+    }
+
+    /**
+     * All transactions of an account as NDJSON, streamed from payments one transaction at a time.
+     * GET /api/accounts/{accountId}/transactions-stream
+     */
+    @Get("/accounts/{accountId}/transactions-stream")
+    public HttpResponse streamTransactionsByAccount(String accountId) {
+        var grpcRequest = com.example.akka.payments.api.StreamTransactionsByAccountRequest.newBuilder()
+                .setAccountId(accountId)
+                .build();
+        var transactions = transactionClient.streamTransactionsByAccount()
+                .invoke(grpcRequest)
+                .map(t -> ByteString.fromString(JsonSupport.encodeToString(fromTransactionSummary(t))).concat(NEWLINE));
+        return HttpResponse.create().withEntity(HttpEntities.createChunked(
+                ContentTypes.create(MediaTypes.applicationWithFixedCharset("x-ndjson", HttpCharsets.UTF_8)),
+                transactions));
+    }
+
+    private static int pageSizeParam(Optional<String> value) {
+        try {
+            return value.map(Integer::parseInt).orElse(0);
+        } catch (NumberFormatException e) {
+            throw HttpException.badRequest("Invalid pageSize: " + value.get());
+        }
+    }
+
+    private ApiGatewayModel.TransactionSummary fromTransactionSummary(com.example.akka.payments.api.TransactionSummary t) {
+        return new ApiGatewayModel.TransactionSummary(
+                t.getIdempotencyKey(),
+                t.getTransactionId(),
+                t.getAccountId(),
+                t.getAuthResult(),
+                t.getAuthStatus(),
+                t.getCaptureResult(),
+                t.getCaptureStatus(),
+                t.getCancelResult(),
+                t.getCancelStatus(),
+                t.getAmount(),
+                t.getCurrency(),
+                java.time.Instant.ofEpochSecond(t.getCreatedAt().getSeconds(), t.getCreatedAt().getNanos()).toString()
+        );
     }
 }
\ No newline at end of file
@@ -7,7 +7,7 @@ public interface ApiGatewayModel {
 
     record CreateAccountRequest(String accountId, int initialBalance) {}
 
-    record GetAllAccountsResponse(java.util.List<Account> accounts) {}
+    record GetAllAccountsResponse(java.util.List<Account> accounts, String nextPageToken) {}
 
     record Card(String pan, String expiryDate, String cvv, String accountId) {}
 
@@ -51,7 +51,10 @@ public interface ApiGatewayModel {
             String captureResult,
             String captureStatus,
             String cancelResult,
-            String cancelStatus) {}
+            String cancelStatus,
+            int amount,
+            String currency,
+            String createdAt) {}
 
-    record TransactionsByAccountResponse(java.util.List<TransactionSummary> transactions) {}
+    record TransactionsByAccountResponse(java.util.List<TransactionSummary> transactions, String nextPageToken) {}
 }
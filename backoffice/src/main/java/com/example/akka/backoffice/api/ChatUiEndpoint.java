@@ -1,7 +1,7 @@
 package com.example.akka.backoffice.api;
 
 import akka.NotUsed;
-import akka.actor.Cancellable;
+import akka.japi.Pair;
 import akka.http.javadsl.model.HttpResponse;
 import akka.javasdk.agent.SessionHistory;
 import akka.javasdk.agent.SessionMemoryEntity;
@@ -15,12 +15,17 @@ import akka.javasdk.http.HttpResponses;
 import akka.stream.javadsl.Source;
 import com.example.akka.backoffice.application.BackOfficeAssistentAgent;
 import com.example.akka.backoffice.application.BackOfficeStreamingAssistentAgent;
+import com.example.akka.backoffice.application.ChatDialogView;
+import com.typesafe.config.Config;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 
 @Acl(allow = @Acl.Matcher(principal = Acl.Principal.ALL))
@@ -38,10 +43,20 @@ public class ChatUiEndpoint {
 
     public record QueryRequest(String userId, String question) {}
 
+    // first history window fetched when catching up; doubled until it reaches back to the cursor
+    private static final int HISTORY_WINDOW = 8;
+
     private final ComponentClient componentClient;
+    private final boolean push;
+    private final Duration minPollInterval;
+    private final Duration maxPollInterval;
 
-    public ChatUiEndpoint(ComponentClient componentClient) {
+    public ChatUiEndpoint(ComponentClient componentClient, Config config) {
         this.componentClient = componentClient;
+        var streamConfig = config.getConfig("backoffice.chat-history-stream");
+        this.push = streamConfig.getBoolean("push");
+        this.minPollInterval = streamConfig.getDuration("min-poll-interval");
+        this.maxPollInterval = streamConfig.getDuration("max-poll-interval");
     }
 
     @Post("/ask-stream")
@@ -71,70 +86,117 @@ public class ChatUiEndpoint {
         public enum DialogSource{USER, AI}
     }
 
-    private record DialogListState(List<Dialog> dialogs, Instant lastTimestamp) {
-        public static DialogListState empty() {
-            return new DialogListState(List.of(), null);
-        }
-
-        public boolean isEmpty() {
-            return lastTimestamp == null;
-        }
+    /**
+     * Position of one history stream: the timestamp of the last emitted message and the last view sequence seen.
+     * Only touched by one stream stage at a time, so plain fields suffice.
+     */
+    private static final class DialogCursor {
+        private Instant lastTimestamp;
+        private long lastSequence = -1;
     }
 
+    /**
+     * The messages of the session so far, then each new message. With {@code backoffice.chat-history-stream.push}
+     * new messages are pushed by {@link ChatDialogView} and nothing is fetched while the session is idle; otherwise
+     * the history is polled for messages after the last one sent, at an interval that backs off while idle.
+     */
     @Get("/{userId}/history-stream")
     public HttpResponse streamCustomerChanges(String userId) {
-        Source<SessionHistory, Cancellable> stateEverySeconds =
-                Source.tick(Duration.ZERO, Duration.ofSeconds(1), "tick")
-                        .mapAsync(1, __ ->
-                                componentClient.forEventSourcedEntity(userId)
-                                        .method(SessionMemoryEntity::getHistory)
-                                        .invokeAsync(new SessionMemoryEntity.GetHistoryCmd(Optional.empty()))
-                                        .handle((SessionHistory history, Throwable error) -> {
-                                            if (error == null) {
-                                                return Optional.of(history);
-                                            } else if (error instanceof IllegalArgumentException) {
-                                                return Optional.<SessionHistory>empty();
-                                            } else {
-                                                throw new RuntimeException("Unexpected error polling customer state", error);
-                                            }
-                                        })
-                        )
-                        .filter(Optional::isPresent).map(Optional::get);
-
-        // deduplicate, so that we don't emit if the state did not change from last time
-        Source<DialogListState, Cancellable> streamOfChanges =
-                stateEverySeconds.scan(DialogListState.empty(),
-                        (state, sessionHistory) -> {
-                            var dialogs = fromSessionHistory(userId,sessionHistory);
-                            if (!state.isEmpty()) {
-                                dialogs = dialogs.stream().filter(dm ->  dm.timestamp().isAfter(state.lastTimestamp)).toList();
-//                                    logger.info("Last timestamp: {} size: {} new: {}", state.lastTimestamp, state.dialogs().size(), dialogs.size());
-
-                                if(dialogs.isEmpty()) {
-                                    return new DialogListState(List.of(), state.lastTimestamp());
-                                }
-                                var lastDialog = dialogs.getLast();
-//                                    logger.info("New dialogs #1: {}, {}", dialogs.size(), lastDialog.timestamp());
-
-                                return new DialogListState(dialogs, lastDialog.timestamp());
-                            } else if(dialogs.isEmpty()){
-                                return new DialogListState(List.of(), state.lastTimestamp());
-                            } else {
-                                var lastDialog = dialogs.getLast();
-//                                    logger.info("New dialogs #2: {}, {}", dialogs.size(), lastDialog.timestamp());
-                                return new DialogListState(dialogs, lastDialog.timestamp());
-                            }
-
-                        }
-                ).filterNot(state -> state.dialogs().isEmpty());
-
-        Source<Dialog, Cancellable> streamOfChangesAsApiType =
-                streamOfChanges.filter(state -> !state.dialogs.isEmpty()).flatMapConcat(dialogListState -> Source.from(dialogListState.dialogs()));
-        return HttpResponses.serverSentEvents(streamOfChangesAsApiType);
+        var cursor = new DialogCursor();
+        Source<Dialog, NotUsed> history =
+                Source.lazyCompletionStage(() -> dialogsAfter(userId, cursor))
+                        .mapConcat(dialogs -> dialogs);
+        var changes = push ? pushedDialogs(userId, cursor) : polledDialogs(userId, cursor);
+        return HttpResponses.serverSentEvents(history.concatLazy(changes));
+    }
+
+    private Source<Dialog, NotUsed> pushedDialogs(String userId, DialogCursor cursor) {
+        return componentClient.forView()
+                .stream(ChatDialogView::streamLatestDialog)
+                .source(userId)
+                .mapAsync(1, latest -> onLatestDialog(userId, latest, cursor))
+                .mapConcat(dialogs -> dialogs);
+    }
+
+    /**
+     * Polls for messages after the cursor: every {@code min-poll-interval} while the conversation is active, doubling
+     * up to {@code max-poll-interval} for every poll that finds nothing new.
+     */
+    private Source<Dialog, NotUsed> polledDialogs(String userId, DialogCursor cursor) {
+        return Source.unfoldAsync(minPollInterval, interval ->
+                        CompletableFuture.supplyAsync(() -> interval, CompletableFuture.delayedExecutor(interval.toMillis(), TimeUnit.MILLISECONDS))
+                                .thenCompose(__ -> dialogsAfter(userId, cursor))
+                                .thenApply(dialogs -> {
+                                    var next = dialogs.isEmpty() ? min(interval.multipliedBy(2), maxPollInterval) : minPollInterval;
+                                    return Optional.of(Pair.create(next, dialogs));
+                                }))
+                .mapConcat(dialogs -> dialogs);
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private CompletionStage<List<Dialog>> onLatestDialog(String userId, ChatDialogView.LatestDialog latest, DialogCursor cursor) {
+        var inOrder = latest.sequence() == cursor.lastSequence + 1;
+        cursor.lastSequence = latest.sequence();
+        if (cursor.lastTimestamp != null && !latest.timestamp().isAfter(cursor.lastTimestamp)) {
+            // already emitted from the history
+            return CompletableFuture.completedFuture(List.of());
+        }
+        if (inOrder) {
+            cursor.lastTimestamp = latest.timestamp();
+            var dialogSource = Dialog.DialogSource.valueOf(latest.dialogSource().name());
+            return CompletableFuture.completedFuture(List.of(new Dialog(userId, dialogSource, latest.text(), latest.timestamp())));
+        }
+        // first update after connecting, or updates were conflated: catch up from the history
+        return dialogsAfter(userId, cursor);
+    }
+
+    /**
+     * Messages after the cursor, advancing it. The whole history is only fetched for the first call; after that
+     * only the latest messages are fetched, in a window that is doubled until it reaches back to the cursor.
+     */
+    private CompletionStage<List<Dialog>> dialogsAfter(String userId, DialogCursor cursor) {
+        var after = cursor.lastTimestamp;
+        var messages = after == null
+                ? history(userId, Optional.empty())
+                : historySince(userId, after, HISTORY_WINDOW);
+        return messages.thenApply(sessionMessages -> {
+            var newDialogs = fromSessionHistory(userId, sessionMessages).stream()
+                    .filter(dialog -> after == null || dialog.timestamp().isAfter(after))
+                    .toList();
+            if (!newDialogs.isEmpty()) {
+                cursor.lastTimestamp = newDialogs.getLast().timestamp();
+            }
+            return newDialogs;
+        });
+    }
+
+    private CompletionStage<List<SessionMessage>> historySince(String userId, Instant after, int lastN) {
+        return history(userId, Optional.of(lastN)).thenCompose(messages -> {
+            var complete = messages.size() < lastN || !messages.getFirst().timestamp().isAfter(after);
+            return complete ? CompletableFuture.completedFuture(messages) : historySince(userId, after, lastN * 2);
+        });
+    }
+
+    private CompletionStage<List<SessionMessage>> history(String userId, Optional<Integer> lastN) {
+        return componentClient.forEventSourcedEntity(userId)
+                .method(SessionMemoryEntity::getHistory)
+                .invokeAsync(new SessionMemoryEntity.GetHistoryCmd(lastN))
+                .handle((SessionHistory history, Throwable error) -> {
+                    if (error == null) {
+                        return history.messages();
+                    } else if (error instanceof IllegalArgumentException) {
+                        return List.<SessionMessage>of();
+                    } else {
+                        throw new RuntimeException("Unexpected error fetching session history", error);
+                    }
+                });
     }
 
-    private List<Dialog> fromSessionHistory(String userId, SessionHistory history) {
-        return history.messages().stream().filter(sm ->
+    private List<Dialog> fromSessionHistory(String userId, List<SessionMessage> messages) {
+        return messages.stream().filter(sm ->
                 switch (sm){
                     case SessionMessage.UserMessage m-> true;
                     case SessionMessage.AiMessage m -> true;
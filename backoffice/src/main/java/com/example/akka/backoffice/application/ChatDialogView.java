@@ -0,0 +1,51 @@
+package com.example.akka.backoffice.application;
+
+import akka.javasdk.agent.SessionMemoryEntity;
+import akka.javasdk.annotations.Component;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.annotations.Query;
+import akka.javasdk.view.TableUpdater;
+import akka.javasdk.view.View;
+
+import java.time.Instant;
+
+/**
+ * Latest user or AI message of every agent session, fed by the session memory events. Subscribers of
+ * {@link #streamLatestDialog} get each new message pushed instead of polling the session history; the sequence
+ * number lets them notice when updates were conflated and fetch the messages in between.
+ */
+@Component(id = "chat-dialog-view")
+public class ChatDialogView extends View {
+
+    public enum DialogSource {USER, AI}
+
+    /**
+     * @param sequence number of user and AI messages in the session so far, including this one
+     */
+    public record LatestDialog(String userId, DialogSource dialogSource, String text, Instant timestamp, long sequence) {}
+
+    @Consume.FromEventSourcedEntity(SessionMemoryEntity.class)
+    public static class ChatDialogUpdater extends TableUpdater<LatestDialog> {
+
+        public Effect<LatestDialog> onEvent(SessionMemoryEntity.Event event) {
+            var userId = updateContext().eventSubject().orElse("");
+            return switch (event) {
+                case SessionMemoryEntity.Event.UserMessageAdded added ->
+                        effects().updateRow(next(userId, DialogSource.USER, added.message(), added.timestamp()));
+                case SessionMemoryEntity.Event.AiMessageAdded added ->
+                        effects().updateRow(next(userId, DialogSource.AI, added.message(), added.timestamp()));
+                default -> effects().ignore();
+            };
+        }
+
+        private LatestDialog next(String userId, DialogSource dialogSource, String text, Instant timestamp) {
+            var sequence = rowState() == null ? 1 : rowState().sequence() + 1;
+            return new LatestDialog(userId, dialogSource, text, timestamp, sequence);
+        }
+    }
+
+    @Query(value = "SELECT * FROM chat_dialog_view WHERE userId = :userId", streamUpdates = true)
+    public QueryStreamEffect<LatestDialog> streamLatestDialog(String userId) {
+        return queryStreamResult();
+    }
+}
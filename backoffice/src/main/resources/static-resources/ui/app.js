@@ -31,11 +31,21 @@ class FinTechHttpClient {
             this.listTransactionsByAccount();
         });
 
+        document.getElementById('moreTransactionsBtn').addEventListener('click', (e) => {
+            e.preventDefault();
+            this.listTransactionsByAccount(this.transactionsPageToken);
+        });
+
         document.getElementById('listAccountsBtn').addEventListener('click', (e) => {
             e.preventDefault();
             this.listAllAccounts();
         });
 
+        document.getElementById('moreAccountsBtn').addEventListener('click', (e) => {
+            e.preventDefault();
+            this.listAllAccounts(this.accountsPageToken);
+        });
+
         // Modal close functionality
         document.getElementById('closeModal').addEventListener('click', () => {
             document.getElementById('transactionModal').style.display = 'none';
@@ -143,35 +153,50 @@ Result: ${response.result}`;
 
 
 
-    async listTransactionsByAccount() {
+    async listTransactionsByAccount(pageToken = '') {
         const resultDiv = document.getElementById('listTransactionsResult');
         const tableContainer = document.getElementById('transactionsTableContainer');
+        const moreButton = document.getElementById('moreTransactionsBtn');
+        const firstPage = !pageToken;
 
         this.showLoading(resultDiv);
-        tableContainer.style.display = 'none';
+        if (firstPage) {
+            tableContainer.style.display = 'none';
+            this.transactionsLoaded = 0;
+        }
+        moreButton.style.display = 'none';
 
         try {
             const accountId = document.getElementById('accountIdForTransactions').value;
 
-            const response = await this.callHttpApi('GET', `/accounts/${accountId}/transactions`);
+            const response = await this.callHttpApi('GET', `/accounts/${accountId}/transactions?pageToken=${encodeURIComponent(pageToken)}`);
+            const transactions = response.transactions || [];
+            this.transactionsLoaded += transactions.length;
+            this.transactionsPageToken = response.nextPageToken || '';
 
-            if (response.transactions && response.transactions.length > 0) {
-                this.showSuccess(resultDiv, `Found ${response.transactions.length} transactions for account: ${accountId}`);
-                this.renderTransactionsTable(response.transactions);
+            if (this.transactionsLoaded > 0) {
+                const more = this.transactionsPageToken ? ' (more available)' : '';
+                this.showSuccess(resultDiv, `Found ${this.transactionsLoaded} transactions for account: ${accountId}${more}`);
+                this.renderTransactionsTable(transactions, !firstPage);
                 tableContainer.style.display = 'block';
+                moreButton.style.display = this.transactionsPageToken ? 'inline-block' : 'none';
             } else {
                 this.showSuccess(resultDiv, `No transactions found for account: ${accountId}`);
                 tableContainer.style.display = 'none';
             }
         } catch (error) {
             this.showError(resultDiv, error);
-            tableContainer.style.display = 'none';
+            if (firstPage) {
+                tableContainer.style.display = 'none';
+            }
         }
     }
 
-    renderTransactionsTable(transactions) {
+    renderTransactionsTable(transactions, append = false) {
         const tableBody = document.getElementById('transactionsTableBody');
-        tableBody.innerHTML = '';
+        if (!append) {
+            tableBody.innerHTML = '';
+        }
 
         transactions.forEach(transaction => {
             const row = document.createElement('tr');
@@ -209,21 +234,20 @@ Result: ${response.result}`;
                 </td>
             `;
             tableBody.appendChild(row);
-        });
 
-        // Add event listeners to Get Details buttons
-        document.querySelectorAll('.get-details-btn').forEach(button => {
-            button.addEventListener('click', (e) => {
-                const idempotencyKey = e.target.getAttribute('data-idempotency-key');
-                this.showTransactionDetails(idempotencyKey);
+            // Add event listeners to this row only, so appended pages do not bind earlier rows twice
+            row.querySelectorAll('.get-details-btn').forEach(button => {
+                button.addEventListener('click', (e) => {
+                    const idempotencyKey = e.target.getAttribute('data-idempotency-key');
+                    this.showTransactionDetails(idempotencyKey);
+                });
             });
-        });
 
-        // Add event listeners to Capture buttons
-        document.querySelectorAll('.capture-btn').forEach(button => {
-            button.addEventListener('click', (e) => {
-                const idempotencyKey = e.target.getAttribute('data-idempotency-key');
-                this.captureTransactionFromTable(idempotencyKey);
+            row.querySelectorAll('.capture-btn').forEach(button => {
+                button.addEventListener('click', (e) => {
+                    const idempotencyKey = e.target.getAttribute('data-idempotency-key');
+                    this.captureTransactionFromTable(idempotencyKey);
+                });
             });
         });
     }
@@ -302,33 +326,48 @@ Result: ${response.result}`;
         }
     }
 
-    async listAllAccounts() {
+    async listAllAccounts(pageToken = '') {
         const resultDiv = document.getElementById('listAccountsResult');
         const tableContainer = document.getElementById('accountsTableContainer');
+        const moreButton = document.getElementById('moreAccountsBtn');
+        const firstPage = !pageToken;
 
         this.showLoading(resultDiv);
-        tableContainer.style.display = 'none';
+        if (firstPage) {
+            tableContainer.style.display = 'none';
+            this.accountsLoaded = 0;
+        }
+        moreButton.style.display = 'none';
 
         try {
-            const response = await this.callHttpApi('GET', '/accounts');
-
-            if (response.accounts && response.accounts.length > 0) {
-                this.showSuccess(resultDiv, `Found ${response.accounts.length} accounts`);
-                this.renderAccountsTable(response.accounts);
+            const response = await this.callHttpApi('GET', `/accounts?pageToken=${encodeURIComponent(pageToken)}`);
+            const accounts = response.accounts || [];
+            this.accountsLoaded += accounts.length;
+            this.accountsPageToken = response.nextPageToken || '';
+
+            if (this.accountsLoaded > 0) {
+                const more = this.accountsPageToken ? ' (more available)' : '';
+                this.showSuccess(resultDiv, `Found ${this.accountsLoaded} accounts${more}`);
+                this.renderAccountsTable(accounts, !firstPage);
                 tableContainer.style.display = 'block';
+                moreButton.style.display = this.accountsPageToken ? 'inline-block' : 'none';
             } else {
                 this.showSuccess(resultDiv, 'No accounts found');
                 tableContainer.style.display = 'none';
             }
         } catch (error) {
             this.showError(resultDiv, error);
-            tableContainer.style.display = 'none';
+            if (firstPage) {
+                tableContainer.style.display = 'none';
+            }
         }
     }
 
-    renderAccountsTable(accounts) {
+    renderAccountsTable(accounts, append = false) {
         const tableBody = document.getElementById('accountsTableBody');
-        tableBody.innerHTML = '';
+        if (!append) {
+            tableBody.innerHTML = '';
+        }
 
         accounts.forEach(account => {
             const row = document.createElement('tr');
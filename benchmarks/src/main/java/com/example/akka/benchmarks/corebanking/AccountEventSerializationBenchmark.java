@@ -0,0 +1,72 @@
+package com.example.akka.benchmarks.corebanking;
+
+import akka.javasdk.JsonSupport;
+import com.example.akka.corebanking.domain.AccountEvent;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of the {@link AccountEvent}s journaled for one transaction (authorisation + capture), with the
+ * short property names and with the full names written before. The journal bytes per transaction are compared in
+ * {@code AccountEventSerializationTest}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountEventSerializationBenchmark {
+
+    private final ObjectMapper mapper = JsonSupport.getObjectMapper();
+    // ignores the @JsonProperty names, i.e. writes events the way they were journaled before
+    private final ObjectMapper fullNamesMapper = JsonSupport.getObjectMapper().copy().disable(MapperFeature.USE_ANNOTATIONS);
+
+    private final AccountEvent.TransAuthorisationAdded authorisationAdded =
+            new AccountEvent.TransAuthorisationAdded("3f1c2a9e-7b8d-4e21-9c55-0d6a1b2c3d4e", 1500, "8e7d6c5b-4a39-4281-b7f6-e5d4c3b2a190");
+
+    private byte[] authorisationCompact;
+    private byte[] authorisationFullNames;
+
+    @Setup
+    public void setup() throws IOException {
+        authorisationCompact = mapper.writeValueAsBytes(authorisationAdded);
+        authorisationFullNames = fullNamesMapper.writeValueAsBytes(authorisationAdded);
+    }
+
+    @Benchmark
+    public byte[] serializeShortNames() throws IOException {
+        return mapper.writeValueAsBytes(authorisationAdded);
+    }
+
+    @Benchmark
+    public byte[] serializeFullNames() throws IOException {
+        return fullNamesMapper.writeValueAsBytes(authorisationAdded);
+    }
+
+    @Benchmark
+    public AccountEvent deserializeShortNames() throws IOException {
+        return mapper.readValue(authorisationCompact, AccountEvent.TransAuthorisationAdded.class);
+    }
+
+    /**
+     * Reading an event journaled before the change, through the aliases.
+     */
+    @Benchmark
+    public AccountEvent deserializeFullNames() throws IOException {
+        return mapper.readValue(authorisationFullNames, AccountEvent.TransAuthorisationAdded.class);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.akka.benchmarks.corebanking;
+
+import akka.javasdk.JsonSupport;
+import com.example.akka.corebanking.domain.AccountEvent;
+import com.example.akka.corebanking.domain.AccountState;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recovery of an AccountEntity as done after passivation or rebalancing: JSON events are read and applied to
+ * {@link AccountState}, starting from the latest snapshot when snapshots are taken. {@code snapshotEvery = 0}
+ * replays the whole history; otherwise at most {@code snapshotEvery} events follow the snapshot. The account keeps
+ * {@link #OPEN_AUTHORISATIONS} authorisations open while older ones are captured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountRecoveryBenchmark {
+
+    private static final int OPEN_AUTHORISATIONS = 100;
+
+    @Param({"1000", "100000", "1000000"})
+    public int eventCount;
+
+    @Param({"0", "100"})
+    public int snapshotEvery;
+
+    private record StoredEvent(Class<? extends AccountEvent> type, byte[] payload) {}
+
+    private final ObjectMapper mapper = JsonSupport.getObjectMapper();
+    private byte[] snapshot;
+    private List<StoredEvent> events;
+
+    @Setup
+    public void setup() throws IOException {
+        var journal = new ArrayList<StoredEvent>(eventCount);
+        journal.add(store(new AccountEvent.Created("account-1", Integer.MAX_VALUE)));
+        for (int i = 0; journal.size() < eventCount; i++) {
+            journal.add(store(new AccountEvent.TransAuthorisationAdded("tx-" + i, 1, "auth-" + i)));
+            if (i >= OPEN_AUTHORISATIONS && journal.size() < eventCount) {
+                journal.add(store(new AccountEvent.TransCaptureAdded("tx-" + (i - OPEN_AUTHORISATIONS), 1)));
+            }
+        }
+
+        if (snapshotEvery == 0) {
+            events = journal;
+        } else {
+            var snapshotAt = (eventCount / snapshotEvery) * snapshotEvery;
+            snapshot = mapper.writeValueAsBytes(replay(AccountState.empty(), journal.subList(0, snapshotAt)));
+            events = List.copyOf(journal.subList(snapshotAt, eventCount));
+        }
+    }
+
+    private StoredEvent store(AccountEvent event) throws IOException {
+        return new StoredEvent(event.getClass(), mapper.writeValueAsBytes(event));
+    }
+
+    private AccountState replay(AccountState state, List<StoredEvent> stored) throws IOException {
+        for (var event : stored) {
+            state = switch (mapper.readValue(event.payload(), event.type())) {
+                case AccountEvent.Created created -> state.onCreate(created);
+                case AccountEvent.TransAuthorisationAdded auth -> state.onAuthorisationAdded(auth);
+                case AccountEvent.TransCaptureAdded capture -> state.onCaptureAdded(capture);
+                case AccountEvent.TransCancelAdded cancel -> state.onCancelAdded(cancel);
+                case AccountEvent.LeaseGranted lease -> state.onLeaseGranted(lease);
+                case AccountEvent.LeaseAuthorisationAdded leaseAuth -> state.onLeaseAuthorisationAdded(leaseAuth);
+                case AccountEvent.LeaseReleased release -> state.onLeaseReleased(release);
+                case AccountEvent.AuthorisationExpiryScheduled scheduled -> state.onExpiryScheduled(scheduled);
+                case AccountEvent.AuthorisationsExpired expired -> state.onAuthorisationsExpired(expired);
+            };
+        }
+        return state;
+    }
+
+    @Benchmark
+    public AccountState recover() throws IOException {
+        var start = snapshot == null ? AccountState.empty() : mapper.readValue(snapshot, AccountState.class);
+        return replay(start, events);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.akka.benchmarks.corebanking;
+
+import com.example.akka.corebanking.domain.AccountEvent;
+import com.example.akka.corebanking.domain.AccountState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event application on {@link AccountState} as done by AccountEntity.applyEvent, for an account that already
+ * holds a number of open authorisations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountStateBenchmark {
+
+    @Param({"0", "1000"})
+    public int openAuthorisations;
+
+    private AccountState state;
+    private AccountEvent.TransAuthorisationAdded authorisationAdded;
+    private AccountEvent.TransCaptureAdded captureAdded;
+    private AccountEvent.TransCancelAdded cancelAdded;
+
+    @Setup
+    public void setup() {
+        state = AccountState.empty().onCreate(new AccountEvent.Created("account-1", Integer.MAX_VALUE));
+        for (int i = 0; i < openAuthorisations; i++) {
+            state = state.onAuthorisationAdded(new AccountEvent.TransAuthorisationAdded("tx-" + i, 1, "auth-" + i));
+        }
+        authorisationAdded = new AccountEvent.TransAuthorisationAdded("tx-new", 100, "auth-new");
+        captureAdded = new AccountEvent.TransCaptureAdded("tx-new", 100);
+        cancelAdded = new AccountEvent.TransCancelAdded("tx-new", 100);
+    }
+
+    @Benchmark
+    public AccountState onAuthorisationAdded() {
+        return state.onAuthorisationAdded(authorisationAdded);
+    }
+
+    @Benchmark
+    public AccountState authoriseThenCapture() {
+        return state.onAuthorisationAdded(authorisationAdded).onCaptureAdded(captureAdded);
+    }
+
+    @Benchmark
+    public AccountState authoriseThenCancel() {
+        return state.onAuthorisationAdded(authorisationAdded).onCancelAdded(cancelAdded);
+    }
+}
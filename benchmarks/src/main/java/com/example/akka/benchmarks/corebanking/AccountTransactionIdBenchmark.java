@@ -0,0 +1,37 @@
+package com.example.akka.benchmarks.corebanking;
+
+import com.example.akka.corebanking.domain.AccountTransaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountTransactionIdBenchmark {
+
+    private final AccountTransaction.AccountTransactionId id =
+            new AccountTransaction.AccountTransactionId("6f1c2f9e-3b7a-4d51-9a43-1f0e2d6c8b11", "account-123");
+    private final String idString = id.toString();
+
+    @Benchmark
+    public String toStringId() {
+        return id.toString();
+    }
+
+    @Benchmark
+    public AccountTransaction.AccountTransactionId fromString() {
+        return AccountTransaction.AccountTransactionId.fromString(idString);
+    }
+}
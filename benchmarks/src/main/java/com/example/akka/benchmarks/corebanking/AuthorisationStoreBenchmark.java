@@ -0,0 +1,135 @@
+package com.example.akka.benchmarks.corebanking;
+
+import com.example.akka.corebanking.domain.AccountEvent;
+import com.example.akka.corebanking.domain.AccountState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the persistent-map backed {@link AccountState} with the previous List backed implementation
+ * (reproduced below as {@link ListAccountState}) for an account holding N open authorisations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthorisationStoreBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int openAuthorisations;
+
+    private AccountState mapState;
+    private ListAccountState listState;
+    private String existingTransactionId;
+    private AccountEvent.TransAuthorisationAdded newAuthorisation;
+    private AccountEvent.TransCaptureAdded capture;
+    private AccountEvent.TransCancelAdded cancel;
+
+    @Setup
+    public void setup() {
+        mapState = AccountState.empty().onCreate(new AccountEvent.Created("account-1", Integer.MAX_VALUE));
+        var auths = new ArrayList<AccountState.Authorisation>(openAuthorisations);
+        for (int i = 0; i < openAuthorisations; i++) {
+            var event = new AccountEvent.TransAuthorisationAdded("tx-" + i, 1, "auth-" + i);
+            mapState = mapState.onAuthorisationAdded(event);
+            auths.add(new AccountState.Authorisation(event.transactionId(), event.amount(), event.authCode()));
+        }
+        // built in one go, replaying through onAuthorisationAdded would be quadratic for the list
+        listState = new ListAccountState("account-1", auths, mapState.availableBalance(), mapState.postedBalance());
+        // worst case for the list: the hold we look for was added last
+        existingTransactionId = "tx-" + (openAuthorisations - 1);
+        newAuthorisation = new AccountEvent.TransAuthorisationAdded("tx-new", 1, "auth-new");
+        capture = new AccountEvent.TransCaptureAdded(existingTransactionId, 1);
+        cancel = new AccountEvent.TransCancelAdded(existingTransactionId, 1);
+    }
+
+    @Benchmark
+    public Optional<AccountState.Authorisation> lookupMap() {
+        return mapState.getAuthorisation(existingTransactionId);
+    }
+
+    @Benchmark
+    public Optional<AccountState.Authorisation> lookupList() {
+        return listState.getAuthorisation(existingTransactionId);
+    }
+
+    @Benchmark
+    public AccountState authoriseMap() {
+        return mapState.onAuthorisationAdded(newAuthorisation);
+    }
+
+    @Benchmark
+    public ListAccountState authoriseList() {
+        return listState.onAuthorisationAdded(newAuthorisation);
+    }
+
+    @Benchmark
+    public AccountState captureMap() {
+        return mapState.onCaptureAdded(capture);
+    }
+
+    @Benchmark
+    public ListAccountState captureList() {
+        return listState.onCaptureAdded(capture);
+    }
+
+    @Benchmark
+    public AccountState cancelMap() {
+        return mapState.onCancelAdded(cancel);
+    }
+
+    @Benchmark
+    public ListAccountState cancelList() {
+        return listState.onCancelAdded(cancel);
+    }
+
+    /**
+     * The List based AccountState as it was before authorisations were indexed by transactionId.
+     */
+    public record ListAccountState(String accountId, List<AccountState.Authorisation> authorisations, int availableBalance, int postedBalance) {
+
+        public Optional<AccountState.Authorisation> getAuthorisation(String transactionId) {
+            return authorisations.stream()
+                    .filter(a -> a.transactionId().equals(transactionId))
+                    .findFirst();
+        }
+
+        public ListAccountState onAuthorisationAdded(AccountEvent.TransAuthorisationAdded event) {
+            var newAuths = new ArrayList<>(authorisations);
+            newAuths.add(new AccountState.Authorisation(event.transactionId(), event.amount(), event.authCode()));
+            return new ListAccountState(accountId, newAuths, availableBalance - event.amount(), postedBalance);
+        }
+
+        public ListAccountState onCaptureAdded(AccountEvent.TransCaptureAdded event) {
+            var auth = getAuthorisation(event.transactionId()).get();
+            var newAuths = authorisations.stream()
+                    .filter(a -> !a.transactionId().equals(event.transactionId()))
+                    .toList();
+            return new ListAccountState(accountId, newAuths, availableBalance, postedBalance - auth.amount());
+        }
+
+        public ListAccountState onCancelAdded(AccountEvent.TransCancelAdded event) {
+            var auth = getAuthorisation(event.transactionId()).get();
+            var newAuths = authorisations.stream()
+                    .filter(a -> !a.transactionId().equals(event.transactionId()))
+                    .toList();
+            return new ListAccountState(accountId, newAuths, availableBalance + auth.amount(), postedBalance);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.akka.benchmarks.payments;
+
+import com.example.akka.account.api.AuthResult;
+import com.example.akka.account.api.AuthStatus;
+import com.example.akka.account.api.CancelTransResult;
+import com.example.akka.account.api.CancelTransStatus;
+import com.example.akka.account.api.CaptureTransResult;
+import com.example.akka.account.api.CaptureTransStatus;
+import com.example.akka.payments.application.AccountProtoMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Proto-to-domain enum mapping done by TransactionWorkflow on every corebanking response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountProtoMapperBenchmark {
+
+    private final AuthStatus[] authStatuses = AuthStatus.values();
+    private int next;
+
+    @Benchmark
+    public void mapAuthorisation(Blackhole bh) {
+        var status = authStatuses[next++ % authStatuses.length];
+        bh.consume(AccountProtoMapper.mapProtoAuthResult(AuthResult.AUTHORISED));
+        bh.consume(AccountProtoMapper.mapProtoAuthStatus(status));
+    }
+
+    @Benchmark
+    public void mapCapture(Blackhole bh) {
+        bh.consume(AccountProtoMapper.mapProtoCaptureResult(CaptureTransResult.CAPTURED));
+        bh.consume(AccountProtoMapper.mapProtoCaptureStatus(CaptureTransStatus.CAPTURE_OK));
+    }
+
+    @Benchmark
+    public void mapCancel(Blackhole bh) {
+        bh.consume(AccountProtoMapper.mapProtoCancelResult(CancelTransResult.CANCELED));
+        bh.consume(AccountProtoMapper.mapProtoCancelStatus(CancelTransStatus.CANCEL_OK));
+    }
+}
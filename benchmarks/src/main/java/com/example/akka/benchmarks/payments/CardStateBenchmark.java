@@ -0,0 +1,32 @@
+package com.example.akka.benchmarks.payments;
+
+import com.example.akka.payments.domain.CardEvent;
+import com.example.akka.payments.domain.CardState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CardStateBenchmark {
+
+    private final CardState empty = CardState.empty();
+    private final CardEvent.Created created = new CardEvent.Created("4111111111111111", "12/27", "123", "account-1");
+
+    @Benchmark
+    public CardState onCreate() {
+        return empty.onCreate(created);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.akka.benchmarks.payments;
+
+import com.example.akka.payments.domain.TransactionState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The chain of {@link TransactionState} copies TransactionWorkflow goes through for one transaction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionStateBenchmark {
+
+    private final TransactionState.CardData cardData =
+            new TransactionState.CardData("4111111111111111", "12/27", "123", 1500, "EUR");
+
+    private static final Instant CREATED_AT = Instant.parse("2025-01-01T00:00:00Z");
+
+    @Benchmark
+    public TransactionState authoriseAndCapture() {
+        return TransactionState.empty()
+                .init("idem-1", "tx-1", cardData, CREATED_AT)
+                .withCardValid("account-1")
+                .withAuthResult("auth-1", TransactionState.AuthResult.authorised, TransactionState.AuthStatus.ok)
+                .withCaptured(TransactionState.CaptureResult.captured, TransactionState.CaptureStatus.ok);
+    }
+
+    @Benchmark
+    public TransactionState authoriseAndCancel() {
+        return TransactionState.empty()
+                .init("idem-1", "tx-1", cardData, CREATED_AT)
+                .withCardValid("account-1")
+                .withAuthResult("auth-1", TransactionState.AuthResult.authorised, TransactionState.AuthStatus.ok)
+                .withCanceled(TransactionState.CancelResult.canceled, TransactionState.CancelStatus.ok);
+    }
+}
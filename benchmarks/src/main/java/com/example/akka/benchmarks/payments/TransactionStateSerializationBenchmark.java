@@ -0,0 +1,82 @@
+package com.example.akka.benchmarks.payments;
+
+import akka.javasdk.JsonSupport;
+import com.example.akka.payments.domain.TransactionState;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of the {@link TransactionState} TransactionWorkflow persists, as written now (short property
+ * names, outcomes not reached yet left out) and with every field under its full name as written before. The workflow
+ * state bytes written for one authorise+capture flow are compared in {@code TransactionStateSerializationTest}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionStateSerializationBenchmark {
+
+    private final ObjectMapper mapper = JsonSupport.getObjectMapper();
+    // ignores the @JsonProperty and @JsonInclude annotations, i.e. writes the state the way it was persisted before
+    private final ObjectMapper fullNamesMapper = JsonSupport.getObjectMapper().copy().disable(MapperFeature.USE_ANNOTATIONS);
+
+    private TransactionState authorised;
+    private byte[] authorisedShortNames;
+    private byte[] authorisedFullNames;
+
+    @Setup
+    public void setup() throws IOException {
+        var now = Instant.parse("2025-01-01T00:00:00Z");
+        var started = TransactionState.empty().init(
+                "3f1c2a9e-7b8d-4e21-9c55-0d6a1b2c3d4e",
+                "3f1c2a9e-7b8d-4e21-9c55-0d6a1b2c3d4e",
+                new TransactionState.CardData("4111111111111111", "12/27", "123", 1500, "USD"),
+                now);
+        authorised = started
+                .withCardValid("account-1")
+                .withUpdatedAt(now.plusMillis(20))
+                .withAuthResult("8e7d6c5b-4a39-4281-b7f6-e5d4c3b2a190", TransactionState.AuthResult.authorised, TransactionState.AuthStatus.ok)
+                .withUpdatedAt(now.plusMillis(40));
+        authorisedShortNames = mapper.writeValueAsBytes(authorised);
+        authorisedFullNames = fullNamesMapper.writeValueAsBytes(authorised);
+    }
+
+    @Benchmark
+    public byte[] serializeShortNames() throws IOException {
+        return mapper.writeValueAsBytes(authorised);
+    }
+
+    @Benchmark
+    public byte[] serializeFullNames() throws IOException {
+        return fullNamesMapper.writeValueAsBytes(authorised);
+    }
+
+    @Benchmark
+    public TransactionState deserializeShortNames() throws IOException {
+        return mapper.readValue(authorisedShortNames, TransactionState.class);
+    }
+
+    /**
+     * Reading a state persisted before the change, through the aliases.
+     */
+    @Benchmark
+    public TransactionState deserializeFullNames() throws IOException {
+        return mapper.readValue(authorisedFullNames, TransactionState.class);
+    }
+}
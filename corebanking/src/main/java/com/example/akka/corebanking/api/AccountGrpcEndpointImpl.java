@@ -1,24 +1,42 @@
 package com.example.akka.corebanking.api;
 
+import akka.NotUsed;
 import akka.grpc.GrpcServiceException;
 import akka.javasdk.annotations.Acl;
 import akka.javasdk.annotations.GrpcEndpoint;
 import akka.javasdk.client.ComponentClient;
+import akka.stream.javadsl.Source;
 import com.example.akka.account.api.*;
 import com.example.akka.corebanking.application.AccountEntity;
+import com.example.akka.corebanking.application.AccountImport;
 import com.example.akka.corebanking.application.AccountView;
+import com.example.akka.corebanking.application.AuthorisationExpiries;
+import com.google.protobuf.Timestamp;
+import com.typesafe.config.Config;
 import io.grpc.Status;
 import org.slf4j.Logger;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
+
 @Acl(allow = @Acl.Matcher(principal = Acl.Principal.ALL))
 @GrpcEndpoint
 public class AccountGrpcEndpointImpl implements AccountGrpcEndpoint {
 
     private final static Logger logger = org.slf4j.LoggerFactory.getLogger(AccountGrpcEndpointImpl.class);
     private final ComponentClient componentClient;
+    private final AccountImport accountImport;
+    private final int authorisationStreamParallelism;
+    private final AuthorisationExpiries expiries;
 
-    public AccountGrpcEndpointImpl(ComponentClient componentClient) {
+    public AccountGrpcEndpointImpl(ComponentClient componentClient, Config config) {
         this.componentClient = componentClient;
+        this.accountImport = new AccountImport(componentClient, config);
+        this.authorisationStreamParallelism = config.getInt("corebanking.authorisation-stream.parallelism");
+        this.expiries = AuthorisationExpiries.fromConfig(config.getConfig("corebanking.authorisation-expiry"));
     }
 
     /* <<<<<<<<<<<<<<  ✨ Windsurf Command ⭐ >>>>>>>>>>>>>>>> */
@@ -45,6 +63,13 @@ public class AccountGrpcEndpointImpl implements AccountGrpcEndpoint {
         }
     }
 
+    @Override
+    public Source<CreateAccountsReply, NotUsed> createAccounts(Source<CreateAccountRequest, NotUsed> in) {
+        return accountImport.run(in.map(request ->
+                        new AccountEntity.ApiAccount(request.getAccountId(), request.getInitialBalance(), request.getInitialBalance())))
+                .map(this::toProtoImportUpdate);
+    }
+
     @Override
     public Account getAccount(GetAccountRequest in) {
         logger.info("Getting account {}", in.getAccountId());
@@ -68,17 +93,89 @@ public class AccountGrpcEndpointImpl implements AccountGrpcEndpoint {
 
         try {
 
-            var authRequest = new AccountEntity.AuthorisationRequest(in.getTransactionId(), in.getAmount());
+            var authRequest = new AccountEntity.AuthorisationRequest(in.getTransactionId(), in.getAmount(), expiries.hold());
             var response = componentClient.forEventSourcedEntity(in.getAccountId())
                     .method(AccountEntity::authoriseTransaction)
                     .invoke(authRequest);
 
-            return AuthorizeTransactionResponse.newBuilder()
-                    .setAuthCode(response.authCode().orElse(""))
+            return toProtoAuthResponse(response);
+        } catch (Exception e) {
+            throw new GrpcServiceException(Status.INTERNAL.augmentDescription(e.getMessage()));
+        }
+    }
+
+    @Override
+    public BatchAuthorizeTransactionsResponse batchAuthorizeTransactions(BatchAuthorizeTransactionsRequest in) {
+        logger.info("Authorizing batch of {} transactions for account {}", in.getItemsCount(), in.getAccountId());
+
+        try {
+            var authRequests = in.getItemsList().stream()
+                    .map(item -> new AccountEntity.AuthorisationRequest(item.getTransactionId(), item.getAmount(), expiries.hold()))
+                    .toList();
+            var response = componentClient.forEventSourcedEntity(in.getAccountId())
+                    .method(AccountEntity::authoriseTransactions)
+                    .invoke(new AccountEntity.BatchAuthorisationRequest(authRequests));
+
+            var results = response.results().stream()
+                    .map(result -> BatchAuthorizeTransactionResult.newBuilder()
+                            .setTransactionId(result.transactionId())
+                            .setAuthCode(result.response().authCode().orElse(""))
+                            .setAuthResult(toProtoAuthResult(result.response().authResult()))
+                            .setAuthStatus(toProtoAuthStatus(result.response().authStatus()))
+                            .build())
+                    .toList();
+
+            return BatchAuthorizeTransactionsResponse.newBuilder()
+                    .addAllResults(results)
+                    .build();
+        } catch (Exception e) {
+            logger.error("Failed to authorize batch for account {}: {}", in.getAccountId(), e.getMessage());
+            throw new GrpcServiceException(Status.INTERNAL.augmentDescription(e.getMessage()));
+        }
+    }
+
+    @Override
+    public GrantLeaseResponse grantLease(GrantLeaseRequest in) {
+        logger.info("Granting lease {} of {} on account {}", in.getLeaseId(), in.getAmount(), in.getAccountId());
+
+        try {
+            var response = componentClient.forEventSourcedEntity(in.getAccountId())
+                    .method(AccountEntity::grantLease)
+                    .invoke(new AccountEntity.LeaseRequest(in.getLeaseId(), in.getAmount(), expiries.lease()));
+
+            var builder = GrantLeaseResponse.newBuilder()
+                    .setAmount(response.amount())
                     .setAuthResult(toProtoAuthResult(response.authResult()))
-                    .setAuthStatus(toProtoAuthStatus(response.authStatus()))
+                    .setAuthStatus(toProtoAuthStatus(response.authStatus()));
+            if (response.expiresAt() != null) {
+                builder.setExpiresAt(Timestamp.newBuilder()
+                        .setSeconds(response.expiresAt().getEpochSecond())
+                        .setNanos(response.expiresAt().getNano()));
+            }
+            return builder.build();
+        } catch (Exception e) {
+            logger.error("Failed to grant lease {} on account {}: {}", in.getLeaseId(), in.getAccountId(), e.getMessage());
+            throw new GrpcServiceException(Status.INTERNAL.augmentDescription(e.getMessage()));
+        }
+    }
+
+    @Override
+    public SettleLeaseResponse settleLease(SettleLeaseRequest in) {
+        logger.info("Settling {} authorisations of lease {} on account {}", in.getAuthorisationsCount(), in.getLeaseId(), in.getAccountId());
+
+        try {
+            var authorisations = in.getAuthorisationsList().stream()
+                    .map(auth -> new AccountEntity.LeasedAuthorisation(auth.getTransactionId(), auth.getAmount(), auth.getAuthCode()))
+                    .toList();
+            var response = componentClient.forEventSourcedEntity(in.getAccountId())
+                    .method(AccountEntity::settleLease)
+                    .invoke(new AccountEntity.LeaseSettlement(in.getLeaseId(), authorisations, in.getRelease(), expiries.hold()));
+
+            return SettleLeaseResponse.newBuilder()
+                    .setRemaining(response.remaining())
                     .build();
         } catch (Exception e) {
+            logger.error("Failed to settle lease {} on account {}: {}", in.getLeaseId(), in.getAccountId(), e.getMessage());
             throw new GrpcServiceException(Status.INTERNAL.augmentDescription(e.getMessage()));
         }
     }
@@ -88,14 +185,9 @@ public class AccountGrpcEndpointImpl implements AccountGrpcEndpoint {
         logger.info("Capturing transaction {} for account {}", in.getTransactionId(), in.getAccountId());
 
         try {
-            var result = componentClient.forEventSourcedEntity(in.getAccountId())
-                    .method(AccountEntity::captureTransaction)
-                    .invoke(in.getTransactionId());
+            var result = capture(in).toCompletableFuture().join();
 
-            return CaptureTransactionResponse.newBuilder()
-                    .setCaptureResult(toProtoCaptureResult(result.captureResult()))
-                    .setCaptureStatus(toProtoCaptureStatus(result.captureStatus()))
-                    .build();
+            return toProtoCaptureResponse(result);
         } catch (Exception e) {
             logger.error("Failed to capture transaction {} for account {}: {}",
                     in.getTransactionId(), in.getAccountId(), e.getMessage());
@@ -103,19 +195,33 @@ public class AccountGrpcEndpointImpl implements AccountGrpcEndpoint {
         }
     }
 
+    @Override
+    public BatchCaptureTransactionsResponse batchCaptureTransactions(BatchCaptureTransactionsRequest in) {
+        logger.info("Capturing batch of {} transactions for account {}", in.getTransactionIdsCount(), in.getAccountId());
+
+        try {
+            var response = componentClient.forEventSourcedEntity(in.getAccountId())
+                    .method(AccountEntity::captureTransactions)
+                    .invoke(new AccountEntity.BatchTransactionRequest(List.copyOf(in.getTransactionIdsList()),
+                            toLeaseAuthorisations(in.getLeaseAuthorisationsMap()), expiries.hold()));
+
+            return BatchCaptureTransactionsResponse.newBuilder()
+                    .addAllResults(response.results().stream().map(this::toProtoCaptureResponse).toList())
+                    .build();
+        } catch (Exception e) {
+            logger.error("Failed to capture batch for account {}: {}", in.getAccountId(), e.getMessage());
+            throw new GrpcServiceException(Status.INTERNAL.augmentDescription(e.getMessage()));
+        }
+    }
+
     @Override
     public CancelTransactionResponse cancelTransaction(CancelTransactionRequest in) {
         logger.info("Cancel transaction {} for account {}", in.getTransactionId(), in.getAccountId());
 
         try {
-            var result = componentClient.forEventSourcedEntity(in.getAccountId())
-                    .method(AccountEntity::cancelTransaction)
-                    .invoke(in.getTransactionId());
+            var result = cancel(in).toCompletableFuture().join();
 
-            return CancelTransactionResponse.newBuilder()
-                    .setCancelResult(toProtoCancelResult(result.cancelResult()))
-                    .setCancelStatus(toProtoCancelStatus(result.cancelStatus()))
-                    .build();
+            return toProtoCancelResponse(result);
         } catch (Exception e) {
             logger.error("Failed to cancel transaction {} for account {}: {}",
                     in.getTransactionId(), in.getAccountId(), e.getMessage());
@@ -124,27 +230,204 @@ public class AccountGrpcEndpointImpl implements AccountGrpcEndpoint {
     }
 
     @Override
-    public GetAllAccountsResponse getAllAccounts(GetAllAccountsRequest in) {
-        logger.info("Getting all accounts");
+    public BatchCancelTransactionsResponse batchCancelTransactions(BatchCancelTransactionsRequest in) {
+        logger.info("Cancelling batch of {} transactions for account {}", in.getTransactionIdsCount(), in.getAccountId());
+
         try {
-            var accountList = componentClient.forView().method(AccountView::getAllAccounts).invoke();
-            var accounts = accountList.accounts().stream()
-                    .map(account -> Account.newBuilder()
-                            .setAccountId(account.accountId())
-                            .setAvailableBalance(account.availableBalance())
-                            .setPostedBalance(account.postedBalance())
-                            .build())
-                    .toList();
+            var response = componentClient.forEventSourcedEntity(in.getAccountId())
+                    .method(AccountEntity::cancelTransactions)
+                    .invoke(new AccountEntity.BatchTransactionRequest(List.copyOf(in.getTransactionIdsList()),
+                            toLeaseAuthorisations(in.getLeaseAuthorisationsMap()), expiries.hold()));
 
-            return GetAllAccountsResponse.newBuilder()
-                    .addAllAccounts(accounts)
+            return BatchCancelTransactionsResponse.newBuilder()
+                    .addAllResults(response.results().stream().map(this::toProtoCancelResponse).toList())
                     .build();
+        } catch (Exception e) {
+            logger.error("Failed to cancel batch for account {}: {}", in.getAccountId(), e.getMessage());
+            throw new GrpcServiceException(Status.INTERNAL.augmentDescription(e.getMessage()));
+        }
+    }
+
+    @Override
+    public GetAllAccountsResponse getAllAccounts(GetAllAccountsRequest in) {
+        logger.info("Getting accounts page of size {}", in.getPageSize());
+        AccountView.PageRequest pageRequest;
+        try {
+            pageRequest = AccountView.PageRequest.of(in.getPageToken(), in.getPageSize());
+        } catch (IllegalArgumentException e) {
+            throw new GrpcServiceException(Status.INVALID_ARGUMENT.augmentDescription(e.getMessage()));
+        }
+        try {
+            var page = componentClient.forView()
+                    .method(AccountView::getAccountsPage)
+                    .invoke(pageRequest);
+            var response = GetAllAccountsResponse.newBuilder()
+                    .setNextPageToken(page.hasMore() ? page.nextPageToken() : "");
+            page.accounts().forEach(account -> response.addAccounts(fromSummary(account)));
+            return response.build();
         } catch (Exception e) {
             logger.error("Failed to get all accounts: {}", e.getMessage());
             throw new GrpcServiceException(Status.INTERNAL.augmentDescription(e.getMessage()));
         }
     }
 
+    /**
+     * Streams every account from the view, so consumers can walk the full account list with constant memory.
+     */
+    @Override
+    public Source<Account, NotUsed> streamAllAccounts(StreamAllAccountsRequest in) {
+        logger.info("Streaming all accounts");
+        return componentClient.forView()
+                .stream(AccountView::streamAllAccounts)
+                .source()
+                .map(this::fromSummary);
+    }
+
+    /**
+     * Current balances of the account followed by every change, pushed from the view instead of clients polling
+     * GetAccount on the entity.
+     */
+    @Override
+    public Source<Account, NotUsed> streamAccountUpdates(StreamAccountUpdatesRequest in) {
+        logger.info("Streaming updates of account {}", in.getAccountId());
+        return componentClient.forView()
+                .stream(AccountView::streamAccountUpdates)
+                .source(in.getAccountId())
+                .map(this::fromSummary);
+    }
+
+    private Account fromSummary(AccountView.AccountSummary account) {
+        return Account.newBuilder()
+                .setAccountId(account.accountId())
+                .setAvailableBalance(account.availableBalance())
+                .setPostedBalance(account.postedBalance())
+                .build();
+    }
+
+    /**
+     * Long-lived channel for authorise/capture/cancel commands. Commands are processed concurrently and each reply
+     * carries the correlation id of its command, so replies may arrive in a different order than the commands.
+     */
+    @Override
+    public Source<AuthorisationStreamReply, NotUsed> authorisationStream(Source<AuthorisationStreamCommand, NotUsed> in) {
+        logger.info("Authorisation stream opened");
+        return in.mapAsyncUnordered(authorisationStreamParallelism, command ->
+                handleStreamCommand(command)
+                        .exceptionally(e -> {
+                            logger.error("Failed to process stream command {}: {}", command.getCorrelationId(), e.getMessage());
+                            return AuthorisationStreamReply.newBuilder()
+                                    .setCorrelationId(command.getCorrelationId())
+                                    .setError(String.valueOf(e.getMessage()))
+                                    .build();
+                        }));
+    }
+
+    private CompletionStage<AuthorisationStreamReply> handleStreamCommand(AuthorisationStreamCommand command) {
+        var reply = AuthorisationStreamReply.newBuilder().setCorrelationId(command.getCorrelationId());
+        return switch (command.getCommandCase()) {
+            case AUTHORIZE -> {
+                var in = command.getAuthorize();
+                yield componentClient.forEventSourcedEntity(in.getAccountId())
+                        .method(AccountEntity::authoriseTransaction)
+                        .invokeAsync(new AccountEntity.AuthorisationRequest(in.getTransactionId(), in.getAmount(), expiries.hold()))
+                        .thenApply(response -> reply.setAuthorize(toProtoAuthResponse(response)).build());
+            }
+            case CAPTURE -> {
+                yield capture(command.getCapture())
+                        .thenApply(result -> reply.setCapture(toProtoCaptureResponse(result)).build());
+            }
+            case CANCEL -> {
+                yield cancel(command.getCancel())
+                        .thenApply(result -> reply.setCancel(toProtoCancelResponse(result)).build());
+            }
+            case COMMAND_NOT_SET ->
+                    CompletableFuture.completedFuture(reply.setError("Command not set").build());
+        };
+    }
+
+    /**
+     * A capture of a transaction authorised from a lease goes through the batch command, which settles the
+     * transaction first when the account does not hold it yet.
+     */
+    private CompletionStage<AccountEntity.CaptureTransactionResponse> capture(CaptureTransactionRequest in) {
+        var account = componentClient.forEventSourcedEntity(in.getAccountId());
+        if (!in.hasLeaseAuthorisation()) {
+            return account.method(AccountEntity::captureTransaction).invokeAsync(in.getTransactionId());
+        }
+        return account.method(AccountEntity::captureTransactions)
+                .invokeAsync(new AccountEntity.BatchTransactionRequest(List.of(in.getTransactionId()),
+                        Map.of(in.getTransactionId(), toLeaseAuthorisation(in.getLeaseAuthorisation())), expiries.hold()))
+                .thenApply(response -> response.results().get(0));
+    }
+
+    private CompletionStage<AccountEntity.CancelTransactionResponse> cancel(CancelTransactionRequest in) {
+        var account = componentClient.forEventSourcedEntity(in.getAccountId());
+        if (!in.hasLeaseAuthorisation()) {
+            return account.method(AccountEntity::cancelTransaction).invokeAsync(in.getTransactionId());
+        }
+        return account.method(AccountEntity::cancelTransactions)
+                .invokeAsync(new AccountEntity.BatchTransactionRequest(List.of(in.getTransactionId()),
+                        Map.of(in.getTransactionId(), toLeaseAuthorisation(in.getLeaseAuthorisation())), expiries.hold()))
+                .thenApply(response -> response.results().get(0));
+    }
+
+    private static Map<String, AccountEntity.LeaseAuthorisation> toLeaseAuthorisations(Map<String, LeaseAuthorisation> in) {
+        return in.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> toLeaseAuthorisation(entry.getValue())));
+    }
+
+    private static AccountEntity.LeaseAuthorisation toLeaseAuthorisation(LeaseAuthorisation in) {
+        return new AccountEntity.LeaseAuthorisation(in.getLeaseId(), in.getAmount(), in.getAuthCode());
+    }
+
+    private CreateAccountsReply toProtoImportUpdate(AccountImport.Update update) {
+        if (update.result() != null) {
+            var result = update.result();
+            return CreateAccountsReply.newBuilder()
+                    .setResult(CreateAccountResult.newBuilder()
+                            .setAccountId(result.accountId())
+                            .setStatus(switch (result.status()) {
+                                case created -> CreateAccountStatus.CREATE_ACCOUNT_CREATED;
+                                case existing -> CreateAccountStatus.CREATE_ACCOUNT_EXISTING;
+                                case failed -> CreateAccountStatus.CREATE_ACCOUNT_FAILED;
+                            })
+                            .setMessage(result.message()))
+                    .build();
+        }
+        var progress = update.progress();
+        return CreateAccountsReply.newBuilder()
+                .setProgress(AccountImportProgress.newBuilder()
+                        .setProcessed(progress.processed())
+                        .setCreated(progress.created())
+                        .setExisting(progress.existing())
+                        .setFailed(progress.failed())
+                        .setAccountsPerSecond(progress.accountsPerSecond())
+                        .setElapsedMillis(progress.elapsedMillis()))
+                .build();
+    }
+
+    private AuthorizeTransactionResponse toProtoAuthResponse(AccountEntity.AuthorisationResponse response) {
+        return AuthorizeTransactionResponse.newBuilder()
+                .setAuthCode(response.authCode().orElse(""))
+                .setAuthResult(toProtoAuthResult(response.authResult()))
+                .setAuthStatus(toProtoAuthStatus(response.authStatus()))
+                .build();
+    }
+
+    private CaptureTransactionResponse toProtoCaptureResponse(AccountEntity.CaptureTransactionResponse result) {
+        return CaptureTransactionResponse.newBuilder()
+                .setCaptureResult(toProtoCaptureResult(result.captureResult()))
+                .setCaptureStatus(toProtoCaptureStatus(result.captureStatus()))
+                .build();
+    }
+
+    private CancelTransactionResponse toProtoCancelResponse(AccountEntity.CancelTransactionResponse result) {
+        return CancelTransactionResponse.newBuilder()
+                .setCancelResult(toProtoCancelResult(result.cancelResult()))
+                .setCancelStatus(toProtoCancelStatus(result.cancelStatus()))
+                .build();
+    }
+
     private Account fromState(AccountEntity.ApiAccount account) {
         return Account.newBuilder()
                 .setAccountId(account.accountId())
@@ -1,26 +1,40 @@
 package com.example.akka.corebanking.api;
 
+import akka.http.javadsl.model.HttpEntity;
+import akka.http.javadsl.model.HttpResponse;
 import akka.javasdk.annotations.Acl;
 import akka.javasdk.annotations.http.Get;
 import akka.javasdk.annotations.http.HttpEndpoint;
 import akka.javasdk.annotations.http.Post;
 import akka.javasdk.client.ComponentClient;
 import akka.javasdk.http.AbstractHttpEndpoint;
+import akka.javasdk.http.HttpException;
+import akka.javasdk.http.HttpResponses;
+import com.example.akka.common.Ndjson;
 import com.example.akka.corebanking.application.AccountEntity;
+import com.example.akka.corebanking.application.AccountImport;
 import com.example.akka.corebanking.application.AccountView;
+import com.example.akka.corebanking.application.AuthorisationExpiries;
+import com.typesafe.config.Config;
 import org.slf4j.Logger;
 
 import java.util.List;
+import java.util.Optional;
 
 @HttpEndpoint("/accounts")
 @Acl(allow = @Acl.Matcher(principal = Acl.Principal.ALL))
 public class AccountHttpEndpoint extends AbstractHttpEndpoint {
 
     private final static Logger logger = org.slf4j.LoggerFactory.getLogger(AccountHttpEndpoint.class);
+    private static final int MAX_LINE_LENGTH = 4096;
     private final ComponentClient componentClient;
+    private final AccountImport accountImport;
+    private final AuthorisationExpiries expiries;
 
-    public AccountHttpEndpoint(ComponentClient componentClient) {
+    public AccountHttpEndpoint(ComponentClient componentClient, Config config) {
         this.componentClient = componentClient;
+        this.accountImport = new AccountImport(componentClient, config);
+        this.expiries = AuthorisationExpiries.fromConfig(config.getConfig("corebanking.authorisation-expiry"));
     }
 
     // Request/Response records
@@ -38,7 +52,7 @@ public class AccountHttpEndpoint extends AbstractHttpEndpoint {
 
     public record CancelTransactionResponse(String cancelResult, String cancelStatus) {}
 
-    public record GetAllAccountsResponse(List<AccountResponse> accounts) {}
+    public record GetAllAccountsResponse(List<AccountResponse> accounts, String nextPageToken) {}
 
     /**
      * Creates a new account with the given account ID and initial balance.
@@ -58,6 +72,33 @@ public class AccountHttpEndpoint extends AbstractHttpEndpoint {
         }
     }
 
+    /**
+     * Bulk account import. The body is NDJSON, one {@link CreateAccountRequest} per line. The response is NDJSON with
+     * one {@code {"result": ...}} line per non-blank line in the same order, keyed by line number and interleaved with
+     * {@code {"progress": ...}} lines. A line that is too long or not valid JSON gets a {@code failed} result.
+     * To restart an interrupted import, send the same file with {@code skip} set to the number of results received.
+     * POST /accounts/import?skip=0
+     */
+    @Post("/import")
+    public HttpResponse importAccounts(HttpEntity.Strict body) {
+        long skip;
+        try {
+            skip = requestContext().queryParams().getString("skip").map(Long::parseLong).orElse(0L);
+        } catch (NumberFormatException e) {
+            return HttpResponses.badRequest("skip must be a number of lines");
+        }
+        if (skip < 0) {
+            return HttpResponses.badRequest("skip must not be negative");
+        }
+        logger.info("Importing accounts from {} bytes of NDJSON, skipping {} lines", body.getData().size(), skip);
+        var accounts = Ndjson.lines(body.getData(), MAX_LINE_LENGTH, CreateAccountRequest.class)
+                .drop(skip)
+                .map(line -> line.map(request ->
+                        new AccountEntity.ApiAccount(request.accountId(), request.initialBalance(), request.initialBalance())));
+
+        return Ndjson.response(accountImport.runLines(accounts));
+    }
+
     /**
      * Gets an account by ID.
      * GET /accounts/{accountId}
@@ -79,6 +120,24 @@ public class AccountHttpEndpoint extends AbstractHttpEndpoint {
         }
     }
 
+    /**
+     * Server-sent events with the current balances of the account followed by every change, served from the view so
+     * refreshing clients do not load the entity.
+     * GET /accounts/{accountId}/updates
+     */
+    @Get("/{accountId}/updates")
+    public HttpResponse streamAccountUpdates(String accountId) {
+        logger.info("Streaming updates of account {}", accountId);
+        var updates = componentClient.forView()
+                .stream(AccountView::streamAccountUpdates)
+                .source(accountId)
+                .map(account -> new AccountResponse(
+                        account.accountId(),
+                        account.availableBalance(),
+                        account.postedBalance()));
+        return HttpResponses.serverSentEvents(updates);
+    }
+
     /**
      * Authorizes a transaction for an account.
      * POST /accounts/{accountId}/authorize
@@ -89,7 +148,7 @@ public class AccountHttpEndpoint extends AbstractHttpEndpoint {
                 request.transactionId(), accountId, request.amount());
 
         try {
-            var authRequest = new AccountEntity.AuthorisationRequest(request.transactionId(), request.amount());
+            var authRequest = new AccountEntity.AuthorisationRequest(request.transactionId(), request.amount(), expiries.hold());
             var response = componentClient.forEventSourcedEntity(accountId)
                     .method(AccountEntity::authoriseTransaction)
                     .invoke(authRequest);
@@ -152,27 +211,45 @@ public class AccountHttpEndpoint extends AbstractHttpEndpoint {
     }
 
     /**
-     * Gets all accounts.
-     * GET /accounts
+     * Gets one page of accounts. Pass the returned nextPageToken to get the following page; it is empty on the
+     * last page. An invalid pageToken or pageSize is a bad request.
+     * GET /accounts?pageToken={token}&pageSize={size}
      */
     @Get
     public GetAllAccountsResponse getAllAccounts() {
-        logger.info("Getting all accounts");
+        var queryParams = requestContext().queryParams();
+        AccountView.PageRequest pageRequest;
+        try {
+            pageRequest = AccountView.PageRequest.of(
+                    queryParams.getString("pageToken").orElse(""),
+                    pageSizeParam(queryParams.getString("pageSize")));
+        } catch (IllegalArgumentException e) {
+            throw HttpException.badRequest(e.getMessage());
+        }
+        logger.info("Getting accounts page of size {}", pageRequest.pageSize());
         try {
-            var accountList = componentClient.forView().method(AccountView::getAllAccounts).invoke();
-            var accounts = accountList.accounts().stream()
+            var page = componentClient.forView().method(AccountView::getAccountsPage).invoke(pageRequest);
+            var accounts = page.accounts().stream()
                     .map(account -> new AccountResponse(
                             account.accountId(),
                             account.availableBalance(),
                             account.postedBalance()))
                     .toList();
-            return new GetAllAccountsResponse(accounts);
+            return new GetAllAccountsResponse(accounts, page.hasMore() ? page.nextPageToken() : "");
         } catch (Exception e) {
             logger.error("Failed to get all accounts: {}", e.getMessage());
             throw new RuntimeException("Failed to get all accounts: " + e.getMessage());
         }
     }
 
+    private static int pageSizeParam(Optional<String> value) {
+        try {
+            return value.map(Integer::parseInt).orElse(0);
+        } catch (NumberFormatException e) {
+            throw HttpException.badRequest("Invalid pageSize: " + value.get());
+        }
+    }
+
     private AccountResponse fromState(AccountEntity.ApiAccount account) {
         return new AccountResponse(
                 account.accountId(),
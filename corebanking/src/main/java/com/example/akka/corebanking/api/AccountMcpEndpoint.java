@@ -2,6 +2,7 @@ package com.example.akka.corebanking.api;
 
 import akka.javasdk.JsonSupport;
 import akka.javasdk.annotations.Acl;
+import akka.javasdk.annotations.Description;
 import akka.javasdk.annotations.http.Get;
 import akka.javasdk.annotations.http.Post;
 import akka.javasdk.annotations.mcp.McpEndpoint;
@@ -33,10 +34,16 @@ public class AccountMcpEndpoint {
         return JsonSupport.encodeToString(res);
     }
 
-    @McpTool(description = "Get list of all accounts")
-    public String getAllAccounts() {
-        var result = componentClient.forView().method(AccountView::getAllAccounts).invoke();
-        var res = new GetAllAccountsResponse(result.accounts().stream().map(this::fromApiAccount).toList());
+    @McpTool(description = "Get one page of the account list. Call again with the returned nextPageToken until it is empty to get all accounts.")
+    public String getAllAccounts(
+            @Description("Token of the page to get, empty for the first page") String pageToken,
+            @Description("Maximum number of accounts in the page, at most 1000") int pageSize) {
+        var result = componentClient.forView()
+                .method(AccountView::getAccountsPage)
+                .invoke(AccountView.PageRequest.of(pageToken, pageSize));
+        var res = new GetAllAccountsResponse(
+                result.accounts().stream().map(this::fromApiAccount).toList(),
+                result.hasMore() ? result.nextPageToken() : "");
         return JsonSupport.encodeToString(res);
     }
 
@@ -44,7 +51,7 @@ public class AccountMcpEndpoint {
 
     public record CreateAccountRequest(String accountId, int initialBalance) {}
 
-    record GetAllAccountsResponse(java.util.List<Account> accounts) {}
+    record GetAllAccountsResponse(java.util.List<Account> accounts, String nextPageToken) {}
     private Account fromApiAccount(AccountView.AccountSummary in) {
         return new Account(in.accountId(), in.availableBalance(), in.postedBalance());
     }
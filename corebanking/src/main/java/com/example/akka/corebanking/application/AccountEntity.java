@@ -1,10 +1,17 @@
 package com.example.akka.corebanking.application;
 
+import akka.Done;
 import akka.javasdk.annotations.Component;
 import akka.javasdk.eventsourcedentity.EventSourcedEntity;
 import com.example.akka.corebanking.domain.AccountEvent;
 import com.example.akka.corebanking.domain.AccountState;
+import com.fasterxml.jackson.annotation.JsonCreator;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -50,14 +57,65 @@ public class AccountEntity extends EventSourcedEntity<AccountState, AccountEvent
       }
       
       var authCode = UUID.randomUUID().toString();
-      var event = new AccountEvent.TransAuthorisationAdded(request.transactionId(), request.amount(), authCode);
+      var expiresAt = Instant.now().plus(request.holdExpiry());
+      var event = new AccountEvent.TransAuthorisationAdded(request.transactionId(), request.amount(), authCode, expiresAt);
       return effects()
-              .persist(event)
+              .persistAll(withExpiryCheck(currentState(), List.of(event), expiresAt))
               .thenReply(state -> AuthorisationResponse.ok(authCode));
       
     }
   }
   
+  /**
+   * Authorises many transactions for this account in one command. Requests are evaluated in order against the
+   * running available balance and all resulting authorisations are persisted in a single effect. A transaction id
+   * that is already authorised, either before or earlier in the same batch, is deduplicated like in
+   * {@link #authoriseTransaction(AuthorisationRequest)}. Each hold expires after the hold expiry of its request.
+   */
+  public Effect<BatchAuthorisationResponse> authoriseTransactions(BatchAuthorisationRequest request) {
+    if (currentState().isEmpty()) {
+      var results = request.requests().stream()
+              .map(r -> new BatchAuthorisationResult(r.transactionId(),
+                      AuthorisationResponse.error(AuthorisationResult.declined, AuthorisationStatus.account_not_found)))
+              .toList();
+      return effects().reply(new BatchAuthorisationResponse(results));
+    }
+    
+    var state = currentState();
+    var now = Instant.now();
+    Instant earliestExpiry = null;
+    var events = new ArrayList<AccountEvent>();
+    var results = new ArrayList<BatchAuthorisationResult>(request.requests().size());
+    for (var authRequest : request.requests()) {
+      var authOpt = state.getAuthorisation(authRequest.transactionId());
+      if (authOpt.isPresent()) {
+        //deduplication
+        results.add(new BatchAuthorisationResult(authRequest.transactionId(), AuthorisationResponse.ok(authOpt.get().authCode())));
+      } else if (!state.isAvailableBalance(authRequest.amount())) {
+        results.add(new BatchAuthorisationResult(authRequest.transactionId(),
+                AuthorisationResponse.error(AuthorisationResult.declined, AuthorisationStatus.insufficient_funds)));
+      } else {
+        var authCode = UUID.randomUUID().toString();
+        var expiresAt = now.plus(authRequest.holdExpiry());
+        if (earliestExpiry == null || expiresAt.isBefore(earliestExpiry)) {
+          earliestExpiry = expiresAt;
+        }
+        var event = new AccountEvent.TransAuthorisationAdded(authRequest.transactionId(), authRequest.amount(), authCode, expiresAt);
+        state = state.onAuthorisationAdded(event);
+        events.add(event);
+        results.add(new BatchAuthorisationResult(authRequest.transactionId(), AuthorisationResponse.ok(authCode)));
+      }
+    }
+    
+    var response = new BatchAuthorisationResponse(results);
+    if (events.isEmpty()) {
+      return effects().reply(response);
+    }
+    return effects()
+            .persistAll(withExpiryCheck(currentState(), events, earliestExpiry))
+            .thenReply(s -> response);
+  }
+  
   public Effect<CaptureTransactionResponse> captureTransaction(String transactionId) {
     if (currentState().isEmpty()) {
       return effects()
@@ -93,8 +151,237 @@ public class AccountEntity extends EventSourcedEntity<AccountState, AccountEvent
                 .thenReply(s -> CancelTransactionResponse.ok());
 
     }
+
+  /**
+   * Captures many authorisations of this account in one command, in order, persisting all captures in a single
+   * effect. Replies with one result per transaction id; an id that is not (or no longer) authorised, including one
+   * captured earlier in the same batch, gets {@code transaction_not_found} like in {@link #captureTransaction}.
+   * A transaction authorised from a lease is settled first when the account does not hold it yet, see
+   * {@link #settleFromLease}.
+   */
+  public Effect<BatchCaptureResponse> captureTransactions(BatchTransactionRequest request) {
+    if (currentState().isEmpty()) {
+      return effects().reply(new BatchCaptureResponse(request.transactionIds().stream()
+              .map(id -> CaptureTransactionResponse.error(CaptureTransactionResult.declined, CaptureTransactionStatus.account_not_found))
+              .toList()));
+    }
+    var state = currentState();
+    var expiresAt = request.holdExpiry() == null ? null : Instant.now().plus(request.holdExpiry());
+    var events = new ArrayList<AccountEvent>();
+    var results = new ArrayList<CaptureTransactionResponse>(request.transactionIds().size());
+    var settledFromLease = false;
+    for (var transactionId : request.transactionIds()) {
+      var before = state;
+      state = settleFromLease(state, events, transactionId, request.leaseAuthorisations().get(transactionId), expiresAt);
+      settledFromLease |= state != before;
+      var maybeTrans = state.getAuthorisation(transactionId);
+      if (maybeTrans.isEmpty()) {
+        results.add(CaptureTransactionResponse.error(CaptureTransactionResult.declined, CaptureTransactionStatus.transaction_not_found));
+      } else {
+        var event = new AccountEvent.TransCaptureAdded(transactionId, maybeTrans.get().amount());
+        state = state.onCaptureAdded(event);
+        events.add(event);
+        results.add(CaptureTransactionResponse.ok());
+      }
+    }
+    var response = new BatchCaptureResponse(results);
+    if (events.isEmpty()) {
+      return effects().reply(response);
+    }
+    return effects()
+            .persistAll(settledFromLease ? withExpiryCheck(currentState(), events, expiresAt) : events)
+            .thenReply(s -> response);
+  }
+
+  /**
+   * Cancels many authorisations of this account in one command, like {@link #captureTransactions} does for
+   * captures.
+   */
+  public Effect<BatchCancelResponse> cancelTransactions(BatchTransactionRequest request) {
+    if (currentState().isEmpty()) {
+      return effects().reply(new BatchCancelResponse(request.transactionIds().stream()
+              .map(id -> CancelTransactionResponse.error(CancelTransactionResult.declined, CancelTransactionStatus.account_not_found))
+              .toList()));
+    }
+    var state = currentState();
+    var expiresAt = request.holdExpiry() == null ? null : Instant.now().plus(request.holdExpiry());
+    var events = new ArrayList<AccountEvent>();
+    var results = new ArrayList<CancelTransactionResponse>(request.transactionIds().size());
+    var settledFromLease = false;
+    for (var transactionId : request.transactionIds()) {
+      var before = state;
+      state = settleFromLease(state, events, transactionId, request.leaseAuthorisations().get(transactionId), expiresAt);
+      settledFromLease |= state != before;
+      var maybeTrans = state.getAuthorisation(transactionId);
+      if (maybeTrans.isEmpty()) {
+        results.add(CancelTransactionResponse.error(CancelTransactionResult.declined, CancelTransactionStatus.transaction_not_found));
+      } else {
+        var event = new AccountEvent.TransCancelAdded(transactionId, maybeTrans.get().amount());
+        state = state.onCancelAdded(event);
+        events.add(event);
+        results.add(CancelTransactionResponse.ok());
+      }
+    }
+    var response = new BatchCancelResponse(results);
+    if (events.isEmpty()) {
+      return effects().reply(response);
+    }
+    return effects()
+            .persistAll(settledFromLease ? withExpiryCheck(currentState(), events, expiresAt) : events)
+            .thenReply(s -> response);
+  }
   
   
+  /**
+   * Leases up to {@code amount} of the available balance to a payments node, which authorises small transactions
+   * against it locally. Less than requested is granted when the available balance is lower. Granting an existing
+   * lease again replies with what is left of it. What the node has not released when the lease expiry of the request
+   * has passed is reclaimed by the account's expiry check.
+   */
+  public Effect<LeaseResponse> grantLease(LeaseRequest request) {
+    if (currentState().isEmpty()) {
+      return effects().reply(LeaseResponse.error(AuthorisationResult.declined, AuthorisationStatus.account_not_found));
+    }
+    var existing = currentState().getLease(request.leaseId());
+    if (existing.isPresent()) {
+      //deduplication
+      return effects().reply(LeaseResponse.ok(existing.get().remaining(), existing.get().expiresAt()));
+    }
+    var amount = Math.min(request.amount(), currentState().availableBalance());
+    if (amount <= 0) {
+      return effects().reply(LeaseResponse.error(AuthorisationResult.declined, AuthorisationStatus.insufficient_funds));
+    }
+    var expiresAt = Instant.now().plus(request.expiry());
+    var event = new AccountEvent.LeaseGranted(request.leaseId(), amount, expiresAt);
+    return effects()
+            .persistAll(withExpiryCheck(currentState(), List.of(event), expiresAt))
+            .thenReply(state -> LeaseResponse.ok(amount, expiresAt));
+  }
+
+  /**
+   * Records the transactions a payments node authorised against a lease, so they can be captured or cancelled like
+   * any other authorisation, and optionally releases the rest of the lease. A transaction that no longer fits the
+   * lease, or whose lease is released or gone, was already approved and is added as a regular authorisation. A
+   * transaction the account holds, or already settled from any of its leases, e.g. with its capture or by another
+   * node, is not added again.
+   */
+  public Effect<LeaseSettlementResponse> settleLease(LeaseSettlement settlement) {
+    if (currentState().isEmpty()) {
+      return effects().error("Account not found");
+    }
+
+    var state = currentState();
+    var expiresAt = Instant.now().plus(settlement.holdExpiry());
+    var events = new ArrayList<AccountEvent>();
+    for (var auth : settlement.authorisations()) {
+      if (state.getAuthorisation(auth.transactionId()).isPresent() || state.isSettledFromLease(auth.transactionId())) {
+        //deduplication
+        continue;
+      }
+      state = settle(state, events, settlement.leaseId(), auth.transactionId(), auth.amount(), auth.authCode(), expiresAt);
+    }
+
+    var addedAuthorisations = !events.isEmpty();
+    var open = state.getLease(settlement.leaseId()).filter(lease -> !lease.released());
+    var remaining = open.map(AccountState.Lease::remaining).orElse(0);
+    if (settlement.release() && open.isPresent()) {
+      events.add(new AccountEvent.LeaseReleased(settlement.leaseId(), remaining));
+      remaining = 0;
+    }
+
+    var response = new LeaseSettlementResponse(remaining);
+    if (events.isEmpty()) {
+      return effects().reply(response);
+    }
+    return effects()
+            .persistAll(addedAuthorisations ? withExpiryCheck(currentState(), events, expiresAt) : events)
+            .thenReply(s -> response);
+  }
+
+  /**
+   * Run by the account's expiry check timer (see {@link AuthorisationExpiryScheduler}). Releases every expired hold in
+   * one event, returns what is left of expired leases and schedules the next check for the earliest remaining
+   * expiry, so an account has one timer however many holds and leases it has open.
+   */
+  public Effect<Done> expireAuthorisations(AuthorisationExpiries expiries) {
+    if (currentState().isEmpty()) {
+      return effects().reply(Done.getInstance());
+    }
+    var now = Instant.now();
+    var state = currentState();
+    var events = new ArrayList<AccountEvent>();
+    for (var leaseId : currentState().expiredLeases(now, expiries.hold())) {
+      var release = new AccountEvent.LeaseReleased(leaseId, state.getLease(leaseId).orElseThrow().remaining());
+      // a released lease is kept for a while, so the next check is when it is forgotten
+      state = state.onLeaseReleased(release);
+      events.add(release);
+    }
+    var expired = state.expiredAuthorisations(now);
+    var nextCheckAt = state.nextExpiryCheck(now, expiries.hold(), expiries.checkInterval()).orElse(null);
+    if (!expired.isEmpty()) {
+      var transactionIds = expired.stream().map(AccountState.Authorisation::transactionId).toList();
+      var amount = expired.stream().mapToInt(AccountState.Authorisation::amount).sum();
+      events.add(new AccountEvent.AuthorisationsExpired(transactionIds, amount, nextCheckAt));
+    } else if (nextCheckAt != null || currentState().expiryCheckAt() != null) {
+      // the timer that ran this check is gone, so the next one is scheduled again even when the time is unchanged
+      events.add(new AccountEvent.AuthorisationExpiryScheduled(nextCheckAt));
+    }
+    if (events.isEmpty()) {
+      return effects().reply(Done.getInstance());
+    }
+    return effects()
+            .persistAll(events)
+            .thenReply(state -> Done.getInstance());
+  }
+
+  /**
+   * Settles a transaction a payments node authorised from a lease when its capture or cancel reaches the account
+   * before the node's own settlement, e.g. because that node is gone, so the approval is not lost with the node.
+   * Nothing is settled when the account holds the transaction, settled it before, or no longer keeps the lease; a
+   * lease is kept for the hold expiry after it expired, after which no hold of it could have been captured either.
+   */
+  private static AccountState settleFromLease(AccountState state, List<AccountEvent> events, String transactionId,
+                                              LeaseAuthorisation leaseAuth, Instant expiresAt) {
+    if (leaseAuth == null
+            || state.getAuthorisation(transactionId).isPresent()
+            || state.isSettledFromLease(transactionId)
+            || state.getLease(leaseAuth.leaseId()).isEmpty()) {
+      return state;
+    }
+    return settle(state, events, leaseAuth.leaseId(), transactionId, leaseAuth.amount(), leaseAuth.authCode(), expiresAt);
+  }
+
+  /**
+   * Adds the authorisation of a transaction approved from {@code leaseId}, paid from the lease while it is open and
+   * covers the amount, otherwise from the available balance.
+   */
+  private static AccountState settle(AccountState state, List<AccountEvent> events, String leaseId, String transactionId,
+                                     int amount, String authCode, Instant expiresAt) {
+    var lease = state.getLease(leaseId);
+    if (lease.isPresent() && !lease.get().released() && lease.get().remaining() >= amount) {
+      var leaseAuth = new AccountEvent.LeaseAuthorisationAdded(leaseId, transactionId, amount, authCode, expiresAt);
+      events.add(leaseAuth);
+      return state.onLeaseAuthorisationAdded(leaseAuth);
+    }
+    var regularAuth = new AccountEvent.TransAuthorisationAdded(transactionId, amount, authCode, expiresAt,
+            lease.isPresent() ? leaseId : null);
+    events.add(regularAuth);
+    return state.onAuthorisationAdded(regularAuth);
+  }
+
+  /**
+   * Adds the scheduling of the account's expiry check when holds or leases are added that expire before the
+   * scheduled check, or no check is scheduled yet.
+   */
+  private static List<AccountEvent> withExpiryCheck(AccountState state, List<AccountEvent> events, Instant expiresAt) {
+    if (state.expiryCheckAt() != null && !expiresAt.isBefore(state.expiryCheckAt())) {
+      return events;
+    }
+    var withCheck = new ArrayList<AccountEvent>(events);
+    withCheck.add(new AccountEvent.AuthorisationExpiryScheduled(expiresAt));
+    return withCheck;
+  }
+  
   private ApiAccount fromState(AccountState state) {
     return new ApiAccount(
         state.accountId(),
@@ -110,6 +397,11 @@ public class AccountEntity extends EventSourcedEntity<AccountState, AccountEvent
       case AccountEvent.TransAuthorisationAdded auth -> currentState().onAuthorisationAdded(auth);
       case AccountEvent.TransCaptureAdded capture -> currentState().onCaptureAdded(capture);
       case AccountEvent.TransCancelAdded cancel -> currentState().onCancelAdded(cancel);
+      case AccountEvent.LeaseGranted lease -> currentState().onLeaseGranted(lease);
+      case AccountEvent.LeaseAuthorisationAdded leaseAuth -> currentState().onLeaseAuthorisationAdded(leaseAuth);
+      case AccountEvent.LeaseReleased release -> currentState().onLeaseReleased(release);
+      case AccountEvent.AuthorisationExpiryScheduled scheduled -> currentState().onExpiryScheduled(scheduled);
+      case AccountEvent.AuthorisationsExpired expired -> currentState().onAuthorisationsExpired(expired);
     };
   }
   
@@ -124,7 +416,84 @@ public class AccountEntity extends EventSourcedEntity<AccountState, AccountEvent
     }
   }
   
-  public record AuthorisationRequest(String transactionId, int amount) {
+  /**
+   * @param holdExpiry how long the hold reserves the amount, see {@link AuthorisationExpiries#hold()}
+   */
+  public record AuthorisationRequest(String transactionId, int amount, Duration holdExpiry) {
+  }
+  
+  public record BatchAuthorisationRequest(List<AuthorisationRequest> requests) {
+  }
+  
+  public record BatchAuthorisationResult(String transactionId, AuthorisationResponse response) {
+  }
+  
+  public record BatchAuthorisationResponse(List<BatchAuthorisationResult> results) {
+  }
+  
+  /**
+   * @param leaseAuthorisations by transaction id, for the transactions authorised from a lease
+   * @param holdExpiry          of the holds settled from a lease, null when there are no lease authorisations
+   */
+  public record BatchTransactionRequest(List<String> transactionIds, Map<String, LeaseAuthorisation> leaseAuthorisations,
+                                        Duration holdExpiry) {
+
+    @JsonCreator
+    public BatchTransactionRequest {
+      if (leaseAuthorisations == null) {
+        leaseAuthorisations = Map.of();
+      }
+    }
+
+    public BatchTransactionRequest(List<String> transactionIds) {
+      this(transactionIds, Map.of(), null);
+    }
+  }
+
+  public record LeaseAuthorisation(String leaseId, int amount, String authCode) {
+  }
+  
+  public record BatchCaptureResponse(List<CaptureTransactionResponse> results) {
+  }
+  
+  public record BatchCancelResponse(List<CancelTransactionResponse> results) {
+  }
+  
+  /**
+   * @param expiry how long the lease reserves the amount unless released earlier, see {@link AuthorisationExpiries#lease()}
+   */
+  public record LeaseRequest(String leaseId, int amount, Duration expiry) {
+  }
+  
+  /**
+   * @param amount    granted, or what is left of an existing lease
+   * @param expiresAt when the rest of the lease is reclaimed if not released before; null when not granted
+   */
+  public record LeaseResponse(int amount, Instant expiresAt, AuthorisationResult authResult, AuthorisationStatus authStatus) {
+    public static LeaseResponse ok(int amount, Instant expiresAt) {
+      return new LeaseResponse(amount, expiresAt, AuthorisationResult.authorised, AuthorisationStatus.ok);
+    }
+    
+    public static LeaseResponse error(AuthorisationResult authResult, AuthorisationStatus authStatus) {
+      return new LeaseResponse(0, null, authResult, authStatus);
+    }
+  }
+  
+  public record LeasedAuthorisation(String transactionId, int amount, String authCode) {
+  }
+  
+  /**
+   * @param release    whether the rest of the lease goes back to the available balance after these authorisations
+   * @param holdExpiry how long the holds of these authorisations reserve their amount
+   */
+  public record LeaseSettlement(String leaseId, List<LeasedAuthorisation> authorisations, boolean release,
+                                Duration holdExpiry) {
+  }
+  
+  /**
+   * @param remaining leased amount left after the settlement, 0 once released
+   */
+  public record LeaseSettlementResponse(int remaining) {
   }
   
   public record AuthorisationResponse(Optional<String> authCode, AuthorisationResult authResult,
@@ -0,0 +1,133 @@
+package com.example.akka.corebanking.application;
+
+import akka.NotUsed;
+import akka.javasdk.client.ComponentClient;
+import akka.stream.javadsl.Source;
+import com.example.akka.common.Ndjson;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk account provisioning for ledger migrations: fans a stream of accounts out to
+ * {@link AccountEntity#createAccount} with bounded parallelism and backpressure.
+ * <p>
+ * Results are emitted in input order, interleaved with a {@link Progress} report every progress interval and
+ * once more when the import completes. {@code createAccount} never persists for an account that already exists,
+ * so an import can be restarted mid-file: accounts created by an earlier attempt are reported as
+ * {@code existing} (or {@code created} if their balance is still untouched) and are not created twice.
+ * Each result carries the line (or message) number of its account, and a line that could not be read is reported
+ * as {@code failed} without stopping the import.
+ */
+public class AccountImport {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountImport.class);
+
+    private final ComponentClient componentClient;
+    private final int parallelism;
+    private final Duration progressInterval;
+
+    public AccountImport(ComponentClient componentClient, int parallelism, Duration progressInterval) {
+        this.componentClient = componentClient;
+        this.parallelism = parallelism;
+        this.progressInterval = progressInterval;
+    }
+
+    public AccountImport(ComponentClient componentClient, Config config) {
+        this(componentClient,
+                config.getInt("corebanking.account-import.parallelism"),
+                config.getDuration("corebanking.account-import.progress-interval"));
+    }
+
+    public Source<Update, NotUsed> run(Source<AccountEntity.ApiAccount, NotUsed> accounts) {
+        return runLines(accounts.zipWithIndex()
+                .<Ndjson.Line<AccountEntity.ApiAccount>>map(account -> new Ndjson.Value<>(account.second() + 1, account.first())));
+    }
+
+    public Source<Update, NotUsed> runLines(Source<Ndjson.Line<AccountEntity.ApiAccount>, NotUsed> lines) {
+        return Source.lazySource(() -> {
+                    var counters = new Counters();
+                    var results = lines
+                            .mapAsync(parallelism, line -> switch (line) {
+                                case Ndjson.Value<AccountEntity.ApiAccount> account -> create(account.number(), account.value());
+                                case Ndjson.Malformed<AccountEntity.ApiAccount> malformed -> CompletableFuture.completedFuture(
+                                        new Result(malformed.number(), "", Status.failed, malformed.error()));
+                            })
+                            .map(result -> Update.of(counters.record(result)));
+                    var progress = Source.tick(progressInterval, progressInterval, NotUsed.getInstance())
+                            .map(tick -> Update.of(counters.progress()));
+                    return results
+                            .merge(progress, true)
+                            .concat(Source.lazySingle(() -> Update.of(counters.progress())));
+                })
+                .mapMaterializedValue(notUsed -> NotUsed.getInstance());
+    }
+
+    private CompletionStage<Result> create(long line, AccountEntity.ApiAccount account) {
+        if (account.accountId() == null || account.accountId().isBlank()) {
+            return CompletableFuture.completedFuture(new Result(line, "", Status.failed, "Missing accountId"));
+        }
+        return componentClient.forEventSourcedEntity(account.accountId())
+                .method(AccountEntity::createAccount)
+                .invokeAsync(account)
+                .thenApply(created -> created.equals(account)
+                        ? new Result(line, account.accountId(), Status.created, "")
+                        : new Result(line, account.accountId(), Status.existing, "Account already exists"))
+                .exceptionally(e -> {
+                    logger.error("Failed to import account {}", account.accountId(), e);
+                    return new Result(line, account.accountId(), Status.failed, String.valueOf(e.getMessage()));
+                });
+    }
+
+    private static final class Counters {
+        private final long startedAt = System.nanoTime();
+        private final AtomicLong created = new AtomicLong();
+        private final AtomicLong existing = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        Result record(Result result) {
+            switch (result.status()) {
+                case created -> created.incrementAndGet();
+                case existing -> existing.incrementAndGet();
+                case failed -> failed.incrementAndGet();
+            }
+            return result;
+        }
+
+        Progress progress() {
+            var elapsedNanos = System.nanoTime() - startedAt;
+            var processed = created.get() + existing.get() + failed.get();
+            var perSecond = elapsedNanos == 0 ? 0 : processed * 1_000_000_000.0 / elapsedNanos;
+            return new Progress(processed, created.get(), existing.get(), failed.get(), perSecond, elapsedNanos / 1_000_000);
+        }
+    }
+
+    public enum Status {
+        created, existing, failed
+    }
+
+    public record Result(long line, String accountId, Status status, String message) {}
+
+    public record Progress(long processed, long created, long existing, long failed, double accountsPerSecond, long elapsedMillis) {}
+
+    /**
+     * Either a {@link Result} for one account or a {@link Progress} report.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Update(Result result, Progress progress) {
+
+        static Update of(Result result) {
+            return new Update(result, null);
+        }
+
+        static Update of(Progress progress) {
+            return new Update(null, progress);
+        }
+    }
+}
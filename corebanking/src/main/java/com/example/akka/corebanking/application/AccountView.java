@@ -8,13 +8,55 @@ import akka.javasdk.view.View;
 import com.example.akka.corebanking.domain.AccountEvent;
 import org.slf4j.Logger;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
 @Component(id = "account-view")
 public class AccountView extends View {
 
     private final static Logger logger = org.slf4j.LoggerFactory.getLogger(AccountView.class);
     public record AccountSummary(String accountId, int availableBalance, int postedBalance) {}
 
-    public record AccountList(java.util.List<AccountSummary> accounts) {}
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * @param afterAccountId the page starts after this account id, empty for the first page
+     */
+    public record PageRequest(String afterAccountId, int pageSize) {
+
+        /**
+         * @param pageToken empty for the first page, otherwise the {@code nextPageToken} of the previous page
+         * @throws IllegalArgumentException if {@code pageToken} is not a page token
+         */
+        public static PageRequest of(String pageToken, int pageSize) {
+            var afterAccountId = pageToken == null || pageToken.isEmpty() ? "" : decode(pageToken);
+            var size = pageSize <= 0 ? DEFAULT_PAGE_SIZE : Math.min(pageSize, MAX_PAGE_SIZE);
+            return new PageRequest(afterAccountId, size);
+        }
+
+        private static String decode(String pageToken) {
+            try {
+                return new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid page token: " + pageToken, e);
+            }
+        }
+    }
+
+    public record AccountPage(java.util.List<AccountSummary> accounts, boolean hasMore) {
+
+        /**
+         * Opaque token for the page after this one, empty when this is the last page.
+         */
+        public String nextPageToken() {
+            if (!hasMore || accounts.isEmpty()) {
+                return "";
+            }
+            var lastAccountId = accounts.getLast().accountId();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(lastAccountId.getBytes(StandardCharsets.UTF_8));
+        }
+    }
 
     @Consume.FromEventSourcedEntity(value = AccountEntity.class)
     public static class AccountViewUpdater extends TableUpdater<AccountSummary> {
@@ -47,12 +89,58 @@ public class AccountView extends View {
                             current.availableBalance() + cancel.amount(),
                             current.postedBalance()));
                 }
+                case AccountEvent.LeaseGranted lease -> {
+                    var current = rowState();
+                    if (current == null) yield effects().ignore();
+                    yield effects().updateRow(new AccountSummary(
+                            current.accountId(),
+                            current.availableBalance() - lease.amount(),
+                            current.postedBalance()));
+                }
+                // paid from the lease, which was taken from the available balance when granted
+                case AccountEvent.LeaseAuthorisationAdded leaseAuth -> effects().ignore();
+                case AccountEvent.LeaseReleased release -> {
+                    var current = rowState();
+                    if (current == null) yield effects().ignore();
+                    yield effects().updateRow(new AccountSummary(
+                            current.accountId(),
+                            current.availableBalance() + release.amount(),
+                            current.postedBalance()));
+                }
+                case AccountEvent.AuthorisationsExpired expired -> {
+                    var current = rowState();
+                    if (current == null) yield effects().ignore();
+                    yield effects().updateRow(new AccountSummary(
+                            current.accountId(),
+                            current.availableBalance() + expired.amount(),
+                            current.postedBalance()));
+                }
+                case AccountEvent.AuthorisationExpiryScheduled scheduled -> effects().ignore();
             };
         }
     }
 
-    @Query("SELECT * AS accounts FROM account_view")
-    public QueryEffect<AccountList> getAllAccounts() {
+    @Query("""
+            SELECT * AS accounts, has_more() AS hasMore
+            FROM account_view
+            WHERE accountId > :afterAccountId
+            ORDER BY accountId
+            LIMIT :pageSize
+            """)
+    public QueryEffect<AccountPage> getAccountsPage(PageRequest request) {
         return queryResult();
     }
+
+    @Query("SELECT * FROM account_view")
+    public QueryStreamEffect<AccountSummary> streamAllAccounts() {
+        return queryStreamResult();
+    }
+
+    /**
+     * Current balances of the account followed by every change, for as long as the subscriber stays connected.
+     */
+    @Query(value = "SELECT * FROM account_view WHERE accountId = :accountId", streamUpdates = true)
+    public QueryStreamEffect<AccountSummary> streamAccountUpdates(String accountId) {
+        return queryStreamResult();
+    }
 }
\ No newline at end of file
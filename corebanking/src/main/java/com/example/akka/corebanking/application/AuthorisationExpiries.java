@@ -0,0 +1,24 @@
+package com.example.akka.corebanking.application;
+
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+
+/**
+ * How long holds and leases reserve their amount, see {@code corebanking.authorisation-expiry}. The account entity
+ * cannot read configuration, so the endpoints pass these along with the commands that add holds or leases, and the
+ * expiry check timer with the check.
+ *
+ * @param hold          how long an authorisation hold reserves its amount
+ * @param lease         how long a lease reserves its amount unless released earlier
+ * @param checkInterval the least time between two expiry checks of an account
+ */
+public record AuthorisationExpiries(Duration hold, Duration lease, Duration checkInterval) {
+
+    public static AuthorisationExpiries fromConfig(Config config) {
+        return new AuthorisationExpiries(
+                config.getDuration("hold"),
+                config.getDuration("lease"),
+                config.getDuration("check-interval"));
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.akka.corebanking.application;
+
+import akka.javasdk.annotations.Component;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.consumer.Consumer;
+import com.example.akka.corebanking.domain.AccountEvent;
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Keeps one timer per account for its next authorisation expiry check. Scheduling again under the same name
+ * replaces the account's timer, and the check itself schedules the one after it.
+ */
+@Component(id = "authorisation-expiry-scheduler")
+@Consume.FromEventSourcedEntity(AccountEntity.class)
+public class AuthorisationExpiryScheduler extends Consumer {
+
+    private final ComponentClient componentClient;
+    private final AuthorisationExpiries expiries;
+
+    public AuthorisationExpiryScheduler(ComponentClient componentClient, Config config) {
+        this.componentClient = componentClient;
+        this.expiries = AuthorisationExpiries.fromConfig(config.getConfig("corebanking.authorisation-expiry"));
+    }
+
+    public Effect onEvent(AccountEvent event) {
+        return switch (event) {
+            case AccountEvent.AuthorisationExpiryScheduled scheduled -> schedule(scheduled.checkAt());
+            case AccountEvent.AuthorisationsExpired expired -> schedule(expired.nextCheckAt());
+            default -> effects().ignore();
+        };
+    }
+
+    private Effect schedule(Instant checkAt) {
+        if (checkAt == null) {
+            return effects().done();
+        }
+        var accountId = messageContext().eventSubject().orElseThrow();
+        var delay = Duration.between(Instant.now(), checkAt);
+        timers().createSingleTimer(
+                "authorisation-expiry-" + accountId,
+                delay.isNegative() ? Duration.ZERO : delay,
+                componentClient.forEventSourcedEntity(accountId)
+                        .method(AccountEntity::expireAuthorisations)
+                        .deferred(expiries));
+        return effects().done();
+    }
+}
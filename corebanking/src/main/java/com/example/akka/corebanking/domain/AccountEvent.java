@@ -1,11 +1,106 @@
 package com.example.akka.corebanking.domain;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Events are journaled with one-letter JSON property names. The aliases keep events written with the full names
+ * readable.
+ */
 public sealed interface AccountEvent {
-  record Created(String accountId, int initialBalance) implements AccountEvent { }
+  record Created(
+          @JsonProperty("a") @JsonAlias("accountId") String accountId,
+          @JsonProperty("b") @JsonAlias("initialBalance") int initialBalance) implements AccountEvent { }
   
-  record TransAuthorisationAdded(String transactionId, int amount, String authCode) implements AccountEvent { }
+  /**
+   * @param expiresAt null for authorisations journaled before expiries were introduced
+   * @param leaseId   the lease that authorised the transaction when it was settled but the lease could no longer pay
+   *                  for it; null otherwise
+   */
+  record TransAuthorisationAdded(
+          @JsonProperty("t") @JsonAlias("transactionId") String transactionId,
+          @JsonProperty("m") @JsonAlias("amount") int amount,
+          @JsonProperty("c") @JsonAlias("authCode") String authCode,
+          @JsonProperty("x") @JsonInclude(JsonInclude.Include.NON_NULL) Instant expiresAt,
+          @JsonProperty("l") @JsonInclude(JsonInclude.Include.NON_NULL) String leaseId) implements AccountEvent {
+
+    @JsonCreator
+    public TransAuthorisationAdded {
+    }
+
+    public TransAuthorisationAdded(String transactionId, int amount, String authCode, Instant expiresAt) {
+      this(transactionId, amount, authCode, expiresAt, null);
+    }
+
+    public TransAuthorisationAdded(String transactionId, int amount, String authCode) {
+      this(transactionId, amount, authCode, null, null);
+    }
+  }
   
-  record TransCaptureAdded(String transactionId, int amount) implements AccountEvent {}
+  record TransCaptureAdded(
+          @JsonProperty("t") @JsonAlias("transactionId") String transactionId,
+          @JsonProperty("m") @JsonAlias("amount") int amount) implements AccountEvent {}
+
+  record TransCancelAdded(
+          @JsonProperty("t") @JsonAlias("transactionId") String transactionId,
+          @JsonProperty("m") @JsonAlias("amount") int amount) implements AccountEvent {}
+
+  /**
+   * Takes {@code amount} from the available balance for a payments node to authorise against locally.
+   *
+   * @param expiresAt when the account's expiry check reclaims what is left of the lease
+   */
+  record LeaseGranted(
+          @JsonProperty("l") String leaseId,
+          @JsonProperty("m") int amount,
+          @JsonProperty("x") @JsonInclude(JsonInclude.Include.NON_NULL) Instant expiresAt) implements AccountEvent {
+
+    @JsonCreator
+    public LeaseGranted {
+    }
+
+    public LeaseGranted(String leaseId, int amount) {
+      this(leaseId, amount, null);
+    }
+  }
+
+  /**
+   * A transaction authorised by a payments node against lease {@code leaseId}, settled back to the account.
+   */
+  record LeaseAuthorisationAdded(
+          @JsonProperty("l") String leaseId,
+          @JsonProperty("t") String transactionId,
+          @JsonProperty("m") int amount,
+          @JsonProperty("c") String authCode,
+          @JsonProperty("x") Instant expiresAt) implements AccountEvent {}
+
+  /**
+   * Returns the unused {@code amount} of the lease to the available balance, on request of the payments node or
+   * by the account's expiry check once the lease has expired. The expiry check releases an already released lease
+   * again, with nothing left, once it is no longer kept.
+   */
+  record LeaseReleased(
+          @JsonProperty("l") String leaseId,
+          @JsonProperty("m") int amount) implements AccountEvent {}
+
+  /**
+   * The account's expiry check runs at {@code checkAt}; null when no check is needed any more.
+   */
+  record AuthorisationExpiryScheduled(
+          @JsonProperty("x") Instant checkAt) implements AccountEvent {}
 
-  record TransCancelAdded(String transactionId, int amount) implements AccountEvent {}
-}
\ No newline at end of file
+  /**
+   * Releases the holds of {@code transactionIds}, {@code amount} in total, whose expiry has passed.
+   *
+   * @param nextCheckAt when the next expiry check runs, null when no open hold expires
+   */
+  record AuthorisationsExpired(
+          @JsonProperty("ts") List<String> transactionIds,
+          @JsonProperty("m") int amount,
+          @JsonProperty("x") Instant nextCheckAt) implements AccountEvent {}
+}
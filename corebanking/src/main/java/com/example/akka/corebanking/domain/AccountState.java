@@ -1,11 +1,66 @@
 package com.example.akka.corebanking.domain;
 
+import akka.javasdk.annotations.Migration;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import org.pcollections.HashTreePMap;
+import org.pcollections.HashTreePSet;
+import org.pcollections.PMap;
+import org.pcollections.PSet;
+
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Open authorisations are kept in a persistent hash map keyed by transactionId, so lookup, add and remove
+ * are O(log n) and every event application shares structure with the previous state instead of copying it.
+ * The component is declared as a plain {@link Map} so the state still serializes as a regular JSON object.
+ * <p>
+ * Snapshots write each authorisation as a {@code [transactionId, amount, authCode, expiresAt]} array instead of an
+ * object with field names; {@link AccountStateMigration} reads snapshots written in the earlier forms.
+ * <p>
+ * Leases are budget slices of the available balance handed to a payments node, keyed by leaseId with the amount not
+ * yet turned into authorisations. The leased amount is taken from the available balance when granted and the rest
+ * is returned when released, or by the expiry check once the lease has expired, so a lease the node never gives back
+ * is not reserved for longer than the lease expiry it was granted with.
+ * <p>
+ * Each lease records the transactions settled into it. A released lease is kept with nothing left until the hold
+ * expiry after its own expiry, the longest any of its transactions can still be captured or cancelled, so a settlement that is repeated, or that arrives with a capture from another node, is recognised
+ * for as long as it can happen.
+ * <p>
+ * Authorisations and leases carry an expiry. Instead of a timer per authorisation the account has at most one expiry
+ * check scheduled, {@code expiryCheckAt}, which releases every hold and lease expired by then and schedules the next
+ * check for the earliest remaining expiry.
+ */
+@Migration(AccountStateMigration.class)
+public record AccountState(String accountId, Map<String, Authorisation> authorisations, int availableBalance, int postedBalance,
+                           Map<String, Lease> leases, Instant expiryCheckAt) {
+
+    @JsonCreator
+    public AccountState {
+        if (!(authorisations instanceof PMap)) {
+            authorisations = HashTreePMap.from(authorisations);
+        }
+        // snapshots taken before leases were added have none
+        if (leases == null) {
+            leases = HashTreePMap.empty();
+        } else if (!(leases instanceof PMap)) {
+            leases = HashTreePMap.from(leases);
+        }
+    }
+
+    public AccountState(String accountId, Map<String, Authorisation> authorisations, int availableBalance, int postedBalance) {
+        this(accountId, authorisations, availableBalance, postedBalance, HashTreePMap.empty(), null);
+    }
 
-public record AccountState(String accountId, List<Authorisation> authorisations, int availableBalance, int postedBalance) {
     public static AccountState empty() {
-        return new AccountState("", List.of(), 0, 0);
+        return new AccountState("", HashTreePMap.empty(), 0, 0);
     }
 
     public boolean isEmpty() {
@@ -17,41 +72,212 @@ public record AccountState(String accountId, List<Authorisation> authorisations,
     }
 
     public Optional<Authorisation> getAuthorisation(String transactionId) {
-        return authorisations.stream()
-                .filter(a -> a.transactionId().equals(transactionId))
-                .findFirst();
+        return Optional.ofNullable(authorisations.get(transactionId));
+    }
+
+    /**
+     * @return holds whose expiry has passed at {@code now}; holds without an expiry never expire
+     */
+    public List<Authorisation> expiredAuthorisations(Instant now) {
+        return authorisations.values().stream()
+                .filter(auth -> auth.expiresAt() != null && !auth.expiresAt().isAfter(now))
+                .toList();
+    }
+
+    /**
+     * @param holdExpiry how long a released lease is kept after its expiry, as long as a hold reserves its amount
+     * @return ids of the leases expired at {@code now}, and of released leases that are no longer kept; leases
+     * granted before leases expired count as expired
+     */
+    public List<String> expiredLeases(Instant now, Duration holdExpiry) {
+        return leases.entrySet().stream()
+                .filter(entry -> {
+                    var checkAt = entry.getValue().checkAt(holdExpiry);
+                    return checkAt == null || !checkAt.isAfter(now);
+                })
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    /**
+     * @param holdExpiry    how long a released lease is kept after its expiry, see {@link #expiredLeases}
+     * @param checkInterval expired holds are released at most this late
+     * @return the earliest hold or lease expiry after {@code now}, but no sooner than {@code checkInterval}; empty
+     * when nothing open expires later
+     */
+    public Optional<Instant> nextExpiryCheck(Instant now, Duration holdExpiry, Duration checkInterval) {
+        return Stream.concat(
+                        authorisations.values().stream().map(Authorisation::expiresAt),
+                        leases.values().stream().map(lease -> lease.checkAt(holdExpiry)))
+                .filter(expiresAt -> expiresAt != null && expiresAt.isAfter(now))
+                .min(Instant::compareTo)
+                .map(earliest -> {
+                    var notBefore = now.plus(checkInterval);
+                    return earliest.isBefore(notBefore) ? notBefore : earliest;
+                });
+    }
+
+    /**
+     * @return the lease with the leased amount not yet turned into authorisations, or what is kept of it once
+     * released
+     */
+    public Optional<Lease> getLease(String leaseId) {
+        return Optional.ofNullable(leases.get(leaseId));
+    }
+
+    /**
+     * @return whether {@code transactionId} was settled into any lease of the account that is still kept
+     */
+    public boolean isSettledFromLease(String transactionId) {
+        return leases.values().stream().anyMatch(lease -> lease.settled().contains(transactionId));
     }
 
     public AccountState onCreate(AccountEvent.Created event) {
-        return new AccountState(event.accountId(), List.of(), event.initialBalance(), event.initialBalance());
+        return new AccountState(event.accountId(), HashTreePMap.empty(), event.initialBalance(), event.initialBalance());
     }
 
     public AccountState onAuthorisationAdded(AccountEvent.TransAuthorisationAdded event) {
-        var newAuth = new Authorisation(event.transactionId(), event.amount(), event.authCode());
-        var newAuths = new java.util.ArrayList<>(authorisations);
-        newAuths.add(newAuth);
-        return new AccountState(accountId, newAuths, availableBalance - event.amount(), postedBalance);
+        var newAuth = new Authorisation(event.transactionId(), event.amount(), event.authCode(), event.expiresAt());
+        var lease = event.leaseId() == null ? null : leases.get(event.leaseId());
+        return new AccountState(accountId, auths().plus(newAuth.transactionId(), newAuth), availableBalance - event.amount(), postedBalance,
+                lease == null ? leases : leaseMap().plus(event.leaseId(), lease.withSettled(event.transactionId(), 0)), expiryCheckAt);
     }
 
     public AccountState onCaptureAdded(AccountEvent.TransCaptureAdded event) {
-        
-            var auth = authorisations().stream().filter(a -> a.transactionId().equals(event.transactionId())).findFirst().get();
-            var newAuths = authorisations.stream()
-                    .filter(a -> !a.transactionId().equals(event.transactionId()))
-                    .toList();
-            return new AccountState(accountId, newAuths, availableBalance, postedBalance - auth.amount());
-        
+        var auth = authorisations.get(event.transactionId());
+        if (auth == null) {
+            return this;
+        }
+        return new AccountState(accountId, auths().minus(event.transactionId()), availableBalance, postedBalance - auth.amount(),
+                leases, expiryCheckAt);
     }
 
     public AccountState onCancelAdded(AccountEvent.TransCancelAdded event) {
+        var auth = authorisations.get(event.transactionId());
+        if (auth == null) {
+            return this;
+        }
+        return new AccountState(accountId, auths().minus(event.transactionId()), availableBalance + auth.amount(), postedBalance,
+                leases, expiryCheckAt);
+    }
 
-        var auth = authorisations().stream().filter(a -> a.transactionId().equals(event.transactionId())).findFirst().get();
-        var newAuths = authorisations.stream()
-                .filter(a -> !a.transactionId().equals(event.transactionId()))
-                .toList();
-        return new AccountState(accountId, newAuths, availableBalance + auth.amount(), postedBalance );
+    public AccountState onExpiryScheduled(AccountEvent.AuthorisationExpiryScheduled event) {
+        return new AccountState(accountId, authorisations, availableBalance, postedBalance, leases, event.checkAt());
+    }
+
+    /**
+     * Releases the expired holds like cancellations.
+     */
+    public AccountState onAuthorisationsExpired(AccountEvent.AuthorisationsExpired event) {
+        var remaining = auths();
+        var released = 0;
+        for (var transactionId : event.transactionIds()) {
+            var auth = remaining.get(transactionId);
+            if (auth != null) {
+                remaining = remaining.minus(transactionId);
+                released += auth.amount();
+            }
+        }
+        return new AccountState(accountId, remaining, availableBalance + released, postedBalance, leases, event.nextCheckAt());
+    }
+
+    public AccountState onLeaseGranted(AccountEvent.LeaseGranted event) {
+        return new AccountState(accountId, authorisations, availableBalance - event.amount(), postedBalance,
+                leaseMap().plus(event.leaseId(), new Lease(event.amount(), event.expiresAt())), expiryCheckAt);
+    }
+
+    /**
+     * The authorisation is paid from the lease, so the available balance is unchanged.
+     */
+    public AccountState onLeaseAuthorisationAdded(AccountEvent.LeaseAuthorisationAdded event) {
+        var lease = leases.get(event.leaseId());
+        if (lease == null) {
+            return this;
+        }
+        var newAuth = new Authorisation(event.transactionId(), event.amount(), event.authCode(), event.expiresAt());
+        return new AccountState(accountId, auths().plus(newAuth.transactionId(), newAuth), availableBalance, postedBalance,
+                leaseMap().plus(event.leaseId(), lease.withSettled(event.transactionId(), event.amount())), expiryCheckAt);
+    }
+
+    /**
+     * Returns the rest of the lease and keeps what it settled; releasing an already released lease forgets it.
+     */
+    public AccountState onLeaseReleased(AccountEvent.LeaseReleased event) {
+        var lease = leases.get(event.leaseId());
+        if (lease == null) {
+            return this;
+        }
+        var available = lease.released() ? availableBalance : availableBalance + event.amount();
+        // leases granted before leases expired are not kept, there is no time to keep them until
+        var kept = lease.released() || lease.expiresAt() == null
+                ? leaseMap().minus(event.leaseId())
+                : leaseMap().plus(event.leaseId(), new Lease(0, lease.expiresAt(), lease.settled(), true));
+        return new AccountState(accountId, authorisations, available, postedBalance, kept, expiryCheckAt);
+    }
+
+    @SuppressWarnings("unchecked")
+    private PMap<String, Authorisation> auths() {
+        return (PMap<String, Authorisation>) authorisations;
+    }
+
+    @SuppressWarnings("unchecked")
+    private PMap<String, Lease> leaseMap() {
+        return (PMap<String, Lease>) leases;
+    }
+
+    /**
+     * @param remaining leased amount not yet turned into authorisations
+     * @param expiresAt null for leases granted before leases expired
+     * @param settled   transactions settled into the lease
+     * @param released  the rest was returned and the lease is only kept for {@code settled}
+     */
+    @JsonFormat(shape = JsonFormat.Shape.ARRAY)
+    @JsonPropertyOrder({"remaining", "expiresAt", "settled", "released"})
+    public record Lease(int remaining, Instant expiresAt, Set<String> settled, boolean released) {
+
+        @JsonCreator
+        public Lease {
+            if (settled == null) {
+                settled = HashTreePSet.empty();
+            } else if (!(settled instanceof PSet)) {
+                settled = HashTreePSet.from(settled);
+            }
+        }
+
+        public Lease(int remaining, Instant expiresAt) {
+            this(remaining, expiresAt, HashTreePSet.empty(), false);
+        }
+
+        /**
+         * @return when the expiry check reclaims the lease, or forgets it {@code holdExpiry} after its expiry once
+         * released; null for leases granted before leases expired
+         */
+        public Instant checkAt(Duration holdExpiry) {
+            if (expiresAt == null) {
+                return null;
+            }
+            return released ? expiresAt.plus(holdExpiry) : expiresAt;
+        }
+
+        @SuppressWarnings("unchecked")
+        Lease withSettled(String transactionId, int paid) {
+            return new Lease(remaining - paid, expiresAt, ((PSet<String>) settled).plus(transactionId), released);
+        }
+    }
+
+    /**
+     * @param expiresAt null for holds authorised before expiries were introduced, which never expire
+     */
+    @JsonFormat(shape = JsonFormat.Shape.ARRAY)
+    @JsonPropertyOrder({"transactionId", "amount", "authCode", "expiresAt"})
+    public record Authorisation(String transactionId, int amount, String authCode, Instant expiresAt) {
+
+        @JsonCreator
+        public Authorisation {
+        }
 
+        public Authorisation(String transactionId, int amount, String authCode) {
+            this(transactionId, amount, authCode, null);
+        }
     }
-    
-    public record Authorisation(String transactionId, int amount, String authCode) {}
-}
\ No newline at end of file
+}
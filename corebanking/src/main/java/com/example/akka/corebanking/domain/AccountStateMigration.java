@@ -0,0 +1,69 @@
+package com.example.akka.corebanking.domain;
+
+import akka.javasdk.JsonMigration;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Version 1 of the {@link AccountState} snapshot writes authorisations as {@code [transactionId, amount, authCode]}
+ * arrays keyed by transactionId. Snapshots of version 0 hold a list of authorisation objects and are rewritten to
+ * that map when read. Version 2 appends the expiry; holds of earlier snapshots get none. Version 3 writes leases as
+ * {@code [remaining, expiresAt]} arrays instead of the remaining amount; leases of earlier snapshots get no expiry
+ * and are reclaimed by the next expiry check. Version 4 appends the transactions settled into each lease and whether
+ * it was released; leases of earlier snapshots have settled none and are open.
+ */
+public class AccountStateMigration extends JsonMigration {
+
+    @Override
+    public int currentVersion() {
+        return 4;
+    }
+
+    @Override
+    public JsonNode transform(int fromVersion, JsonNode json) {
+        if (fromVersion < 1 && json instanceof ObjectNode state) {
+            var compact = JsonNodeFactory.instance.objectNode();
+            switch (state.get("authorisations")) {
+                // released snapshots: a list of authorisation objects
+                case ArrayNode list -> list.forEach(auth -> compact.set(auth.get("transactionId").asText(), toArray(auth)));
+                case ObjectNode map -> map.fields().forEachRemaining(entry ->
+                        compact.set(entry.getKey(), entry.getValue().isObject() ? toArray(entry.getValue()) : entry.getValue()));
+                case null, default -> {}
+            }
+            state.set("authorisations", compact);
+        }
+        if (fromVersion < 2 && json instanceof ObjectNode state && state.get("authorisations") instanceof ObjectNode authorisations) {
+            authorisations.forEach(auth -> {
+                if (auth instanceof ArrayNode array && array.size() == 3) {
+                    array.addNull();
+                }
+            });
+        }
+        if (fromVersion < 3 && json instanceof ObjectNode state && state.get("leases") instanceof ObjectNode leases) {
+            leases.fields().forEachRemaining(entry -> {
+                if (entry.getValue().isNumber()) {
+                    entry.setValue(JsonNodeFactory.instance.arrayNode().add(entry.getValue()).addNull());
+                }
+            });
+        }
+        if (fromVersion < 4 && json instanceof ObjectNode state && state.get("leases") instanceof ObjectNode leases) {
+            leases.forEach(lease -> {
+                if (lease instanceof ArrayNode array && array.size() == 2) {
+                    array.addArray();
+                    array.add(false);
+                }
+            });
+        }
+        return json;
+    }
+
+    private static ArrayNode toArray(JsonNode auth) {
+        var array = JsonNodeFactory.instance.arrayNode();
+        array.add(auth.get("transactionId"));
+        array.add(auth.get("amount"));
+        array.add(auth.get("authCode"));
+        return array;
+    }
+}
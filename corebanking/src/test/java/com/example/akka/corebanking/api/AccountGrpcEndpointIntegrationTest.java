@@ -1,9 +1,16 @@
 package com.example.akka.corebanking.api;
 
 import akka.javasdk.testkit.TestKitSupport;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
 import com.example.akka.account.api.*;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class AccountGrpcEndpointIntegrationTest extends TestKitSupport {
@@ -116,6 +123,70 @@ public class AccountGrpcEndpointIntegrationTest extends TestKitSupport {
         assertEquals("", response.getAuthCode());
     }
 
+    @Test
+    public void testBatchAuthorizeTransactions() {
+        var client = getGrpcEndpointClient(AccountGrpcEndpointClient.class);
+
+        client.createAccount().invoke(CreateAccountRequest.newBuilder()
+                .setAccountId("batch_auth_account")
+                .setInitialBalance(100)
+                .build());
+
+        var batchRequest = BatchAuthorizeTransactionsRequest.newBuilder()
+                .setAccountId("batch_auth_account")
+                .addItems(BatchAuthorizeTransactionItem.newBuilder().setTransactionId("txn-b1").setAmount(60))
+                .addItems(BatchAuthorizeTransactionItem.newBuilder().setTransactionId("txn-b2").setAmount(60))
+                .addItems(BatchAuthorizeTransactionItem.newBuilder().setTransactionId("txn-b3").setAmount(40))
+                .build();
+
+        var response = client.batchAuthorizeTransactions().invoke(batchRequest);
+
+        assertEquals(3, response.getResultsCount());
+        assertEquals(AuthResult.AUTHORISED, response.getResults(0).getAuthResult());
+        assertEquals(AuthStatus.INSUFFICIENT_FUNDS, response.getResults(1).getAuthStatus());
+        assertEquals(AuthResult.AUTHORISED, response.getResults(2).getAuthResult());
+
+        var account = client.getAccount().invoke(GetAccountRequest.newBuilder().setAccountId("batch_auth_account").build());
+        assertEquals(0, account.getAvailableBalance());
+    }
+
+    @Test
+    public void testAuthorisationStream() throws Exception {
+        var client = getGrpcEndpointClient(AccountGrpcEndpointClient.class);
+
+        client.createAccount().invoke(CreateAccountRequest.newBuilder()
+                .setAccountId("stream_auth_account")
+                .setInitialBalance(300)
+                .build());
+
+        var commands = List.of(
+                AuthorisationStreamCommand.newBuilder().setCorrelationId("1")
+                        .setAuthorize(AuthorizeTransactionRequest.newBuilder()
+                                .setAccountId("stream_auth_account").setTransactionId("txn-s1").setAmount(100))
+                        .build(),
+                AuthorisationStreamCommand.newBuilder().setCorrelationId("2")
+                        .setAuthorize(AuthorizeTransactionRequest.newBuilder()
+                                .setAccountId("stream_auth_account").setTransactionId("txn-s2").setAmount(100))
+                        .build(),
+                AuthorisationStreamCommand.newBuilder().setCorrelationId("3")
+                        .setCapture(CaptureTransactionRequest.newBuilder()
+                                .setAccountId("stream_auth_account").setTransactionId("unknown-txn"))
+                        .build());
+
+        var replies = client.authorisationStream()
+                .invoke(Source.from(commands))
+                .runWith(Sink.seq(), testKit.getMaterializer())
+                .toCompletableFuture()
+                .get(5, TimeUnit.SECONDS)
+                .stream()
+                .collect(Collectors.toMap(AuthorisationStreamReply::getCorrelationId, Function.identity()));
+
+        assertEquals(3, replies.size());
+        assertEquals(AuthResult.AUTHORISED, replies.get("1").getAuthorize().getAuthResult());
+        assertEquals(AuthResult.AUTHORISED, replies.get("2").getAuthorize().getAuthResult());
+        assertEquals(CaptureTransResult.CAPTURE_DECLINED, replies.get("3").getCapture().getCaptureResult());
+    }
+
     @Test
     public void testCaptureTransaction() {
         var client = getGrpcEndpointClient(AccountGrpcEndpointClient.class);
@@ -159,4 +230,108 @@ public class AccountGrpcEndpointIntegrationTest extends TestKitSupport {
         var result = client.captureTransaction().invoke(captureRequest);
         assertEquals(CaptureTransStatus.CAPTURE_ACCOUNT_NOT_FOUND,result.getCaptureStatus());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCreateAccountsStream() throws Exception {
+        var client = getGrpcEndpointClient(AccountGrpcEndpointClient.class);
+
+        client.createAccount().invoke(CreateAccountRequest.newBuilder()
+                .setAccountId("import_existing")
+                .setInitialBalance(50)
+                .build());
+
+        var requests = List.of(
+                CreateAccountRequest.newBuilder().setAccountId("import_1").setInitialBalance(100).build(),
+                CreateAccountRequest.newBuilder().setAccountId("import_2").setInitialBalance(200).build(),
+                CreateAccountRequest.newBuilder().setAccountId("import_existing").setInitialBalance(300).build());
+
+        var replies = client.createAccounts().invoke(Source.from(requests))
+                .runWith(Sink.seq(), testKit.getMaterializer())
+                .toCompletableFuture()
+                .get(5, TimeUnit.SECONDS);
+
+        var results = replies.stream().filter(CreateAccountsReply::hasResult).map(CreateAccountsReply::getResult).toList();
+        assertEquals(List.of("import_1", "import_2", "import_existing"), results.stream().map(CreateAccountResult::getAccountId).toList());
+        assertEquals(CreateAccountStatus.CREATE_ACCOUNT_CREATED, results.get(0).getStatus());
+        assertEquals(CreateAccountStatus.CREATE_ACCOUNT_CREATED, results.get(1).getStatus());
+        assertEquals(CreateAccountStatus.CREATE_ACCOUNT_EXISTING, results.get(2).getStatus());
+
+        var finalProgress = replies.get(replies.size() - 1);
+        assertTrue(finalProgress.hasProgress());
+        assertEquals(3, finalProgress.getProgress().getProcessed());
+        assertEquals(1, finalProgress.getProgress().getExisting());
+
+        // the existing account keeps its original balance
+        var existing = client.getAccount().invoke(GetAccountRequest.newBuilder().setAccountId("import_existing").build());
+        assertEquals(50, existing.getAvailableBalance());
+    }
+
+    @Test
+    public void testGetAllAccountsPagesAndStream() throws Exception {
+        var client = getGrpcEndpointClient(AccountGrpcEndpointClient.class);
+        var ids = List.of("page_account_1", "page_account_2", "page_account_3");
+        for (var id : ids) {
+            client.createAccount().invoke(CreateAccountRequest.newBuilder().setAccountId(id).setInitialBalance(10).build());
+        }
+
+        // the view is updated asynchronously, walk all pages until the new accounts are visible
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        List<String> paged = List.of();
+        while (System.nanoTime() < deadline) {
+            var collected = new java.util.ArrayList<String>();
+            var pageToken = "";
+            do {
+                var page = client.getAllAccounts().invoke(GetAllAccountsRequest.newBuilder()
+                        .setPageToken(pageToken)
+                        .setPageSize(2)
+                        .build());
+                assertTrue(page.getAccountsCount() <= 2);
+                page.getAccountsList().forEach(account -> collected.add(account.getAccountId()));
+                pageToken = page.getNextPageToken();
+            } while (!pageToken.isEmpty());
+            paged = collected;
+            if (paged.containsAll(ids)) {
+                break;
+            }
+            Thread.sleep(200);
+        }
+
+        assertTrue(paged.containsAll(ids));
+        assertEquals(paged.size(), paged.stream().distinct().count());
+
+        var streamed = client.streamAllAccounts().invoke(StreamAllAccountsRequest.getDefaultInstance())
+                .map(Account::getAccountId)
+                .runWith(Sink.seq(), testKit.getMaterializer())
+                .toCompletableFuture()
+                .get(5, TimeUnit.SECONDS);
+        assertTrue(streamed.containsAll(ids));
+    }
+
+    @Test
+    public void testStreamAccountUpdates() throws Exception {
+        var client = getGrpcEndpointClient(AccountGrpcEndpointClient.class);
+        client.createAccount().invoke(CreateAccountRequest.newBuilder()
+                .setAccountId("live_account_1")
+                .setInitialBalance(100)
+                .build());
+
+        // completes once the authorisation below is pushed
+        var updates = client.streamAccountUpdates()
+                .invoke(StreamAccountUpdatesRequest.newBuilder().setAccountId("live_account_1").build())
+                .takeWhile(account -> account.getAvailableBalance() != 70, true)
+                .runWith(Sink.seq(), testKit.getMaterializer())
+                .toCompletableFuture();
+
+        client.authorizeTransaction().invoke(AuthorizeTransactionRequest.newBuilder()
+                .setAccountId("live_account_1")
+                .setTransactionId("live_txn_1")
+                .setAmount(30)
+                .build());
+
+        var received = updates.get(10, TimeUnit.SECONDS);
+        var last = received.getLast();
+        assertEquals("live_account_1", last.getAccountId());
+        assertEquals(70, last.getAvailableBalance());
+        assertEquals(100, last.getPostedBalance());
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.akka.corebanking.api;
+
+import akka.javasdk.JsonSupport;
+import akka.javasdk.testkit.TestKitSupport;
+import com.example.akka.common.Ndjson;
+import com.example.akka.corebanking.application.AccountImport;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccountHttpEndpointTest extends TestKitSupport {
+
+    private static final String ACCOUNTS = String.join("\n",
+            "{\"accountId\":\"import-a\",\"initialBalance\":100}",
+            "{\"accountId\":\"import-b\",\"initialBalance\":",
+            "",
+            "{\"accountId\":\"" + "x".repeat(5000) + "\",\"initialBalance\":1}",
+            "{\"accountId\":\"import-e\",\"initialBalance\":500}");
+
+    @Test
+    public void testImportReportsMalformedLinesAndResumesWithSkip() {
+        var results = importAccounts("/accounts/import");
+
+        assertEquals(List.of(1L, 2L, 4L, 5L), results.stream().map(AccountImport.Result::line).toList());
+        assertEquals(AccountImport.Status.created, results.get(0).status());
+        assertEquals(AccountImport.Status.failed, results.get(1).status());
+        assertTrue(results.get(1).message().startsWith("Malformed JSON"), results.get(1).message());
+        assertEquals(AccountImport.Status.failed, results.get(2).status());
+        assertTrue(results.get(2).message().startsWith("Line is longer than"), results.get(2).message());
+        assertEquals("import-e", results.get(3).accountId());
+        assertEquals(AccountImport.Status.created, results.get(3).status());
+
+        // two results received: the restart continues with the third non-blank line
+        var resumed = importAccounts("/accounts/import?skip=2");
+        assertEquals(List.of(4L, 5L), resumed.stream().map(AccountImport.Result::line).toList());
+        assertEquals(AccountImport.Status.created, resumed.get(1).status());
+    }
+
+    @Test
+    public void testImportRejectsNonNumericSkip() {
+        assertEquals(400, importStatus("/accounts/import?skip=abc"));
+        assertEquals(400, importStatus("/accounts/import?skip=-1"));
+    }
+
+    @Test
+    public void testGetAllAccountsRejectsInvalidPageParameters() {
+        assertEquals(400, getStatus("/accounts?pageSize=abc"));
+        assertEquals(400, getStatus("/accounts?pageToken=not*a*token"));
+    }
+
+    private List<AccountImport.Result> importAccounts(String uri) {
+        var response = httpClient.POST(uri)
+                .withRequestBody(Ndjson.CONTENT_TYPE, ACCOUNTS.getBytes(StandardCharsets.UTF_8))
+                .invoke();
+        assertTrue(response.status().isSuccess());
+        return Arrays.stream(response.body().utf8String().split("\n"))
+                .map(line -> JsonSupport.parseBytes(line.getBytes(StandardCharsets.UTF_8), AccountImport.Update.class))
+                .map(AccountImport.Update::result)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private int importStatus(String uri) {
+        try {
+            return httpClient.POST(uri)
+                    .withRequestBody(Ndjson.CONTENT_TYPE, ACCOUNTS.getBytes(StandardCharsets.UTF_8))
+                    .invoke()
+                    .status()
+                    .intValue();
+        } catch (RuntimeException e) {
+            // the test http client fails the call on an error status
+            assertTrue(e.getMessage().contains("400"), e.getMessage());
+            return 400;
+        }
+    }
+
+    private int getStatus(String uri) {
+        try {
+            return httpClient.GET(uri).invoke().status().intValue();
+        } catch (RuntimeException e) {
+            // the test http client fails the call on an error status
+            assertTrue(e.getMessage().contains("400"), e.getMessage());
+            return 400;
+        }
+    }
+}
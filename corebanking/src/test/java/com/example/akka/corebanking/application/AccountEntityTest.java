@@ -7,10 +7,18 @@ import com.example.akka.corebanking.domain.AccountEvent;
 import com.example.akka.corebanking.domain.AccountState;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class AccountEntityTest {
 
+    private static final AuthorisationExpiries EXPIRIES =
+            new AuthorisationExpiries(Duration.ofDays(7), Duration.ofMinutes(5), Duration.ofMinutes(1));
+
     @Test
     public void testCreateAccountWhenEmpty() {
         var testKit = EventSourcedTestKit.of(AccountEntity::new);
@@ -80,7 +88,7 @@ public class AccountEntityTest {
     public void testAuthoriseTransactionAccountNotFound() {
         var testKit = EventSourcedTestKit.of(AccountEntity::new);
         
-        var authRequest = new AccountEntity.AuthorisationRequest("tx123", 200);
+        var authRequest = new AccountEntity.AuthorisationRequest("tx123", 200, EXPIRIES.hold());
         var result = testKit.method(AccountEntity::authoriseTransaction).invoke(authRequest);
         
         assertTrue(result.getReply().authCode().isEmpty());
@@ -99,7 +107,7 @@ public class AccountEntityTest {
         testKit.method(AccountEntity::createAccount).invoke(accountRequest);
         
         // Test with insufficient balance trying to authorize
-        var authRequest = new AccountEntity.AuthorisationRequest("tx123", 200);
+        var authRequest = new AccountEntity.AuthorisationRequest("tx123", 200, EXPIRIES.hold());
         var result = testKit.method(AccountEntity::authoriseTransaction).invoke(authRequest);
         
         assertTrue(result.getReply().authCode().isEmpty());
@@ -142,7 +150,7 @@ public class AccountEntityTest {
         testKit.method(AccountEntity::createAccount).invoke(accountRequest);
         
         // First authorization request
-        var authRequest = new AccountEntity.AuthorisationRequest("tx123", 200);
+        var authRequest = new AccountEntity.AuthorisationRequest("tx123", 200, EXPIRIES.hold());
         var firstResult = testKit.method(AccountEntity::authoriseTransaction).invoke(authRequest);
         
         // Verify first authorization succeeds
@@ -166,7 +174,7 @@ public class AccountEntityTest {
         // Verify only one authorization exists in state
         var finalState = (AccountState)secondResult.getUpdatedState();
         assertEquals(1, finalState.authorisations().size());
-        assertEquals("tx123", finalState.authorisations().get(0).transactionId());
+        assertEquals("tx123", finalState.authorisations().get("tx123").transactionId());
     }
 
     @Test
@@ -178,7 +186,7 @@ public class AccountEntityTest {
         testKit.method(AccountEntity::createAccount).invoke(accountRequest);
         
         // First authorize a transaction
-        var authRequest = new AccountEntity.AuthorisationRequest("tx123", 200);
+        var authRequest = new AccountEntity.AuthorisationRequest("tx123", 200, EXPIRIES.hold());
         var authResult = testKit.method(AccountEntity::authoriseTransaction).invoke(authRequest);
         
         // Verify authorization succeeded
@@ -219,6 +227,307 @@ public class AccountEntityTest {
         assertEquals(0, finalState.authorisations().size());
     }
 
+    @Test
+    public void testAuthoriseTransactionsEvaluatesInOrderAgainstRunningBalance() {
+        var testKit = EventSourcedTestKit.of(AccountEntity::new);
+        testKit.method(AccountEntity::createAccount).invoke(new AccountEntity.ApiAccount("account123", 500, 500));
+
+        var batch = new AccountEntity.BatchAuthorisationRequest(List.of(
+                new AccountEntity.AuthorisationRequest("tx1", 300, EXPIRIES.hold()),
+                new AccountEntity.AuthorisationRequest("tx2", 300, EXPIRIES.hold()),
+                new AccountEntity.AuthorisationRequest("tx3", 200, EXPIRIES.hold())));
+        var result = testKit.method(AccountEntity::authoriseTransactions).invoke(batch);
+
+        var results = result.getReply().results();
+        assertEquals(3, results.size());
+        assertEquals("tx1", results.get(0).transactionId());
+        assertEquals(AccountEntity.AuthorisationResult.authorised, results.get(0).response().authResult());
+        assertEquals("tx2", results.get(1).transactionId());
+        assertEquals(AccountEntity.AuthorisationStatus.insufficient_funds, results.get(1).response().authStatus());
+        assertEquals("tx3", results.get(2).transactionId());
+        assertEquals(AccountEntity.AuthorisationResult.authorised, results.get(2).response().authResult());
+
+        assertEquals(2, result.getAllEvents().stream().filter(AccountEvent.TransAuthorisationAdded.class::isInstance).count());
+        var state = (AccountState) result.getUpdatedState();
+        assertEquals(0, state.availableBalance());
+        assertEquals(2, state.authorisations().size());
+    }
+
+    @Test
+    public void testAuthoriseTransactionsDeduplicatesByTransactionId() {
+        var testKit = EventSourcedTestKit.of(AccountEntity::new);
+        testKit.method(AccountEntity::createAccount).invoke(new AccountEntity.ApiAccount("account123", 1000, 1000));
+        var single = testKit.method(AccountEntity::authoriseTransaction).invoke(new AccountEntity.AuthorisationRequest("tx1", 100, EXPIRIES.hold()));
+        var firstAuthCode = single.getReply().authCode().get();
+
+        var batch = new AccountEntity.BatchAuthorisationRequest(List.of(
+                new AccountEntity.AuthorisationRequest("tx1", 100, EXPIRIES.hold()),
+                new AccountEntity.AuthorisationRequest("tx2", 100, EXPIRIES.hold()),
+                new AccountEntity.AuthorisationRequest("tx2", 100, EXPIRIES.hold())));
+        var result = testKit.method(AccountEntity::authoriseTransactions).invoke(batch);
+
+        var results = result.getReply().results();
+        assertEquals(firstAuthCode, results.get(0).response().authCode().get());
+        assertEquals(results.get(1).response().authCode(), results.get(2).response().authCode());
+        assertEquals(1, result.getAllEvents().size());
+
+        var state = (AccountState) result.getUpdatedState();
+        assertEquals(800, state.availableBalance());
+    }
+
+    @Test
+    public void testAuthoriseTransactionsAccountNotFound() {
+        var testKit = EventSourcedTestKit.of(AccountEntity::new);
+
+        var batch = new AccountEntity.BatchAuthorisationRequest(List.of(new AccountEntity.AuthorisationRequest("tx1", 100, EXPIRIES.hold())));
+        var result = testKit.method(AccountEntity::authoriseTransactions).invoke(batch);
+
+        assertEquals(AccountEntity.AuthorisationStatus.account_not_found, result.getReply().results().get(0).response().authStatus());
+        assertFalse(result.didPersistEvents());
+    }
+
+    @Test
+    public void testCaptureTransactionsCapturesEachAuthorisationOnce() {
+        var testKit = EventSourcedTestKit.of(AccountEntity::new);
+        testKit.method(AccountEntity::createAccount).invoke(new AccountEntity.ApiAccount("account123", 1000, 1000));
+        testKit.method(AccountEntity::authoriseTransaction).invoke(new AccountEntity.AuthorisationRequest("tx1", 100, EXPIRIES.hold()));
+        testKit.method(AccountEntity::authoriseTransaction).invoke(new AccountEntity.AuthorisationRequest("tx2", 200, EXPIRIES.hold()));
+
+        var batch = new AccountEntity.BatchTransactionRequest(List.of("tx1", "unknown", "tx2", "tx1"));
+        var result = testKit.method(AccountEntity::captureTransactions).invoke(batch);
+
+        var results = result.getReply().results();
+        assertEquals(4, results.size());
+        assertEquals(AccountEntity.CaptureTransactionStatus.ok, results.get(0).captureStatus());
+        assertEquals(AccountEntity.CaptureTransactionStatus.transaction_not_found, results.get(1).captureStatus());
+        assertEquals(AccountEntity.CaptureTransactionStatus.ok, results.get(2).captureStatus());
+        assertEquals(AccountEntity.CaptureTransactionStatus.transaction_not_found, results.get(3).captureStatus());
+        assertEquals(2, result.getAllEvents().size());
+
+        var state = (AccountState) result.getUpdatedState();
+        assertEquals(700, state.availableBalance());
+        assertEquals(700, state.postedBalance());
+        assertTrue(state.authorisations().isEmpty());
+    }
+
+    @Test
+    public void testCancelTransactionsReleasesEachAuthorisation() {
+        var testKit = EventSourcedTestKit.of(AccountEntity::new);
+        testKit.method(AccountEntity::createAccount).invoke(new AccountEntity.ApiAccount("account123", 1000, 1000));
+        testKit.method(AccountEntity::authoriseTransaction).invoke(new AccountEntity.AuthorisationRequest("tx1", 100, EXPIRIES.hold()));
+        testKit.method(AccountEntity::authoriseTransaction).invoke(new AccountEntity.AuthorisationRequest("tx2", 200, EXPIRIES.hold()));
+
+        var batch = new AccountEntity.BatchTransactionRequest(List.of("tx1", "tx2"));
+        var result = testKit.method(AccountEntity::cancelTransactions).invoke(batch);
+
+        assertTrue(result.getReply().results().stream()
+                .allMatch(response -> response.cancelStatus() == AccountEntity.CancelTransactionStatus.ok));
+        var state = (AccountState) result.getUpdatedState();
+        assertEquals(1000, state.availableBalance());
+        assertEquals(1000, state.postedBalance());
+        assertTrue(state.authorisations().isEmpty());
+    }
+
+    @Test
+    public void testCaptureTransactionsAccountNotFound() {
+        var testKit = EventSourcedTestKit.of(AccountEntity::new);
+
+        var result = testKit.method(AccountEntity::captureTransactions)
+                .invoke(new AccountEntity.BatchTransactionRequest(List.of("tx1")));
+
+        assertEquals(AccountEntity.CaptureTransactionStatus.account_not_found, result.getReply().results().get(0).captureStatus());
+        assertFalse(result.didPersistEvents());
+    }
+
+    @Test
+    public void testGrantLeaseReservesAvailableBalance() {
+        var testKit = EventSourcedTestKit.of(AccountEntity::new);
+        testKit.method(AccountEntity::createAccount).invoke(new AccountEntity.ApiAccount("account123", 1000, 1000));
+
+        var result = testKit.method(AccountEntity::grantLease).invoke(new AccountEntity.LeaseRequest("lease-1", 300, EXPIRIES.lease()));
+        assertEquals(300, result.getReply().amount());
+        assertEquals(AccountEntity.AuthorisationResult.authorised, result.getReply().authResult());
+
+        var again = testKit.method(AccountEntity::grantLease).invoke(new AccountEntity.LeaseRequest("lease-1", 300, EXPIRIES.lease()));
+        assertEquals(300, again.getReply().amount());
+        assertFalse(again.didPersistEvents());
+
+        var partial = testKit.method(AccountEntity::grantLease).invoke(new AccountEntity.LeaseRequest("lease-2", 5000, EXPIRIES.lease()));
+        assertEquals(700, partial.getReply().amount());
+
+        var expiresAt = result.getReply().expiresAt();
+        assertEquals(expiresAt, result.getNextEventOfType(AccountEvent.AuthorisationExpiryScheduled.class).checkAt());
+        assertEquals(expiresAt, again.getReply().expiresAt());
+
+        var none = testKit.method(AccountEntity::grantLease).invoke(new AccountEntity.LeaseRequest("lease-3", 100, EXPIRIES.lease()));
+        assertEquals(AccountEntity.AuthorisationStatus.insufficient_funds, none.getReply().authStatus());
+        assertEquals(0, testKit.getState().availableBalance());
+    }
+
+    @Test
+    public void testSettleLeaseAddsAuthorisationsAndReleasesTheRest() {
+        var testKit = EventSourcedTestKit.of(AccountEntity::new);
+        testKit.method(AccountEntity::createAccount).invoke(new AccountEntity.ApiAccount("account123", 1000, 1000));
+        testKit.method(AccountEntity::grantLease).invoke(new AccountEntity.LeaseRequest("lease-1", 300, EXPIRIES.lease()));
+
+        var settlement = new AccountEntity.LeaseSettlement("lease-1", List.of(
+                new AccountEntity.LeasedAuthorisation("tx1", 50, "auth1"),
+                new AccountEntity.LeasedAuthorisation("tx2", 70, "auth2")), false, EXPIRIES.hold());
+        var result = testKit.method(AccountEntity::settleLease).invoke(settlement);
+
+        assertEquals(180, result.getReply().remaining());
+        assertEquals(2, result.getAllEvents().stream().filter(AccountEvent.LeaseAuthorisationAdded.class::isInstance).count());
+        var state = testKit.getState();
+        assertEquals(700, state.availableBalance());
+        assertEquals("auth1", state.getAuthorisation("tx1").get().authCode());
+
+        // a repeated settlement adds nothing
+        assertFalse(testKit.method(AccountEntity::settleLease).invoke(settlement).didPersistEvents());
+
+        var capture = testKit.method(AccountEntity::captureTransaction).invoke("tx1");
+        assertEquals(AccountEntity.CaptureTransactionResult.captured, capture.getReply().captureResult());
+
+        var release = testKit.method(AccountEntity::settleLease)
+                .invoke(new AccountEntity.LeaseSettlement("lease-1", List.of(), true, EXPIRIES.hold()));
+        assertEquals(0, release.getReply().remaining());
+        assertEquals(880, testKit.getState().availableBalance());
+        assertTrue(testKit.getState().getLease("lease-1").get().released());
+
+        // the released lease still recognises what it settled, also once captured
+        assertFalse(testKit.method(AccountEntity::settleLease).invoke(settlement).didPersistEvents());
+        assertEquals(880, testKit.getState().availableBalance());
+    }
+
+    @Test
+    public void testCaptureSettlesATransactionAuthorisedFromALease() {
+        var testKit = EventSourcedTestKit.of(AccountEntity::new);
+        testKit.method(AccountEntity::createAccount).invoke(new AccountEntity.ApiAccount("account123", 1000, 1000));
+        testKit.method(AccountEntity::grantLease).invoke(new AccountEntity.LeaseRequest("lease-1", 300, EXPIRIES.lease()));
+        var request = new AccountEntity.BatchTransactionRequest(List.of("tx1"),
+                Map.of("tx1", new AccountEntity.LeaseAuthorisation("lease-1", 50, "lease:lease-1:auth1")), EXPIRIES.hold());
+
+        var capture = testKit.method(AccountEntity::captureTransactions).invoke(request);
+
+        assertEquals(AccountEntity.CaptureTransactionResult.captured, capture.getReply().results().get(0).captureResult());
+        assertEquals("tx1", capture.getNextEventOfType(AccountEvent.LeaseAuthorisationAdded.class).transactionId());
+        capture.getNextEventOfType(AccountEvent.TransCaptureAdded.class);
+        var state = testKit.getState();
+        assertEquals(700, state.availableBalance());
+        assertEquals(950, state.postedBalance());
+        assertEquals(250, state.getLease("lease-1").get().remaining());
+
+        // neither a repeated capture nor the lease's own settlement adds it again
+        var again = testKit.method(AccountEntity::captureTransactions).invoke(request);
+        assertEquals(AccountEntity.CaptureTransactionStatus.transaction_not_found, again.getReply().results().get(0).captureStatus());
+        assertFalse(again.didPersistEvents());
+        var settlement = testKit.method(AccountEntity::settleLease).invoke(new AccountEntity.LeaseSettlement("lease-1",
+                List.of(new AccountEntity.LeasedAuthorisation("tx1", 50, "lease:lease-1:auth1")), false, EXPIRIES.hold()));
+        assertFalse(settlement.didPersistEvents());
+        assertEquals(250, settlement.getReply().remaining());
+    }
+
+    @Test
+    public void testCancelOfATransactionFromAReleasedLeaseIsSettledFromTheBalance() {
+        var testKit = EventSourcedTestKit.of(AccountEntity::new);
+        testKit.method(AccountEntity::createAccount).invoke(new AccountEntity.ApiAccount("account123", 1000, 1000));
+        testKit.method(AccountEntity::grantLease).invoke(new AccountEntity.LeaseRequest("lease-1", 300, EXPIRIES.lease()));
+        testKit.method(AccountEntity::settleLease).invoke(new AccountEntity.LeaseSettlement("lease-1", List.of(), true, EXPIRIES.hold()));
+
+        var cancel = testKit.method(AccountEntity::cancelTransactions).invoke(new AccountEntity.BatchTransactionRequest(List.of("tx1"),
+                Map.of("tx1", new AccountEntity.LeaseAuthorisation("lease-1", 50, "lease:lease-1:auth1")), EXPIRIES.hold()));
+
+        assertEquals(AccountEntity.CancelTransactionResult.canceled, cancel.getReply().results().get(0).cancelResult());
+        assertEquals("lease-1", cancel.getNextEventOfType(AccountEvent.TransAuthorisationAdded.class).leaseId());
+        assertEquals(1000, testKit.getState().availableBalance());
+        assertTrue(testKit.getState().isSettledFromLease("tx1"));
+
+        // a lease the account does not keep settles nothing
+        var unknown = testKit.method(AccountEntity::cancelTransactions).invoke(new AccountEntity.BatchTransactionRequest(List.of("tx2"),
+                Map.of("tx2", new AccountEntity.LeaseAuthorisation("lease-2", 50, "lease:lease-2:auth2")), EXPIRIES.hold()));
+        assertEquals(AccountEntity.CancelTransactionStatus.transaction_not_found, unknown.getReply().results().get(0).cancelStatus());
+        assertFalse(unknown.didPersistEvents());
+    }
+
+    @Test
+    public void testSettlementBeyondTheLeaseIsAddedAsRegularAuthorisation() {
+        var testKit = EventSourcedTestKit.of(AccountEntity::new);
+        testKit.method(AccountEntity::createAccount).invoke(new AccountEntity.ApiAccount("account123", 1000, 1000));
+
+        var result = testKit.method(AccountEntity::settleLease).invoke(new AccountEntity.LeaseSettlement("unknown",
+                List.of(new AccountEntity.LeasedAuthorisation("tx1", 50, "auth1")), true, EXPIRIES.hold()));
+
+        result.getNextEventOfType(AccountEvent.TransAuthorisationAdded.class);
+        assertEquals(950, testKit.getState().availableBalance());
+    }
+
+    @Test
+    public void testFirstHoldSchedulesTheAccountExpiryCheck() {
+        var testKit = EventSourcedTestKit.of(AccountEntity::new);
+        testKit.method(AccountEntity::createAccount).invoke(new AccountEntity.ApiAccount("account123", 1000, 1000));
+
+        var first = testKit.method(AccountEntity::authoriseTransaction).invoke(new AccountEntity.AuthorisationRequest("tx1", 100, EXPIRIES.hold()));
+        var added = first.getNextEventOfType(AccountEvent.TransAuthorisationAdded.class);
+        var scheduled = first.getNextEventOfType(AccountEvent.AuthorisationExpiryScheduled.class);
+        assertEquals(added.expiresAt(), scheduled.checkAt());
+        assertEquals(added.expiresAt(), testKit.getState().getAuthorisation("tx1").get().expiresAt());
+
+        // one check per account, not one per hold
+        var second = testKit.method(AccountEntity::authoriseTransaction).invoke(new AccountEntity.AuthorisationRequest("tx2", 100, EXPIRIES.hold()));
+        assertEquals(1, second.getAllEvents().size());
+        assertEquals(scheduled.checkAt(), testKit.getState().expiryCheckAt());
+    }
+
+    @Test
+    public void testHoldsAndLeasesExpireAfterTheRequestedExpiry() {
+        var testKit = EventSourcedTestKit.of(AccountEntity::new);
+        testKit.method(AccountEntity::createAccount).invoke(new AccountEntity.ApiAccount("account123", 1000, 1000));
+        var before = Instant.now();
+
+        var auth = testKit.method(AccountEntity::authoriseTransaction)
+                .invoke(new AccountEntity.AuthorisationRequest("tx1", 100, Duration.ofHours(1)));
+        var lease = testKit.method(AccountEntity::grantLease)
+                .invoke(new AccountEntity.LeaseRequest("lease-1", 300, Duration.ofSeconds(30)));
+
+        var after = Instant.now();
+        var holdExpiresAt = auth.getNextEventOfType(AccountEvent.TransAuthorisationAdded.class).expiresAt();
+        assertFalse(holdExpiresAt.isBefore(before.plus(Duration.ofHours(1))));
+        assertFalse(holdExpiresAt.isAfter(after.plus(Duration.ofHours(1))));
+        var leaseExpiresAt = lease.getReply().expiresAt();
+        assertFalse(leaseExpiresAt.isBefore(before.plus(Duration.ofSeconds(30))));
+        assertFalse(leaseExpiresAt.isAfter(after.plus(Duration.ofSeconds(30))));
+    }
+
+    @Test
+    public void testExpiryCheckBeforeAnyHoldExpiredReschedules() {
+        var testKit = EventSourcedTestKit.of(AccountEntity::new);
+        testKit.method(AccountEntity::createAccount).invoke(new AccountEntity.ApiAccount("account123", 1000, 1000));
+        testKit.method(AccountEntity::authoriseTransaction).invoke(new AccountEntity.AuthorisationRequest("tx1", 100, EXPIRIES.hold()));
+
+        var result = testKit.method(AccountEntity::expireAuthorisations).invoke(EXPIRIES);
+
+        var scheduled = result.getNextEventOfType(AccountEvent.AuthorisationExpiryScheduled.class);
+        assertEquals(testKit.getState().getAuthorisation("tx1").get().expiresAt(), scheduled.checkAt());
+        assertEquals(900, testKit.getState().availableBalance());
+    }
+
+    @Test
+    public void testLeaseExpiringBeforeTheScheduledCheckReschedulesIt() {
+        var testKit = EventSourcedTestKit.of(AccountEntity::new);
+        testKit.method(AccountEntity::createAccount).invoke(new AccountEntity.ApiAccount("account123", 1000, 1000));
+        testKit.method(AccountEntity::authoriseTransaction).invoke(new AccountEntity.AuthorisationRequest("tx1", 100, EXPIRIES.hold()));
+
+        var lease = testKit.method(AccountEntity::grantLease).invoke(new AccountEntity.LeaseRequest("lease-1", 300, EXPIRIES.lease()));
+
+        var scheduled = lease.getNextEventOfType(AccountEvent.AuthorisationExpiryScheduled.class);
+        assertEquals(lease.getReply().expiresAt(), scheduled.checkAt());
+        assertEquals(scheduled.checkAt(), testKit.getState().expiryCheckAt());
+
+        // the check before the lease expired leaves it alone and keeps the check at its expiry
+        var check = testKit.method(AccountEntity::expireAuthorisations).invoke(EXPIRIES);
+        assertEquals(lease.getReply().expiresAt(), check.getNextEventOfType(AccountEvent.AuthorisationExpiryScheduled.class).checkAt());
+        assertTrue(testKit.getState().getLease("lease-1").isPresent());
+    }
+
     @Test
     public void testEmptyState() {
         var testKit = EventSourcedTestKit.of(AccountEntity::new);
@@ -0,0 +1,49 @@
+package com.example.akka.corebanking.domain;
+
+import akka.javasdk.JsonSupport;
+import com.fasterxml.jackson.databind.MapperFeature;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccountEventSerializationTest {
+
+    @Test
+    public void testRoundTripWithShortNames() throws Exception {
+        var event = new AccountEvent.TransAuthorisationAdded("tx1", 100, "auth1");
+
+        var json = JsonSupport.getObjectMapper().writeValueAsString(event);
+
+        assertEquals("{\"t\":\"tx1\",\"m\":100,\"c\":\"auth1\"}", json);
+        assertEquals(event, JsonSupport.getObjectMapper().readValue(json, AccountEvent.TransAuthorisationAdded.class));
+    }
+
+    @Test
+    public void testShortNamesShrinkTheJournalBytesPerTransaction() throws Exception {
+        var mapper = JsonSupport.getObjectMapper();
+        // ignores the @JsonProperty names, i.e. writes events the way they were journaled before
+        var fullNamesMapper = mapper.copy().disable(MapperFeature.USE_ANNOTATIONS);
+        var transactionId = "3f1c2a9e-7b8d-4e21-9c55-0d6a1b2c3d4e";
+        var authorised = new AccountEvent.TransAuthorisationAdded(transactionId, 1500, "8e7d6c5b-4a39-4281-b7f6-e5d4c3b2a190");
+        var captured = new AccountEvent.TransCaptureAdded(transactionId, 1500);
+
+        var shortNames = mapper.writeValueAsBytes(authorised).length + mapper.writeValueAsBytes(captured).length;
+        var fullNames = fullNamesMapper.writeValueAsBytes(authorised).length + fullNamesMapper.writeValueAsBytes(captured).length;
+
+        assertTrue(shortNames < fullNames, "short names " + shortNames + " bytes, full names " + fullNames + " bytes");
+    }
+
+    @Test
+    public void testEventsWrittenWithFullNamesAreRead() throws Exception {
+        var mapper = JsonSupport.getObjectMapper();
+
+        assertEquals(new AccountEvent.Created("account-1", 1000),
+                mapper.readValue("{\"accountId\":\"account-1\",\"initialBalance\":1000}", AccountEvent.Created.class));
+        assertEquals(new AccountEvent.TransAuthorisationAdded("tx1", 100, "auth1"),
+                mapper.readValue("{\"transactionId\":\"tx1\",\"amount\":100,\"authCode\":\"auth1\"}", AccountEvent.TransAuthorisationAdded.class));
+        assertEquals(new AccountEvent.TransCaptureAdded("tx1", 100),
+                mapper.readValue("{\"transactionId\":\"tx1\",\"amount\":100}", AccountEvent.TransCaptureAdded.class));
+        assertEquals(new AccountEvent.TransCancelAdded("tx1", 100),
+                mapper.readValue("{\"transactionId\":\"tx1\",\"amount\":100}", AccountEvent.TransCancelAdded.class));
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.akka.corebanking.domain;
+
+import akka.javasdk.JsonSupport;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccountStateMigrationTest {
+
+    private final AccountState state = AccountState.empty()
+            .onCreate(new AccountEvent.Created("account-1", 1000))
+            .onAuthorisationAdded(new AccountEvent.TransAuthorisationAdded("tx1", 100, "auth1"))
+            .onAuthorisationAdded(new AccountEvent.TransAuthorisationAdded("tx2", 200, "auth2"));
+
+    @Test
+    public void testAuthorisationsAreWrittenAsArrays() throws Exception {
+        var json = JsonSupport.getObjectMapper().writeValueAsString(state);
+
+        assertTrue(json.contains("\"tx1\":[\"tx1\",100,\"auth1\",null]"), json);
+        assertEquals(state, JsonSupport.getObjectMapper().readValue(json, AccountState.class));
+    }
+
+    @Test
+    public void testAuthorisationListOfReleasedSnapshotsIsMigrated() throws Exception {
+        var mapper = JsonSupport.getObjectMapper();
+        var released = mapper.readTree("""
+                {"accountId":"account-1",
+                 "authorisations":[
+                   {"transactionId":"tx1","amount":100,"authCode":"auth1"},
+                   {"transactionId":"tx2","amount":200,"authCode":"auth2"}],
+                 "availableBalance":700,
+                 "postedBalance":1000}
+                """);
+
+        var migrated = new AccountStateMigration().transform(0, released);
+
+        assertEquals(state, mapper.treeToValue(migrated, AccountState.class));
+    }
+
+    @Test
+    public void testEmptyAuthorisationListIsMigrated() throws Exception {
+        var mapper = JsonSupport.getObjectMapper();
+        var released = mapper.readTree("""
+                {"accountId":"account-1","authorisations":[],"availableBalance":1000,"postedBalance":1000}
+                """);
+
+        var migrated = new AccountStateMigration().transform(0, released);
+
+        assertEquals(AccountState.empty().onCreate(new AccountEvent.Created("account-1", 1000)),
+                mapper.treeToValue(migrated, AccountState.class));
+    }
+
+    @Test
+    public void testObjectAuthorisationsOfEarlierSnapshotsAreMigrated() throws Exception {
+        var mapper = JsonSupport.getObjectMapper();
+        var earlier = mapper.readTree("""
+                {"accountId":"account-1",
+                 "authorisations":{
+                   "tx1":{"transactionId":"tx1","amount":100,"authCode":"auth1"},
+                   "tx2":{"transactionId":"tx2","amount":200,"authCode":"auth2"}},
+                 "availableBalance":700,
+                 "postedBalance":1000}
+                """);
+
+        var migrated = new AccountStateMigration().transform(0, earlier);
+
+        assertEquals(state, mapper.treeToValue(migrated, AccountState.class));
+    }
+
+    @Test
+    public void testArraysWithoutExpiryAreMigrated() throws Exception {
+        var mapper = JsonSupport.getObjectMapper();
+        var earlier = mapper.readTree("""
+                {"accountId":"account-1",
+                 "authorisations":{"tx1":["tx1",100,"auth1"],"tx2":["tx2",200,"auth2"]},
+                 "availableBalance":700,
+                 "postedBalance":1000}
+                """);
+
+        var migrated = new AccountStateMigration().transform(1, earlier);
+
+        assertEquals(state, mapper.treeToValue(migrated, AccountState.class));
+    }
+
+    @Test
+    public void testLeaseAmountsWithoutExpiryAreMigrated() throws Exception {
+        var mapper = JsonSupport.getObjectMapper();
+        var earlier = mapper.readTree("""
+                {"accountId":"account-1","authorisations":{},"availableBalance":700,"postedBalance":1000,
+                 "leases":{"lease-1":300}}
+                """);
+
+        var migrated = mapper.treeToValue(new AccountStateMigration().transform(2, earlier), AccountState.class);
+
+        assertEquals(new AccountState.Lease(300, null), migrated.getLease("lease-1").orElseThrow());
+        assertEquals(List.of("lease-1"), migrated.expiredLeases(Instant.now(), Duration.ofDays(7)));
+    }
+
+    @Test
+    public void testLeasesWithoutSettledTransactionsAreMigrated() throws Exception {
+        var mapper = JsonSupport.getObjectMapper();
+        var earlier = mapper.readTree("""
+                {"accountId":"account-1","authorisations":{},"availableBalance":700,"postedBalance":1000,
+                 "leases":{"lease-1":[300,"2025-01-08T00:00:00Z"]}}
+                """);
+
+        var migrated = mapper.treeToValue(new AccountStateMigration().transform(3, earlier), AccountState.class);
+
+        var lease = migrated.getLease("lease-1").orElseThrow();
+        assertEquals(new AccountState.Lease(300, Instant.parse("2025-01-08T00:00:00Z")), lease);
+        assertTrue(lease.settled().isEmpty());
+        assertFalse(lease.released());
+    }
+}
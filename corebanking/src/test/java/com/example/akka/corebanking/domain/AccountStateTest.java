@@ -4,18 +4,25 @@ import com.example.akka.corebanking.domain.AccountEvent;
 import com.example.akka.corebanking.domain.AccountState;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class AccountStateTest {
 
+    private static final Duration HOLD_EXPIRY = Duration.ofDays(7);
+    private static final Duration CHECK_INTERVAL = Duration.ofMinutes(1);
+
     @Test
     public void testEmptyAccountState() {
         AccountState emptyState = AccountState.empty();
         
         assertEquals("", emptyState.accountId());
-        assertEquals(List.of(), emptyState.authorisations());
+        assertEquals(Map.of(), emptyState.authorisations());
         assertEquals(0, emptyState.availableBalance());
         assertEquals(0, emptyState.postedBalance());
         assertTrue(emptyState.isEmpty());
@@ -23,14 +30,14 @@ public class AccountStateTest {
 
     @Test
     public void testAccountStateCreation() {
-        var authorisations = List.of(new AccountState.Authorisation("tx1", 100, "auth123"));
+        var authorisations = Map.of("tx1", new AccountState.Authorisation("tx1", 100, "auth123"));
         AccountState state = new AccountState("account123", authorisations, 500, 400);
         
         assertEquals("account123", state.accountId());
         assertEquals(1, state.authorisations().size());
-        assertEquals("tx1", state.authorisations().get(0).transactionId());
-        assertEquals(100, state.authorisations().get(0).amount());
-        assertEquals("auth123", state.authorisations().get(0).authCode());
+        assertEquals("tx1", state.authorisations().get("tx1").transactionId());
+        assertEquals(100, state.authorisations().get("tx1").amount());
+        assertEquals("auth123", state.authorisations().get("tx1").authCode());
         assertEquals(500, state.availableBalance());
         assertEquals(400, state.postedBalance());
         assertFalse(state.isEmpty());
@@ -38,13 +45,13 @@ public class AccountStateTest {
 
     @Test
     public void testIsEmptyReturnsTrueForEmptyAccountId() {
-        AccountState state = new AccountState("", List.of(), 100, 50);
+        AccountState state = new AccountState("", Map.of(), 100, 50);
         assertTrue(state.isEmpty());
     }
 
     @Test
     public void testIsEmptyReturnsFalseForNonEmptyAccountId() {
-        AccountState state = new AccountState("account123", List.of(), 0, 0);
+        AccountState state = new AccountState("account123", Map.of(), 0, 0);
         assertFalse(state.isEmpty());
     }
 
@@ -56,7 +63,7 @@ public class AccountStateTest {
         AccountState newState = emptyState.onCreate(event);
         
         assertEquals("account123", newState.accountId());
-        assertEquals(List.of(), newState.authorisations());
+        assertEquals(Map.of(), newState.authorisations());
         assertEquals(1000, newState.availableBalance());
         assertEquals(1000, newState.postedBalance());
         assertFalse(newState.isEmpty());
@@ -64,30 +71,30 @@ public class AccountStateTest {
 
     @Test
     public void testOnCreateFromExistingState() {
-        var existingAuths = List.of(new AccountState.Authorisation("tx1", 100, "auth1"));
+        var existingAuths = Map.of("tx1", new AccountState.Authorisation("tx1", 100, "auth1"));
         AccountState existingState = new AccountState("old_account", existingAuths, 500, 400);
         AccountEvent.Created event = new AccountEvent.Created("new_account", 750);
         
         AccountState newState = existingState.onCreate(event);
         
         assertEquals("new_account", newState.accountId());
-        assertEquals(List.of(), newState.authorisations());
+        assertEquals(Map.of(), newState.authorisations());
         assertEquals(750, newState.availableBalance());
         assertEquals(750, newState.postedBalance());
     }
 
     @Test
     public void testOnAuthorisationAdded() {
-        AccountState state = new AccountState("account123", List.of(), 1000, 500);
+        AccountState state = new AccountState("account123", Map.of(), 1000, 500);
         AccountEvent.TransAuthorisationAdded event = new AccountEvent.TransAuthorisationAdded("tx1", 200, "auth123");
         
         AccountState newState = state.onAuthorisationAdded(event);
         
         assertEquals("account123", newState.accountId());
         assertEquals(1, newState.authorisations().size());
-        assertEquals("tx1", newState.authorisations().get(0).transactionId());
-        assertEquals(200, newState.authorisations().get(0).amount());
-        assertEquals("auth123", newState.authorisations().get(0).authCode());
+        assertEquals("tx1", newState.authorisations().get("tx1").transactionId());
+        assertEquals(200, newState.authorisations().get("tx1").amount());
+        assertEquals("auth123", newState.authorisations().get("tx1").authCode());
         assertEquals(800, newState.availableBalance()); // 1000 - 200
         assertEquals(500, newState.postedBalance()); // unchanged
     }
@@ -95,15 +102,15 @@ public class AccountStateTest {
     @Test
     public void testOnAuthorisationAddedWithExistingAuthorisations() {
         var existingAuth = new AccountState.Authorisation("tx0", 100, "auth0");
-        AccountState state = new AccountState("account123", List.of(existingAuth), 900, 500);
+        AccountState state = new AccountState("account123", Map.of("tx0", existingAuth), 900, 500);
         AccountEvent.TransAuthorisationAdded event = new AccountEvent.TransAuthorisationAdded("tx1", 150, "auth1");
         
         AccountState newState = state.onAuthorisationAdded(event);
         
         assertEquals("account123", newState.accountId());
         assertEquals(2, newState.authorisations().size());
-        assertEquals("tx0", newState.authorisations().get(0).transactionId());
-        assertEquals("tx1", newState.authorisations().get(1).transactionId());
+        assertEquals("tx0", newState.authorisations().get("tx0").transactionId());
+        assertEquals("tx1", newState.authorisations().get("tx1").transactionId());
         assertEquals(750, newState.availableBalance()); // 900 - 150
         assertEquals(500, newState.postedBalance()); // unchanged
     }
@@ -111,7 +118,7 @@ public class AccountStateTest {
     @Test
     public void testOnCaptureAdded() {
         var auth = new AccountState.Authorisation("tx1", 200, "auth1");
-        AccountState state = new AccountState("account123", List.of(auth), 800, 500);
+        AccountState state = new AccountState("account123", Map.of("tx1", auth), 800, 500);
         AccountEvent.TransCaptureAdded event = new AccountEvent.TransCaptureAdded("tx1", 200);
         
         AccountState newState = state.onCaptureAdded(event);
@@ -122,11 +129,34 @@ public class AccountStateTest {
         assertEquals(300, newState.postedBalance()); // 500 - 200
     }
 
+    @Test
+    public void testOnCancelAdded() {
+        var auth = new AccountState.Authorisation("tx1", 200, "auth1");
+        AccountState state = new AccountState("account123", Map.of("tx1", auth), 800, 500);
+        AccountEvent.TransCancelAdded event = new AccountEvent.TransCancelAdded("tx1", 200);
+
+        AccountState newState = state.onCancelAdded(event);
+
+        assertEquals(0, newState.authorisations().size()); // authorization removed after cancel
+        assertEquals(1000, newState.availableBalance()); // 800 + 200
+        assertEquals(500, newState.postedBalance()); // unchanged
+    }
+
+    @Test
+    public void testOnCaptureAddedForUnknownTransactionKeepsState() {
+        var auth = new AccountState.Authorisation("tx1", 200, "auth1");
+        AccountState state = new AccountState("account123", Map.of("tx1", auth), 800, 500);
+
+        AccountState newState = state.onCaptureAdded(new AccountEvent.TransCaptureAdded("tx999", 200));
+
+        assertSame(state, newState);
+    }
+
 
     @Test
     public void testAccountStateImmutability() {
         var originalAuth = new AccountState.Authorisation("tx0", 100, "auth0");
-        AccountState originalState = new AccountState("account123", List.of(originalAuth), 900, 500);
+        AccountState originalState = new AccountState("account123", Map.of("tx0", originalAuth), 900, 500);
         AccountEvent.TransAuthorisationAdded event = new AccountEvent.TransAuthorisationAdded("tx1", 200, "auth1");
         
         AccountState newState = originalState.onAuthorisationAdded(event);
@@ -149,7 +179,7 @@ public class AccountStateTest {
 
     @Test
     public void testIsAvailableBalance() {
-        AccountState state = new AccountState("account123", List.of(), 1000, 500);
+        AccountState state = new AccountState("account123", Map.of(), 1000, 500);
         
         assertTrue(state.isAvailableBalance(500));
         assertTrue(state.isAvailableBalance(1000));
@@ -160,7 +190,7 @@ public class AccountStateTest {
     public void testGetAuthorisation() {
         var auth1 = new AccountState.Authorisation("tx1", 200, "auth1");
         var auth2 = new AccountState.Authorisation("tx2", 150, "auth2");
-        AccountState state = new AccountState("account123", List.of(auth1, auth2), 650, 500);
+        AccountState state = new AccountState("account123", Map.of("tx1", auth1, "tx2", auth2), 650, 500);
         
         var foundAuth = state.getAuthorisation("tx1");
         assertTrue(foundAuth.isPresent());
@@ -200,4 +230,79 @@ public class AccountStateTest {
         assertEquals(700, state.postedBalance()); // 1000 - 300 (posted balance updated on capture)
         assertEquals(0, state.authorisations().size()); // authorization removed after capture
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testExpiredHoldsAreReleasedTogether() {
+        var now = Instant.parse("2025-01-08T00:00:00Z");
+        var state = AccountState.empty()
+                .onCreate(new AccountEvent.Created("account123", 1000))
+                .onAuthorisationAdded(new AccountEvent.TransAuthorisationAdded("tx1", 100, "auth1", now.minusSeconds(60)))
+                .onAuthorisationAdded(new AccountEvent.TransAuthorisationAdded("tx2", 200, "auth2", now))
+                .onAuthorisationAdded(new AccountEvent.TransAuthorisationAdded("tx3", 300, "auth3", now.plus(Duration.ofHours(1))))
+                .onAuthorisationAdded(new AccountEvent.TransAuthorisationAdded("tx4", 50, "auth4"));
+
+        var expired = state.expiredAuthorisations(now).stream().map(AccountState.Authorisation::transactionId).sorted().toList();
+        assertEquals(List.of("tx1", "tx2"), expired);
+        var next = state.nextExpiryCheck(now, HOLD_EXPIRY, CHECK_INTERVAL);
+        assertEquals(Optional.of(now.plus(Duration.ofHours(1))), next);
+
+        state = state.onAuthorisationsExpired(new AccountEvent.AuthorisationsExpired(expired, 300, next.get()));
+        assertEquals(650, state.availableBalance());
+        assertEquals(2, state.authorisations().size());
+        assertEquals(next.get(), state.expiryCheckAt());
+    }
+
+    @Test
+    public void testNextExpiryCheckIsNotSoonerThanTheCheckInterval() {
+        var now = Instant.parse("2025-01-08T00:00:00Z");
+        var state = AccountState.empty()
+                .onCreate(new AccountEvent.Created("account123", 1000))
+                .onAuthorisationAdded(new AccountEvent.TransAuthorisationAdded("tx1", 100, "auth1", now.plusMillis(5)));
+
+        assertEquals(Optional.of(now.plus(CHECK_INTERVAL)), state.nextExpiryCheck(now, HOLD_EXPIRY, CHECK_INTERVAL));
+        assertEquals(Optional.of(now.plus(Duration.ofSeconds(10))), state.nextExpiryCheck(now, HOLD_EXPIRY, Duration.ofSeconds(10)));
+        assertEquals(Optional.empty(), AccountState.empty().nextExpiryCheck(now, HOLD_EXPIRY, CHECK_INTERVAL));
+    }
+
+    @Test
+    public void testExpiredLeasesAreReclaimed() {
+        var now = Instant.parse("2025-01-08T00:00:00Z");
+        var state = AccountState.empty()
+                .onCreate(new AccountEvent.Created("account123", 1000))
+                .onLeaseGranted(new AccountEvent.LeaseGranted("lease-1", 300, now.minusSeconds(1)))
+                .onLeaseGranted(new AccountEvent.LeaseGranted("lease-2", 200, now.plus(Duration.ofMinutes(5))))
+                .onLeaseAuthorisationAdded(new AccountEvent.LeaseAuthorisationAdded("lease-1", "tx1", 100, "auth1", now.plus(Duration.ofDays(7))));
+        assertEquals(500, state.availableBalance());
+
+        assertEquals(List.of("lease-1"), state.expiredLeases(now, HOLD_EXPIRY));
+        assertEquals(Optional.of(now.plus(Duration.ofMinutes(5))), state.nextExpiryCheck(now, HOLD_EXPIRY, CHECK_INTERVAL));
+
+        state = state.onLeaseReleased(new AccountEvent.LeaseReleased("lease-1", state.getLease("lease-1").get().remaining()));
+        assertEquals(700, state.availableBalance());
+        assertTrue(state.getAuthorisation("tx1").isPresent());
+    }
+
+    @Test
+    public void testReleasedLeaseIsKeptUntilItsTransactionsCannotBeSettledAgain() {
+        var now = Instant.parse("2025-01-08T00:00:00Z");
+        var state = AccountState.empty()
+                .onCreate(new AccountEvent.Created("account123", 1000))
+                .onLeaseGranted(new AccountEvent.LeaseGranted("lease-1", 300, now))
+                .onLeaseAuthorisationAdded(new AccountEvent.LeaseAuthorisationAdded("lease-1", "tx1", 100, "auth1", now.plus(Duration.ofDays(7))))
+                .onLeaseReleased(new AccountEvent.LeaseReleased("lease-1", 200));
+        assertEquals(900, state.availableBalance());
+        assertTrue(state.getLease("lease-1").get().released());
+        assertTrue(state.isSettledFromLease("tx1"));
+
+        var forgetAt = now.plus(HOLD_EXPIRY);
+        assertEquals(List.of(), state.expiredLeases(forgetAt.minusSeconds(1), HOLD_EXPIRY));
+        assertEquals(List.of("lease-1"), state.expiredLeases(forgetAt, HOLD_EXPIRY));
+        assertEquals(List.of("lease-1"), state.expiredLeases(now.plus(Duration.ofDays(1)), Duration.ofDays(1)));
+
+        // releasing it again forgets it without touching the balance
+        state = state.onLeaseReleased(new AccountEvent.LeaseReleased("lease-1", 0));
+        assertTrue(state.getLease("lease-1").isEmpty());
+        assertFalse(state.isSettledFromLease("tx1"));
+        assertEquals(900, state.availableBalance());
+    }
+}
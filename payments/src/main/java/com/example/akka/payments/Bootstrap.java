@@ -1,25 +1,117 @@
 package com.example.akka.payments;
 
+import akka.Done;
+import akka.actor.CoordinatedShutdown;
 import akka.javasdk.DependencyProvider;
 import akka.javasdk.ServiceSetup;
 import akka.javasdk.annotations.Setup;
+import akka.javasdk.client.ComponentClient;
 import akka.javasdk.grpc.GrpcClientProvider;
+import akka.javasdk.timer.TimerScheduler;
+import akka.stream.Materializer;
 import com.example.akka.account.api.AccountGrpcEndpointClient;
+import com.example.akka.payments.application.AccountLeases;
+import com.example.akka.payments.application.AccountStreamClient;
+import com.example.akka.payments.application.AuthorisationBatcher;
+import com.example.akka.payments.application.CaptureTimeoutPolicies;
+import com.example.akka.payments.application.CaptureTimeoutPolicyEntity;
+import com.example.akka.payments.application.CaptureTimeoutWheel;
+import com.example.akka.payments.application.CardCache;
+import com.example.akka.payments.application.IdempotencyKeyFilter;
+import com.example.akka.payments.application.SettlementBatcher;
+import com.typesafe.config.Config;
+
+import java.time.Duration;
 
 @Setup
 public class Bootstrap implements ServiceSetup {
   
   private final GrpcClientProvider grpcClientProvider;
+  private final Config config;
+  private final Materializer materializer;
+  private final ComponentClient componentClient;
+  private final TimerScheduler timerScheduler;
   
-  public Bootstrap(GrpcClientProvider grpcClientProvider) {
+  public Bootstrap(GrpcClientProvider grpcClientProvider, Config config, Materializer materializer,
+                   ComponentClient componentClient, TimerScheduler timerScheduler) {
     this.grpcClientProvider = grpcClientProvider;
+    this.config = config;
+    this.materializer = materializer;
+    this.componentClient = componentClient;
+    this.timerScheduler = timerScheduler;
+  }
+
+  @Override
+  public void onStartup() {
+    // (re)starts the capture timeout wheel; each tick schedules the next one under the same timer name
+    timerScheduler.createSingleTimer(
+        CaptureTimeoutWheel.TIMER_NAME,
+        Duration.ZERO,
+        componentClient.forTimedAction()
+            .method(CaptureTimeoutWheel::tick)
+            .deferred());
   }
   
   @Override
   public DependencyProvider createDependencyProvider() {
     AccountGrpcEndpointClient accountClient = grpcClientProvider.grpcClientFor(AccountGrpcEndpointClient.class, "corebanking");
-    return DependencyProvider.single(accountClient);
+    AccountStreamClient accountStreamClient = new AccountStreamClient(
+        AccountStreamClient.streamTransport(accountClient),
+        materializer,
+        AccountStreamClient.Settings.fromConfig(config.getConfig("payments.account-stream")));
+    AuthorisationBatcher authorisationBatcher = new AuthorisationBatcher(
+        request -> accountClient.batchAuthorizeTransactions().invokeAsync(request),
+        accountStreamClient::authorize,
+        AuthorisationBatcher.Settings.fromConfig(config.getConfig("payments.account-batching")));
+    SettlementBatcher settlementBatcher = new SettlementBatcher(
+        request -> accountClient.batchCaptureTransactions().invokeAsync(request),
+        accountStreamClient::capture,
+        request -> accountClient.batchCancelTransactions().invokeAsync(request),
+        accountStreamClient::cancel,
+        AuthorisationBatcher.Settings.fromConfig(config.getConfig("payments.account-batching")));
+    AccountLeases accountLeases = new AccountLeases(
+        request -> accountClient.grantLease().invokeAsync(request),
+        request -> accountClient.settleLease().invokeAsync(request),
+        authorisationBatcher::authorize,
+        AccountLeases.Settings.fromConfig(config.getConfig("payments.account-leases")));
+    // leases not released here would stay reserved on their accounts until corebanking reclaims them
+    CoordinatedShutdown.get(materializer.system()).addTask(
+        CoordinatedShutdown.PhaseServiceRequestsDone(),
+        "release-account-leases",
+        () -> accountLeases.releaseAll().thenApply(released -> Done.getInstance()));
+    CardCache cardCache = new CardCache(CardCache.Settings.fromConfig(config.getConfig("payments.card-cache")));
+    CaptureTimeoutPolicies captureTimeoutPolicies = new CaptureTimeoutPolicies(
+        () -> componentClient.forKeyValueEntity(CaptureTimeoutPolicyEntity.TABLE_ID)
+            .method(CaptureTimeoutPolicyEntity::get)
+            .invokeAsync(),
+        CaptureTimeoutPolicies.Settings.fromConfig(config.getConfig("payments.capture-timeout-policies")));
+    IdempotencyKeyFilter idempotencyKeyFilter = new IdempotencyKeyFilter(
+        IdempotencyKeyFilter.Settings.fromConfig(config.getConfig("payments.idempotency-filter")));
+    return new DependencyProvider() {
+      @SuppressWarnings("unchecked")
+      @Override
+      public <T> T getDependency(Class<T> clazz) {
+        if (clazz == AccountGrpcEndpointClient.class) {
+          return (T) accountClient;
+        } else if (clazz == AccountStreamClient.class) {
+          return (T) accountStreamClient;
+        } else if (clazz == AuthorisationBatcher.class) {
+          return (T) authorisationBatcher;
+        } else if (clazz == SettlementBatcher.class) {
+          return (T) settlementBatcher;
+        } else if (clazz == AccountLeases.class) {
+          return (T) accountLeases;
+        } else if (clazz == CardCache.class) {
+          return (T) cardCache;
+        } else if (clazz == CaptureTimeoutPolicies.class) {
+          return (T) captureTimeoutPolicies;
+        } else if (clazz == IdempotencyKeyFilter.class) {
+          return (T) idempotencyKeyFilter;
+        }
+        return null;
+      }
+    };
     
   }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+package com.example.akka.payments.api;
+
+import akka.javasdk.CommandException;
+import akka.javasdk.annotations.Acl;
+import akka.javasdk.annotations.http.Get;
+import akka.javasdk.annotations.http.HttpEndpoint;
+import akka.javasdk.annotations.http.Put;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.http.AbstractHttpEndpoint;
+import akka.javasdk.http.HttpException;
+import com.example.akka.payments.application.CaptureTimeoutPolicies;
+import com.example.akka.payments.application.CaptureTimeoutPolicyEntity;
+import com.example.akka.payments.domain.CaptureTimeoutPolicyTable;
+
+@HttpEndpoint("/capture-timeout-policies")
+@Acl(allow = @Acl.Matcher(principal = Acl.Principal.ALL))
+public class CaptureTimeoutPolicyHttpEndpoint extends AbstractHttpEndpoint {
+
+    private final ComponentClient componentClient;
+    private final CaptureTimeoutPolicies captureTimeoutPolicies;
+
+    public CaptureTimeoutPolicyHttpEndpoint(ComponentClient componentClient, CaptureTimeoutPolicies captureTimeoutPolicies) {
+        this.componentClient = componentClient;
+        this.captureTimeoutPolicies = captureTimeoutPolicies;
+    }
+
+    /**
+     * Policy table in effect on this node.
+     * GET /capture-timeout-policies
+     */
+    @Get
+    public CaptureTimeoutPolicyTable getPolicies() {
+        return captureTimeoutPolicies.table().toCompletableFuture().join();
+    }
+
+    /**
+     * Replaces the policy table; new authorisations on all nodes use it within the refresh interval. A table with
+     * a timeout that is not positive or longer than the configured maximum is rejected with 400.
+     * PUT /capture-timeout-policies
+     */
+    @Put
+    public CaptureTimeoutPolicyTable updatePolicies(CaptureTimeoutPolicyTable table) {
+        try {
+            componentClient.forKeyValueEntity(CaptureTimeoutPolicyEntity.TABLE_ID)
+                    .method(CaptureTimeoutPolicyEntity::update)
+                    .invoke(table);
+        } catch (CommandException e) {
+            throw HttpException.badRequest(e.getMessage());
+        }
+        captureTimeoutPolicies.refresh();
+        return table;
+    }
+}
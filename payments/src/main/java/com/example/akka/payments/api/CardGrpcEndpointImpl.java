@@ -1,10 +1,14 @@
 package com.example.akka.payments.api;
 
+import akka.NotUsed;
 import akka.grpc.GrpcServiceException;
 import akka.javasdk.annotations.Acl;
 import akka.javasdk.annotations.GrpcEndpoint;
 import akka.javasdk.client.ComponentClient;
+import akka.stream.javadsl.Source;
 import com.example.akka.payments.application.CardEntity;
+import com.example.akka.payments.application.CardImport;
+import com.typesafe.config.Config;
 import io.grpc.Status;
 import org.slf4j.Logger;
 
@@ -14,9 +18,11 @@ public class CardGrpcEndpointImpl implements CardGrpcEndpoint {
 
     private final static Logger logger = org.slf4j.LoggerFactory.getLogger(CardGrpcEndpointImpl.class);
     private final ComponentClient componentClient;
+    private final CardImport cardImport;
 
-    public CardGrpcEndpointImpl(ComponentClient componentClient) {
+    public CardGrpcEndpointImpl(ComponentClient componentClient, Config config) {
         this.componentClient = componentClient;
+        this.cardImport = new CardImport(componentClient, config);
     }
 
     @Override
@@ -32,6 +38,16 @@ public class CardGrpcEndpointImpl implements CardGrpcEndpoint {
         }
     }
 
+    @Override
+    public Source<CreateCardResult, NotUsed> createCards(Source<Card, NotUsed> in) {
+        return cardImport.run(in.map(card -> new CardEntity.ApiCard(card.getPan(), card.getExpiryDate(), card.getCvv(), card.getAccountId())))
+                .map(result -> CreateCardResult.newBuilder()
+                        .setPan(result.pan())
+                        .setStatus(toProtoCreateCardStatus(result.status()))
+                        .setMessage(result.message())
+                        .build());
+    }
+
     @Override
     public ValidateCardResponse validateCard(ValidateCardRequest in) {
         try {
@@ -59,6 +75,14 @@ public class CardGrpcEndpointImpl implements CardGrpcEndpoint {
         }
     }
 
+    private CreateCardStatus toProtoCreateCardStatus(CardImport.Status status) {
+        return switch (status) {
+            case created -> CreateCardStatus.CREATE_CARD_CREATED;
+            case conflict -> CreateCardStatus.CREATE_CARD_CONFLICT;
+            case failed -> CreateCardStatus.CREATE_CARD_FAILED;
+        };
+    }
+
     private Card fromState(CardEntity.ApiCard card) {
         return Card.newBuilder()
                 .setPan(card.pan())
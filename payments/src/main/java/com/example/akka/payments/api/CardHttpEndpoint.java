@@ -0,0 +1,47 @@
+package com.example.akka.payments.api;
+
+import akka.http.javadsl.model.HttpEntity;
+import akka.http.javadsl.model.HttpResponse;
+import akka.javasdk.annotations.Acl;
+import akka.javasdk.annotations.http.HttpEndpoint;
+import akka.javasdk.annotations.http.Post;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.http.AbstractHttpEndpoint;
+import com.example.akka.common.Ndjson;
+import com.example.akka.payments.application.CardEntity;
+import com.example.akka.payments.application.CardImport;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@HttpEndpoint("/cards")
+@Acl(allow = @Acl.Matcher(principal = Acl.Principal.ALL))
+public class CardHttpEndpoint extends AbstractHttpEndpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(CardHttpEndpoint.class);
+    private static final int MAX_LINE_LENGTH = 4096;
+
+    private final CardImport cardImport;
+
+    public CardHttpEndpoint(ComponentClient componentClient, Config config) {
+        this.cardImport = new CardImport(componentClient, config);
+    }
+
+    public record ImportCard(String pan, String expiryDate, String cvv, String accountId) {}
+
+    /**
+     * Bulk card import. The body is NDJSON, one {@link ImportCard} per line, and the response is NDJSON with one
+     * {@link CardImport.Result} per non-blank line in the same order, keyed by line number. A line that is too long
+     * or not valid JSON gets a {@code failed} result. Sending the same file again resumes an interrupted import.
+     * POST /cards/import
+     */
+    @Post("/import")
+    public HttpResponse importCards(HttpEntity.Strict body) {
+        logger.info("Importing cards from {} bytes of NDJSON", body.getData().size());
+        var cards = Ndjson.lines(body.getData(), MAX_LINE_LENGTH, ImportCard.class)
+                .map(line -> line.map(card ->
+                        new CardEntity.ApiCard(card.pan(), card.expiryDate(), card.cvv(), card.accountId())));
+
+        return Ndjson.response(cardImport.runLines(cards));
+    }
+}
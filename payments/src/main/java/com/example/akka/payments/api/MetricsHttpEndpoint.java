@@ -0,0 +1,77 @@
+package com.example.akka.payments.api;
+
+import akka.javasdk.annotations.Acl;
+import akka.javasdk.annotations.http.Get;
+import akka.javasdk.annotations.http.HttpEndpoint;
+import akka.javasdk.http.AbstractHttpEndpoint;
+import com.example.akka.payments.application.AccountLeases;
+import com.example.akka.payments.application.AuthorisationBatcher;
+import com.example.akka.payments.application.CardCache;
+import com.example.akka.payments.application.IdempotencyKeyFilter;
+import com.example.akka.payments.application.SettlementBatcher;
+
+@HttpEndpoint("/metrics")
+@Acl(allow = @Acl.Matcher(principal = Acl.Principal.ALL))
+public class MetricsHttpEndpoint extends AbstractHttpEndpoint {
+
+    private final AuthorisationBatcher authorisationBatcher;
+    private final SettlementBatcher settlementBatcher;
+    private final CardCache cardCache;
+    private final AccountLeases accountLeases;
+    private final IdempotencyKeyFilter idempotencyKeyFilter;
+
+    public MetricsHttpEndpoint(AuthorisationBatcher authorisationBatcher, SettlementBatcher settlementBatcher,
+                               CardCache cardCache, AccountLeases accountLeases,
+                               IdempotencyKeyFilter idempotencyKeyFilter) {
+        this.authorisationBatcher = authorisationBatcher;
+        this.settlementBatcher = settlementBatcher;
+        this.cardCache = cardCache;
+        this.accountLeases = accountLeases;
+        this.idempotencyKeyFilter = idempotencyKeyFilter;
+    }
+
+    /**
+     * Batch size and queueing delay of authorisations sent to corebanking.
+     * GET /metrics/account-batching
+     */
+    @Get("/account-batching")
+    public AuthorisationBatcher.Stats accountBatching() {
+        return authorisationBatcher.stats();
+    }
+
+    /**
+     * Batch size and queueing delay of captures and cancels sent to corebanking.
+     * GET /metrics/settlement-batching
+     */
+    @Get("/settlement-batching")
+    public SettlementBatcher.Stats settlementBatching() {
+        return settlementBatcher.stats();
+    }
+
+    /**
+     * Hit, miss and eviction counters of the card lookup cache.
+     * GET /metrics/card-cache
+     */
+    @Get("/card-cache")
+    public CardCache.Stats cardCache() {
+        return cardCache.stats();
+    }
+
+    /**
+     * Authorisations approved from account leases on this node vs. sent to corebanking.
+     * GET /metrics/account-leases
+     */
+    @Get("/account-leases")
+    public AccountLeases.Stats accountLeases() {
+        return accountLeases.stats();
+    }
+
+    /**
+     * Start requests answered from memory as duplicates vs. Bloom filter false positives on this node.
+     * GET /metrics/idempotency-filter
+     */
+    @Get("/idempotency-filter")
+    public IdempotencyKeyFilter.Stats idempotencyFilter() {
+        return idempotencyKeyFilter.stats();
+    }
+}
@@ -53,7 +53,8 @@ public class PaymentsMcpEndpoint {
                request.cardExpiryDate(),
                request.cardCvv(),
                request.amount(),
-               request.currency()
+               request.currency(),
+               request.merchantId()
        );
        var response = componentClient.forWorkflow(request.idempotencyKey()).method(TransactionWorkflow::authorizeTransaction).invoke(startTransactionRequest);
        return response.name();
@@ -110,9 +111,14 @@ public class PaymentsMcpEndpoint {
         return result.name();
     }
 
-    @McpTool(description = "Get all transactions for account")
-    public String getTransactionsByAccount(@Description("Account id")String accountId) {
-        var result = componentClient.forView().method(TransactionsByAccountView::getTransactionsByAccount).invoke(accountId);
+    @McpTool(description = "Get one page of transactions for account, ordered by transaction id")
+    public String getTransactionsByAccount(
+            @Description("Account id")String accountId,
+            @Description("Token of the page to get, empty for the first page")String pageToken,
+            @Description("Maximum number of transactions in the page, at most 1000")int pageSize) {
+        var result = componentClient.forView()
+                .method(TransactionsByAccountView::getTransactionsByAccount)
+                .invoke(TransactionsByAccountView.PageRequest.of(accountId, pageToken, pageSize));
 
         var transactions = result.transactions().stream()
                 .map(t -> new TransactionSummary(
@@ -124,11 +130,14 @@ public class PaymentsMcpEndpoint {
                         t.captureResult(),
                         t.captureStatus(),
                         t.cancelResult(),
-                        t.cancelStatus()
+                        t.cancelStatus(),
+                        t.amount(),
+                        t.currency(),
+                        t.createdAt().toString()
                 ))
                 .toList();
 
-        return JsonSupport.encodeToString(new TransactionsByAccountResponse(transactions));
+        return JsonSupport.encodeToString(new TransactionsByAccountResponse(transactions, result.nextPageToken()));
     }
 
     public record Card(String pan, String expiryDate, String cvv, String accountId) {}
@@ -140,7 +149,8 @@ public class PaymentsMcpEndpoint {
             @Description("Card expiry date in format MM/YY")String cardExpiryDate,
             @Description("Card CVV. 3 digit number")String cardCvv,
             @Description("Transaction amount in cents") int amount,
-            @Description("Transaction amount currency. 3 letter code")String currency) {}
+            @Description("Transaction amount currency. 3 letter code")String currency,
+            @Description("Merchant id, optional. Selects the merchant's capture timeout")String merchantId) {}
 
     record StartTransactionResponse(String result) {}
 
@@ -173,8 +183,11 @@ public class PaymentsMcpEndpoint {
             String captureResult,
             String captureStatus,
             String cancelResult,
-            String cancelStatus) {}
+            String cancelStatus,
+            int amount,
+            String currency,
+            String createdAt) {}
 
-    record TransactionsByAccountResponse(java.util.List<TransactionSummary> transactions) {}
+    record TransactionsByAccountResponse(java.util.List<TransactionSummary> transactions, String nextPageToken) {}
 
 }
@@ -1,26 +1,35 @@
 package com.example.akka.payments.api;
 
+import akka.NotUsed;
 import akka.grpc.GrpcServiceException;
 import akka.javasdk.annotations.Acl;
 import akka.javasdk.annotations.GrpcEndpoint;
 import akka.javasdk.client.ComponentClient;
+import akka.stream.javadsl.Source;
 import com.example.akka.account.api.CaptureTransactionRequest;
 import com.example.akka.account.api.CaptureTransactionResponse;
+import com.example.akka.payments.application.IdempotencyKeyFilter;
 import com.example.akka.payments.application.TransactionWorkflow;
+import com.example.akka.payments.application.TransactionsByAccountView;
 import com.example.akka.payments.domain.TransactionState;
+import com.google.protobuf.Timestamp;
 import io.grpc.Status;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Instant;
+
 @Acl(allow = @Acl.Matcher(principal = Acl.Principal.ALL))
 @GrpcEndpoint
 public class TransactionGrpcEndpointImpl implements TransactionGrpcEndpoint {
 
     private static final Logger logger = LoggerFactory.getLogger(TransactionGrpcEndpointImpl.class);
     private final ComponentClient componentClient;
+    private final IdempotencyKeyFilter idempotencyKeyFilter;
 
-    public TransactionGrpcEndpointImpl(ComponentClient componentClient) {
+    public TransactionGrpcEndpointImpl(ComponentClient componentClient, IdempotencyKeyFilter idempotencyKeyFilter) {
         this.componentClient = componentClient;
+        this.idempotencyKeyFilter = idempotencyKeyFilter;
     }
 
     @Override
@@ -35,13 +44,15 @@ public class TransactionGrpcEndpointImpl implements TransactionGrpcEndpoint {
                 request.getCardExpiryDate(),
                 request.getCardCvv(),
                 request.getAmount(),
-                request.getCurrency()
+                request.getCurrency(),
+                request.getMerchantId()
             );
             
-            var result = componentClient
+            // retries of a recent request are answered without activating the workflow
+            var result = idempotencyKeyFilter.start(request.getIdempotencyKey(), () -> componentClient
                 .forWorkflow(request.getIdempotencyKey())
                 .method(TransactionWorkflow::authorizeTransaction)
-                .invoke(workflowRequest);
+                .invoke(workflowRequest));
             
             return StartTransactionResponse.newBuilder()
                 .setResult(mapWorkflowResultToProtoResult(result))
@@ -217,30 +228,24 @@ public class TransactionGrpcEndpointImpl implements TransactionGrpcEndpoint {
 
     @Override
     public GetTransactionsByAccountResponse getTransactionsByAccount(GetTransactionsByAccountRequest request) {
-        logger.info("Getting transactions for account ID: {}", request.getAccountId());
+        logger.info("Getting transactions page of size {} for account ID: {}", request.getPageSize(), request.getAccountId());
 
+        TransactionsByAccountView.PageRequest pageRequest;
         try {
-            var result = componentClient
+            pageRequest = TransactionsByAccountView.PageRequest.of(request.getAccountId(), request.getPageToken(), request.getPageSize());
+        } catch (IllegalArgumentException e) {
+            throw new GrpcServiceException(Status.INVALID_ARGUMENT.augmentDescription(e.getMessage()));
+        }
+
+        try {
+            var page = componentClient
                 .forView()
-                .method(com.example.akka.payments.application.TransactionsByAccountView::getTransactionsByAccount)
-                .invoke(request.getAccountId());
-
-            var transactionSummaries = result.transactions().stream()
-                .map(transaction -> TransactionSummary.newBuilder()
-                    .setIdempotencyKey(transaction.idempotencyKey())
-                    .setTransactionId(transaction.transactionId())
-                    .setAccountId(transaction.accountId())
-                    .setAuthResult(transaction.authResult())
-                    .setAuthStatus(transaction.authStatus())
-                    .setCaptureResult(transaction.captureResult())
-                    .setCaptureStatus(transaction.captureStatus())
-                    .setCancelResult(transaction.cancelResult())
-                    .setCancelStatus(transaction.cancelStatus())
-                    .build())
-                .toList();
+                .method(TransactionsByAccountView::getTransactionsByAccount)
+                .invoke(pageRequest);
 
             return GetTransactionsByAccountResponse.newBuilder()
-                .addAllTransactions(transactionSummaries)
+                .addAllTransactions(page.transactions().stream().map(this::toProtoTransactionSummary).toList())
+                .setNextPageToken(page.nextPageToken())
                 .build();
 
         } catch (Exception e) {
@@ -248,4 +253,116 @@ public class TransactionGrpcEndpointImpl implements TransactionGrpcEndpoint {
             return GetTransactionsByAccountResponse.newBuilder().build();
         }
     }
+
+    /**
+     * Streams every transaction of the account from the view, so consumers can walk a long history with constant
+     * memory.
+     */
+    @Override
+    public Source<TransactionSummary, NotUsed> streamTransactionsByAccount(StreamTransactionsByAccountRequest request) {
+        logger.info("Streaming transactions for account ID: {}", request.getAccountId());
+        return componentClient.forView()
+            .stream(TransactionsByAccountView::streamTransactionsByAccount)
+            .source(request.getAccountId())
+            .map(this::toProtoTransactionSummary);
+    }
+
+    /**
+     * Pushes every change to a transaction of the account for as long as the client stays connected, instead of the
+     * client polling GetTransactionsByAccount.
+     */
+    @Override
+    public Source<TransactionSummary, NotUsed> streamTransactionUpdates(StreamTransactionUpdatesRequest request) {
+        logger.info("Streaming transaction updates for account ID: {}", request.getAccountId());
+        var query = TransactionsByAccountView.UpdatesQuery.of(
+            request.getAccountId(),
+            request.hasUpdatedSince() ? fromProtoTimestamp(request.getUpdatedSince()) : null);
+        return componentClient.forView()
+            .stream(TransactionsByAccountView::streamTransactionUpdates)
+            .source(query)
+            .map(this::toProtoTransactionSummary);
+    }
+
+    private TransactionSummary toProtoTransactionSummary(TransactionsByAccountView.TransactionSummary transaction) {
+        return TransactionSummary.newBuilder()
+            .setIdempotencyKey(transaction.idempotencyKey())
+            .setTransactionId(transaction.transactionId())
+            .setAccountId(transaction.accountId())
+            .setAuthResult(transaction.authResult())
+            .setAuthStatus(transaction.authStatus())
+            .setCaptureResult(transaction.captureResult())
+            .setCaptureStatus(transaction.captureStatus())
+            .setCancelResult(transaction.cancelResult())
+            .setCancelStatus(transaction.cancelStatus())
+            .setAmount(transaction.amount())
+            .setCurrency(transaction.currency())
+            .setCreatedAt(toProtoTimestamp(transaction.createdAt()))
+            .setUpdatedAt(toProtoTimestamp(transaction.updatedAt()))
+            .build();
+    }
+
+    @Override
+    public FilteredTransactionsResponse getTransactionsByStatus(GetTransactionsByStatusRequest request) {
+        logger.info("Getting {}/{} transactions for account ID: {}",
+            request.getAuthResult(), request.getCaptureResult(), request.getAccountId());
+
+        try {
+            var query = TransactionsByAccountView.AccountStatusQuery.of(
+                request.getAccountId(),
+                request.getAuthResult(),
+                request.getCaptureResult(),
+                request.hasCreatedFrom() ? fromProtoTimestamp(request.getCreatedFrom()) : null,
+                request.hasCreatedTo() ? fromProtoTimestamp(request.getCreatedTo()) : null,
+                request.getPageToken(),
+                request.getPageSize());
+            var page = componentClient
+                .forView()
+                .method(TransactionsByAccountView::getTransactionsByAccountAndStatus)
+                .invoke(query);
+            return toProtoFilteredResponse(page);
+        } catch (Exception e) {
+            logger.error("Failed to get transactions by status for account: {}", request.getAccountId(), e);
+            throw new GrpcServiceException(Status.INTERNAL.augmentDescription(e.getMessage()));
+        }
+    }
+
+    @Override
+    public FilteredTransactionsResponse getDeclinedTransactions(GetDeclinedTransactionsRequest request) {
+        logger.info("Getting transactions declined with status: {}", request.getAuthStatus());
+
+        try {
+            var query = TransactionsByAccountView.DeclinedQuery.of(
+                request.getAuthStatus(),
+                request.hasCreatedFrom() ? fromProtoTimestamp(request.getCreatedFrom()) : null,
+                request.hasCreatedTo() ? fromProtoTimestamp(request.getCreatedTo()) : null,
+                request.getPageToken(),
+                request.getPageSize());
+            var page = componentClient
+                .forView()
+                .method(TransactionsByAccountView::getDeclinedTransactions)
+                .invoke(query);
+            return toProtoFilteredResponse(page);
+        } catch (Exception e) {
+            logger.error("Failed to get transactions declined with status: {}", request.getAuthStatus(), e);
+            throw new GrpcServiceException(Status.INTERNAL.augmentDescription(e.getMessage()));
+        }
+    }
+
+    private FilteredTransactionsResponse toProtoFilteredResponse(TransactionsByAccountView.FilteredPage page) {
+        return FilteredTransactionsResponse.newBuilder()
+            .addAllTransactions(page.transactions().stream().map(this::toProtoTransactionSummary).toList())
+            .setNextPageToken(page.hasMore() ? page.nextPageToken() : "")
+            .build();
+    }
+
+    private static Timestamp toProtoTimestamp(Instant instant) {
+        return Timestamp.newBuilder()
+            .setSeconds(instant.getEpochSecond())
+            .setNanos(instant.getNano())
+            .build();
+    }
+
+    private static Instant fromProtoTimestamp(Timestamp timestamp) {
+        return Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos());
+    }
 }
\ No newline at end of file
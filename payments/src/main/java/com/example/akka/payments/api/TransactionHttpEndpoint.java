@@ -1,17 +1,25 @@
 package com.example.akka.payments.api;
 
+import akka.http.javadsl.model.HttpResponse;
 import akka.javasdk.annotations.Acl;
 import akka.javasdk.annotations.http.Get;
 import akka.javasdk.annotations.http.HttpEndpoint;
 import akka.javasdk.annotations.http.Post;
 import akka.javasdk.client.ComponentClient;
 import akka.javasdk.http.AbstractHttpEndpoint;
+import akka.javasdk.http.HttpException;
+import akka.javasdk.http.HttpResponses;
+import com.example.akka.payments.application.IdempotencyKeyFilter;
 import com.example.akka.payments.application.TransactionWorkflow;
+import com.example.akka.payments.application.TransactionsByAccountView;
 import com.example.akka.payments.domain.TransactionState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Optional;
 
 @HttpEndpoint("/transactions")
 @Acl(allow = @Acl.Matcher(principal = Acl.Principal.ALL))
@@ -19,9 +27,11 @@ public class TransactionHttpEndpoint extends AbstractHttpEndpoint {
 
     private static final Logger logger = LoggerFactory.getLogger(TransactionHttpEndpoint.class);
     private final ComponentClient componentClient;
+    private final IdempotencyKeyFilter idempotencyKeyFilter;
 
-    public TransactionHttpEndpoint(ComponentClient componentClient) {
+    public TransactionHttpEndpoint(ComponentClient componentClient, IdempotencyKeyFilter idempotencyKeyFilter) {
         this.componentClient = componentClient;
+        this.idempotencyKeyFilter = idempotencyKeyFilter;
     }
 
     // Request/Response records
@@ -32,7 +42,8 @@ public class TransactionHttpEndpoint extends AbstractHttpEndpoint {
             String cardExpiryDate,
             String cardCvv,
             int amount,
-            String currency) {}
+            String currency,
+            String merchantId) {}
 
     public enum StartTransactionResult {
         STARTED, ALREADY_EXISTS, FAILED
@@ -79,9 +90,15 @@ public class TransactionHttpEndpoint extends AbstractHttpEndpoint {
             String captureResult,
             String captureStatus,
             String cancelResult,
-            String cancelStatus) {}
+            String cancelStatus,
+            int amount,
+            String currency,
+            Instant createdAt,
+            Instant updatedAt) {}
+
+    public record GetTransactionsByAccountResponse(List<TransactionSummary> transactions, String nextPageToken) {}
 
-    public record GetTransactionsByAccountResponse(List<TransactionSummary> transactions) {}
+    public record FilteredTransactionsResponse(List<TransactionSummary> transactions, String nextPageToken) {}
 
     /**
      * Starts a new transaction workflow.
@@ -99,13 +116,15 @@ public class TransactionHttpEndpoint extends AbstractHttpEndpoint {
                     request.cardExpiryDate(),
                     request.cardCvv(),
                     request.amount(),
-                    request.currency()
+                    request.currency(),
+                    request.merchantId()
             );
 
-            var result = componentClient
+            // retries of a recent request are answered without activating the workflow
+            var result = idempotencyKeyFilter.start(request.idempotencyKey(), () -> componentClient
                     .forWorkflow(request.idempotencyKey())
                     .method(TransactionWorkflow::authorizeTransaction)
-                    .invoke(workflowRequest);
+                    .invoke(workflowRequest));
 
             return new StartTransactionResponse(mapWorkflowResultToHttpResult(result));
 
@@ -182,40 +201,161 @@ public class TransactionHttpEndpoint extends AbstractHttpEndpoint {
     }
 
     /**
-     * Gets all transactions for a specific account.
-     * GET /transactions/by-account/{accountId}
+     * Gets one page of the transactions of an account, ordered by transaction id. Pass the returned nextPageToken to
+     * get the following page; it is empty on the last page. An invalid pageToken or pageSize is a bad request.
+     * GET /transactions/by-account/{accountId}?pageToken={token}&pageSize={size}
      */
     @Get("/by-account/{accountId}")
     public GetTransactionsByAccountResponse getTransactionsByAccount(String accountId) {
-        logger.info("Getting transactions for account ID: {}", accountId);
+        var queryParams = requestContext().queryParams();
+        TransactionsByAccountView.PageRequest pageRequest;
+        try {
+            pageRequest = TransactionsByAccountView.PageRequest.of(
+                    accountId,
+                    queryParams.getString("pageToken").orElse(""),
+                    pageSizeParam(queryParams.getString("pageSize")));
+        } catch (IllegalArgumentException e) {
+            throw HttpException.badRequest(e.getMessage());
+        }
+        logger.info("Getting transactions page of size {} for account ID: {}", pageRequest.pageSize(), accountId);
 
         try {
-            var result = componentClient
+            var page = componentClient
                     .forView()
-                    .method(com.example.akka.payments.application.TransactionsByAccountView::getTransactionsByAccount)
-                    .invoke(accountId);
-
-            var transactionSummaries = result.transactions().stream()
-                    .map(transaction -> new TransactionSummary(
-                            transaction.idempotencyKey(),
-                            transaction.transactionId(),
-                            transaction.accountId(),
-                            transaction.authResult(),
-                            transaction.authStatus(),
-                            transaction.captureResult(),
-                            transaction.captureStatus(),
-                            transaction.cancelResult(),
-                            transaction.cancelStatus()))
+                    .method(TransactionsByAccountView::getTransactionsByAccount)
+                    .invoke(pageRequest);
+
+            var transactionSummaries = page.transactions().stream()
+                    .map(this::fromSummary)
                     .toList();
 
-            return new GetTransactionsByAccountResponse(transactionSummaries);
+            return new GetTransactionsByAccountResponse(transactionSummaries, page.nextPageToken());
 
         } catch (Exception e) {
             logger.error("Failed to get transactions for account: {}", accountId, e);
-            return new GetTransactionsByAccountResponse(List.of());
+            return new GetTransactionsByAccountResponse(List.of(), "");
+        }
+    }
+
+    /**
+     * Server-sent events with every change to a transaction of the account, for as long as the client stays
+     * connected. Without since only changes made after connecting are sent; with since the changes made from that
+     * time on are sent first.
+     * GET /transactions/by-account/{accountId}/updates?since={instant}
+     */
+    @Get("/by-account/{accountId}/updates")
+    public HttpResponse streamTransactionUpdates(String accountId) {
+        var query = TransactionsByAccountView.UpdatesQuery.of(
+                accountId,
+                instantParam("since", requestContext().queryParams().getString("since")));
+        logger.info("Streaming transaction updates for account ID: {} since {}", accountId, query.updatedSince());
+
+        var updates = componentClient
+                .forView()
+                .stream(TransactionsByAccountView::streamTransactionUpdates)
+                .source(query)
+                .map(this::fromSummary);
+        return HttpResponses.serverSentEvents(updates);
+    }
+
+    /**
+     * Gets one page of the transactions of an account with the given authorisation and capture result, created in
+     * [from, to), ordered by creation time. For example authResult=authorised&captureResult=N/A lists the
+     * authorisations that are not captured yet.
+     * GET /transactions/by-account/{accountId}/by-status?authResult={result}&captureResult={result}&from={instant}&to={instant}&pageToken={token}&pageSize={size}
+     */
+    @Get("/by-account/{accountId}/by-status")
+    public FilteredTransactionsResponse getTransactionsByStatus(String accountId) {
+        var queryParams = requestContext().queryParams();
+        var query = TransactionsByAccountView.AccountStatusQuery.of(
+                accountId,
+                queryParams.getString("authResult").orElse(TransactionState.AuthResult.authorised.name()),
+                queryParams.getString("captureResult").orElse("N/A"),
+                instantParam("from", queryParams.getString("from")),
+                instantParam("to", queryParams.getString("to")),
+                queryParams.getString("pageToken").orElse(""),
+                pageSizeParam(queryParams.getString("pageSize")));
+        logger.info("Getting {}/{} transactions for account ID: {}", query.authResult(), query.captureResult(), accountId);
+
+        try {
+            var page = componentClient
+                    .forView()
+                    .method(TransactionsByAccountView::getTransactionsByAccountAndStatus)
+                    .invoke(query);
+            return fromFilteredPage(page);
+        } catch (Exception e) {
+            logger.error("Failed to get transactions by status for account: {}", accountId, e);
+            throw new RuntimeException("Failed to get transactions by status: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets one page of the transactions of all accounts declined with the given status, created in [from, to),
+     * ordered by creation time.
+     * GET /transactions/declined/{authStatus}?from={instant}&to={instant}&pageToken={token}&pageSize={size}
+     */
+    @Get("/declined/{authStatus}")
+    public FilteredTransactionsResponse getDeclinedTransactions(String authStatus) {
+        var queryParams = requestContext().queryParams();
+        var query = TransactionsByAccountView.DeclinedQuery.of(
+                authStatus,
+                instantParam("from", queryParams.getString("from")),
+                instantParam("to", queryParams.getString("to")),
+                queryParams.getString("pageToken").orElse(""),
+                pageSizeParam(queryParams.getString("pageSize")));
+        logger.info("Getting transactions declined with status: {}", authStatus);
+
+        try {
+            var page = componentClient
+                    .forView()
+                    .method(TransactionsByAccountView::getDeclinedTransactions)
+                    .invoke(query);
+            return fromFilteredPage(page);
+        } catch (Exception e) {
+            logger.error("Failed to get transactions declined with status: {}", authStatus, e);
+            throw new RuntimeException("Failed to get declined transactions: " + e.getMessage());
+        }
+    }
+
+    private static Instant instantParam(String name, Optional<String> value) {
+        try {
+            return value.map(Instant::parse).orElse(null);
+        } catch (DateTimeParseException e) {
+            throw HttpException.badRequest("Invalid " + name + ", expected an ISO-8601 instant: " + value.get());
         }
     }
 
+    private static int pageSizeParam(Optional<String> value) {
+        try {
+            return value.map(Integer::parseInt).orElse(0);
+        } catch (NumberFormatException e) {
+            throw HttpException.badRequest("Invalid pageSize: " + value.get());
+        }
+    }
+
+    private FilteredTransactionsResponse fromFilteredPage(TransactionsByAccountView.FilteredPage page) {
+        return new FilteredTransactionsResponse(
+                page.transactions().stream().map(this::fromSummary).toList(),
+                page.hasMore() ? page.nextPageToken() : "");
+    }
+
+    private TransactionSummary fromSummary(TransactionsByAccountView.TransactionSummary transaction) {
+        return new TransactionSummary(
+                transaction.idempotencyKey(),
+                transaction.transactionId(),
+                transaction.accountId(),
+                transaction.authResult(),
+                transaction.authStatus(),
+                transaction.captureResult(),
+                transaction.captureStatus(),
+                transaction.cancelResult(),
+                transaction.cancelStatus(),
+                transaction.amount(),
+                transaction.currency(),
+                transaction.createdAt(),
+                transaction.updatedAt());
+    }
+
     private TransactionResponse fromTransactionState(TransactionState state) {
         return new TransactionResponse(
                 state.idempotencyKey(),
@@ -0,0 +1,183 @@
+package com.example.akka.payments.application;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Per-account batching of one kind of corebanking call, shared by {@link AuthorisationBatcher} and
+ * {@link SettlementBatcher}. The first request for an account opens a batch that is sent when the window elapses or
+ * when it reaches the maximum batch size, whichever comes first, and the batch call replies with one response per
+ * request in request order. Without batching, see {@link #unbatched}, every request is sent on its own through the
+ * single call.
+ */
+final class AccountBatches<I, O> {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountBatches.class);
+    private static final AuthorisationBatcher.Settings UNBATCHED = new AuthorisationBatcher.Settings(Duration.ZERO, 1);
+
+    private final String name;
+    private final Function<I, String> accountIdOf;
+    private final BiFunction<String, List<I>, CompletionStage<List<O>>> batchCall;
+    private final Function<I, CompletionStage<O>> singleCall;
+    private final AuthorisationBatcher.Settings settings;
+    private final ScheduledExecutorService scheduler;
+    private final ConcurrentHashMap<String, PendingBatch<I, O>> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder items = new LongAdder();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private final LongAdder queueingNanos = new LongAdder();
+    private final AtomicLong maxQueueingNanos = new AtomicLong();
+
+    AccountBatches(String name,
+                   Function<I, String> accountIdOf,
+                   BiFunction<String, List<I>, CompletionStage<List<O>>> batchCall,
+                   Function<I, CompletionStage<O>> singleCall,
+                   AuthorisationBatcher.Settings settings,
+                   ScheduledExecutorService scheduler) {
+        this.name = name;
+        this.accountIdOf = accountIdOf;
+        this.batchCall = batchCall;
+        this.singleCall = singleCall;
+        this.settings = settings;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Sends every request on its own through {@code singleCall}; nothing is batched, scheduled or counted.
+     */
+    static <I, O> AccountBatches<I, O> unbatched(Function<I, CompletionStage<O>> singleCall) {
+        return new AccountBatches<>(null, null, null, singleCall, UNBATCHED, null);
+    }
+
+    static ScheduledExecutorService scheduler(String threadName) {
+        return Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    CompletionStage<O> submit(I request) {
+        if (!settings.batching()) {
+            return singleCall.apply(request);
+        }
+
+        var accountId = accountIdOf.apply(request);
+        var item = new PendingItem<I, O>(request, System.nanoTime(), new CompletableFuture<>());
+        while (true) {
+            var batch = pending.computeIfAbsent(accountId, this::openBatch);
+            var full = batch.add(item, settings.maxBatchSize());
+            if (full == null) {
+                // batch was already closed by a concurrent flush, retry with a fresh one
+                continue;
+            }
+            if (full) {
+                flush(accountId, batch);
+            }
+            return item.result();
+        }
+    }
+
+    AuthorisationBatcher.Stats stats() {
+        long batchCount = batches.sum();
+        long itemCount = items.sum();
+        return new AuthorisationBatcher.Stats(
+                batchCount,
+                itemCount,
+                batchCount == 0 ? 0 : (double) itemCount / batchCount,
+                maxBatchSize.get(),
+                itemCount == 0 ? 0 : queueingNanos.sum() / itemCount / 1000,
+                maxQueueingNanos.get() / 1000);
+    }
+
+    private PendingBatch<I, O> openBatch(String accountId) {
+        var batch = new PendingBatch<I, O>();
+        scheduler.schedule(() -> flush(accountId, batch), settings.window().toNanos(), TimeUnit.NANOSECONDS);
+        return batch;
+    }
+
+    private void flush(String accountId, PendingBatch<I, O> batch) {
+        pending.remove(accountId, batch);
+        var batchItems = batch.close();
+        if (!batchItems.isEmpty()) {
+            send(accountId, batchItems);
+        }
+    }
+
+    private void send(String accountId, List<PendingItem<I, O>> batchItems) {
+        var now = System.nanoTime();
+        batches.increment();
+        items.add(batchItems.size());
+        maxBatchSize.accumulateAndGet(batchItems.size(), Math::max);
+        var requests = new ArrayList<I>(batchItems.size());
+        for (var item : batchItems) {
+            var waited = now - item.enqueuedAt();
+            queueingNanos.add(waited);
+            maxQueueingNanos.accumulateAndGet(waited, Math::max);
+            requests.add(item.request());
+        }
+
+        CompletionStage<List<O>> call;
+        try {
+            call = batchCall.apply(accountId, requests);
+        } catch (Exception e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        call.whenComplete((responses, error) -> {
+            if (error != null) {
+                logger.error("Batch {} of {} transactions failed for account {}", name, batchItems.size(), accountId, error);
+                batchItems.forEach(item -> item.result().completeExceptionally(error));
+                return;
+            }
+            for (int i = 0; i < batchItems.size(); i++) {
+                if (i >= responses.size()) {
+                    batchItems.get(i).result().completeExceptionally(
+                            new IllegalStateException("Missing batch " + name + " result for account " + accountId));
+                    continue;
+                }
+                batchItems.get(i).result().complete(responses.get(i));
+            }
+        });
+    }
+
+    private record PendingItem<I, O>(I request, long enqueuedAt, CompletableFuture<O> result) {}
+
+    private static final class PendingBatch<I, O> {
+        private final List<PendingItem<I, O>> items = new ArrayList<>();
+        private boolean closed;
+
+        /**
+         * @return null if the batch is already closed, otherwise whether it is now full
+         */
+        synchronized Boolean add(PendingItem<I, O> item, int maxSize) {
+            if (closed) {
+                return null;
+            }
+            items.add(item);
+            return items.size() >= maxSize;
+        }
+
+        synchronized List<PendingItem<I, O>> close() {
+            if (closed) {
+                return List.of();
+            }
+            closed = true;
+            return items;
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package com.example.akka.payments.application;
+
+import com.example.akka.account.api.AuthResult;
+import com.example.akka.account.api.AuthStatus;
+import com.example.akka.account.api.AuthorizeTransactionRequest;
+import com.example.akka.account.api.AuthorizeTransactionResponse;
+import com.example.akka.account.api.GrantLeaseRequest;
+import com.example.akka.account.api.GrantLeaseResponse;
+import com.example.akka.account.api.LeaseAuthorisation;
+import com.example.akka.account.api.LeasedAuthorisation;
+import com.example.akka.account.api.SettleLeaseRequest;
+import com.example.akka.account.api.SettleLeaseResponse;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Authorises low-value transactions locally against a budget leased from the account's available balance, taking
+ * corebanking off the critical path for high-frequency card traffic.
+ * <p>
+ * The first small authorisation for an account leases {@code lease-amount} with {@code GrantLease}; transactions up
+ * to {@code max-amount} are then approved from the lease without a corebanking call. Consumed amounts are settled
+ * back with {@code SettleLease} every {@code settle-interval}, which turns them into regular authorisations on the
+ * account. An exhausted lease is released and replaced by a new one. Larger transactions, and any transaction when
+ * no lease can be granted, go to corebanking through the fallback.
+ * <p>
+ * Leases are node-local, but what they approve is not: the auth code names the lease, and the capture or cancel of
+ * the transaction carries it ({@link #leaseAuthorisation}), so corebanking settles the transaction then if no
+ * settlement did before, whichever node the capture or cancel comes from. Corebanking adds each transaction once
+ * however many settlements, captures and cancels carry it, so a transaction approved again, by another node or
+ * after its lease was released, is still held once. A retried authorisation gets the same auth code while the node
+ * has the lease that approved it, whether current or released and not yet settled.
+ * <p>
+ * A lease not used for {@code idle-timeout}, or within {@code expiry-margin} of the expiry corebanking gave it, is
+ * settled and released; {@link #releaseAll} does the same for every lease when the node shuts down. A lease the
+ * node never releases, e.g. after a crash, is reclaimed by corebanking once it expires. What the node approved but
+ * did not settle before the crash is then not held on the account until its capture or cancel settles it, so the
+ * available balance can be overstated by at most one lease amount per lease lost that way, until those captures
+ * or cancels arrive, at most the capture timeout later.
+ */
+public class AccountLeases {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountLeases.class);
+    private static final String LEASE_AUTH_CODE_PREFIX = "lease:";
+
+    private final Function<GrantLeaseRequest, CompletionStage<GrantLeaseResponse>> grantCall;
+    private final Function<SettleLeaseRequest, CompletionStage<SettleLeaseResponse>> settleCall;
+    private final Function<AuthorizeTransactionRequest, CompletionStage<AuthorizeTransactionResponse>> fallback;
+    private final Settings settings;
+    private final ConcurrentHashMap<String, Lease> leases = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompletableFuture<Lease>> renewals = new ConcurrentHashMap<>();
+    // exhausted leases waiting to be settled and released
+    private final Map<String, Lease> retired = new ConcurrentHashMap<>();
+
+    private final LongAdder localAuthorisations = new LongAdder();
+    private final LongAdder forwardedAuthorisations = new LongAdder();
+    private final LongAdder leasesGranted = new LongAdder();
+    private final LongAdder settlements = new LongAdder();
+
+    /**
+     * {@code grantCall} and {@code settleCall} are only used when {@code settings} enable leases.
+     */
+    public AccountLeases(Function<GrantLeaseRequest, CompletionStage<GrantLeaseResponse>> grantCall,
+                         Function<SettleLeaseRequest, CompletionStage<SettleLeaseResponse>> settleCall,
+                         Function<AuthorizeTransactionRequest, CompletionStage<AuthorizeTransactionResponse>> fallback,
+                         Settings settings) {
+        this.grantCall = grantCall;
+        this.settleCall = settleCall;
+        this.fallback = fallback;
+        this.settings = settings;
+        if (settings.enabled()) {
+            var scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                var thread = new Thread(r, "account-leases");
+                thread.setDaemon(true);
+                return thread;
+            });
+            var interval = settings.settleInterval().toNanos();
+            scheduler.scheduleWithFixedDelay(this::settleAll, interval, interval, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Every authorisation goes to {@code fallback}; no lease is ever granted or settled.
+     */
+    public static AccountLeases disabled(Function<AuthorizeTransactionRequest, CompletionStage<AuthorizeTransactionResponse>> fallback) {
+        return new AccountLeases(null, null, fallback, Settings.disabled());
+    }
+
+    public CompletionStage<AuthorizeTransactionResponse> authorize(AuthorizeTransactionRequest request) {
+        if (!settings.enabled() || request.getAmount() > settings.maxAmount()) {
+            return forward(request);
+        }
+        var earlier = approvedBefore(request);
+        if (earlier != null) {
+            //deduplication
+            return approved(earlier);
+        }
+        var lease = leases.get(request.getAccountId());
+        var authCode = lease == null ? null : lease.consume(request);
+        if (authCode != null) {
+            return approved(authCode);
+        }
+        return renew(request.getAccountId(), lease).thenCompose(renewed -> {
+            var renewedAuthCode = renewed == null ? null : renewed.consume(request);
+            return renewedAuthCode != null ? approved(renewedAuthCode) : forward(request);
+        });
+    }
+
+    /**
+     * @return the lease authorisation to send with the capture or cancel of a transaction approved with
+     * {@code authCode}, empty when it was not approved from a lease
+     */
+    public static Optional<LeaseAuthorisation> leaseAuthorisation(String authCode, int amount) {
+        if (authCode == null || !authCode.startsWith(LEASE_AUTH_CODE_PREFIX)) {
+            return Optional.empty();
+        }
+        var separator = authCode.indexOf(':', LEASE_AUTH_CODE_PREFIX.length());
+        if (separator < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(LeaseAuthorisation.newBuilder()
+                .setLeaseId(authCode.substring(LEASE_AUTH_CODE_PREFIX.length(), separator))
+                .setAmount(amount)
+                .setAuthCode(authCode)
+                .build());
+    }
+
+    /**
+     * Settles and releases every lease of this node, e.g. before it shuts down. New small authorisations get new
+     * leases.
+     */
+    public CompletionStage<Void> releaseAll() {
+        var releases = leases.values().stream()
+                .filter(lease -> leases.remove(lease.accountId(), lease))
+                .map(lease -> retire(lease).toCompletableFuture())
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(releases);
+    }
+
+    public Stats stats() {
+        return new Stats(
+                leases.size(),
+                leasesGranted.sum(),
+                localAuthorisations.sum(),
+                forwardedAuthorisations.sum(),
+                settlements.sum());
+    }
+
+    /**
+     * @return the auth code a lease of this node gave the transaction before, null if none did
+     */
+    private String approvedBefore(AuthorizeTransactionRequest request) {
+        var lease = leases.get(request.getAccountId());
+        var authCode = lease == null ? null : lease.authCode(request.getTransactionId());
+        if (authCode != null) {
+            return authCode;
+        }
+        return retired.values().stream()
+                .filter(candidate -> candidate.accountId().equals(request.getAccountId()))
+                .map(candidate -> candidate.authCode(request.getTransactionId()))
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private CompletionStage<AuthorizeTransactionResponse> forward(AuthorizeTransactionRequest request) {
+        forwardedAuthorisations.increment();
+        return fallback.apply(request);
+    }
+
+    private CompletionStage<AuthorizeTransactionResponse> approved(String authCode) {
+        localAuthorisations.increment();
+        return CompletableFuture.completedFuture(AuthorizeTransactionResponse.newBuilder()
+                .setAuthCode(authCode)
+                .setAuthResult(AuthResult.AUTHORISED)
+                .setAuthStatus(AuthStatus.OK)
+                .build());
+    }
+
+    /**
+     * Replaces {@code exhausted} with a new lease; concurrent callers for the same account share one grant call.
+     *
+     * @return null when no lease could be granted
+     */
+    private CompletionStage<Lease> renew(String accountId, Lease exhausted) {
+        var renewal = new CompletableFuture<Lease>();
+        var existing = renewals.putIfAbsent(accountId, renewal);
+        if (existing != null) {
+            return existing;
+        }
+        var current = leases.get(accountId);
+        if (current != exhausted) {
+            // renewed by a concurrent caller in the meantime
+            renewals.remove(accountId, renewal);
+            renewal.complete(current);
+            return renewal;
+        }
+
+        var leaseId = UUID.randomUUID().toString();
+        CompletionStage<GrantLeaseResponse> call;
+        try {
+            call = grantCall.apply(GrantLeaseRequest.newBuilder()
+                    .setAccountId(accountId)
+                    .setLeaseId(leaseId)
+                    .setAmount(settings.leaseAmount())
+                    .build());
+        } catch (Exception e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        call.whenComplete((response, error) -> {
+            Lease granted = null;
+            if (error != null) {
+                logger.error("Lease request failed for account {}", accountId, error);
+            } else if (response.getAuthResult() == AuthResult.AUTHORISED && response.getAmount() > 0) {
+                var expiresAt = response.hasExpiresAt()
+                        ? Instant.ofEpochSecond(response.getExpiresAt().getSeconds(), response.getExpiresAt().getNanos())
+                        : null;
+                granted = new Lease(accountId, leaseId, response.getAmount(),
+                        expiresAt == null ? null : expiresAt.minus(settings.expiryMargin()));
+                leasesGranted.increment();
+            }
+            if (exhausted != null) {
+                retire(exhausted);
+            }
+            if (granted != null) {
+                leases.put(accountId, granted);
+            } else {
+                leases.remove(accountId, exhausted);
+            }
+            renewals.remove(accountId, renewal);
+            renewal.complete(granted);
+        });
+        return renewal;
+    }
+
+    private CompletionStage<Void> retire(Lease lease) {
+        lease.retire();
+        retired.put(lease.leaseId(), lease);
+        return settle(lease);
+    }
+
+    private void settleAll() {
+        var now = Instant.now();
+        var idleSince = now.minus(settings.idleTimeout());
+        leases.values().forEach(lease -> {
+            if ((lease.isIdle(idleSince) || lease.isExpiring(now)) && leases.remove(lease.accountId(), lease)) {
+                retire(lease);
+            } else if (lease.hasUnsettled()) {
+                settle(lease);
+            }
+        });
+        retired.values().forEach(this::settle);
+    }
+
+    private CompletionStage<Void> settle(Lease lease) {
+        var batch = lease.drain();
+        if (batch.items().isEmpty() && !lease.isRetired()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        var request = SettleLeaseRequest.newBuilder()
+                .setAccountId(lease.accountId())
+                .setLeaseId(lease.leaseId())
+                .addAllAuthorisations(batch.items())
+                .setRelease(lease.isRetired())
+                .build();
+
+        CompletionStage<SettleLeaseResponse> call;
+        try {
+            call = settleCall.apply(request);
+        } catch (Exception e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        call.whenComplete((response, error) -> {
+            if (error != null) {
+                // retried with the next settle-interval
+                logger.error("Settling {} authorisations of lease {} failed for account {}",
+                        batch.items().size(), lease.leaseId(), lease.accountId(), error);
+                lease.requeue(batch, error);
+                return;
+            }
+            settlements.increment();
+            lease.settled(batch);
+            if (request.getRelease()) {
+                retired.remove(lease.leaseId(), lease);
+            }
+        });
+        return batch.done();
+    }
+
+    private record Batch(List<LeasedAuthorisation> items, CompletableFuture<Void> done) {}
+
+    private static final class Lease {
+        private final String accountId;
+        private final String leaseId;
+        private int remaining;
+        private boolean retired;
+        // no new authorisations after this, so they are settled before corebanking reclaims the lease
+        private final Instant usableUntil;
+        private Instant lastUsed = Instant.now();
+        // transactionId -> authCode of everything authorised from this lease, for deduplication
+        private final Map<String, String> authCodes = new HashMap<>();
+        private final List<LeasedAuthorisation> unsettled = new ArrayList<>();
+
+        Lease(String accountId, String leaseId, int remaining, Instant usableUntil) {
+            this.accountId = accountId;
+            this.leaseId = leaseId;
+            this.remaining = remaining;
+            this.usableUntil = usableUntil;
+        }
+
+        String accountId() {
+            return accountId;
+        }
+
+        String leaseId() {
+            return leaseId;
+        }
+
+        /**
+         * @return the auth code, or null if the lease cannot cover the amount
+         */
+        synchronized String consume(AuthorizeTransactionRequest request) {
+            var existing = authCodes.get(request.getTransactionId());
+            if (existing != null) {
+                return existing;
+            }
+            var now = Instant.now();
+            if (retired || remaining < request.getAmount() || isExpiring(now)) {
+                return null;
+            }
+            remaining -= request.getAmount();
+            lastUsed = now;
+            var authCode = LEASE_AUTH_CODE_PREFIX + leaseId + ":" + UUID.randomUUID();
+            authCodes.put(request.getTransactionId(), authCode);
+            unsettled.add(LeasedAuthorisation.newBuilder()
+                    .setTransactionId(request.getTransactionId())
+                    .setAmount(request.getAmount())
+                    .setAuthCode(authCode)
+                    .build());
+            return authCode;
+        }
+
+        synchronized String authCode(String transactionId) {
+            return authCodes.get(transactionId);
+        }
+
+        boolean isExpiring(Instant now) {
+            return usableUntil != null && !now.isBefore(usableUntil);
+        }
+
+        synchronized boolean isIdle(Instant idleSince) {
+            return lastUsed.isBefore(idleSince);
+        }
+
+        synchronized boolean hasUnsettled() {
+            return !unsettled.isEmpty();
+        }
+
+        synchronized void retire() {
+            retired = true;
+        }
+
+        synchronized boolean isRetired() {
+            return retired;
+        }
+
+        synchronized Batch drain() {
+            var batch = new Batch(List.copyOf(unsettled), new CompletableFuture<>());
+            unsettled.clear();
+            return batch;
+        }
+
+        synchronized void requeue(Batch batch, Throwable error) {
+            unsettled.addAll(0, batch.items());
+            batch.done().completeExceptionally(error);
+        }
+
+        synchronized void settled(Batch batch) {
+            batch.done().complete(null);
+        }
+    }
+
+    /**
+     * @param maxAmount    transactions above this amount are always authorised by corebanking
+     * @param leaseAmount  amount requested per lease
+     * @param idleTimeout  a lease without authorisations for this long is released
+     * @param expiryMargin a lease stops authorising this long before corebanking reclaims it, leaving time to settle
+     */
+    public record Settings(boolean enabled, int maxAmount, int leaseAmount, Duration settleInterval,
+                           Duration idleTimeout, Duration expiryMargin) {
+
+        public static Settings disabled() {
+            return new Settings(false, 0, 0, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+        }
+
+        public static Settings fromConfig(Config config) {
+            return new Settings(
+                    config.getBoolean("enabled"),
+                    config.getInt("max-amount"),
+                    config.getInt("lease-amount"),
+                    config.getDuration("settle-interval"),
+                    config.getDuration("idle-timeout"),
+                    config.getDuration("expiry-margin"));
+        }
+    }
+
+    /**
+     * @param activeLeases accounts with a lease on this node
+     */
+    public record Stats(long activeLeases, long leasesGranted, long localAuthorisations,
+                        long forwardedAuthorisations, long settlements) {}
+}
@@ -0,0 +1,68 @@
+package com.example.akka.payments.application;
+
+import com.example.akka.account.api.AuthResult;
+import com.example.akka.account.api.AuthStatus;
+import com.example.akka.account.api.CancelTransResult;
+import com.example.akka.account.api.CancelTransStatus;
+import com.example.akka.account.api.CaptureTransResult;
+import com.example.akka.account.api.CaptureTransStatus;
+import com.example.akka.payments.domain.TransactionState;
+
+/**
+ * Maps corebanking gRPC enums onto the {@link TransactionState} enums kept by {@link TransactionWorkflow}.
+ */
+public final class AccountProtoMapper {
+
+    private AccountProtoMapper() {
+    }
+
+    public static TransactionState.AuthResult mapProtoAuthResult(AuthResult protoResult) {
+        return switch (protoResult) {
+            case AUTHORISED -> TransactionState.AuthResult.authorised;
+            default -> TransactionState.AuthResult.declined;
+        };
+    }
+
+    public static TransactionState.AuthStatus mapProtoAuthStatus(AuthStatus protoStatus) {
+        return switch (protoStatus) {
+            case OK -> TransactionState.AuthStatus.ok;
+            case CARD_NOT_FOUND -> TransactionState.AuthStatus.card_not_found;
+            case INSUFFICIENT_FUNDS -> TransactionState.AuthStatus.insufficient_funds;
+            case ACCOUNT_CLOSED -> TransactionState.AuthStatus.account_closed;
+            case ACCOUNT_NOT_FOUND -> TransactionState.AuthStatus.account_not_found;
+            default -> TransactionState.AuthStatus.undiscosed;
+        };
+    }
+
+    public static TransactionState.CaptureResult mapProtoCaptureResult(CaptureTransResult protoResult) {
+        return switch (protoResult) {
+            case CAPTURED -> TransactionState.CaptureResult.captured;
+            default -> TransactionState.CaptureResult.declined;
+        };
+    }
+
+    public static TransactionState.CaptureStatus mapProtoCaptureStatus(CaptureTransStatus protoStatus) {
+        return switch (protoStatus) {
+            case CAPTURE_OK -> TransactionState.CaptureStatus.ok;
+            case CAPTURE_ACCOUNT_NOT_FOUND ->   TransactionState.CaptureStatus.account_not_found;
+            case CAPTURE_TRANSACTION_NOT_FOUND ->    TransactionState.CaptureStatus.transaction_not_found;
+            default -> TransactionState.CaptureStatus.undiscosed;
+        };
+    }
+
+    public static TransactionState.CancelResult mapProtoCancelResult(CancelTransResult protoResult) {
+        return switch (protoResult) {
+            case CANCELED -> TransactionState.CancelResult.canceled;
+            default -> TransactionState.CancelResult.declined;
+        };
+    }
+
+    public static TransactionState.CancelStatus mapProtoCancelStatus(CancelTransStatus protoStatus) {
+        return switch (protoStatus) {
+            case CANCEL_OK -> TransactionState.CancelStatus.ok;
+            case CANCEL_ACCOUNT_NOT_FOUND ->   TransactionState.CancelStatus.account_not_found;
+            case CANCEL_TRANSACTION_NOT_FOUND ->    TransactionState.CancelStatus.transaction_not_found;
+            default -> TransactionState.CancelStatus.undiscosed;
+        };
+    }
+}
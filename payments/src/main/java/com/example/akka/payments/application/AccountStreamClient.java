@@ -0,0 +1,181 @@
+package com.example.akka.payments.application;
+
+import akka.NotUsed;
+import akka.stream.BoundedSourceQueue;
+import akka.stream.Materializer;
+import akka.stream.QueueOfferResult;
+import akka.stream.javadsl.Source;
+import com.example.akka.account.api.AccountGrpcEndpointClient;
+import com.example.akka.account.api.AuthorisationStreamCommand;
+import com.example.akka.account.api.AuthorisationStreamReply;
+import com.example.akka.account.api.AuthorizeTransactionRequest;
+import com.example.akka.account.api.AuthorizeTransactionResponse;
+import com.example.akka.account.api.CancelTransactionRequest;
+import com.example.akka.account.api.CancelTransactionResponse;
+import com.example.akka.account.api.CaptureTransactionRequest;
+import com.example.akka.account.api.CaptureTransactionResponse;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Multiplexes authorise/capture/cancel calls of all workflows on this node over one long-lived
+ * {@code AuthorisationStream} to corebanking. Each command is tagged with a correlation id and the matching
+ * reply completes the caller's future, so any number of calls can be in flight on a single HTTP/2 stream.
+ * <p>
+ * The stream is opened on first use and re-opened on the next call after it fails; calls in flight on a
+ * failed stream complete exceptionally, and so does a call without a reply within the call timeout.
+ */
+public class AccountStreamClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountStreamClient.class);
+
+    private final Function<Source<AuthorisationStreamCommand, NotUsed>, Source<AuthorisationStreamReply, NotUsed>> transport;
+    private final Materializer materializer;
+    private final Settings settings;
+    private final AtomicLong correlationIds = new AtomicLong();
+    private Connection connection;
+
+    public AccountStreamClient(Function<Source<AuthorisationStreamCommand, NotUsed>, Source<AuthorisationStreamReply, NotUsed>> transport,
+                               Materializer materializer,
+                               Settings settings) {
+        this.transport = transport;
+        this.materializer = materializer;
+        this.settings = settings;
+    }
+
+    /**
+     * Transport over the bidirectional {@code AuthorisationStream} RPC.
+     */
+    public static Function<Source<AuthorisationStreamCommand, NotUsed>, Source<AuthorisationStreamReply, NotUsed>> streamTransport(
+            AccountGrpcEndpointClient client) {
+        return commands -> client.authorisationStream().invoke(commands);
+    }
+
+    /**
+     * Transport that sends every command as its own unary call, for corebanking deployments (or mocks) without
+     * the streaming RPC.
+     */
+    public static Function<Source<AuthorisationStreamCommand, NotUsed>, Source<AuthorisationStreamReply, NotUsed>> unaryTransport(
+            AccountGrpcEndpointClient client, int parallelism) {
+        return commands -> commands.mapAsyncUnordered(parallelism, command -> {
+            var reply = AuthorisationStreamReply.newBuilder().setCorrelationId(command.getCorrelationId());
+            return switch (command.getCommandCase()) {
+                case AUTHORIZE -> client.authorizeTransaction().invokeAsync(command.getAuthorize())
+                        .thenApply(response -> reply.setAuthorize(response).build());
+                case CAPTURE -> client.captureTransaction().invokeAsync(command.getCapture())
+                        .thenApply(response -> reply.setCapture(response).build());
+                case CANCEL -> client.cancelTransaction().invokeAsync(command.getCancel())
+                        .thenApply(response -> reply.setCancel(response).build());
+                case COMMAND_NOT_SET -> CompletableFuture.completedFuture(reply.setError("Command not set").build());
+            };
+        });
+    }
+
+    public CompletionStage<AuthorizeTransactionResponse> authorize(AuthorizeTransactionRequest request) {
+        return send(AuthorisationStreamCommand.newBuilder().setAuthorize(request))
+                .thenApply(AuthorisationStreamReply::getAuthorize);
+    }
+
+    public CompletionStage<CaptureTransactionResponse> capture(CaptureTransactionRequest request) {
+        return send(AuthorisationStreamCommand.newBuilder().setCapture(request))
+                .thenApply(AuthorisationStreamReply::getCapture);
+    }
+
+    public CompletionStage<CancelTransactionResponse> cancel(CancelTransactionRequest request) {
+        return send(AuthorisationStreamCommand.newBuilder().setCancel(request))
+                .thenApply(AuthorisationStreamReply::getCancel);
+    }
+
+    public int inFlight() {
+        var current = currentConnection();
+        return current == null ? 0 : current.inFlight().size();
+    }
+
+    private CompletionStage<AuthorisationStreamReply> send(AuthorisationStreamCommand.Builder command) {
+        var correlationId = Long.toString(correlationIds.incrementAndGet());
+        var result = new CompletableFuture<AuthorisationStreamReply>();
+        var conn = connect();
+        conn.inFlight().put(correlationId, result);
+
+        var offered = conn.queue().offer(command.setCorrelationId(correlationId).build());
+        if (!offered.equals(QueueOfferResult.enqueued())) {
+            conn.inFlight().remove(correlationId);
+            result.completeExceptionally(new IllegalStateException("Authorisation stream rejected command: " + offered));
+        } else if (currentConnection() != conn && conn.inFlight().remove(correlationId) != null) {
+            // the stream closed after connect() and its in-flight calls may have been failed before this one was added
+            result.completeExceptionally(new IllegalStateException("Authorisation stream closed"));
+        }
+        return result
+                .orTimeout(settings.callTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((reply, error) -> {
+                    if (error != null) {
+                        conn.inFlight().remove(correlationId, result);
+                    }
+                });
+    }
+
+    private synchronized Connection currentConnection() {
+        return connection;
+    }
+
+    private synchronized Connection connect() {
+        if (connection == null) {
+            var commands = Source.<AuthorisationStreamCommand>queue(settings.bufferSize()).preMaterialize(materializer);
+            var conn = new Connection(commands.first(), new ConcurrentHashMap<>());
+            transport.apply(commands.second())
+                    .runForeach(reply -> onReply(conn, reply), materializer)
+                    .whenComplete((done, error) -> onDisconnected(conn, error));
+            connection = conn;
+            logger.info("Authorisation stream to corebanking opened");
+        }
+        return connection;
+    }
+
+    private void onReply(Connection conn, AuthorisationStreamReply reply) {
+        var pending = conn.inFlight().remove(reply.getCorrelationId());
+        if (pending == null) {
+            logger.warn("Reply for unknown correlation id {}", reply.getCorrelationId());
+        } else if (reply.getReplyCase() == AuthorisationStreamReply.ReplyCase.ERROR) {
+            pending.completeExceptionally(new RuntimeException(reply.getError()));
+        } else {
+            pending.complete(reply);
+        }
+    }
+
+    private void onDisconnected(Connection conn, Throwable error) {
+        synchronized (this) {
+            if (connection == conn) {
+                connection = null;
+            }
+        }
+        if (error != null) {
+            logger.error("Authorisation stream to corebanking failed, {} calls in flight", conn.inFlight().size(), error);
+        }
+        var cause = error != null ? error : new IllegalStateException("Authorisation stream completed");
+        conn.inFlight().values().forEach(pending -> pending.completeExceptionally(cause));
+        conn.inFlight().clear();
+    }
+
+    private record Connection(BoundedSourceQueue<AuthorisationStreamCommand> queue,
+                              ConcurrentHashMap<String, CompletableFuture<AuthorisationStreamReply>> inFlight) {}
+
+    /**
+     * @param bufferSize  commands queued for sending before further calls are rejected
+     * @param callTimeout time a call waits for its reply
+     */
+    public record Settings(int bufferSize, Duration callTimeout) {
+
+        public static Settings fromConfig(Config config) {
+            return new Settings(config.getInt("buffer-size"), config.getDuration("call-timeout"));
+        }
+    }
+}
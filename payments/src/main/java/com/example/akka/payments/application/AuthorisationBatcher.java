@@ -0,0 +1,97 @@
+package com.example.akka.payments.application;
+
+import com.example.akka.account.api.AuthorizeTransactionRequest;
+import com.example.akka.account.api.AuthorizeTransactionResponse;
+import com.example.akka.account.api.BatchAuthorizeTransactionItem;
+import com.example.akka.account.api.BatchAuthorizeTransactionsRequest;
+import com.example.akka.account.api.BatchAuthorizeTransactionsResponse;
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent authorisations for the same account into one {@code BatchAuthorizeTransactions} call.
+ * <p>
+ * The first request for an account opens a batch that is sent when the configured window elapses or when it
+ * reaches the maximum batch size, whichever comes first. Results are fanned back out to the callers in request
+ * order. With a zero window or a maximum batch size of 1 every request is sent on its own through the single
+ * call instead.
+ */
+public class AuthorisationBatcher {
+
+    private final AccountBatches<AuthorizeTransactionRequest, AuthorizeTransactionResponse> batches;
+
+    public AuthorisationBatcher(Function<BatchAuthorizeTransactionsRequest, CompletionStage<BatchAuthorizeTransactionsResponse>> batchCall,
+                                Function<AuthorizeTransactionRequest, CompletionStage<AuthorizeTransactionResponse>> singleCall,
+                                Settings settings) {
+        this(settings.batching()
+                ? new AccountBatches<>(
+                        "authorisation",
+                        AuthorizeTransactionRequest::getAccountId,
+                        (accountId, requests) -> batchCall.apply(batchRequest(accountId, requests))
+                                .thenApply(AuthorisationBatcher::results),
+                        singleCall,
+                        settings,
+                        AccountBatches.scheduler("authorisation-batcher"))
+                : AccountBatches.unbatched(singleCall));
+    }
+
+    private AuthorisationBatcher(AccountBatches<AuthorizeTransactionRequest, AuthorizeTransactionResponse> batches) {
+        this.batches = batches;
+    }
+
+    /**
+     * Sends every authorisation on its own through {@code singleCall}.
+     */
+    public static AuthorisationBatcher unbatched(Function<AuthorizeTransactionRequest, CompletionStage<AuthorizeTransactionResponse>> singleCall) {
+        return new AuthorisationBatcher(AccountBatches.unbatched(singleCall));
+    }
+
+    public CompletionStage<AuthorizeTransactionResponse> authorize(AuthorizeTransactionRequest request) {
+        return batches.submit(request);
+    }
+
+    public Stats stats() {
+        return batches.stats();
+    }
+
+    private static BatchAuthorizeTransactionsRequest batchRequest(String accountId, List<AuthorizeTransactionRequest> requests) {
+        var request = BatchAuthorizeTransactionsRequest.newBuilder().setAccountId(accountId);
+        for (var item : requests) {
+            request.addItems(BatchAuthorizeTransactionItem.newBuilder()
+                    .setTransactionId(item.getTransactionId())
+                    .setAmount(item.getAmount()));
+        }
+        return request.build();
+    }
+
+    private static List<AuthorizeTransactionResponse> results(BatchAuthorizeTransactionsResponse response) {
+        return response.getResultsList().stream()
+                .map(result -> AuthorizeTransactionResponse.newBuilder()
+                        .setAuthCode(result.getAuthCode())
+                        .setAuthResult(result.getAuthResult())
+                        .setAuthStatus(result.getAuthStatus())
+                        .build())
+                .toList();
+    }
+
+    public record Settings(Duration window, int maxBatchSize) {
+
+        public static Settings fromConfig(Config config) {
+            return new Settings(config.getDuration("window"), config.getInt("max-batch-size"));
+        }
+
+        public boolean batching() {
+            return !window.isZero() && maxBatchSize > 1;
+        }
+    }
+
+    /**
+     * @param avgQueueingDelayMicros average time a request waited for its batch to be sent
+     */
+    public record Stats(long batches, long items, double avgBatchSize, long maxBatchSize,
+                        long avgQueueingDelayMicros, long maxQueueingDelayMicros) {}
+}
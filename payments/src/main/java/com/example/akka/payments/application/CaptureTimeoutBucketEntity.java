@@ -0,0 +1,68 @@
+package com.example.akka.payments.application;
+
+import akka.Done;
+import akka.javasdk.annotations.Component;
+import akka.javasdk.eventsourcedentity.EventSourcedEntity;
+import com.example.akka.payments.domain.CaptureTimeoutBucket;
+import com.example.akka.payments.domain.CaptureTimeoutEvent;
+
+import java.util.List;
+
+/**
+ * One slot (and shard) of the capture timeout wheel, see {@link CaptureTimeouts}. The entity id is the bucket id.
+ */
+@Component(id = "capture-timeout-bucket")
+public class CaptureTimeoutBucketEntity extends EventSourcedEntity<CaptureTimeoutBucket, CaptureTimeoutEvent> {
+
+    @Override
+    public CaptureTimeoutBucket emptyState() {
+        return CaptureTimeoutBucket.empty();
+    }
+
+    public Effect<Done> schedule(String workflowId) {
+        if (currentState().fired()) {
+            return effects().error("Capture timeout bucket already fired");
+        }
+        if (currentState().pending().contains(workflowId)) {
+            return effects().reply(Done.getInstance());
+        }
+        return effects()
+                .persist(new CaptureTimeoutEvent.Scheduled(workflowId))
+                .thenReply(state -> Done.getInstance());
+    }
+
+    public Effect<Done> remove(String workflowId) {
+        if (!currentState().pending().contains(workflowId)) {
+            return effects().reply(Done.getInstance());
+        }
+        return effects()
+                .persist(new CaptureTimeoutEvent.Removed(workflowId))
+                .thenReply(state -> Done.getInstance());
+    }
+
+    public ReadOnlyEffect<List<String>> getPending() {
+        return effects().reply(List.copyOf(currentState().pending()));
+    }
+
+    /**
+     * Called by the wheel once the cancels of the pending workflows were sent; the bucket is not needed any more.
+     */
+    public Effect<Done> fired() {
+        if (currentState().fired()) {
+            return effects().reply(Done.getInstance());
+        }
+        return effects()
+                .persist(new CaptureTimeoutEvent.Fired(currentState().pending().size()))
+                .deleteEntity()
+                .thenReply(state -> Done.getInstance());
+    }
+
+    @Override
+    public CaptureTimeoutBucket applyEvent(CaptureTimeoutEvent event) {
+        return switch (event) {
+            case CaptureTimeoutEvent.Scheduled scheduled -> currentState().onScheduled(scheduled);
+            case CaptureTimeoutEvent.Removed removed -> currentState().onRemoved(removed);
+            case CaptureTimeoutEvent.Fired fired -> currentState().onFired(fired);
+        };
+    }
+}
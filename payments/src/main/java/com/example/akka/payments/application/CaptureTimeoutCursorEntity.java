@@ -0,0 +1,35 @@
+package com.example.akka.payments.application;
+
+import akka.Done;
+import akka.javasdk.annotations.Component;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+
+/**
+ * First slot of the capture timeout wheel not processed yet, so the wheel resumes where it stopped after a restart.
+ */
+@Component(id = "capture-timeout-cursor")
+public class CaptureTimeoutCursorEntity extends KeyValueEntity<CaptureTimeoutCursorEntity.Cursor> {
+
+    /**
+     * @param nextSlot -1 until the wheel ticked for the first time
+     */
+    public record Cursor(long nextSlot) {}
+
+    @Override
+    public Cursor emptyState() {
+        return new Cursor(-1);
+    }
+
+    public ReadOnlyEffect<Cursor> get() {
+        return effects().reply(currentState());
+    }
+
+    public Effect<Done> advance(long nextSlot) {
+        if (nextSlot <= currentState().nextSlot()) {
+            return effects().reply(Done.getInstance());
+        }
+        return effects()
+                .updateState(new Cursor(nextSlot))
+                .thenReply(Done.getInstance());
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.akka.payments.application;
+
+import com.example.akka.payments.domain.CaptureTimeoutPolicy;
+import com.example.akka.payments.domain.CaptureTimeoutPolicyTable;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * Node-local copy of the capture timeout policy table from {@link CaptureTimeoutPolicyEntity}. It is loaded on first
+ * use and reloaded in the background once older than {@code refreshInterval}, while lookups keep using the cached
+ * table, so a changed table reaches every node without a restart and resolving a timeout costs no entity call.
+ * The configured table applies until one is stored, and whenever the first load fails.
+ */
+public class CaptureTimeoutPolicies {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaptureTimeoutPolicies.class);
+
+    private final AsyncLoadingCache<String, CaptureTimeoutPolicyTable> cache;
+    private final CaptureTimeoutPolicyTable configured;
+
+    public CaptureTimeoutPolicies(Supplier<CompletionStage<CaptureTimeoutPolicyTable>> loader, Settings settings) {
+        this.configured = settings.configured();
+        // a failed refresh keeps the cached table
+        this.cache = Caffeine.newBuilder()
+                .refreshAfterWrite(settings.refreshInterval())
+                .buildAsync((key, executor) -> loader.get().toCompletableFuture()
+                        .thenApply(table -> table.isEmpty() ? configured : table));
+    }
+
+    /**
+     * Only the configured table, for tests.
+     */
+    public static CaptureTimeoutPolicies fixed(Duration timeout) {
+        return new CaptureTimeoutPolicies(
+                () -> CompletableFuture.completedFuture(CaptureTimeoutPolicyTable.empty()),
+                new Settings(new CaptureTimeoutPolicyTable(List.of(), timeout), Duration.ofHours(1)));
+    }
+
+    public CompletionStage<Duration> timeoutFor(String merchantId, String currency, int amount) {
+        return table().thenApply(table -> table.resolve(merchantId, currency, amount));
+    }
+
+    public CompletionStage<CaptureTimeoutPolicyTable> table() {
+        return cache.get(CaptureTimeoutPolicyEntity.TABLE_ID)
+                .exceptionally(e -> {
+                    logger.warn("Could not load capture timeout policies, using the configured ones", e);
+                    return configured;
+                });
+    }
+
+    /**
+     * Reloads the table on this node now, e.g. after it was updated here; other nodes pick it up on their next
+     * refresh.
+     */
+    public void refresh() {
+        cache.synchronous().refresh(CaptureTimeoutPolicyEntity.TABLE_ID);
+    }
+
+    public record Settings(CaptureTimeoutPolicyTable configured, Duration refreshInterval) {
+
+        public static Settings fromConfig(Config config) {
+            var policies = config.getConfigList("policies").stream()
+                    .map(policy -> new CaptureTimeoutPolicy(
+                            policy.hasPath("merchant-id") ? policy.getString("merchant-id") : "",
+                            policy.hasPath("currency") ? policy.getString("currency") : "",
+                            policy.hasPath("min-amount") ? policy.getInt("min-amount") : 0,
+                            policy.hasPath("max-amount") ? policy.getInt("max-amount") : 0,
+                            policy.getDuration("timeout")))
+                    .toList();
+            var configured = new CaptureTimeoutPolicyTable(policies, config.getDuration("default-timeout"));
+            var maxTimeout = config.getDuration("max-timeout");
+            var holdExpiry = config.getDuration("hold-expiry");
+            if (maxTimeout.compareTo(holdExpiry) >= 0) {
+                throw new IllegalArgumentException("Invalid payments.capture-timeout-policies: max-timeout " + maxTimeout
+                        + " is not shorter than the corebanking authorisation hold expiry " + holdExpiry);
+            }
+            configured.validate(maxTimeout).ifPresent(invalid -> {
+                throw new IllegalArgumentException("Invalid payments.capture-timeout-policies: " + invalid);
+            });
+            return new Settings(configured, config.getDuration("refresh-interval"));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.akka.payments.application;
+
+import akka.Done;
+import akka.javasdk.annotations.Component;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import com.example.akka.payments.domain.CaptureTimeoutPolicyTable;
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+
+/**
+ * Capture timeout policy table shared by all payments nodes, a single instance with id {@link #TABLE_ID}. Nodes
+ * read it through {@link CaptureTimeoutPolicies}; until a table is stored the configured one applies.
+ */
+@Component(id = "capture-timeout-policy")
+public class CaptureTimeoutPolicyEntity extends KeyValueEntity<CaptureTimeoutPolicyTable> {
+
+    public static final String TABLE_ID = "default";
+
+    private final Duration maxTimeout;
+
+    public CaptureTimeoutPolicyEntity(Config config) {
+        this.maxTimeout = config.getDuration("payments.capture-timeout-policies.max-timeout");
+    }
+
+    @Override
+    public CaptureTimeoutPolicyTable emptyState() {
+        return CaptureTimeoutPolicyTable.empty();
+    }
+
+    public ReadOnlyEffect<CaptureTimeoutPolicyTable> get() {
+        return effects().reply(currentState());
+    }
+
+    public Effect<Done> update(CaptureTimeoutPolicyTable table) {
+        var invalid = table.validate(maxTimeout);
+        if (invalid.isPresent()) {
+            return effects().error(invalid.get());
+        }
+        return effects()
+                .updateState(table)
+                .thenReply(Done.getInstance());
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.akka.payments.application;
+
+import akka.javasdk.annotations.Component;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.timedaction.TimedAction;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Drives the capture timeout wheel, see {@link CaptureTimeouts}. Each tick cancels the workflows still pending in
+ * every slot that has passed since the last tick, bucket by bucket, and schedules the next tick for the end of the
+ * current slot. The service schedules the first tick at startup.
+ */
+@Component(id = "capture-timeout-wheel")
+public class CaptureTimeoutWheel extends TimedAction {
+
+    public static final String TIMER_NAME = "capture-timeout-wheel";
+    static final String CURSOR_ID = "capture-timeout-wheel";
+    private static final Logger logger = LoggerFactory.getLogger(CaptureTimeoutWheel.class);
+
+    private final ComponentClient componentClient;
+    private final CaptureTimeouts.Settings settings;
+
+    public CaptureTimeoutWheel(ComponentClient componentClient, Config config) {
+        this.componentClient = componentClient;
+        this.settings = CaptureTimeouts.Settings.fromConfig(config.getConfig("payments.capture-timeouts"));
+    }
+
+    public Effect tick() {
+        var currentSlot = settings.slotOf(Instant.now());
+        try {
+            var cursor = componentClient.forKeyValueEntity(CURSOR_ID)
+                    .method(CaptureTimeoutCursorEntity::get)
+                    .invoke();
+            var slots = settings.slotsToFire(cursor.nextSlot(), currentSlot);
+            if (cursor.nextSlot() < 0) {
+                // first tick: start the cursor here, so the next tick fires this slot
+                advance(slots.first());
+            }
+            for (var slot = slots.first(); slot < slots.last(); slot++) {
+                fire(slot);
+                advance(slot + 1);
+            }
+        } catch (Exception e) {
+            // the slots not processed are picked up by the next tick
+            logger.error("Capture timeout wheel tick failed", e);
+        } finally {
+            scheduleNextTick(currentSlot);
+        }
+        return effects().done();
+    }
+
+    private void fire(long slot) {
+        for (int shard = 0; shard < settings.shards(); shard++) {
+            var bucketId = settings.bucketId(slot, shard);
+            var pending = componentClient.forEventSourcedEntity(bucketId)
+                    .method(CaptureTimeoutBucketEntity::getPending)
+                    .invoke();
+            if (!pending.isEmpty()) {
+                logger.info("Capture timeout for {} transactions of slot {}", pending.size(), bucketId);
+                // a cancel that fails is logged and does not hold back the rest of the bucket
+                var cancels = pending.stream()
+                        .map(workflowId -> componentClient.forWorkflow(workflowId)
+                                .method(TransactionWorkflow::cancelTransaction)
+                                .invokeAsync()
+                                .toCompletableFuture()
+                                .exceptionally(e -> {
+                                    logger.error("Capture timeout could not cancel transaction {}", workflowId, e);
+                                    return null;
+                                }))
+                        .toArray(CompletableFuture[]::new);
+                CompletableFuture.allOf(cancels).join();
+                componentClient.forEventSourcedEntity(bucketId)
+                        .method(CaptureTimeoutBucketEntity::fired)
+                        .invoke();
+            }
+        }
+    }
+
+    private void advance(long nextSlot) {
+        componentClient.forKeyValueEntity(CURSOR_ID)
+                .method(CaptureTimeoutCursorEntity::advance)
+                .invoke(nextSlot);
+    }
+
+    private void scheduleNextTick(long currentSlot) {
+        var delay = Duration.between(Instant.now(), settings.slotEnd(currentSlot));
+        timers().createSingleTimer(
+                TIMER_NAME,
+                delay.isNegative() ? Duration.ZERO : delay,
+                componentClient.forTimedAction()
+                        .method(CaptureTimeoutWheel::tick)
+                        .deferred());
+    }
+}
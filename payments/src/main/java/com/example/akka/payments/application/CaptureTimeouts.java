@@ -0,0 +1,99 @@
+package com.example.akka.payments.application;
+
+import akka.Done;
+import akka.javasdk.client.ComponentClient;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Hashed timing wheel for capture timeouts. Time is divided into slots of {@code slot} length; a pending capture is
+ * added to the {@link CaptureTimeoutBucketEntity} of the slot its deadline falls into, spread over {@code shards}
+ * buckets per slot by workflow id. Scheduling and removing a timeout is one event appended to a bucket instead of a
+ * durable timer per transaction. {@link CaptureTimeoutWheel} ticks once per slot and cancels everything still
+ * pending in the slots that have passed, so a timeout fires at most one slot after its deadline.
+ */
+public class CaptureTimeouts {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaptureTimeouts.class);
+
+    private final ComponentClient componentClient;
+    private final Settings settings;
+
+    public CaptureTimeouts(ComponentClient componentClient, Settings settings) {
+        this.componentClient = componentClient;
+        this.settings = settings;
+    }
+
+    public CompletionStage<Done> schedule(String workflowId, Instant deadline) {
+        // the current slot is processed only once it has passed, so a deadline in the past lands there
+        var slot = Math.max(settings.slotOf(deadline), settings.slotOf(Instant.now()));
+        return componentClient.forEventSourcedEntity(settings.bucketId(slot, workflowId))
+                .method(CaptureTimeoutBucketEntity::schedule)
+                .invokeAsync(workflowId);
+    }
+
+    /**
+     * Best effort: once the slot of {@code deadline} has passed the wheel fires or has fired it, and cancelling a
+     * captured or cancelled transaction is a no-op.
+     */
+    public CompletionStage<Done> remove(String workflowId, Instant deadline) {
+        var slot = settings.slotOf(deadline);
+        if (slot < settings.slotOf(Instant.now())) {
+            return CompletableFuture.completedFuture(Done.getInstance());
+        }
+        return componentClient.forEventSourcedEntity(settings.bucketId(slot, workflowId))
+                .method(CaptureTimeoutBucketEntity::remove)
+                .invokeAsync(workflowId)
+                .exceptionally(e -> {
+                    logger.warn("Could not remove capture timeout of {} from slot {}", workflowId, slot, e);
+                    return Done.getInstance();
+                });
+    }
+
+    /**
+     * Slots {@code [first, last)}.
+     */
+    public record SlotRange(long first, long last) {}
+
+    /**
+     * @param maxSlotsPerTick slots processed per tick when the wheel catches up after downtime
+     */
+    public record Settings(Duration slot, int shards, int maxSlotsPerTick) {
+
+        public static Settings fromConfig(Config config) {
+            return new Settings(config.getDuration("slot"), config.getInt("shards"), config.getInt("max-slots-per-tick"));
+        }
+
+        public long slotOf(Instant instant) {
+            return instant.toEpochMilli() / slot.toMillis();
+        }
+
+        public Instant slotEnd(long slotIndex) {
+            return Instant.ofEpochMilli((slotIndex + 1) * slot.toMillis());
+        }
+
+        /**
+         * Slots a tick during {@code currentSlot} fires: from the wheel's cursor {@code nextSlot} up to, but
+         * excluding, the current slot, at most {@code maxSlotsPerTick} of them. Before the first tick the cursor is
+         * negative and the range starts, empty, at the current slot, since no earlier slot can hold a timeout.
+         */
+        public SlotRange slotsToFire(long nextSlot, long currentSlot) {
+            var first = nextSlot < 0 ? currentSlot : nextSlot;
+            return new SlotRange(first, Math.max(first, Math.min(currentSlot, first + maxSlotsPerTick)));
+        }
+
+        public String bucketId(long slotIndex, String workflowId) {
+            return bucketId(slotIndex, Math.floorMod(workflowId.hashCode(), shards));
+        }
+
+        public String bucketId(long slotIndex, int shard) {
+            return slotIndex + "-" + shard;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.akka.payments.application;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Node-local cache of cards keyed by PAN, bounded by size and time since write. Eviction is Caffeine's
+ * W-TinyLFU, so cards that are used a lot survive a burst of one-off lookups.
+ * <p>
+ * Cards do not change after {@code CardEvent.Created}, so it is kept warm by {@link CardCacheConsumer} and read
+ * through on a miss; concurrent misses for the same PAN share one load.
+ */
+public class CardCache {
+
+    private final AsyncCache<String, CardEntity.ApiCard> cache;
+
+    public CardCache(Settings settings) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(settings.maxSize())
+                .expireAfterWrite(settings.ttl())
+                .recordStats()
+                .buildAsync();
+    }
+
+    public CompletionStage<CardEntity.ApiCard> get(String pan, Function<String, CompletionStage<CardEntity.ApiCard>> loader) {
+        // a failed load is not cached, the next lookup tries again
+        return cache.get(pan, (key, executor) -> loader.apply(key).toCompletableFuture());
+    }
+
+    public void put(CardEntity.ApiCard card) {
+        cache.put(card.pan(), CompletableFuture.completedFuture(card));
+    }
+
+    public Stats stats() {
+        var stats = cache.synchronous().stats();
+        return new Stats(stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.hitRate(),
+                cache.synchronous().estimatedSize());
+    }
+
+    public record Settings(long maxSize, Duration ttl) {
+
+        public static Settings fromConfig(Config config) {
+            return new Settings(config.getLong("max-size"), config.getDuration("ttl"));
+        }
+    }
+
+    public record Stats(long hits, long misses, long evictions, double hitRate, long size) {}
+}
@@ -0,0 +1,29 @@
+package com.example.akka.payments.application;
+
+import akka.javasdk.annotations.Component;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.consumer.Consumer;
+import com.example.akka.payments.domain.CardEvent;
+
+/**
+ * Warms the {@link CardCache} from card events, so a card is usually cached before its first transaction.
+ */
+@Component(id = "card-cache-consumer")
+@Consume.FromEventSourcedEntity(CardEntity.class)
+public class CardCacheConsumer extends Consumer {
+
+    private final CardCache cardCache;
+
+    public CardCacheConsumer(CardCache cardCache) {
+        this.cardCache = cardCache;
+    }
+
+    public Effect onEvent(CardEvent event) {
+        return switch (event) {
+            case CardEvent.Created created -> {
+                cardCache.put(new CardEntity.ApiCard(created.pan(), created.expiryDate(), created.cvv(), created.accountId()));
+                yield effects().done();
+            }
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.akka.payments.application;
+
+import akka.NotUsed;
+import akka.javasdk.client.ComponentClient;
+import akka.stream.javadsl.Source;
+import com.example.akka.common.Ndjson;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Bulk card provisioning: fans a stream of cards out to {@link CardEntity#createCard} with bounded parallelism.
+ * Results are emitted in input order, so the last result received marks how far an import got.
+ * <p>
+ * {@code createCard} does not persist anything for a PAN that already exists, so an interrupted import can be
+ * resumed by sending the whole file again; cards created by the previous attempt are reported as {@code created}
+ * again at the cost of one entity read. Each result carries the line (or message) number of its card, and a line
+ * that could not be read is reported as {@code failed} without stopping the import.
+ */
+public class CardImport {
+
+    private static final Logger logger = LoggerFactory.getLogger(CardImport.class);
+
+    private final ComponentClient componentClient;
+    private final int parallelism;
+
+    public CardImport(ComponentClient componentClient, int parallelism) {
+        this.componentClient = componentClient;
+        this.parallelism = parallelism;
+    }
+
+    public CardImport(ComponentClient componentClient, Config config) {
+        this(componentClient, config.getInt("payments.card-import.parallelism"));
+    }
+
+    public Source<Result, NotUsed> run(Source<CardEntity.ApiCard, NotUsed> cards) {
+        return runLines(cards.zipWithIndex()
+                .<Ndjson.Line<CardEntity.ApiCard>>map(card -> new Ndjson.Value<>(card.second() + 1, card.first())));
+    }
+
+    public Source<Result, NotUsed> runLines(Source<Ndjson.Line<CardEntity.ApiCard>, NotUsed> lines) {
+        return lines.mapAsync(parallelism, line -> switch (line) {
+            case Ndjson.Value<CardEntity.ApiCard> card -> create(card.number(), card.value());
+            case Ndjson.Malformed<CardEntity.ApiCard> malformed -> CompletableFuture.completedFuture(
+                    new Result(malformed.number(), "", Status.failed, malformed.error()));
+        });
+    }
+
+    private CompletionStage<Result> create(long line, CardEntity.ApiCard card) {
+        if (card.pan() == null || card.pan().isBlank()) {
+            return CompletableFuture.completedFuture(new Result(line, "", Status.failed, "Missing pan"));
+        }
+        return componentClient.forEventSourcedEntity(card.pan())
+                .method(CardEntity::createCard)
+                .invokeAsync(card)
+                .thenApply(created -> created.equals(card)
+                        ? new Result(line, card.pan(), Status.created, "")
+                        : new Result(line, card.pan(), Status.conflict, "Card already exists with different details"))
+                .exceptionally(e -> {
+                    logger.error("Failed to import card {}", card.pan(), e);
+                    return new Result(line, card.pan(), Status.failed, String.valueOf(e.getMessage()));
+                });
+    }
+
+    public enum Status {
+        created, conflict, failed
+    }
+
+    public record Result(long line, String pan, Status status, String message) {}
+}
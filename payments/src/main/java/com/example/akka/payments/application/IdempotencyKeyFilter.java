@@ -0,0 +1,184 @@
+package com.example.akka.payments.application;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.typesafe.config.Config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Node-local front line for transaction start requests, so retried requests are answered without activating their
+ * workflow. Every key that started (or already had) a workflow is added to a Bloom filter and to a small cache of
+ * recent keys:
+ * <ul>
+ *   <li>a key not in the Bloom filter is new for this node and starts its workflow right away,</li>
+ *   <li>a key in the Bloom filter and in the recent keys is a duplicate and gets {@code ALREADY_EXISTS} from memory,</li>
+ *   <li>a key only in the Bloom filter may be a duplicate or a false positive, so the workflow decides.</li>
+ * </ul>
+ * The filter never answers for a key it has not seen, so a false positive costs a workflow call and never rejects a
+ * new transaction. To keep the false positive probability bounded it has two generations of {@code expectedKeys}
+ * each; once the current one is full the older one is dropped.
+ */
+public class IdempotencyKeyFilter {
+
+    private final Settings settings;
+    private final Cache<String, Boolean> recentKeys;
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong definitelyNew = new AtomicLong();
+    private final AtomicLong possibleDuplicates = new AtomicLong();
+    private final AtomicLong shortCircuited = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    public IdempotencyKeyFilter(Settings settings) {
+        this.settings = settings;
+        this.recentKeys = Caffeine.newBuilder()
+                .maximumSize(settings.recentKeys())
+                .build();
+        this.current = new BloomFilter(settings.expectedKeys(), settings.falsePositiveProbability());
+        this.previous = new BloomFilter(settings.expectedKeys(), settings.falsePositiveProbability());
+    }
+
+    public static IdempotencyKeyFilter disabled() {
+        return new IdempotencyKeyFilter(new Settings(false, 1, 0.5, 1));
+    }
+
+    /**
+     * Starts the workflow of {@code idempotencyKey} with {@code startWorkflow} unless the key is known to be a
+     * duplicate. A failing start is not remembered.
+     */
+    public TransactionWorkflow.StartAuthorizeTransactionResult start(
+            String idempotencyKey, Supplier<TransactionWorkflow.StartAuthorizeTransactionResult> startWorkflow) {
+        if (!settings.enabled()) {
+            return startWorkflow.get();
+        }
+        checks.incrementAndGet();
+        var current = this.current;
+        if (!current.mightContain(idempotencyKey) && !previous.mightContain(idempotencyKey)) {
+            definitelyNew.incrementAndGet();
+            var result = startWorkflow.get();
+            remember(idempotencyKey);
+            return result;
+        }
+
+        possibleDuplicates.incrementAndGet();
+        if (recentKeys.getIfPresent(idempotencyKey) != null) {
+            shortCircuited.incrementAndGet();
+            return TransactionWorkflow.StartAuthorizeTransactionResult.ALREADY_EXISTS;
+        }
+        var result = startWorkflow.get();
+        if (result == TransactionWorkflow.StartAuthorizeTransactionResult.STARTED) {
+            falsePositives.incrementAndGet();
+        }
+        remember(idempotencyKey);
+        return result;
+    }
+
+    private void remember(String idempotencyKey) {
+        recentKeys.put(idempotencyKey, Boolean.TRUE);
+        var current = this.current;
+        if (current.put(idempotencyKey) > settings.expectedKeys()) {
+            synchronized (this) {
+                if (this.current == current) {
+                    previous = current;
+                    this.current = new BloomFilter(settings.expectedKeys(), settings.falsePositiveProbability());
+                }
+            }
+        }
+    }
+
+    public Stats stats() {
+        var newKeys = definitelyNew.get() + falsePositives.get();
+        return new Stats(
+                checks.get(),
+                definitelyNew.get(),
+                possibleDuplicates.get(),
+                shortCircuited.get(),
+                falsePositives.get(),
+                newKeys == 0 ? 0.0 : (double) falsePositives.get() / newKeys,
+                recentKeys.estimatedSize());
+    }
+
+    /**
+     * @param expectedKeys keys per Bloom filter generation
+     * @param recentKeys   size of the cache of recent keys answered from memory
+     */
+    public record Settings(boolean enabled, long expectedKeys, double falsePositiveProbability, long recentKeys) {
+
+        public static Settings fromConfig(Config config) {
+            return new Settings(
+                    config.getBoolean("enabled"),
+                    config.getLong("expected-keys"),
+                    config.getDouble("false-positive-probability"),
+                    config.getLong("recent-keys"));
+        }
+    }
+
+    /**
+     * @param falsePositiveRate share of new keys the Bloom filter reported as possible duplicates
+     */
+    public record Stats(long checks, long definitelyNew, long possibleDuplicates, long shortCircuited,
+                        long falsePositives, double falsePositiveRate, long recentKeys) {}
+
+    /**
+     * Bloom filter over a lock-free bit array, {@code k} bit positions per key by double hashing of a 64-bit
+     * FNV-1a hash.
+     */
+    static final class BloomFilter {
+
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+        private final AtomicLong size = new AtomicLong();
+
+        BloomFilter(long expectedKeys, double falsePositiveProbability) {
+            var optimalBits = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+            this.bitCount = Math.max(64, optimalBits);
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedKeys * Math.log(2)));
+            this.bits = new AtomicLongArray((int) ((bitCount + 63) / 64));
+        }
+
+        boolean mightContain(String key) {
+            var hash = hash(key);
+            for (int i = 0; i < hashCount; i++) {
+                var bit = index(hash, i);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return keys added so far
+         */
+        long put(String key) {
+            var hash = hash(key);
+            for (int i = 0; i < hashCount; i++) {
+                var bit = index(hash, i);
+                var mask = 1L << bit;
+                bits.getAndAccumulate((int) (bit >>> 6), mask, (word, m) -> word | m);
+            }
+            return size.incrementAndGet();
+        }
+
+        private long index(long hash, int i) {
+            var combined = (int) hash + i * (int) (hash >>> 32);
+            return Math.floorMod(combined, bitCount);
+        }
+
+        private static long hash(String key) {
+            var hash = 0xcbf29ce484222325L;
+            for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b;
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+    }
+}
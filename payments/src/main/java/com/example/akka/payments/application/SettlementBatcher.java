@@ -0,0 +1,104 @@
+package com.example.akka.payments.application;
+
+import com.example.akka.account.api.BatchCancelTransactionsRequest;
+import com.example.akka.account.api.BatchCancelTransactionsResponse;
+import com.example.akka.account.api.BatchCaptureTransactionsRequest;
+import com.example.akka.account.api.BatchCaptureTransactionsResponse;
+import com.example.akka.account.api.CancelTransactionRequest;
+import com.example.akka.account.api.CancelTransactionResponse;
+import com.example.akka.account.api.CaptureTransactionRequest;
+import com.example.akka.account.api.CaptureTransactionResponse;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent captures and concurrent cancels for the same account into one {@code BatchCaptureTransactions}
+ * or {@code BatchCancelTransactions} call, with the same window and maximum batch size as the
+ * {@link AuthorisationBatcher}. Captures and cancels are batched separately.
+ */
+public class SettlementBatcher {
+
+    private final AccountBatches<CaptureTransactionRequest, CaptureTransactionResponse> captures;
+    private final AccountBatches<CancelTransactionRequest, CancelTransactionResponse> cancels;
+
+    public SettlementBatcher(Function<BatchCaptureTransactionsRequest, CompletionStage<BatchCaptureTransactionsResponse>> batchCapture,
+                             Function<CaptureTransactionRequest, CompletionStage<CaptureTransactionResponse>> capture,
+                             Function<BatchCancelTransactionsRequest, CompletionStage<BatchCancelTransactionsResponse>> batchCancel,
+                             Function<CancelTransactionRequest, CompletionStage<CancelTransactionResponse>> cancel,
+                             AuthorisationBatcher.Settings settings) {
+        if (!settings.batching()) {
+            this.captures = AccountBatches.unbatched(capture);
+            this.cancels = AccountBatches.unbatched(cancel);
+            return;
+        }
+        var scheduler = AccountBatches.scheduler("settlement-batcher");
+        this.captures = new AccountBatches<>(
+                "capture",
+                CaptureTransactionRequest::getAccountId,
+                (accountId, requests) -> batchCapture.apply(batchCaptureRequest(accountId, requests))
+                        .thenApply(BatchCaptureTransactionsResponse::getResultsList),
+                capture,
+                settings,
+                scheduler);
+        this.cancels = new AccountBatches<>(
+                "cancel",
+                CancelTransactionRequest::getAccountId,
+                (accountId, requests) -> batchCancel.apply(batchCancelRequest(accountId, requests))
+                        .thenApply(BatchCancelTransactionsResponse::getResultsList),
+                cancel,
+                settings,
+                scheduler);
+    }
+
+    private SettlementBatcher(AccountBatches<CaptureTransactionRequest, CaptureTransactionResponse> captures,
+                              AccountBatches<CancelTransactionRequest, CancelTransactionResponse> cancels) {
+        this.captures = captures;
+        this.cancels = cancels;
+    }
+
+    /**
+     * Sends every capture and cancel on its own through {@code capture} and {@code cancel}.
+     */
+    public static SettlementBatcher unbatched(Function<CaptureTransactionRequest, CompletionStage<CaptureTransactionResponse>> capture,
+                                             Function<CancelTransactionRequest, CompletionStage<CancelTransactionResponse>> cancel) {
+        return new SettlementBatcher(AccountBatches.unbatched(capture), AccountBatches.unbatched(cancel));
+    }
+
+    public CompletionStage<CaptureTransactionResponse> capture(CaptureTransactionRequest request) {
+        return captures.submit(request);
+    }
+
+    public CompletionStage<CancelTransactionResponse> cancel(CancelTransactionRequest request) {
+        return cancels.submit(request);
+    }
+
+    public Stats stats() {
+        return new Stats(captures.stats(), cancels.stats());
+    }
+
+    private static BatchCaptureTransactionsRequest batchCaptureRequest(String accountId, List<CaptureTransactionRequest> requests) {
+        var batch = BatchCaptureTransactionsRequest.newBuilder().setAccountId(accountId);
+        for (var request : requests) {
+            batch.addTransactionIds(request.getTransactionId());
+            if (request.hasLeaseAuthorisation()) {
+                batch.putLeaseAuthorisations(request.getTransactionId(), request.getLeaseAuthorisation());
+            }
+        }
+        return batch.build();
+    }
+
+    private static BatchCancelTransactionsRequest batchCancelRequest(String accountId, List<CancelTransactionRequest> requests) {
+        var batch = BatchCancelTransactionsRequest.newBuilder().setAccountId(accountId);
+        for (var request : requests) {
+            batch.addTransactionIds(request.getTransactionId());
+            if (request.hasLeaseAuthorisation()) {
+                batch.putLeaseAuthorisations(request.getTransactionId(), request.getLeaseAuthorisation());
+            }
+        }
+        return batch.build();
+    }
+
+    public record Stats(AuthorisationBatcher.Stats captures, AuthorisationBatcher.Stats cancels) {}
+}
@@ -3,20 +3,15 @@ package com.example.akka.payments.application;
 import akka.javasdk.annotations.Component;
 import akka.javasdk.client.ComponentClient;
 import akka.javasdk.workflow.Workflow;
-import com.example.akka.account.api.AccountGrpcEndpointClient;
-import com.example.akka.account.api.AuthResult;
-import com.example.akka.account.api.AuthStatus;
-import com.example.akka.account.api.CancelTransResult;
-import com.example.akka.account.api.CancelTransStatus;
 import com.example.akka.account.api.CancelTransactionRequest;
-import com.example.akka.account.api.CaptureTransResult;
-import com.example.akka.account.api.CaptureTransStatus;
 import com.example.akka.account.api.CaptureTransactionRequest;
 import com.example.akka.payments.domain.TransactionState;
+import com.typesafe.config.Config;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.util.Optional;
 
 @Component(id = "transaction-workflow")
@@ -24,11 +19,26 @@ public class TransactionWorkflow extends Workflow<TransactionState> {
     
     private static final Logger logger = LoggerFactory.getLogger(TransactionWorkflow.class);
     private final ComponentClient componentClient;
-    private final AccountGrpcEndpointClient accountClient;
+    private final SettlementBatcher settlementBatcher;
+    private final AccountLeases accountLeases;
+    private final CardCache cardCache;
+    private final CaptureTimeouts captureTimeouts;
+    private final CaptureTimeoutPolicies captureTimeoutPolicies;
+    private final Duration stepTimeout;
+    private final boolean fastPath;
     
-    public TransactionWorkflow(ComponentClient componentClient, AccountGrpcEndpointClient accountClient) {
+    public TransactionWorkflow(ComponentClient componentClient, SettlementBatcher settlementBatcher,
+                               AccountLeases accountLeases, CardCache cardCache,
+                               CaptureTimeoutPolicies captureTimeoutPolicies, Config config) {
         this.componentClient = componentClient;
-        this.accountClient = accountClient;
+        this.settlementBatcher = settlementBatcher;
+        this.accountLeases = accountLeases;
+        this.cardCache = cardCache;
+        this.captureTimeouts = new CaptureTimeouts(componentClient,
+                CaptureTimeouts.Settings.fromConfig(config.getConfig("payments.capture-timeouts")));
+        this.captureTimeoutPolicies = captureTimeoutPolicies;
+        this.fastPath = config.getBoolean("payments.transaction-workflow.fast-path");
+        this.stepTimeout = config.getDuration("payments.transaction-workflow.step-timeout");
     }
 
     @Override
@@ -49,11 +59,18 @@ public class TransactionWorkflow extends Workflow<TransactionState> {
                 request.cardExpiryDate(),
                 request.cardCvv(),
                 request.amount(),
-                request.currency()
+                request.currency(),
+                request.merchantId()
         );
 
-        var initialState = currentState().init(request.idempotencyKey(), request.transactionId(), cardData);
+        var initialState = currentState().init(request.idempotencyKey(), request.transactionId(), cardData, Instant.now());
 
+        if (fastPath) {
+            return effects()
+                    .updateState(initialState)
+                    .transitionTo(TransactionWorkflow::validateAndAuthorizeStep)
+                    .thenReply(StartAuthorizeTransactionResult.STARTED);
+        }
         return effects()
                 .updateState(initialState)
                 .transitionTo(TransactionWorkflow::validateCardStep)
@@ -121,41 +138,22 @@ public class TransactionWorkflow extends Workflow<TransactionState> {
     @Override
     public WorkflowSettings settings() {
         return WorkflowSettings.builder()
-                .defaultStepTimeout(Duration.ofMinutes(5))
+                .defaultStepTimeout(stepTimeout)
                 .build();
     }
 
     private StepEffect validateCardStep() {
         logger.info("Validating card for transaction: {}", currentState().transactionId());
-        Optional<String> accountId = Optional.empty();
-        try {
-            var card = componentClient
-                    .forEventSourcedEntity(currentState().cardData().cardPan())
-                    .method(CardEntity::getCard)
-                    .invoke();
-
-            if(!card.isEmpty() && card.expiryDate().equals(currentState().cardData().cardExpiryDate())
-                    && card.cvv().equals(currentState().cardData().cardCvv())){
-                accountId = Optional.of(card.accountId());
-            }
-
-        } catch (Exception e) {
-            logger.error("Card validation failed for transaction: {}", currentState().transactionId(), e);
-        }
+        Optional<String> accountId = validateCard(currentState());
 
         if (accountId.isEmpty()) {
             logger.info("Card validation failed for transaction: {}", currentState().transactionId());
-            var updatedState = currentState().withAuthResult(
-                    "",
-                    TransactionState.AuthResult.declined,
-                    TransactionState.AuthStatus.card_not_found
-            );
             return stepEffects()
-                    .updateState(updatedState)
+                    .updateState(cardNotFound(currentState()).withUpdatedAt(Instant.now()))
                     .thenEnd();
         }else{
             logger.info("Card validation successful for transaction: {}", currentState().transactionId());
-            var updatedState = currentState().withCardValid(accountId.get());
+            var updatedState = currentState().withCardValid(accountId.get()).withUpdatedAt(Instant.now());
             return stepEffects()
                     .updateState(updatedState)
                     .thenTransitionTo(TransactionWorkflow::authorizeTransactionStep);
@@ -164,45 +162,99 @@ public class TransactionWorkflow extends Workflow<TransactionState> {
 
     private StepEffect authorizeTransactionStep() {
         logger.info("Authorizing transaction: {}", currentState().transactionId());
+        return authorisationCompleted(authorise(currentState()));
+    }
+
+    /**
+     * Fast path: card validation and account authorisation in one step, so an authorisation costs a single
+     * state update after the workflow is started instead of two.
+     */
+    private StepEffect validateAndAuthorizeStep() {
+        logger.info("Validating card and authorizing transaction: {}", currentState().transactionId());
+        var state = currentState();
+        var accountId = validateCard(state);
+        if (accountId.isEmpty()) {
+            return authorisationCompleted(cardNotFound(state));
+        }
+        return authorisationCompleted(authorise(state.withCardValid(accountId.get())));
+    }
+
+    private Optional<String> validateCard(TransactionState state) {
+        var cardData = state.cardData();
+        try {
+            // hot cards are served from the node-local cache without a CardEntity call
+            var card = cardCache.get(cardData.cardPan(), pan -> componentClient
+                            .forEventSourcedEntity(pan)
+                            .method(CardEntity::getCard)
+                            .invokeAsync())
+                    .toCompletableFuture()
+                    .join();
+
+            if(!card.isEmpty() && card.expiryDate().equals(cardData.cardExpiryDate())
+                    && card.cvv().equals(cardData.cardCvv())){
+                return Optional.of(card.accountId());
+            }
+        } catch (Exception e) {
+            logger.error("Card validation failed for transaction: {}", state.transactionId(), e);
+        }
+        return Optional.empty();
+    }
+
+    private static TransactionState cardNotFound(TransactionState state) {
+        return state.withAuthResult(
+                "",
+                TransactionState.AuthResult.declined,
+                TransactionState.AuthStatus.card_not_found
+        );
+    }
+
+    private TransactionState authorise(TransactionState state) {
         var authResult = TransactionState.AuthResult.declined;
         var authStatus = TransactionState.AuthStatus.undiscosed;
         var authCode = "N/A";
         try {
             // Authorize transaction with the account service
             var authRequest = com.example.akka.account.api.AuthorizeTransactionRequest.newBuilder()
-                    .setAccountId(currentState().accountId())
-                    .setTransactionId(currentState().transactionId())
-                    .setAmount(currentState().cardData().amount())
+                    .setAccountId(state.accountId())
+                    .setTransactionId(state.transactionId())
+                    .setAmount(state.cardData().amount())
                     .build();
 
-            var protoResponse = accountClient.authorizeTransaction().invoke(authRequest);
-            authResult = mapProtoAuthResult(protoResponse.getAuthResult());
-            authStatus = mapProtoAuthStatus(protoResponse.getAuthStatus());
+            // small amounts are approved from a lease of the account's balance when leases are enabled, the rest
+            // is coalesced with concurrent authorisations for the same account into one batch call
+            var protoResponse = accountLeases.authorize(authRequest).toCompletableFuture().join();
+            authResult = AccountProtoMapper.mapProtoAuthResult(protoResponse.getAuthResult());
+            authStatus = AccountProtoMapper.mapProtoAuthStatus(protoResponse.getAuthStatus());
             authCode = protoResponse.getAuthCode();
         } catch (Exception e) {
-            logger.error("Authorization failed for transaction: {}", currentState().transactionId(), e);
+            logger.error("Authorization failed for transaction: {}", state.transactionId(), e);
         }
+        return state.withAuthResult(authCode, authResult, authStatus);
+    }
 
-        logger.info("Authorization result for transaction {}: {} - {}",
-                currentState().transactionId(), authResult, authStatus);
+    private StepEffect authorisationCompleted(TransactionState authorisedState) {
+        var updatedState = authorisedState.withUpdatedAt(Instant.now());
+        var authResult = updatedState.authResult();
 
-        var updatedState = currentState().withAuthResult( authCode, authResult, authStatus);
+        logger.info("Authorization result for transaction {}: {} - {}",
+                updatedState.transactionId(), authResult, updatedState.authStatus());
 
         // If authorization failed, end the workflow
         if (authResult == TransactionState.AuthResult.declined) {
             return stepEffects().updateState(updatedState).thenEnd();
         }
 
-        //create timer for timeout
-        var deferredCall = componentClient
-                .forWorkflow(commandContext().workflowId())
-                .method(TransactionWorkflow::cancelTransaction)
-                .deferred();
-        timers().createSingleTimer(scheduleCaptureTimeoutTimerId(), Duration.ofMinutes(5), deferredCall);
+        // the capture timeout goes into a slot of the capture timeout wheel instead of a timer per transaction
+        var cardData = updatedState.cardData();
+        var captureTimeout = captureTimeoutPolicies.timeoutFor(cardData.merchantId(), cardData.currency(), cardData.amount())
+                .toCompletableFuture()
+                .join();
+        var captureBy = updatedState.updatedAt().plus(captureTimeout);
+        captureTimeouts.schedule(commandContext().workflowId(), captureBy).toCompletableFuture().join();
 
         // If authorized successfully, pause and wait for external capture trigger
         return stepEffects()
-                .updateState(updatedState)
+                .updateState(updatedState.withCaptureBy(captureBy))
                 .thenPause();
     }
 
@@ -210,77 +262,70 @@ public class TransactionWorkflow extends Workflow<TransactionState> {
         return "capture-timeout-scheduler-" + commandContext().workflowId();
     }
 
+    private void removeCaptureTimeout(TransactionState state) {
+        if (state.captureBy() == null) {
+            // authorised before the capture timeout wheel, with a timer of its own
+            timers().delete(scheduleCaptureTimeoutTimerId());
+        } else {
+            captureTimeouts.remove(commandContext().workflowId(), state.captureBy()).toCompletableFuture().join();
+        }
+    }
+
     private StepEffect captureTransactionStep() {
-        logger.info("Capturing transaction: {}", currentState().transactionId());
+        var state = currentState();
+        logger.info("Capturing transaction: {}", state.transactionId());
         var captureResult = TransactionState.CaptureResult.declined;
         var captureStatus = TransactionState.CaptureStatus.undiscosed;
         try {
             // Use stored accountId from authorization step
             var captureRequest = CaptureTransactionRequest.newBuilder()
-                    .setAccountId(currentState().accountId())
-                    .setTransactionId(currentState().transactionId())
-                    .build();
-
-            var response = accountClient.captureTransaction().invoke(captureRequest);
-            captureResult =  mapProtoCaptureResult(response.getCaptureResult());
-            captureStatus = mapProtoCaptureStatus(response.getCaptureStatus());
+                    .setAccountId(state.accountId())
+                    .setTransactionId(state.transactionId());
+            // an authorisation approved from a lease is settled with its capture if corebanking does not hold it yet
+            AccountLeases.leaseAuthorisation(state.authCode(), state.cardData().amount()).ifPresent(captureRequest::setLeaseAuthorisation);
+
+            var response = settlementBatcher.capture(captureRequest.build()).toCompletableFuture().join();
+            captureResult = AccountProtoMapper.mapProtoCaptureResult(response.getCaptureResult());
+            captureStatus = AccountProtoMapper.mapProtoCaptureStatus(response.getCaptureStatus());
         } catch (Exception e) {
-            logger.error("Capture failed for transaction: {}", currentState().transactionId(), e);
+            logger.error("Capture failed for transaction: {}", state.transactionId(), e);
         }
-        //delete timeout timer
-        timers().delete(scheduleCaptureTimeoutTimerId());
-        logger.info("Capture result for transaction {}: {}", currentState().transactionId(), captureResult);
+        removeCaptureTimeout(state);
+        logger.info("Capture result for transaction {}: {}", state.transactionId(), captureResult);
 
-        var updatedState = currentState().withCaptured(captureResult, captureStatus);
+        var updatedState = state.withCaptured(captureResult, captureStatus).withUpdatedAt(Instant.now());
         return stepEffects()
                 .updateState(updatedState)
                 .thenEnd();
     }
     private StepEffect cancelTransactionStep() {
-        logger.info("Cancel transaction: {}", currentState().transactionId());
+        var state = currentState();
+        logger.info("Cancel transaction: {}", state.transactionId());
         var cancelResult = TransactionState.CancelResult.declined;
         var cancelStatus = TransactionState.CancelStatus.undiscosed;
         try {
             // Use stored accountId from authorization step
             var cancelRequest = CancelTransactionRequest.newBuilder()
-                    .setAccountId(currentState().accountId())
-                    .setTransactionId(currentState().transactionId())
-                    .build();
-
-            var response = accountClient.cancelTransaction().invoke(cancelRequest);
-            cancelResult =  mapProtoCancelResult(response.getCancelResult());
-            cancelStatus =  mapProtoCancelStatus(response.getCancelStatus());
+                    .setAccountId(state.accountId())
+                    .setTransactionId(state.transactionId());
+            // an authorisation approved from a lease is settled with its cancel if corebanking does not hold it yet
+            AccountLeases.leaseAuthorisation(state.authCode(), state.cardData().amount()).ifPresent(cancelRequest::setLeaseAuthorisation);
+
+            var response = settlementBatcher.cancel(cancelRequest.build()).toCompletableFuture().join();
+            cancelResult = AccountProtoMapper.mapProtoCancelResult(response.getCancelResult());
+            cancelStatus = AccountProtoMapper.mapProtoCancelStatus(response.getCancelStatus());
         } catch (Exception e) {
-            logger.error("Capture failed for transaction: {}", currentState().transactionId(), e);
+            logger.error("Cancel failed for transaction: {}", state.transactionId(), e);
         }
-        //delete timeout timer
-        timers().delete(scheduleCaptureTimeoutTimerId());
-        logger.info("Cancel result for transaction {}: {}", currentState().transactionId(), cancelResult);
+        removeCaptureTimeout(state);
+        logger.info("Cancel result for transaction {}: {}", state.transactionId(), cancelResult);
 
-        var updatedState = currentState().withCanceled(cancelResult,cancelStatus);
+        var updatedState = state.withCanceled(cancelResult, cancelStatus).withUpdatedAt(Instant.now());
         return stepEffects()
                 .updateState(updatedState)
                 .thenEnd();
     }
-    
-    private TransactionState.AuthResult mapProtoAuthResult(AuthResult protoResult) {
-        return switch (protoResult) {
-            case AUTHORISED -> TransactionState.AuthResult.authorised;
-            default -> TransactionState.AuthResult.declined;
-        };
-    }
-    
-    private TransactionState.AuthStatus mapProtoAuthStatus(AuthStatus protoStatus) {
-        return switch (protoStatus) {
-            case OK -> TransactionState.AuthStatus.ok;
-            case CARD_NOT_FOUND -> TransactionState.AuthStatus.card_not_found;
-            case INSUFFICIENT_FUNDS -> TransactionState.AuthStatus.insufficient_funds;
-            case ACCOUNT_CLOSED -> TransactionState.AuthStatus.account_closed;
-            case ACCOUNT_NOT_FOUND -> TransactionState.AuthStatus.account_not_found;
-            default -> TransactionState.AuthStatus.undiscosed;
-        };
-    }
-    
+
     public record AuthorizeTransactionRequest(
         String idempotencyKey,
         String transactionId,
@@ -288,8 +333,18 @@ public class TransactionWorkflow extends Workflow<TransactionState> {
         String cardExpiryDate,
         String cardCvv,
         int amount,
-        String currency
-    ) {}
+        String currency,
+        String merchantId
+    ) {
+        public AuthorizeTransactionRequest {
+            merchantId = merchantId == null ? "" : merchantId;
+        }
+
+        public AuthorizeTransactionRequest(String idempotencyKey, String transactionId, String cardPan,
+                                           String cardExpiryDate, String cardCvv, int amount, String currency) {
+            this(idempotencyKey, transactionId, cardPan, cardExpiryDate, cardCvv, amount, currency, "");
+        }
+    }
 
     
     public enum StartAuthorizeTransactionResult {
@@ -305,22 +360,6 @@ public class TransactionWorkflow extends Workflow<TransactionState> {
         ALREADY_CANCELED
     }
 
-    private TransactionState.CaptureResult mapProtoCaptureResult(CaptureTransResult protoResult) {
-        return switch (protoResult) {
-            case CAPTURED -> TransactionState.CaptureResult.captured;
-            default -> TransactionState.CaptureResult.declined;
-        };
-    }
-
-    private TransactionState.CaptureStatus mapProtoCaptureStatus(CaptureTransStatus protoStatus) {
-        return switch (protoStatus) {
-            case CAPTURE_OK -> TransactionState.CaptureStatus.ok;
-            case CAPTURE_ACCOUNT_NOT_FOUND ->   TransactionState.CaptureStatus.account_not_found;
-            case CAPTURE_TRANSACTION_NOT_FOUND ->    TransactionState.CaptureStatus.transaction_not_found;
-            default -> TransactionState.CaptureStatus.undiscosed;
-        };
-    }
-
     public enum StartCancelTransactionResult {
         CANCEL_STARTED,
         TRANSACTION_NOT_FOUND,
@@ -328,20 +367,4 @@ public class TransactionWorkflow extends Workflow<TransactionState> {
         ALREADY_CAPTURED,
         ALREADY_CANCELED
     }
-
-    private TransactionState.CancelResult mapProtoCancelResult(CancelTransResult protoResult) {
-        return switch (protoResult) {
-            case CANCELED -> TransactionState.CancelResult.canceled;
-            default -> TransactionState.CancelResult.declined;
-        };
-    }
-
-    private TransactionState.CancelStatus mapProtoCancelStatus(CancelTransStatus protoStatus) {
-        return switch (protoStatus) {
-            case CANCEL_OK -> TransactionState.CancelStatus.ok;
-            case CANCEL_ACCOUNT_NOT_FOUND ->   TransactionState.CancelStatus.account_not_found;
-            case CANCEL_TRANSACTION_NOT_FOUND ->    TransactionState.CancelStatus.transaction_not_found;
-            default -> TransactionState.CancelStatus.undiscosed;
-        };
-    }
 }
\ No newline at end of file
@@ -7,7 +7,10 @@ import akka.javasdk.view.TableUpdater;
 import akka.javasdk.view.View;
 import com.example.akka.payments.domain.TransactionState;
 
-import java.util.Collection;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
 
 @Component(id = "transactions-by-account")
 public class TransactionsByAccountView extends View {
@@ -21,10 +24,112 @@ public class TransactionsByAccountView extends View {
             String captureResult,
             String captureStatus,
             String cancelResult,
-            String cancelStatus
+            String cancelStatus,
+            int amount,
+            String currency,
+            Instant createdAt,
+            Instant updatedAt
     ) {}
 
-    public record TransactionList(Collection<TransactionSummary> transactions) {}
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * Keyset page request: the page holds the transactions of the account ordered by transaction id that come after
+     * {@code afterTransactionId}, so the cost of a page does not depend on how deep into the history it is.
+     */
+    public record PageRequest(String accountId, String afterTransactionId, int pageSize) {
+
+        /**
+         * @param pageToken empty for the first page, otherwise the {@code nextPageToken} of the previous page
+         * @throws IllegalArgumentException if {@code pageToken} is not a page token
+         */
+        public static PageRequest of(String accountId, String pageToken, int pageSize) {
+            var afterTransactionId = pageToken == null || pageToken.isEmpty() ? "" : decode(pageToken);
+            return new PageRequest(accountId, afterTransactionId, pageSize(pageSize));
+        }
+
+        private static String decode(String pageToken) {
+            try {
+                return new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid page token: " + pageToken, e);
+            }
+        }
+    }
+
+    public record TransactionPage(List<TransactionSummary> transactions, boolean hasMore) {
+
+        /**
+         * Opaque token for the page after this one, empty when this is the last page.
+         */
+        public String nextPageToken() {
+            if (!hasMore || transactions.isEmpty()) {
+                return "";
+            }
+            var lastTransactionId = transactions.getLast().transactionId();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(lastTransactionId.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Transactions of one account with the given authorisation and capture result, created in
+     * [{@code createdFrom}, {@code createdTo}). Use {@code captureResult = "N/A"} for authorised transactions that
+     * are not captured yet.
+     */
+    public record AccountStatusQuery(
+            String accountId,
+            String authResult,
+            String captureResult,
+            Instant createdFrom,
+            Instant createdTo,
+            String pageToken,
+            int pageSize) {
+
+        public static AccountStatusQuery of(String accountId, String authResult, String captureResult,
+                                            Instant createdFrom, Instant createdTo, String pageToken, int pageSize) {
+            return new AccountStatusQuery(accountId, authResult, captureResult,
+                    createdFrom == null ? Instant.EPOCH : createdFrom,
+                    createdTo == null ? Instant.now() : createdTo,
+                    pageToken == null ? "" : pageToken,
+                    pageSize(pageSize));
+        }
+    }
+
+    /**
+     * Declined transactions of all accounts with the given authorisation status, created in
+     * [{@code createdFrom}, {@code createdTo}).
+     */
+    public record DeclinedQuery(String authStatus, Instant createdFrom, Instant createdTo, String pageToken, int pageSize) {
+
+        public static DeclinedQuery of(String authStatus, Instant createdFrom, Instant createdTo, String pageToken, int pageSize) {
+            return new DeclinedQuery(authStatus,
+                    createdFrom == null ? Instant.EPOCH : createdFrom,
+                    createdTo == null ? Instant.now() : createdTo,
+                    pageToken == null ? "" : pageToken,
+                    pageSize(pageSize));
+        }
+    }
+
+    /**
+     * Live feed of the transactions of one account. Only rows updated at or after {@code updatedSince} are sent, so
+     * subscribing with the current time pushes changes only, and an earlier time replays what was missed first.
+     */
+    public record UpdatesQuery(String accountId, Instant updatedSince) {
+
+        public static UpdatesQuery of(String accountId, Instant updatedSince) {
+            return new UpdatesQuery(accountId, updatedSince == null ? Instant.now() : updatedSince);
+        }
+    }
+
+    /**
+     * @param nextPageToken empty when this is the last page
+     */
+    public record FilteredPage(List<TransactionSummary> transactions, String nextPageToken, boolean hasMore) {}
+
+    private static int pageSize(int pageSize) {
+        return pageSize <= 0 ? DEFAULT_PAGE_SIZE : Math.min(pageSize, MAX_PAGE_SIZE);
+    }
 
     @Consume.FromWorkflow(TransactionWorkflow.class)
     public static class TransactionsByAccountUpdater extends TableUpdater<TransactionSummary> {
@@ -45,6 +150,13 @@ public class TransactionsByAccountView extends View {
                 cancelStatus = transactionState.cancelStatus().name();
             }
 
+            // states written before timestamps were recorded keep the time the row was first seen
+            var now = Instant.now();
+            var createdAt = transactionState.createdAt() != null
+                    ? transactionState.createdAt()
+                    : rowState() != null ? rowState().createdAt() : now;
+            var updatedAt = transactionState.updatedAt() != null ? transactionState.updatedAt() : now;
+
             return effects().updateRow(
                     new TransactionSummary(
                             idempotencyKey,
@@ -55,14 +167,70 @@ public class TransactionsByAccountView extends View {
                             captureResult,
                             captureStatus,
                             cancelResult,
-                            cancelStatus
+                            cancelStatus,
+                            transactionState.cardData().amount(),
+                            transactionState.cardData().currency(),
+                            createdAt,
+                            updatedAt
                     )
             );
         }
     }
 
-    @Query("SELECT * AS transactions FROM transactions_by_account WHERE accountId = :accountId ORDER BY transactionId")
-    public QueryEffect<TransactionList> getTransactionsByAccount(String accountId) {
+    @Query("""
+            SELECT * AS transactions, has_more() AS hasMore
+            FROM transactions_by_account
+            WHERE accountId = :accountId AND transactionId > :afterTransactionId
+            ORDER BY transactionId
+            LIMIT :pageSize
+            """)
+    public QueryEffect<TransactionPage> getTransactionsByAccount(PageRequest request) {
+        return queryResult();
+    }
+
+    @Query("SELECT * FROM transactions_by_account WHERE accountId = :accountId ORDER BY transactionId")
+    public QueryStreamEffect<TransactionSummary> streamTransactionsByAccount(String accountId) {
+        return queryStreamResult();
+    }
+
+    @Query(value = """
+            SELECT * FROM transactions_by_account
+            WHERE accountId = :accountId AND updatedAt >= :updatedSince
+            """,
+            streamUpdates = true)
+    public QueryStreamEffect<TransactionSummary> streamTransactionUpdates(UpdatesQuery query) {
+        return queryStreamResult();
+    }
+
+    // the filter columns of the two queries below are indexed by the view, so only the matching slice is read
+    @Query("""
+            SELECT * AS transactions, next_page_token() AS nextPageToken, has_more() AS hasMore
+            FROM transactions_by_account
+            WHERE accountId = :accountId
+              AND authResult = :authResult
+              AND captureResult = :captureResult
+              AND createdAt >= :createdFrom
+              AND createdAt < :createdTo
+            ORDER BY createdAt
+            OFFSET page_token_offset(:pageToken)
+            LIMIT :pageSize
+            """)
+    public QueryEffect<FilteredPage> getTransactionsByAccountAndStatus(AccountStatusQuery query) {
+        return queryResult();
+    }
+
+    @Query("""
+            SELECT * AS transactions, next_page_token() AS nextPageToken, has_more() AS hasMore
+            FROM transactions_by_account
+            WHERE authResult = 'declined'
+              AND authStatus = :authStatus
+              AND createdAt >= :createdFrom
+              AND createdAt < :createdTo
+            ORDER BY createdAt
+            OFFSET page_token_offset(:pageToken)
+            LIMIT :pageSize
+            """)
+    public QueryEffect<FilteredPage> getDeclinedTransactions(DeclinedQuery query) {
         return queryResult();
     }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.example.akka.payments.domain;
+
+import org.pcollections.HashTreePSet;
+import org.pcollections.PSet;
+
+import java.util.Set;
+
+/**
+ * Workflows whose capture timeout falls into one time slot of the capture timeout wheel. Scheduling and removing a
+ * timeout appends one event; the set is a persistent set so neither copies the pending workflows.
+ */
+public record CaptureTimeoutBucket(Set<String> pending, boolean fired) {
+
+    public CaptureTimeoutBucket {
+        if (!(pending instanceof PSet)) {
+            pending = HashTreePSet.from(pending);
+        }
+    }
+
+    public static CaptureTimeoutBucket empty() {
+        return new CaptureTimeoutBucket(HashTreePSet.empty(), false);
+    }
+
+    public CaptureTimeoutBucket onScheduled(CaptureTimeoutEvent.Scheduled event) {
+        return new CaptureTimeoutBucket(set().plus(event.workflowId()), fired);
+    }
+
+    public CaptureTimeoutBucket onRemoved(CaptureTimeoutEvent.Removed event) {
+        return new CaptureTimeoutBucket(set().minus(event.workflowId()), fired);
+    }
+
+    public CaptureTimeoutBucket onFired(CaptureTimeoutEvent.Fired event) {
+        return new CaptureTimeoutBucket(HashTreePSet.empty(), true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private PSet<String> set() {
+        return (PSet<String>) pending;
+    }
+}
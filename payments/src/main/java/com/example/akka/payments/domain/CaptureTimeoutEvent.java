@@ -0,0 +1,13 @@
+package com.example.akka.payments.domain;
+
+public sealed interface CaptureTimeoutEvent {
+
+    record Scheduled(String workflowId) implements CaptureTimeoutEvent {}
+
+    record Removed(String workflowId) implements CaptureTimeoutEvent {}
+
+    /**
+     * The slot has passed and the cancels of its pending workflows were sent.
+     */
+    record Fired(int count) implements CaptureTimeoutEvent {}
+}
@@ -0,0 +1,33 @@
+package com.example.akka.payments.domain;
+
+import java.time.Duration;
+
+/**
+ * Capture timeout for the transactions matching a merchant, a currency and an amount band. An empty merchant or
+ * currency matches any; the band is {@code minAmount} inclusive to {@code maxAmount} exclusive, 0 meaning no upper
+ * bound.
+ */
+public record CaptureTimeoutPolicy(String merchantId, String currency, int minAmount, int maxAmount, Duration timeout) {
+
+    public CaptureTimeoutPolicy {
+        merchantId = merchantId == null ? "" : merchantId;
+        currency = currency == null ? "" : currency;
+        if (timeout == null || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Capture timeout must be positive");
+        }
+    }
+
+    public boolean matches(String merchantId, String currency, int amount) {
+        return (this.merchantId.isEmpty() || this.merchantId.equals(merchantId))
+                && (this.currency.isEmpty() || this.currency.equalsIgnoreCase(currency))
+                && amount >= minAmount
+                && (maxAmount == 0 || amount < maxAmount);
+    }
+
+    /**
+     * A policy for a merchant wins over one for a currency, which wins over one for an amount band only.
+     */
+    public int specificity() {
+        return (merchantId.isEmpty() ? 0 : 2) + (currency.isEmpty() ? 0 : 1);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.akka.payments.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Capture timeout policies with the timeout used when none matches. Of the matching policies the most specific
+ * one applies, and among equally specific ones the first in the list.
+ */
+public record CaptureTimeoutPolicyTable(List<CaptureTimeoutPolicy> policies, Duration defaultTimeout) {
+
+    public CaptureTimeoutPolicyTable {
+        policies = policies == null ? List.of() : List.copyOf(policies);
+    }
+
+    /**
+     * State of the policy entity before policies were stored; the configured table applies instead.
+     */
+    public static CaptureTimeoutPolicyTable empty() {
+        return new CaptureTimeoutPolicyTable(List.of(), null);
+    }
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return defaultTimeout == null;
+    }
+
+    /**
+     * A capture timeout has to end before corebanking expires the authorisation hold, otherwise the hold is released
+     * while the transaction can still be captured.
+     *
+     * @return why this table cannot be used, if a timeout is not positive or longer than {@code maxTimeout}
+     */
+    public Optional<String> validate(Duration maxTimeout) {
+        if (isEmpty()) {
+            return Optional.of("A default capture timeout is required");
+        }
+        if (defaultTimeout.isNegative() || defaultTimeout.isZero()) {
+            return Optional.of("Default capture timeout must be positive");
+        }
+        if (defaultTimeout.compareTo(maxTimeout) > 0) {
+            return Optional.of("Default capture timeout " + defaultTimeout + " is longer than " + maxTimeout);
+        }
+        return policies.stream()
+                .filter(policy -> policy.timeout().compareTo(maxTimeout) > 0)
+                .findFirst()
+                .map(policy -> "Capture timeout " + policy.timeout() + " of " + policy + " is longer than " + maxTimeout);
+    }
+
+    public Duration resolve(String merchantId, String currency, int amount) {
+        return policies.stream()
+                .filter(policy -> policy.matches(merchantId, currency, amount))
+                // max keeps the first of equally specific policies
+                .max(Comparator.comparingInt(CaptureTimeoutPolicy::specificity))
+                .map(CaptureTimeoutPolicy::timeout)
+                .orElse(defaultTimeout);
+    }
+}
@@ -1,28 +1,62 @@
 package com.example.akka.payments.domain;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Persisted on every workflow state update with short JSON property names; the aliases keep states written with
+ * the full names readable. Outcome fields still holding their {@link #empty()} value are left out, so a step only
+ * writes the outcomes reached so far next to the request data.
+ */
 public record TransactionState(
-    String idempotencyKey,
-    String transactionId,
-    CardData cardData,
-    String accountId,
-    String authCode,
-    AuthResult authResult,
-    AuthStatus authStatus,
-    CaptureResult captureResult,
-    CaptureStatus captureStatus,
-    CancelResult cancelResult,
-    CancelStatus cancelStatus
+    @JsonProperty("k") @JsonAlias("idempotencyKey") String idempotencyKey,
+    @JsonProperty("t") @JsonAlias("transactionId") String transactionId,
+    @JsonProperty("d") @JsonAlias("cardData") CardData cardData,
+    @JsonProperty("a") @JsonAlias("accountId") @JsonInclude(JsonInclude.Include.NON_EMPTY) String accountId,
+    @JsonProperty("ac") @JsonAlias("authCode") @JsonInclude(JsonInclude.Include.NON_EMPTY) String authCode,
+    @JsonProperty("ar") @JsonAlias("authResult") @JsonInclude(JsonInclude.Include.NON_EMPTY) @JsonSerialize(using = OutcomeSerializer.class) AuthResult authResult,
+    @JsonProperty("as") @JsonAlias("authStatus") @JsonInclude(JsonInclude.Include.NON_EMPTY) @JsonSerialize(using = OutcomeSerializer.class) AuthStatus authStatus,
+    @JsonProperty("pr") @JsonAlias("captureResult") @JsonInclude(JsonInclude.Include.NON_EMPTY) @JsonSerialize(using = OutcomeSerializer.class) CaptureResult captureResult,
+    @JsonProperty("ps") @JsonAlias("captureStatus") @JsonInclude(JsonInclude.Include.NON_EMPTY) @JsonSerialize(using = OutcomeSerializer.class) CaptureStatus captureStatus,
+    @JsonProperty("xr") @JsonAlias("cancelResult") @JsonInclude(JsonInclude.Include.NON_EMPTY) @JsonSerialize(using = OutcomeSerializer.class) CancelResult cancelResult,
+    @JsonProperty("xs") @JsonAlias("cancelStatus") @JsonInclude(JsonInclude.Include.NON_EMPTY) @JsonSerialize(using = OutcomeSerializer.class) CancelStatus cancelStatus,
+    @JsonProperty("c") @JsonAlias("createdAt") Instant createdAt,
+    @JsonProperty("u") @JsonAlias("updatedAt") Instant updatedAt,
+    @JsonProperty("cb") @JsonInclude(JsonInclude.Include.NON_NULL) Instant captureBy
 ) {
+
+    public TransactionState {
+        // outcome fields left out of the JSON are read back as null
+        accountId = accountId == null ? "" : accountId;
+        authCode = authCode == null ? "" : authCode;
+        authResult = authResult == null ? AuthResult.declined : authResult;
+        authStatus = authStatus == null ? AuthStatus.ok : authStatus;
+        captureResult = captureResult == null ? CaptureResult.declined : captureResult;
+        captureStatus = captureStatus == null ? CaptureStatus.ok : captureStatus;
+        cancelResult = cancelResult == null ? CancelResult.declined : cancelResult;
+        cancelStatus = cancelStatus == null ? CancelStatus.ok : cancelStatus;
+    }
     
     public static TransactionState empty() {
-        return new TransactionState("", "", CardData.empty(), "", "", AuthResult.declined, AuthStatus.ok, CaptureResult.declined, CaptureStatus.ok, CancelResult.declined, CancelStatus.ok);
+        return new TransactionState("", "", CardData.empty(), "", "", AuthResult.declined, AuthStatus.ok, CaptureResult.declined, CaptureStatus.ok, CancelResult.declined, CancelStatus.ok, null, null, null);
     }
     
+    @JsonIgnore
     public boolean isEmpty() {
         return idempotencyKey.isEmpty();
     }
 
-    public TransactionState init(String idempotencyKey, String transactionId, CardData cardData) {
+    public TransactionState init(String idempotencyKey, String transactionId, CardData cardData, Instant now) {
         return new TransactionState(
                 idempotencyKey,
                 transactionId,
@@ -34,33 +68,81 @@ public record TransactionState(
                 captureResult,
                 captureStatus,
                 cancelResult,
-                cancelStatus
+                cancelStatus,
+                now,
+                now,
+                null
         );
     }
 
     public TransactionState withCardValid(String accountId) {
-        return new TransactionState(idempotencyKey, transactionId, cardData, accountId, authCode, authResult, authStatus, captureResult, captureStatus, cancelResult, cancelStatus);
+        return new TransactionState(idempotencyKey, transactionId, cardData, accountId, authCode, authResult, authStatus, captureResult, captureStatus, cancelResult, cancelStatus, createdAt, updatedAt, captureBy);
     }
 
     public TransactionState withAuthResult(String authCode, AuthResult authResult, AuthStatus authStatus) {
-        return new TransactionState(idempotencyKey, transactionId, cardData, accountId, authCode, authResult, authStatus, captureResult, captureStatus, cancelResult, cancelStatus);
+        return new TransactionState(idempotencyKey, transactionId, cardData, accountId, authCode, authResult, authStatus, captureResult, captureStatus, cancelResult, cancelStatus, createdAt, updatedAt, captureBy);
     }
     
     public TransactionState withCaptured(CaptureResult captureResult, CaptureStatus captureStatus) {
-        return new TransactionState(idempotencyKey, transactionId, cardData, accountId, authCode, authResult, authStatus, captureResult, captureStatus, cancelResult, cancelStatus);
+        return new TransactionState(idempotencyKey, transactionId, cardData, accountId, authCode, authResult, authStatus, captureResult, captureStatus, cancelResult, cancelStatus, createdAt, updatedAt, captureBy);
+    }
+
+    public TransactionState withUpdatedAt(Instant updatedAt) {
+        return new TransactionState(idempotencyKey, transactionId, cardData, accountId, authCode, authResult, authStatus, captureResult, captureStatus, cancelResult, cancelStatus, createdAt, updatedAt, captureBy);
     }
 
     public TransactionState withCanceled(CancelResult cancelResult, CancelStatus cancelStatus) {
-        return new TransactionState(idempotencyKey, transactionId, cardData, accountId, authCode, authResult, authStatus, captureResult, captureStatus, cancelResult, cancelStatus);
+        return new TransactionState(idempotencyKey, transactionId, cardData, accountId, authCode, authResult, authStatus, captureResult, captureStatus, cancelResult, cancelStatus, createdAt, updatedAt, captureBy);
+    }
+    
+    /**
+     * @param captureBy deadline after which an authorised transaction that was not captured is cancelled
+     */
+    public TransactionState withCaptureBy(Instant captureBy) {
+        return new TransactionState(idempotencyKey, transactionId, cardData, accountId, authCode, authResult, authStatus, captureResult, captureStatus, cancelResult, cancelStatus, createdAt, updatedAt, captureBy);
+    }
+
+    /**
+     * Writes an outcome like any other enum, and reports the outcome values of {@link #empty()} as empty so that
+     * {@link JsonInclude.Include#NON_EMPTY} leaves them out.
+     */
+    static final class OutcomeSerializer extends StdSerializer<Enum<?>> {
+
+        public OutcomeSerializer() {
+            super(Enum.class, false);
+        }
+
+        @Override
+        public boolean isEmpty(SerializerProvider provider, Enum<?> value) {
+            return value == null
+                    || value == AuthResult.declined || value == AuthStatus.ok
+                    || value == CaptureResult.declined || value == CaptureStatus.ok
+                    || value == CancelResult.declined || value == CancelStatus.ok;
+        }
+
+        @Override
+        public void serialize(Enum<?> value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeString(value.name());
+        }
     }
     
     public record CardData(
-        String cardPan,
-        String cardExpiryDate,
-        String cardCvv,
-        int amount,
-        String currency
+        @JsonProperty("p") @JsonAlias("cardPan") String cardPan,
+        @JsonProperty("e") @JsonAlias("cardExpiryDate") String cardExpiryDate,
+        @JsonProperty("v") @JsonAlias("cardCvv") String cardCvv,
+        @JsonProperty("m") @JsonAlias("amount") int amount,
+        @JsonProperty("c") @JsonAlias("currency") String currency,
+        @JsonProperty("mi") @JsonInclude(JsonInclude.Include.NON_EMPTY) String merchantId
     ) {
+        @JsonCreator
+        public CardData {
+            merchantId = merchantId == null ? "" : merchantId;
+        }
+
+        public CardData(String cardPan, String cardExpiryDate, String cardCvv, int amount, String currency) {
+            this(cardPan, cardExpiryDate, cardCvv, amount, currency, "");
+        }
+
         public static CardData empty() {
             return new CardData("", "", "", 0, "");
         }
@@ -3,8 +3,15 @@ package com.example.akka.payments.api;
 import akka.javasdk.DependencyProvider;
 import akka.javasdk.testkit.TestKit;
 import akka.javasdk.testkit.TestKitSupport;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import com.example.akka.payments.application.CardCache;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class CardGrpcEndpointIntegrationTest extends TestKitSupport {
@@ -16,6 +23,9 @@ public class CardGrpcEndpointIntegrationTest extends TestKitSupport {
             @SuppressWarnings("unchecked")
             @Override
             public <T> T getDependency(Class<T> clazz) {
+               if (clazz.equals(CardCache.class)) {
+                   return (T) new CardCache(new CardCache.Settings(1000, Duration.ofHours(1)));
+               }
                return null;
             }
         };
@@ -194,4 +204,40 @@ public class CardGrpcEndpointIntegrationTest extends TestKitSupport {
             client.validateCard().invoke(validateRequest);
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCreateCardsStream() throws Exception {
+        var client = getGrpcEndpointClient(CardGrpcEndpointClient.class);
+
+        client.createCard().invoke(Card.newBuilder()
+                .setPan("5000000000000003")
+                .setExpiryDate("01/26")
+                .setCvv("999")
+                .setAccountId("other_account")
+                .build());
+
+        var cards = List.of(
+                Card.newBuilder().setPan("5000000000000001").setExpiryDate("12/27").setCvv("111").setAccountId("bulk_account").build(),
+                Card.newBuilder().setPan("5000000000000002").setExpiryDate("12/27").setCvv("222").setAccountId("bulk_account").build(),
+                Card.newBuilder().setPan("5000000000000003").setExpiryDate("12/27").setCvv("333").setAccountId("bulk_account").build());
+
+        var results = client.createCards().invoke(Source.from(cards))
+                .runWith(Sink.seq(), testKit.getMaterializer())
+                .toCompletableFuture()
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(3, results.size());
+        assertEquals("5000000000000001", results.get(0).getPan());
+        assertEquals(CreateCardStatus.CREATE_CARD_CREATED, results.get(0).getStatus());
+        assertEquals(CreateCardStatus.CREATE_CARD_CREATED, results.get(1).getStatus());
+        assertEquals(CreateCardStatus.CREATE_CARD_CONFLICT, results.get(2).getStatus());
+
+        // resuming the same import reports the already created cards again without creating anything new
+        var resumed = client.createCards().invoke(Source.from(cards.subList(1, 2)))
+                .runWith(Sink.seq(), testKit.getMaterializer())
+                .toCompletableFuture()
+                .get(5, TimeUnit.SECONDS);
+        assertEquals(CreateCardStatus.CREATE_CARD_CREATED, resumed.get(0).getStatus());
+        assertEquals("bulk_account", client.getCard().invoke(GetCardRequest.newBuilder().setPan("5000000000000002").build()).getAccountId());
+    }
+}
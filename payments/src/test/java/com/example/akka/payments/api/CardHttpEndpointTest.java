@@ -0,0 +1,81 @@
+package com.example.akka.payments.api;
+
+import akka.javasdk.DependencyProvider;
+import akka.javasdk.JsonSupport;
+import akka.javasdk.testkit.TestKit;
+import akka.javasdk.testkit.TestKitSupport;
+import com.example.akka.common.Ndjson;
+import com.example.akka.payments.application.CardCache;
+import com.example.akka.payments.application.CardEntity;
+import com.example.akka.payments.application.CardImport;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CardHttpEndpointTest extends TestKitSupport {
+
+    @Override
+    protected TestKit.Settings testKitSettings() {
+        DependencyProvider dependencyProvider = new DependencyProvider() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public <T> T getDependency(Class<T> clazz) {
+                if (clazz.equals(CardCache.class)) {
+                    return (T) new CardCache(new CardCache.Settings(1000, Duration.ofHours(1)));
+                }
+                return null;
+            }
+        };
+
+        return TestKit.Settings.DEFAULT.withDependencyProvider(dependencyProvider);
+    }
+
+    @Test
+    public void testImportReportsMalformedLinesAndResumes() {
+        var body = String.join("\n",
+                "{\"pan\":\"5000000000000001\",\"expiryDate\":\"12/30\",\"cvv\":\"111\",\"accountId\":\"import-1\"}",
+                "{\"pan\":\"5000000000000002\",",
+                "",
+                "{\"pan\":\"5000000000000003\",\"expiryDate\":\"12/30\",\"cvv\":\"333\",\"accountId\":\"import-3\"}",
+                "{\"pan\":\"" + "9".repeat(5000) + "\"}",
+                "{\"pan\":\"5000000000000006\",\"expiryDate\":\"12/30\",\"cvv\":\"666\",\"accountId\":\"import-6\"}");
+
+        var results = importCards(body);
+
+        assertEquals(List.of(1L, 2L, 4L, 5L, 6L), results.stream().map(CardImport.Result::line).toList());
+        assertEquals(CardImport.Status.created, results.get(0).status());
+        assertEquals(CardImport.Status.failed, results.get(1).status());
+        assertTrue(results.get(1).message().startsWith("Malformed JSON"), results.get(1).message());
+        assertEquals(CardImport.Status.created, results.get(2).status());
+        assertEquals(CardImport.Status.failed, results.get(3).status());
+        assertTrue(results.get(3).message().startsWith("Line is longer than"), results.get(3).message());
+        assertEquals("5000000000000006", results.get(4).pan());
+        assertEquals(CardImport.Status.created, results.get(4).status());
+
+        var card = componentClient.forEventSourcedEntity("5000000000000003")
+                .method(CardEntity::getCard)
+                .invoke();
+        assertEquals("import-3", card.accountId());
+
+        // sending the same file again resumes the import: created cards are reported as created again
+        var resumed = importCards(body);
+        assertEquals(
+                results.stream().map(CardImport.Result::status).toList(),
+                resumed.stream().map(CardImport.Result::status).toList());
+    }
+
+    private List<CardImport.Result> importCards(String ndjson) {
+        var response = httpClient.POST("/cards/import")
+                .withRequestBody(Ndjson.CONTENT_TYPE, ndjson.getBytes(StandardCharsets.UTF_8))
+                .invoke();
+        assertTrue(response.status().isSuccess());
+        return Arrays.stream(response.body().utf8String().split("\n"))
+                .map(line -> JsonSupport.parseBytes(line.getBytes(StandardCharsets.UTF_8), CardImport.Result.class))
+                .toList();
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.akka.payments.application;
+
+import com.example.akka.account.api.AuthResult;
+import com.example.akka.account.api.AuthStatus;
+import com.example.akka.account.api.AuthorizeTransactionRequest;
+import com.example.akka.account.api.AuthorizeTransactionResponse;
+import com.example.akka.account.api.GrantLeaseRequest;
+import com.example.akka.account.api.GrantLeaseResponse;
+import com.example.akka.account.api.SettleLeaseRequest;
+import com.example.akka.account.api.SettleLeaseResponse;
+import com.google.protobuf.Timestamp;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccountLeasesTest {
+
+    private final List<GrantLeaseRequest> granted = new CopyOnWriteArrayList<>();
+    private final List<SettleLeaseRequest> settled = new CopyOnWriteArrayList<>();
+    private final List<AuthorizeTransactionRequest> forwarded = new CopyOnWriteArrayList<>();
+
+    private CompletionStage<GrantLeaseResponse> grant(GrantLeaseRequest request) {
+        granted.add(request);
+        return CompletableFuture.completedFuture(GrantLeaseResponse.newBuilder()
+                .setAmount(request.getAmount())
+                .setAuthResult(AuthResult.AUTHORISED)
+                .setAuthStatus(AuthStatus.OK)
+                .build());
+    }
+
+    private CompletionStage<SettleLeaseResponse> settle(SettleLeaseRequest request) {
+        settled.add(request);
+        return CompletableFuture.completedFuture(SettleLeaseResponse.getDefaultInstance());
+    }
+
+    private CompletionStage<AuthorizeTransactionResponse> forward(AuthorizeTransactionRequest request) {
+        forwarded.add(request);
+        return CompletableFuture.completedFuture(AuthorizeTransactionResponse.newBuilder()
+                .setAuthCode("corebanking-" + request.getTransactionId())
+                .setAuthResult(AuthResult.AUTHORISED)
+                .setAuthStatus(AuthStatus.OK)
+                .build());
+    }
+
+    private AccountLeases leases(Duration settleInterval) {
+        return new AccountLeases(this::grant, this::settle, this::forward,
+                new AccountLeases.Settings(true, 100, 250, settleInterval, Duration.ofMinutes(1), Duration.ofSeconds(30)));
+    }
+
+    private static AuthorizeTransactionRequest request(String transactionId, int amount) {
+        return AuthorizeTransactionRequest.newBuilder()
+                .setAccountId("account-1")
+                .setTransactionId(transactionId)
+                .setAmount(amount)
+                .build();
+    }
+
+    private static AuthorizeTransactionResponse authorize(AccountLeases leases, AuthorizeTransactionRequest request) throws Exception {
+        return leases.authorize(request).toCompletableFuture().get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testSmallTransactionsAreAuthorisedFromOneLease() throws Exception {
+        var leases = leases(Duration.ofMinutes(1));
+
+        var first = authorize(leases, request("tx1", 100));
+        var second = authorize(leases, request("tx2", 100));
+
+        assertEquals(AuthResult.AUTHORISED, first.getAuthResult());
+        assertEquals(AuthResult.AUTHORISED, second.getAuthResult());
+        assertEquals(1, granted.size());
+        assertTrue(forwarded.isEmpty());
+        assertEquals(2, leases.stats().localAuthorisations());
+        // a retried authorisation gets the same auth code
+        assertEquals(first.getAuthCode(), authorize(leases, request("tx1", 100)).getAuthCode());
+    }
+
+    @Test
+    public void testLargeTransactionsGoToCorebanking() throws Exception {
+        var leases = leases(Duration.ofMinutes(1));
+
+        var response = authorize(leases, request("tx1", 101));
+
+        assertEquals("corebanking-tx1", response.getAuthCode());
+        assertTrue(granted.isEmpty());
+    }
+
+    @Test
+    public void testExhaustedLeaseIsReleasedAndRenewed() throws Exception {
+        var leases = leases(Duration.ofMinutes(1));
+
+        authorize(leases, request("tx1", 100));
+        authorize(leases, request("tx2", 100));
+        authorize(leases, request("tx3", 100));
+
+        assertEquals(2, granted.size());
+        var release = settled.stream().filter(SettleLeaseRequest::getRelease).findFirst().orElseThrow();
+        assertEquals(granted.get(0).getLeaseId(), release.getLeaseId());
+        assertEquals(2, release.getAuthorisationsCount());
+    }
+
+    @Test
+    public void testLeaseAuthCodeCarriesTheLeaseAuthorisation() throws Exception {
+        var leases = leases(Duration.ofMinutes(1));
+        var response = authorize(leases, request("tx1", 50));
+
+        var leaseAuth = AccountLeases.leaseAuthorisation(response.getAuthCode(), 50).orElseThrow();
+
+        assertEquals(granted.get(0).getLeaseId(), leaseAuth.getLeaseId());
+        assertEquals(50, leaseAuth.getAmount());
+        assertEquals(response.getAuthCode(), leaseAuth.getAuthCode());
+        assertTrue(AccountLeases.leaseAuthorisation("corebanking-tx1", 50).isEmpty());
+        assertTrue(AccountLeases.leaseAuthorisation("", 50).isEmpty());
+    }
+
+    @Test
+    public void testRetriedAuthorisationIsDeduplicatedAgainstReleasedLeases() throws Exception {
+        // settlements never complete, so the exhausted lease stays released but unsettled
+        var leases = new AccountLeases(this::grant, request -> {
+            settled.add(request);
+            return new CompletableFuture<>();
+        }, this::forward,
+                new AccountLeases.Settings(true, 100, 250, Duration.ofMinutes(1), Duration.ofMinutes(1), Duration.ofSeconds(30)));
+        var first = authorize(leases, request("tx1", 100));
+        authorize(leases, request("tx2", 100));
+        authorize(leases, request("tx3", 100));
+        assertEquals(2, granted.size());
+
+        var retried = authorize(leases, request("tx1", 100));
+
+        assertEquals(first.getAuthCode(), retried.getAuthCode());
+        assertEquals(2, granted.size());
+    }
+
+    @Test
+    public void testConsumedAmountsAreSettledPeriodically() throws Exception {
+        var leases = leases(Duration.ofMillis(20));
+        authorize(leases, request("tx1", 50));
+        authorize(leases, request("tx2", 50));
+
+        var deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+        while (settled.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(2, settled.stream().mapToInt(SettleLeaseRequest::getAuthorisationsCount).sum());
+    }
+
+    @Test
+    public void testDisabledLeasesForwardEveryAuthorisation() throws Exception {
+        var leases = AccountLeases.disabled(this::forward);
+
+        var response = authorize(leases, request("tx1", 10));
+
+        assertEquals("corebanking-tx1", response.getAuthCode());
+        assertEquals(1, leases.stats().forwardedAuthorisations());
+        leases.releaseAll().toCompletableFuture().get(1, TimeUnit.SECONDS);
+        assertTrue(granted.isEmpty());
+        assertTrue(settled.isEmpty());
+    }
+
+    @Test
+    public void testDeclinedLeaseFallsBackToCorebanking() throws Exception {
+        var leases = new AccountLeases(
+                request -> CompletableFuture.completedFuture(GrantLeaseResponse.newBuilder()
+                        .setAuthResult(AuthResult.DECLINED)
+                        .setAuthStatus(AuthStatus.INSUFFICIENT_FUNDS)
+                        .build()),
+                this::settle, this::forward,
+                new AccountLeases.Settings(true, 100, 250, Duration.ofMinutes(1), Duration.ofMinutes(1), Duration.ofSeconds(30)));
+
+        var response = authorize(leases, request("tx1", 10));
+
+        assertEquals("corebanking-tx1", response.getAuthCode());
+        assertEquals(1, forwarded.size());
+    }
+
+    @Test
+    public void testFailedSettlementIsRetried() throws Exception {
+        var attempts = new AtomicInteger();
+        var leases = new AccountLeases(this::grant, request -> attempts.incrementAndGet() == 1
+                ? CompletableFuture.failedFuture(new RuntimeException("unavailable"))
+                : settle(request), this::forward,
+                new AccountLeases.Settings(true, 100, 250, Duration.ofMillis(20), Duration.ofMinutes(1), Duration.ofSeconds(30)));
+        authorize(leases, request("tx1", 50));
+
+        var deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+        while (settled.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(attempts.get() >= 2);
+        assertEquals("tx1", settled.get(0).getAuthorisations(0).getTransactionId());
+    }
+
+    @Test
+    public void testLeaseWithinItsExpiryMarginIsReleasedInsteadOfUsed() throws Exception {
+        var leases = new AccountLeases(request -> {
+            granted.add(request);
+            var expiresAt = Instant.now().plusSeconds(10);
+            return CompletableFuture.completedFuture(GrantLeaseResponse.newBuilder()
+                    .setAmount(request.getAmount())
+                    .setAuthResult(AuthResult.AUTHORISED)
+                    .setAuthStatus(AuthStatus.OK)
+                    .setExpiresAt(Timestamp.newBuilder().setSeconds(expiresAt.getEpochSecond()))
+                    .build());
+        }, this::settle, this::forward,
+                new AccountLeases.Settings(true, 100, 250, Duration.ofMinutes(1), Duration.ofMinutes(1), Duration.ofSeconds(30)));
+
+        authorize(leases, request("tx1", 10));
+        authorize(leases, request("tx2", 10));
+
+        // each lease is within the expiry margin as soon as it is granted, so it is released instead of used
+        assertEquals(2, granted.size());
+        assertEquals(2, forwarded.size());
+        assertEquals(0, leases.stats().localAuthorisations());
+        assertTrue(settled.stream().anyMatch(SettleLeaseRequest::getRelease));
+    }
+
+    @Test
+    public void testReleaseAllSettlesAndReleasesEveryLease() throws Exception {
+        var leases = leases(Duration.ofMinutes(1));
+        authorize(leases, request("tx1", 50));
+
+        leases.releaseAll().toCompletableFuture().get(1, TimeUnit.SECONDS);
+
+        var release = settled.stream().filter(SettleLeaseRequest::getRelease).findFirst().orElseThrow();
+        assertEquals(granted.get(0).getLeaseId(), release.getLeaseId());
+        assertEquals(1, release.getAuthorisationsCount());
+        assertEquals(0, leases.stats().activeLeases());
+    }
+}
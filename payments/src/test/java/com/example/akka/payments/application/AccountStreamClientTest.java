@@ -0,0 +1,136 @@
+package com.example.akka.payments.application;
+
+import akka.NotUsed;
+import akka.actor.ActorSystem;
+import akka.stream.Materializer;
+import akka.stream.javadsl.Source;
+import com.example.akka.account.api.AuthResult;
+import com.example.akka.account.api.AuthStatus;
+import com.example.akka.account.api.AuthorisationStreamCommand;
+import com.example.akka.account.api.AuthorisationStreamReply;
+import com.example.akka.account.api.AuthorizeTransactionRequest;
+import com.example.akka.account.api.AuthorizeTransactionResponse;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The stream client over bidirectional transports shaped like the {@code AuthorisationStream} RPC: one long-lived
+ * stream per connection, replies in any order.
+ */
+public class AccountStreamClientTest {
+
+    private static ActorSystem system;
+    private static Materializer materializer;
+
+    private final AtomicInteger openings = new AtomicInteger();
+
+    @BeforeAll
+    public static void startSystem() {
+        system = ActorSystem.create("AccountStreamClientTest");
+        materializer = Materializer.matFromSystem(system);
+    }
+
+    @AfterAll
+    public static void stopSystem() {
+        system.terminate();
+    }
+
+    // corebanking's side of the stream: commands are processed concurrently and answered as they complete
+    private Source<AuthorisationStreamReply, NotUsed> corebanking(Source<AuthorisationStreamCommand, NotUsed> commands) {
+        openings.incrementAndGet();
+        return commands.mapAsyncUnordered(64, command -> {
+            var reply = AuthorisationStreamReply.newBuilder()
+                    .setCorrelationId(command.getCorrelationId())
+                    .setAuthorize(AuthorizeTransactionResponse.newBuilder()
+                            .setAuthCode("AUTH-" + command.getAuthorize().getTransactionId())
+                            .setAuthResult(AuthResult.AUTHORISED)
+                            .setAuthStatus(AuthStatus.OK))
+                    .build();
+            // later commands are answered first
+            var delay = 50 - Integer.parseInt(command.getAuthorize().getTransactionId()) % 50;
+            return CompletableFuture.supplyAsync(() -> reply, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS));
+        });
+    }
+
+    private AccountStreamClient client(
+            Function<Source<AuthorisationStreamCommand, NotUsed>, Source<AuthorisationStreamReply, NotUsed>> transport,
+            Duration callTimeout) {
+        return new AccountStreamClient(transport::apply, materializer, new AccountStreamClient.Settings(1000, callTimeout));
+    }
+
+    private static AuthorizeTransactionRequest authorisation(int transactionId) {
+        return AuthorizeTransactionRequest.newBuilder()
+                .setAccountId("account-1")
+                .setTransactionId(Integer.toString(transactionId))
+                .setAmount(1)
+                .build();
+    }
+
+    @Test
+    public void testRepliesInAnyOrderCompleteTheirOwnCallsOverOneStream() throws Exception {
+        var client = client(this::corebanking, Duration.ofSeconds(5));
+
+        var calls = IntStream.range(0, 200)
+                .mapToObj(i -> client.authorize(authorisation(i)).toCompletableFuture())
+                .toList();
+
+        for (int i = 0; i < calls.size(); i++) {
+            assertEquals("AUTH-" + i, calls.get(i).get(5, TimeUnit.SECONDS).getAuthCode());
+        }
+        assertEquals(1, openings.get());
+        assertEquals(0, client.inFlight());
+    }
+
+    @Test
+    public void testFailedStreamFailsCallsInFlightAndNextCallReconnects() throws Exception {
+        var client = client(commands -> openings.get() == 0
+                ? commands.map(command -> {
+                    openings.incrementAndGet();
+                    throw new IllegalStateException("connection reset");
+                })
+                : corebanking(commands), Duration.ofSeconds(5));
+
+        var failed = client.authorize(authorisation(1)).toCompletableFuture();
+        var error = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertEquals("connection reset", error.getCause().getMessage());
+
+        var reply = client.authorize(authorisation(2)).toCompletableFuture().get(5, TimeUnit.SECONDS);
+        assertEquals("AUTH-2", reply.getAuthCode());
+        assertEquals(2, openings.get());
+    }
+
+    @Test
+    public void testCallWithoutReplyTimesOut() {
+        var client = client(commands -> commands.filter(command -> false).map(command -> AuthorisationStreamReply.getDefaultInstance()),
+                Duration.ofMillis(200));
+
+        var call = client.authorize(authorisation(1)).toCompletableFuture();
+        var error = assertThrows(ExecutionException.class, () -> call.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertEquals(0, client.inFlight());
+    }
+
+    @Test
+    public void testCallsOnAStreamClosingRightAwayFailInsteadOfWaitingForTheTimeout() {
+        // the stream completes as soon as it is opened, racing with the call that opened it
+        var client = client(commands -> Source.empty(), Duration.ofMinutes(1));
+
+        for (int i = 0; i < 100; i++) {
+            var call = client.authorize(authorisation(i)).toCompletableFuture();
+            var error = assertThrows(ExecutionException.class, () -> call.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, error.getCause());
+        }
+    }
+}
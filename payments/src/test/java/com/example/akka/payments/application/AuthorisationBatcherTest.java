@@ -0,0 +1,111 @@
+package com.example.akka.payments.application;
+
+import com.example.akka.account.api.AuthResult;
+import com.example.akka.account.api.AuthStatus;
+import com.example.akka.account.api.AuthorizeTransactionRequest;
+import com.example.akka.account.api.AuthorizeTransactionResponse;
+import com.example.akka.account.api.BatchAuthorizeTransactionResult;
+import com.example.akka.account.api.BatchAuthorizeTransactionsRequest;
+import com.example.akka.account.api.BatchAuthorizeTransactionsResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AuthorisationBatcherTest {
+
+    private final List<BatchAuthorizeTransactionsRequest> sent = new CopyOnWriteArrayList<>();
+    private final List<AuthorizeTransactionRequest> sentSingle = new CopyOnWriteArrayList<>();
+
+    private CompletionStage<BatchAuthorizeTransactionsResponse> approveAll(BatchAuthorizeTransactionsRequest request) {
+        sent.add(request);
+        var response = BatchAuthorizeTransactionsResponse.newBuilder();
+        request.getItemsList().forEach(item -> response.addResults(BatchAuthorizeTransactionResult.newBuilder()
+                .setTransactionId(item.getTransactionId())
+                .setAuthCode("auth-" + item.getTransactionId())
+                .setAuthResult(AuthResult.AUTHORISED)
+                .setAuthStatus(AuthStatus.OK)));
+        return CompletableFuture.completedFuture(response.build());
+    }
+
+    private CompletionStage<AuthorizeTransactionResponse> approveOne(AuthorizeTransactionRequest request) {
+        sentSingle.add(request);
+        return CompletableFuture.completedFuture(AuthorizeTransactionResponse.newBuilder()
+                .setAuthCode("auth-" + request.getTransactionId())
+                .setAuthResult(AuthResult.AUTHORISED)
+                .setAuthStatus(AuthStatus.OK)
+                .build());
+    }
+
+    private static AuthorizeTransactionRequest request(String accountId, String transactionId) {
+        return AuthorizeTransactionRequest.newBuilder()
+                .setAccountId(accountId)
+                .setTransactionId(transactionId)
+                .setAmount(10)
+                .build();
+    }
+
+    @Test
+    public void testCoalescesRequestsForSameAccountWithinWindow() throws Exception {
+        var batcher = new AuthorisationBatcher(this::approveAll, this::approveOne, new AuthorisationBatcher.Settings(Duration.ofMillis(50), 100));
+
+        var first = batcher.authorize(request("account-1", "tx1")).toCompletableFuture();
+        var second = batcher.authorize(request("account-1", "tx2")).toCompletableFuture();
+        var other = batcher.authorize(request("account-2", "tx3")).toCompletableFuture();
+
+        assertEquals("auth-tx1", first.get(1, TimeUnit.SECONDS).getAuthCode());
+        assertEquals("auth-tx2", second.get(1, TimeUnit.SECONDS).getAuthCode());
+        assertEquals("auth-tx3", other.get(1, TimeUnit.SECONDS).getAuthCode());
+
+        assertEquals(2, sent.size());
+        var stats = batcher.stats();
+        assertEquals(2, stats.batches());
+        assertEquals(3, stats.items());
+        assertEquals(2, stats.maxBatchSize());
+    }
+
+    @Test
+    public void testFlushesAsSoonAsBatchIsFull() throws Exception {
+        var batcher = new AuthorisationBatcher(this::approveAll, this::approveOne, new AuthorisationBatcher.Settings(Duration.ofMinutes(1), 2));
+
+        var first = batcher.authorize(request("account-1", "tx1")).toCompletableFuture();
+        var second = batcher.authorize(request("account-1", "tx2")).toCompletableFuture();
+
+        assertEquals(AuthResult.AUTHORISED, first.get(1, TimeUnit.SECONDS).getAuthResult());
+        assertEquals(AuthResult.AUTHORISED, second.get(1, TimeUnit.SECONDS).getAuthResult());
+        assertEquals(1, sent.size());
+        assertEquals(2, sent.get(0).getItemsCount());
+    }
+
+    @Test
+    public void testSendsEachRequestWhenBatchingDisabled() throws Exception {
+        var batcher = new AuthorisationBatcher(this::approveAll, this::approveOne, new AuthorisationBatcher.Settings(Duration.ZERO, 50));
+
+        var first = batcher.authorize(request("account-1", "tx1")).toCompletableFuture().get(1, TimeUnit.SECONDS);
+        batcher.authorize(request("account-1", "tx2")).toCompletableFuture().get(1, TimeUnit.SECONDS);
+
+        assertEquals("auth-tx1", first.getAuthCode());
+        assertEquals(2, sentSingle.size());
+        assertTrue(sent.isEmpty());
+    }
+
+    @Test
+    public void testFailsAllWaitingRequestsWhenBatchCallFails() {
+        var batcher = new AuthorisationBatcher(
+                request -> CompletableFuture.failedFuture(new RuntimeException("corebanking unavailable")),
+                this::approveOne,
+                new AuthorisationBatcher.Settings(Duration.ofMillis(10), 100));
+
+        var first = batcher.authorize(request("account-1", "tx1")).toCompletableFuture();
+        var second = batcher.authorize(request("account-1", "tx2")).toCompletableFuture();
+
+        assertThrows(Exception.class, () -> first.get(1, TimeUnit.SECONDS));
+        assertThrows(Exception.class, () -> second.get(1, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.akka.payments.application;
+
+import akka.javasdk.testkit.EventSourcedTestKit;
+import com.example.akka.payments.domain.CaptureTimeoutBucket;
+import com.example.akka.payments.domain.CaptureTimeoutEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CaptureTimeoutBucketEntityTest {
+
+    @Test
+    public void testScheduleAndRemove() {
+        var testKit = EventSourcedTestKit.of(CaptureTimeoutBucketEntity::new);
+
+        testKit.method(CaptureTimeoutBucketEntity::schedule).invoke("wf-1");
+        testKit.method(CaptureTimeoutBucketEntity::schedule).invoke("wf-2");
+        var duplicate = testKit.method(CaptureTimeoutBucketEntity::schedule).invoke("wf-1");
+        assertTrue(duplicate.getAllEvents().isEmpty());
+
+        var removed = testKit.method(CaptureTimeoutBucketEntity::remove).invoke("wf-1");
+        assertEquals("wf-1", removed.getNextEventOfType(CaptureTimeoutEvent.Removed.class).workflowId());
+
+        assertEquals(List.of("wf-2"), testKit.method(CaptureTimeoutBucketEntity::getPending).invoke().getReply());
+    }
+
+    @Test
+    public void testFiredBucketRejectsNewTimeouts() {
+        var testKit = EventSourcedTestKit.of(CaptureTimeoutBucketEntity::new);
+        testKit.method(CaptureTimeoutBucketEntity::schedule).invoke("wf-1");
+
+        var fired = testKit.method(CaptureTimeoutBucketEntity::fired).invoke();
+        assertEquals(1, fired.getNextEventOfType(CaptureTimeoutEvent.Fired.class).count());
+        assertTrue(((CaptureTimeoutBucket) fired.getUpdatedState()).pending().isEmpty());
+
+        var schedule = testKit.method(CaptureTimeoutBucketEntity::schedule).invoke("wf-2");
+        assertTrue(schedule.isError());
+    }
+
+    @Test
+    public void testSlotsAndBuckets() {
+        var settings = new CaptureTimeouts.Settings(Duration.ofSeconds(5), 4, 10);
+        var deadline = Instant.ofEpochMilli(12_000);
+
+        assertEquals(2, settings.slotOf(deadline));
+        assertEquals(Instant.ofEpochMilli(15_000), settings.slotEnd(2));
+        assertTrue(settings.bucketId(2, "wf-1").startsWith("2-"));
+        assertEquals(settings.bucketId(2, "wf-1"), settings.bucketId(2, "wf-1"));
+    }
+
+    @Test
+    public void testFirstTickStartsTheCursorAtTheCurrentSlot() {
+        var settings = new CaptureTimeouts.Settings(Duration.ofSeconds(5), 4, 10);
+
+        var first = settings.slotsToFire(-1, 100);
+        assertEquals(new CaptureTimeouts.SlotRange(100, 100), first);
+
+        // the tick after it fires the slot the cursor was started at
+        assertEquals(new CaptureTimeouts.SlotRange(100, 101), settings.slotsToFire(first.first(), 101));
+    }
+
+    @Test
+    public void testTickCatchesUpAtMostMaxSlotsPerTick() {
+        var settings = new CaptureTimeouts.Settings(Duration.ofSeconds(5), 4, 10);
+
+        assertEquals(new CaptureTimeouts.SlotRange(50, 60), settings.slotsToFire(50, 100));
+        assertEquals(new CaptureTimeouts.SlotRange(100, 100), settings.slotsToFire(100, 100));
+    }
+}
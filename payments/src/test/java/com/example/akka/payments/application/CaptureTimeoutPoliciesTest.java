@@ -0,0 +1,70 @@
+package com.example.akka.payments.application;
+
+import com.example.akka.payments.domain.CaptureTimeoutPolicy;
+import com.example.akka.payments.domain.CaptureTimeoutPolicyTable;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CaptureTimeoutPoliciesTest {
+
+    private final CaptureTimeoutPolicies.Settings settings = CaptureTimeoutPolicies.Settings.fromConfig(ConfigFactory.parseString("""
+            default-timeout = 5m
+            max-timeout = 6d
+            hold-expiry = 7d
+            refresh-interval = 1h
+            policies = [{ currency = "USD", max-amount = 1000, timeout = 30s }]
+            """));
+
+    @Test
+    public void testConfiguredTableUntilOneIsStored() {
+        var policies = new CaptureTimeoutPolicies(
+                () -> CompletableFuture.completedFuture(CaptureTimeoutPolicyTable.empty()), settings);
+
+        assertEquals(Duration.ofSeconds(30), policies.timeoutFor("", "USD", 10).toCompletableFuture().join());
+        assertEquals(Duration.ofMinutes(5), policies.timeoutFor("", "EUR", 10).toCompletableFuture().join());
+    }
+
+    @Test
+    public void testStoredTableIsLoadedOnceAndCached() {
+        var loads = new AtomicInteger();
+        var stored = new CaptureTimeoutPolicyTable(
+                List.of(new CaptureTimeoutPolicy("hotel-1", "", 0, 0, Duration.ofDays(5))), Duration.ofMinutes(1));
+        var policies = new CaptureTimeoutPolicies(() -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(stored);
+        }, settings);
+
+        assertEquals(Duration.ofDays(5), policies.timeoutFor("hotel-1", "USD", 10).toCompletableFuture().join());
+        assertEquals(Duration.ofMinutes(1), policies.timeoutFor("shop-1", "USD", 10).toCompletableFuture().join());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testConfiguredTableWhenLoadingFails() {
+        var policies = new CaptureTimeoutPolicies(
+                () -> CompletableFuture.failedFuture(new RuntimeException("unavailable")), settings);
+
+        assertEquals(Duration.ofSeconds(30), policies.timeoutFor("", "USD", 10).toCompletableFuture().join());
+    }
+
+    @Test
+    public void testMaxTimeoutMustBeShorterThanTheHoldExpiry() {
+        var config = ConfigFactory.parseString("""
+                default-timeout = 5m
+                max-timeout = 7d
+                hold-expiry = 7d
+                refresh-interval = 1h
+                policies = []
+                """);
+
+        var error = assertThrows(IllegalArgumentException.class, () -> CaptureTimeoutPolicies.Settings.fromConfig(config));
+        assertTrue(error.getMessage().contains("hold expiry"), error.getMessage());
+    }
+}
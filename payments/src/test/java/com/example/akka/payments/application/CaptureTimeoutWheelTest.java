@@ -0,0 +1,169 @@
+package com.example.akka.payments.application;
+
+import akka.javasdk.DependencyProvider;
+import akka.javasdk.testkit.TestKit;
+import akka.javasdk.testkit.TestKitSupport;
+import com.example.akka.account.api.AuthResult;
+import com.example.akka.account.api.AuthStatus;
+import com.example.akka.account.api.AuthorisationStreamReply;
+import com.example.akka.account.api.AuthorizeTransactionResponse;
+import com.example.akka.account.api.CancelTransResult;
+import com.example.akka.account.api.CancelTransStatus;
+import com.example.akka.account.api.CancelTransactionResponse;
+import com.example.akka.account.api.CaptureTransResult;
+import com.example.akka.account.api.CaptureTransStatus;
+import com.example.akka.account.api.CaptureTransactionResponse;
+import com.example.akka.payments.domain.TransactionState;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Capture timeouts end to end: the workflow schedules its timeout into a bucket on authorisation and removes it on
+ * capture, and the running wheel cancels what is still pending once the slot has passed.
+ */
+public class CaptureTimeoutWheelTest extends TestKitSupport {
+
+    private static final String PAN = "4000000000000505";
+
+    private final CardCache cardCache = new CardCache(new CardCache.Settings(1000, Duration.ofHours(1)));
+    private AccountStreamClient accountStreamClient;
+
+    @Override
+    protected TestKit.Settings testKitSettings() {
+        var authorisationBatcher = AuthorisationBatcher.unbatched(
+                request -> CompletableFuture.completedFuture(AuthorizeTransactionResponse.newBuilder()
+                        .setAuthCode("AUTH-" + request.getTransactionId())
+                        .setAuthResult(AuthResult.AUTHORISED)
+                        .setAuthStatus(AuthStatus.OK)
+                        .build()));
+        var accountLeases = AccountLeases.disabled(authorisationBatcher::authorize);
+
+        DependencyProvider dependencyProvider = new DependencyProvider() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public <T> T getDependency(Class<T> clazz) {
+                if (clazz.equals(AccountStreamClient.class)) {
+                    return (T) accountStreamClient();
+                } else if (clazz.equals(SettlementBatcher.class)) {
+                    return (T) SettlementBatcher.unbatched(
+                            request -> accountStreamClient().capture(request),
+                            request -> accountStreamClient().cancel(request));
+                } else if (clazz.equals(CardCache.class)) {
+                    return (T) cardCache;
+                } else if (clazz.equals(AuthorisationBatcher.class)) {
+                    return (T) authorisationBatcher;
+                } else if (clazz.equals(AccountLeases.class)) {
+                    return (T) accountLeases;
+                } else if (clazz.equals(CaptureTimeoutPolicies.class)) {
+                    return (T) CaptureTimeoutPolicies.fixed(Duration.ofSeconds(1));
+                }
+                return null;
+            }
+        };
+
+        return TestKit.Settings.DEFAULT.withDependencyProvider(dependencyProvider);
+    }
+
+    // corebanking stub: every capture and cancel succeeds
+    private synchronized AccountStreamClient accountStreamClient() {
+        if (accountStreamClient == null) {
+            accountStreamClient = new AccountStreamClient(
+                    commands -> commands.map(command -> {
+                        var reply = AuthorisationStreamReply.newBuilder().setCorrelationId(command.getCorrelationId());
+                        return switch (command.getCommandCase()) {
+                            case CAPTURE -> reply.setCapture(CaptureTransactionResponse.newBuilder()
+                                    .setCaptureResult(CaptureTransResult.CAPTURED)
+                                    .setCaptureStatus(CaptureTransStatus.CAPTURE_OK)).build();
+                            case CANCEL -> reply.setCancel(CancelTransactionResponse.newBuilder()
+                                    .setCancelResult(CancelTransResult.CANCELED)
+                                    .setCancelStatus(CancelTransStatus.CANCEL_OK)).build();
+                            default -> reply.setError("Unexpected command " + command.getCommandCase()).build();
+                        };
+                    }),
+                    testKit.getMaterializer(),
+                    new AccountStreamClient.Settings(100, Duration.ofSeconds(5)));
+        }
+        return accountStreamClient;
+    }
+
+    @Test
+    public void testUncapturedAuthorisationIsCancelledAfterItsSlot() {
+        componentClient.forEventSourcedEntity(PAN)
+                .method(CardEntity::createCard)
+                .invoke(new CardEntity.ApiCard(PAN, "12/30", "123", "timeout-account"));
+        testKit.getTimerScheduler().createSingleTimer(
+                CaptureTimeoutWheel.TIMER_NAME,
+                Duration.ZERO,
+                componentClient.forTimedAction()
+                        .method(CaptureTimeoutWheel::tick)
+                        .deferred());
+        // the first tick starts the cursor, otherwise no slot would ever be fired
+        var startedAt = awaitCondition(
+                () -> componentClient.forKeyValueEntity(CaptureTimeoutWheel.CURSOR_ID)
+                        .method(CaptureTimeoutCursorEntity::get)
+                        .invoke(),
+                cursor -> cursor.nextSlot() >= 0);
+
+        authorise("uncaptured");
+        authorise("captured");
+        componentClient.forWorkflow("captured")
+                .method(TransactionWorkflow::captureTransaction)
+                .invoke();
+        awaitTransaction("captured", state -> state.captureResult() == TransactionState.CaptureResult.captured);
+
+        var cancelled = awaitTransaction("uncaptured",
+                state -> state.cancelResult() == TransactionState.CancelResult.canceled);
+        assertEquals(TransactionState.CaptureResult.declined, cancelled.captureResult());
+        assertTrue(cancelled.updatedAt().isAfter(cancelled.captureBy()));
+
+        var captured = componentClient.forWorkflow("captured")
+                .method(TransactionWorkflow::getTransaction)
+                .invoke();
+        assertEquals(TransactionState.CancelResult.declined, captured.cancelResult());
+
+        var cursor = componentClient.forKeyValueEntity(CaptureTimeoutWheel.CURSOR_ID)
+                .method(CaptureTimeoutCursorEntity::get)
+                .invoke();
+        assertTrue(cursor.nextSlot() > startedAt.nextSlot());
+    }
+
+    private void authorise(String id) {
+        componentClient.forWorkflow(id)
+                .method(TransactionWorkflow::authorizeTransaction)
+                .invoke(new TransactionWorkflow.AuthorizeTransactionRequest(id, id, PAN, "12/30", "123", 100, "USD", ""));
+        var state = awaitTransaction(id, transaction -> transaction.authResult() == TransactionState.AuthResult.authorised);
+        assertNotNull(state.captureBy());
+    }
+
+    private TransactionState awaitTransaction(String workflowId, Predicate<TransactionState> condition) {
+        return awaitCondition(
+                () -> componentClient.forWorkflow(workflowId)
+                        .method(TransactionWorkflow::getTransaction)
+                        .invoke(),
+                condition);
+    }
+
+    private static <T> T awaitCondition(Supplier<T> query, Predicate<T> condition) {
+        var deadline = System.nanoTime() + Duration.ofSeconds(15).toNanos();
+        T result = null;
+        while (System.nanoTime() < deadline) {
+            result = query.get();
+            if (condition.test(result)) {
+                return result;
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return fail("Condition not reached, last result: " + result);
+    }
+}
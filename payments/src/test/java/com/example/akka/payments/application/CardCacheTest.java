@@ -0,0 +1,61 @@
+package com.example.akka.payments.application;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CardCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private CompletionStage<CardEntity.ApiCard> load(String pan) {
+        loads.incrementAndGet();
+        return CompletableFuture.completedFuture(new CardEntity.ApiCard(pan, "12/27", "123", "account-" + pan));
+    }
+
+    @Test
+    public void testLoadsOnMissAndServesHitsFromCache() throws Exception {
+        var cache = new CardCache(new CardCache.Settings(100, Duration.ofHours(1)));
+
+        var first = cache.get("1111", this::load).toCompletableFuture().get(1, TimeUnit.SECONDS);
+        var second = cache.get("1111", this::load).toCompletableFuture().get(1, TimeUnit.SECONDS);
+
+        assertEquals("account-1111", first.accountId());
+        assertEquals(first, second);
+        assertEquals(1, loads.get());
+        var stats = cache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+    }
+
+    @Test
+    public void testWarmedCardIsServedWithoutLoad() throws Exception {
+        var cache = new CardCache(new CardCache.Settings(100, Duration.ofHours(1)));
+        cache.put(new CardEntity.ApiCard("2222", "01/28", "456", "account-warm"));
+
+        var card = cache.get("2222", this::load).toCompletableFuture().get(1, TimeUnit.SECONDS);
+
+        assertEquals("account-warm", card.accountId());
+        assertEquals(0, loads.get());
+        assertEquals(1, cache.stats().hits());
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() throws Exception {
+        var cache = new CardCache(new CardCache.Settings(100, Duration.ofHours(1)));
+
+        var failed = cache.get("3333", pan -> CompletableFuture.failedFuture(new RuntimeException("Card not found")))
+                .toCompletableFuture();
+        assertThrows(Exception.class, () -> failed.get(1, TimeUnit.SECONDS));
+
+        var card = cache.get("3333", this::load).toCompletableFuture().get(1, TimeUnit.SECONDS);
+        assertEquals("account-3333", card.accountId());
+        assertEquals(1, loads.get());
+    }
+}
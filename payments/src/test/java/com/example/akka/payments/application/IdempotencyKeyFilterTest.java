@@ -0,0 +1,51 @@
+package com.example.akka.payments.application;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.akka.payments.application.TransactionWorkflow.StartAuthorizeTransactionResult.ALREADY_EXISTS;
+import static com.example.akka.payments.application.TransactionWorkflow.StartAuthorizeTransactionResult.STARTED;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyKeyFilterTest {
+
+    @Test
+    public void testDuplicateIsAnsweredFromMemory() {
+        var filter = new IdempotencyKeyFilter(new IdempotencyKeyFilter.Settings(true, 1000, 0.01, 100));
+        var starts = new AtomicInteger();
+
+        assertEquals(STARTED, filter.start("key-1", () -> { starts.incrementAndGet(); return STARTED; }));
+        assertEquals(ALREADY_EXISTS, filter.start("key-1", () -> { starts.incrementAndGet(); return ALREADY_EXISTS; }));
+
+        assertEquals(1, starts.get());
+        var stats = filter.stats();
+        assertEquals(2, stats.checks());
+        assertEquals(1, stats.definitelyNew());
+        assertEquals(1, stats.shortCircuited());
+    }
+
+    @Test
+    public void testFailedStartIsNotRemembered() {
+        var filter = new IdempotencyKeyFilter(new IdempotencyKeyFilter.Settings(true, 1000, 0.01, 100));
+
+        assertThrows(RuntimeException.class, () -> filter.start("key-1", () -> { throw new RuntimeException("unavailable"); }));
+
+        assertEquals(STARTED, filter.start("key-1", () -> STARTED));
+        assertEquals(2, filter.stats().definitelyNew());
+    }
+
+    @Test
+    public void testFalsePositiveRateStaysBoundedBeyondExpectedKeys() {
+        var filter = new IdempotencyKeyFilter(new IdempotencyKeyFilter.Settings(true, 1000, 0.01, 10));
+
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(STARTED, filter.start("key-" + i, () -> STARTED));
+        }
+
+        var stats = filter.stats();
+        assertEquals(10_000, stats.definitelyNew() + stats.falsePositives());
+        // two generations of 1% each
+        assertTrue(stats.falsePositiveRate() < 0.05, "false positive rate " + stats.falsePositiveRate());
+    }
+}
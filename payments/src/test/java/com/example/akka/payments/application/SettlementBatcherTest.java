@@ -0,0 +1,163 @@
+package com.example.akka.payments.application;
+
+import com.example.akka.account.api.BatchCancelTransactionsRequest;
+import com.example.akka.account.api.BatchCancelTransactionsResponse;
+import com.example.akka.account.api.BatchCaptureTransactionsRequest;
+import com.example.akka.account.api.BatchCaptureTransactionsResponse;
+import com.example.akka.account.api.CancelTransResult;
+import com.example.akka.account.api.CancelTransactionRequest;
+import com.example.akka.account.api.CancelTransactionResponse;
+import com.example.akka.account.api.CaptureTransResult;
+import com.example.akka.account.api.CaptureTransactionRequest;
+import com.example.akka.account.api.CaptureTransactionResponse;
+import com.example.akka.account.api.LeaseAuthorisation;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SettlementBatcherTest {
+
+    private final List<BatchCaptureTransactionsRequest> sentCaptures = new CopyOnWriteArrayList<>();
+    private final List<BatchCancelTransactionsRequest> sentCancels = new CopyOnWriteArrayList<>();
+    private final List<CaptureTransactionRequest> sentSingle = new CopyOnWriteArrayList<>();
+
+    private CompletionStage<BatchCaptureTransactionsResponse> captureAll(BatchCaptureTransactionsRequest request) {
+        sentCaptures.add(request);
+        var response = BatchCaptureTransactionsResponse.newBuilder();
+        request.getTransactionIdsList().forEach(id -> response.addResults(captured()));
+        return CompletableFuture.completedFuture(response.build());
+    }
+
+    private CompletionStage<CaptureTransactionResponse> captureOne(CaptureTransactionRequest request) {
+        sentSingle.add(request);
+        return CompletableFuture.completedFuture(captured());
+    }
+
+    private CompletionStage<BatchCancelTransactionsResponse> cancelAll(BatchCancelTransactionsRequest request) {
+        sentCancels.add(request);
+        var response = BatchCancelTransactionsResponse.newBuilder();
+        request.getTransactionIdsList().forEach(id -> response.addResults(canceled()));
+        return CompletableFuture.completedFuture(response.build());
+    }
+
+    private static CaptureTransactionResponse captured() {
+        return CaptureTransactionResponse.newBuilder().setCaptureResult(CaptureTransResult.CAPTURED).build();
+    }
+
+    private static CancelTransactionResponse canceled() {
+        return CancelTransactionResponse.newBuilder().setCancelResult(CancelTransResult.CANCELED).build();
+    }
+
+    private SettlementBatcher batcher(AuthorisationBatcher.Settings settings) {
+        return new SettlementBatcher(this::captureAll, this::captureOne, this::cancelAll,
+                request -> CompletableFuture.completedFuture(canceled()), settings);
+    }
+
+    private static CaptureTransactionRequest capture(String accountId, String transactionId) {
+        return CaptureTransactionRequest.newBuilder().setAccountId(accountId).setTransactionId(transactionId).build();
+    }
+
+    private static CancelTransactionRequest cancel(String accountId, String transactionId) {
+        return CancelTransactionRequest.newBuilder().setAccountId(accountId).setTransactionId(transactionId).build();
+    }
+
+    @Test
+    public void testCoalescesCapturesAndCancelsSeparatelyPerAccount() throws Exception {
+        var batcher = batcher(new AuthorisationBatcher.Settings(Duration.ofMillis(50), 100));
+
+        var first = batcher.capture(capture("account-1", "tx1")).toCompletableFuture();
+        var second = batcher.capture(capture("account-1", "tx2")).toCompletableFuture();
+        var canceled = batcher.cancel(cancel("account-1", "tx3")).toCompletableFuture();
+        var other = batcher.capture(capture("account-2", "tx4")).toCompletableFuture();
+
+        assertEquals(CaptureTransResult.CAPTURED, first.get(1, TimeUnit.SECONDS).getCaptureResult());
+        assertEquals(CaptureTransResult.CAPTURED, second.get(1, TimeUnit.SECONDS).getCaptureResult());
+        assertEquals(CaptureTransResult.CAPTURED, other.get(1, TimeUnit.SECONDS).getCaptureResult());
+        assertEquals(CancelTransResult.CANCELED, canceled.get(1, TimeUnit.SECONDS).getCancelResult());
+
+        assertEquals(2, sentCaptures.size());
+        assertEquals(1, sentCancels.size());
+        var account1 = sentCaptures.stream().filter(request -> request.getAccountId().equals("account-1")).findFirst().orElseThrow();
+        assertEquals(List.of("tx1", "tx2"), account1.getTransactionIdsList());
+        assertEquals(List.of("tx3"), sentCancels.get(0).getTransactionIdsList());
+
+        var stats = batcher.stats();
+        assertEquals(2, stats.captures().batches());
+        assertEquals(3, stats.captures().items());
+        assertEquals(1, stats.cancels().batches());
+    }
+
+    @Test
+    public void testBatchCarriesTheLeaseAuthorisations() throws Exception {
+        var batcher = batcher(new AuthorisationBatcher.Settings(Duration.ofMillis(20), 100));
+        var leaseAuth = LeaseAuthorisation.newBuilder().setLeaseId("lease-1").setAmount(50).setAuthCode("lease:lease-1:a1").build();
+
+        var leased = batcher.capture(capture("account-1", "tx1").toBuilder().setLeaseAuthorisation(leaseAuth).build()).toCompletableFuture();
+        var regular = batcher.capture(capture("account-1", "tx2")).toCompletableFuture();
+        leased.get(1, TimeUnit.SECONDS);
+        regular.get(1, TimeUnit.SECONDS);
+
+        assertEquals(1, sentCaptures.size());
+        assertEquals(Map.of("tx1", leaseAuth), sentCaptures.get(0).getLeaseAuthorisationsMap());
+    }
+
+    @Test
+    public void testFlushesAsSoonAsBatchIsFull() throws Exception {
+        var batcher = batcher(new AuthorisationBatcher.Settings(Duration.ofMinutes(1), 2));
+
+        var first = batcher.capture(capture("account-1", "tx1")).toCompletableFuture();
+        var second = batcher.capture(capture("account-1", "tx2")).toCompletableFuture();
+
+        first.get(1, TimeUnit.SECONDS);
+        second.get(1, TimeUnit.SECONDS);
+        assertEquals(1, sentCaptures.size());
+    }
+
+    @Test
+    public void testSendsEachCaptureWhenBatchingDisabled() throws Exception {
+        var batcher = batcher(new AuthorisationBatcher.Settings(Duration.ZERO, 50));
+
+        batcher.capture(capture("account-1", "tx1")).toCompletableFuture().get(1, TimeUnit.SECONDS);
+        batcher.capture(capture("account-1", "tx2")).toCompletableFuture().get(1, TimeUnit.SECONDS);
+
+        assertEquals(2, sentSingle.size());
+        assertTrue(sentCaptures.isEmpty());
+    }
+
+    @Test
+    public void testUnbatchedSendsEveryCaptureAndCancelOnItsOwn() throws Exception {
+        var batcher = SettlementBatcher.unbatched(this::captureOne, request -> CompletableFuture.completedFuture(canceled()));
+
+        batcher.capture(capture("account-1", "tx1")).toCompletableFuture().get(1, TimeUnit.SECONDS);
+        var canceled = batcher.cancel(cancel("account-1", "tx2")).toCompletableFuture().get(1, TimeUnit.SECONDS);
+
+        assertEquals(1, sentSingle.size());
+        assertEquals(CancelTransResult.CANCELED, canceled.getCancelResult());
+        assertEquals(0, batcher.stats().captures().batches());
+        assertEquals(0, batcher.stats().cancels().batches());
+    }
+
+    @Test
+    public void testFailsCapturesMissingFromTheBatchResponse() throws Exception {
+        var batcher = new SettlementBatcher(
+                request -> CompletableFuture.completedFuture(BatchCaptureTransactionsResponse.newBuilder().addResults(captured()).build()),
+                this::captureOne,
+                this::cancelAll,
+                request -> CompletableFuture.completedFuture(canceled()),
+                new AuthorisationBatcher.Settings(Duration.ofMillis(10), 100));
+
+        var first = batcher.capture(capture("account-1", "tx1")).toCompletableFuture();
+        var second = batcher.capture(capture("account-1", "tx2")).toCompletableFuture();
+
+        assertEquals(CaptureTransResult.CAPTURED, first.get(1, TimeUnit.SECONDS).getCaptureResult());
+        assertThrows(Exception.class, () -> second.get(1, TimeUnit.SECONDS));
+    }
+}
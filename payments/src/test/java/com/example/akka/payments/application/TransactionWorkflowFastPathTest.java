@@ -0,0 +1,12 @@
+package com.example.akka.payments.application;
+
+/**
+ * {@link TransactionWorkflowTest} against the single-step validate-and-authorise fast path.
+ */
+public class TransactionWorkflowFastPathTest extends TransactionWorkflowTest {
+
+    @Override
+    protected boolean fastPath() {
+        return true;
+    }
+}
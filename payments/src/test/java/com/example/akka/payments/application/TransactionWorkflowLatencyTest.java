@@ -0,0 +1,136 @@
+package com.example.akka.payments.application;
+
+import akka.javasdk.DependencyProvider;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.testkit.TestKit;
+import com.example.akka.account.api.AuthResult;
+import com.example.akka.account.api.AuthStatus;
+import com.example.akka.account.api.AuthorizeTransactionResponse;
+import com.example.akka.payments.domain.TransactionState;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Before/after latency of an approved authorisation, from starting the workflow until the authorised state is
+ * readable, for the multi-step path and the single-step fast path. Corebanking answers immediately, so the
+ * numbers are dominated by workflow steps and state writes.
+ */
+public class TransactionWorkflowLatencyTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionWorkflowLatencyTest.class);
+
+    private static final int WARMUP = 50;
+    private static final int TRANSACTIONS = 300;
+    private static final String PAN = "4000000000000002";
+    // the fast path saves one of the three state writes per authorisation, so its median has to be clearly lower
+    private static final double REQUIRED_MEDIAN_RATIO = 0.9;
+
+    @Test
+    public void testFastPathAuthorisationLatency() throws Exception {
+        var slow = measure(false);
+        var fast = measure(true);
+
+        logger.info("Authorisation latency over {} transactions (ms)\n" +
+                        "  multi-step path: p50={} p99={} max={}\n" +
+                        "  fast path:       p50={} p99={} max={}",
+                TRANSACTIONS,
+                slow.p50(), slow.p99(), slow.max(),
+                fast.p50(), fast.p99(), fast.max());
+
+        assertTrue(fast.p50() < slow.p50() * REQUIRED_MEDIAN_RATIO,
+                "fast path median " + fast.p50() + "ms is not at least 10% below the multi-step median " + slow.p50() + "ms");
+    }
+
+    private Latencies measure(boolean fastPath) throws Exception {
+        var cardCache = new CardCache(new CardCache.Settings(1000, Duration.ofHours(1)));
+        var authorisationBatcher = AuthorisationBatcher.unbatched(
+                request -> CompletableFuture.completedFuture(AuthorizeTransactionResponse.newBuilder()
+                        .setAuthCode("AUTH-" + request.getTransactionId())
+                        .setAuthResult(AuthResult.AUTHORISED)
+                        .setAuthStatus(AuthStatus.OK)
+                        .build()));
+        var accountLeases = AccountLeases.disabled(authorisationBatcher::authorize);
+        var captureTimeoutPolicies = CaptureTimeoutPolicies.fixed(Duration.ofMinutes(5));
+
+        DependencyProvider dependencyProvider = new DependencyProvider() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public <T> T getDependency(Class<T> clazz) {
+                if (clazz.equals(CardCache.class)) {
+                    return (T) cardCache;
+                } else if (clazz.equals(AuthorisationBatcher.class)) {
+                    return (T) authorisationBatcher;
+                } else if (clazz.equals(AccountLeases.class)) {
+                    return (T) accountLeases;
+                } else if (clazz.equals(CaptureTimeoutPolicies.class)) {
+                    return (T) captureTimeoutPolicies;
+                }
+                return null;
+            }
+        };
+
+        var testKit = new TestKit(TestKit.Settings.DEFAULT
+                .withAdditionalConfig("payments.transaction-workflow.fast-path = " + fastPath)
+                .withDependencyProvider(dependencyProvider))
+                .start();
+        try {
+            var componentClient = testKit.getComponentClient();
+            componentClient.forEventSourcedEntity(PAN)
+                    .method(CardEntity::createCard)
+                    .invoke(new CardEntity.ApiCard(PAN, "12/30", "123", "latency-account"));
+
+            for (int i = 0; i < WARMUP; i++) {
+                authorise(componentClient, "warmup-" + fastPath + "-" + i);
+            }
+            var samples = new long[TRANSACTIONS];
+            for (int i = 0; i < TRANSACTIONS; i++) {
+                samples[i] = authorise(componentClient, "latency-" + fastPath + "-" + i);
+            }
+            return Latencies.of(samples);
+        } finally {
+            testKit.stop();
+        }
+    }
+
+    private long authorise(ComponentClient componentClient, String id) throws InterruptedException {
+        var request = new TransactionWorkflow.AuthorizeTransactionRequest(id, id, PAN, "12/30", "123", 1, "USD");
+        var start = System.nanoTime();
+        componentClient.forWorkflow(id)
+                .method(TransactionWorkflow::authorizeTransaction)
+                .invoke(request);
+        var deadline = start + Duration.ofSeconds(10).toNanos();
+        while (System.nanoTime() < deadline) {
+            var state = componentClient.forWorkflow(id)
+                    .method(TransactionWorkflow::getTransaction)
+                    .invoke();
+            if (state.authResult() == TransactionState.AuthResult.authorised) {
+                return System.nanoTime() - start;
+            }
+            Thread.sleep(1);
+        }
+        throw new AssertionError("Transaction " + id + " was not authorised in time");
+    }
+
+    private record Latencies(double p50, double p99, double max) {
+
+        static Latencies of(long[] nanos) {
+            var sorted = nanos.clone();
+            Arrays.sort(sorted);
+            return new Latencies(
+                    millis(sorted[sorted.length / 2]),
+                    millis(sorted[(int) Math.ceil(sorted.length * 0.99) - 1]),
+                    millis(sorted[sorted.length - 1]));
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.akka.payments.application;
+
+import akka.javasdk.DependencyProvider;
+import akka.javasdk.testkit.TestKit;
+import akka.javasdk.testkit.TestKitSupport;
+import com.example.akka.account.api.AuthResult;
+import com.example.akka.account.api.AuthStatus;
+import com.example.akka.account.api.AuthorisationStreamReply;
+import com.example.akka.account.api.AuthorizeTransactionResponse;
+import com.example.akka.payments.domain.TransactionState;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts four times as many transaction workflows as the default dispatcher has threads while corebanking answers
+ * authorisations with a fixed latency, and checks that their waits overlap: all of them are authorised in well under
+ * the time it would take if the waiting steps were served a dispatcher's worth at a time.
+ */
+public class TransactionWorkflowLoadTest extends TestKitSupport {
+
+    private static final Duration COREBANKING_LATENCY = Duration.ofSeconds(2);
+
+    private AccountStreamClient accountStreamClient;
+    private final CardCache cardCache = new CardCache(new CardCache.Settings(1000, Duration.ofHours(1)));
+
+    @Override
+    protected TestKit.Settings testKitSettings() {
+        DependencyProvider dependencyProvider = new DependencyProvider() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public <T> T getDependency(Class<T> clazz) {
+                if (clazz.equals(AccountStreamClient.class)) {
+                    return (T) accountStreamClient();
+                } else if (clazz.equals(CardCache.class)) {
+                    return (T) cardCache;
+                } else if (clazz.equals(AuthorisationBatcher.class)) {
+                    return (T) AuthorisationBatcher.unbatched(request -> accountStreamClient().authorize(request));
+                } else if (clazz.equals(AccountLeases.class)) {
+                    return (T) AccountLeases.disabled(getDependency(AuthorisationBatcher.class)::authorize);
+                } else if (clazz.equals(CaptureTimeoutPolicies.class)) {
+                    return (T) CaptureTimeoutPolicies.fixed(Duration.ofMinutes(5));
+                }
+                return null;
+            }
+        };
+        return TestKit.Settings.DEFAULT.withDependencyProvider(dependencyProvider);
+    }
+
+    // corebanking stub: authorises every command after COREBANKING_LATENCY
+    private synchronized AccountStreamClient accountStreamClient() {
+        if (accountStreamClient == null) {
+            accountStreamClient = new AccountStreamClient(
+                    commands -> commands.mapAsyncUnordered(10_000, command -> {
+                        var reply = AuthorisationStreamReply.newBuilder()
+                                .setCorrelationId(command.getCorrelationId())
+                                .setAuthorize(AuthorizeTransactionResponse.newBuilder()
+                                        .setAuthCode("AUTH-" + command.getAuthorize().getTransactionId())
+                                        .setAuthResult(AuthResult.AUTHORISED)
+                                        .setAuthStatus(AuthStatus.OK))
+                                .build();
+                        return CompletableFuture
+                                .supplyAsync(() -> reply, CompletableFuture.delayedExecutor(COREBANKING_LATENCY.toMillis(), TimeUnit.MILLISECONDS));
+                    }),
+                    testKit.getMaterializer(),
+                    new AccountStreamClient.Settings(10_000, Duration.ofSeconds(30)));
+        }
+        return accountStreamClient;
+    }
+
+    private int dispatcherThreads() {
+        var forkJoin = testKit.getActorSystem().settings().config()
+                .getConfig("akka.actor.default-dispatcher.fork-join-executor");
+        var scaled = (int) Math.ceil(Runtime.getRuntime().availableProcessors() * forkJoin.getDouble("parallelism-factor"));
+        return Math.min(forkJoin.getInt("parallelism-max"), Math.max(forkJoin.getInt("parallelism-min"), scaled));
+    }
+
+    @Test
+    public void testWaitingStepsOverlapBeyondDispatcherThreads() throws Exception {
+        var dispatcherThreads = dispatcherThreads();
+        var workflows = dispatcherThreads * 4;
+
+        componentClient.forEventSourcedEntity("4111111111111111")
+                .method(CardEntity::createCard)
+                .invoke(new CardEntity.ApiCard("4111111111111111", "12/30", "123", "load-account"));
+
+        var start = System.nanoTime();
+        var started = new ArrayList<CompletableFuture<TransactionWorkflow.StartAuthorizeTransactionResult>>();
+        for (int i = 0; i < workflows; i++) {
+            var request = new TransactionWorkflow.AuthorizeTransactionRequest(
+                    "load-" + i, "load-txn-" + i, "4111111111111111", "12/30", "123", 1, "USD");
+            started.add(componentClient.forWorkflow("load-" + i)
+                    .method(TransactionWorkflow::authorizeTransaction)
+                    .invokeAsync(request)
+                    .toCompletableFuture());
+        }
+        for (var result : started) {
+            assertEquals(TransactionWorkflow.StartAuthorizeTransactionResult.STARTED, result.get(10, TimeUnit.SECONDS));
+        }
+
+        var deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        int authorised = 0;
+        while (authorised < workflows && System.nanoTime() < deadline) {
+            Thread.sleep(200);
+            authorised = 0;
+            for (int i = 0; i < workflows; i++) {
+                var state = componentClient.forWorkflow("load-" + i)
+                        .method(TransactionWorkflow::getTransaction)
+                        .invoke();
+                if (state.authResult() == TransactionState.AuthResult.authorised) {
+                    authorised++;
+                }
+            }
+        }
+
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertEquals(workflows, authorised);
+        // a dispatcher's worth of waits at a time would take workflows / dispatcherThreads = 4 latencies
+        var serialised = COREBANKING_LATENCY.multipliedBy(workflows / dispatcherThreads);
+        assertTrue(elapsed.compareTo(serialised) < 0,
+                workflows + " authorisations took " + elapsed.toMillis() + "ms, not less than " + serialised.toMillis() + "ms");
+    }
+}
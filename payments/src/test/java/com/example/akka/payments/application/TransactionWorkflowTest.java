@@ -15,16 +15,23 @@ import org.wiremock.grpc.GrpcExtensionFactory;
 import org.wiremock.grpc.dsl.WireMockGrpcService;
 
 import java.time.Duration;
+import java.util.function.Predicate;
 
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.wiremock.grpc.dsl.WireMockGrpc.*;
 
+/**
+ * Runs against the multi-step path, {@link TransactionWorkflowFastPathTest} runs the same tests against the
+ * single-step fast path.
+ */
 public class TransactionWorkflowTest extends TestKitSupport {
 
     private WireMockServer wireMockServer;
     private AccountGrpcEndpointClient mockAccountClient;
     private WireMockGrpcService mockAccountService;
+    private AccountStreamClient accountStreamClient;
+    private final CardCache cardCache = new CardCache(new CardCache.Settings(1000, Duration.ofHours(1)));
 
     @Override
     protected TestKit.Settings testKitSettings() {
@@ -35,6 +42,23 @@ public class TransactionWorkflowTest extends TestKitSupport {
             public <T> T getDependency(Class<T> clazz) {
                 if (clazz.equals(AccountGrpcEndpointClient.class)) {
                     return (T) mockAccountClient;
+                } else if (clazz.equals(AccountStreamClient.class)) {
+                    return (T) accountStreamClient();
+                } else if (clazz.equals(SettlementBatcher.class)) {
+                    return (T) SettlementBatcher.unbatched(
+                            request -> accountStreamClient().capture(request),
+                            request -> accountStreamClient().cancel(request));
+                } else if (clazz.equals(CardCache.class)) {
+                    return (T) cardCache;
+                } else if (clazz.equals(AuthorisationBatcher.class)) {
+                    return (T) new AuthorisationBatcher(
+                            request -> mockAccountClient.batchAuthorizeTransactions().invokeAsync(request),
+                            request -> accountStreamClient().authorize(request),
+                            new AuthorisationBatcher.Settings(Duration.ZERO, 1));
+                } else if (clazz.equals(AccountLeases.class)) {
+                    return (T) AccountLeases.disabled(getDependency(AuthorisationBatcher.class)::authorize);
+                } else if (clazz.equals(CaptureTimeoutPolicies.class)) {
+                    return (T) CaptureTimeoutPolicies.fixed(Duration.ofMinutes(5));
                 } else {
                     return null; // Use default dependencies for other types
                 }
@@ -42,9 +66,24 @@ public class TransactionWorkflowTest extends TestKitSupport {
         };
 
         return TestKit.Settings.DEFAULT
+                .withAdditionalConfig("payments.transaction-workflow.fast-path = " + fastPath())
                 .withDependencyProvider(mockDependencyProvider);
     }
 
+    protected boolean fastPath() {
+        return false;
+    }
+
+    // WireMock gRPC only stubs unary methods, so the stream client sends every command as a unary call
+    private synchronized AccountStreamClient accountStreamClient() {
+        if (accountStreamClient == null) {
+            accountStreamClient = new AccountStreamClient(
+                    AccountStreamClient.unaryTransport(mockAccountClient, 16), testKit.getMaterializer(),
+                    new AccountStreamClient.Settings(100, Duration.ofSeconds(5)));
+        }
+        return accountStreamClient;
+    }
+
     @BeforeAll
     public void setupWireMock() {
 
@@ -73,6 +112,121 @@ public class TransactionWorkflowTest extends TestKitSupport {
         }
     }
 
+    @Test
+    public void testValidCardIsAuthorisedAndPaused() {
+        stubAuthorisation("AUTH-VALID");
+        createCard("4000000000000101", "12/30", "123", "account-valid");
+
+        var workflowClient = componentClient.forWorkflow("valid-card");
+        var startResult = workflowClient
+                .method(TransactionWorkflow::authorizeTransaction)
+                .invoke(new TransactionWorkflow.AuthorizeTransactionRequest(
+                        "valid-card", "txn-valid-card", "4000000000000101", "12/30", "123", 1500, "USD"));
+        assertEquals(TransactionWorkflow.StartAuthorizeTransactionResult.STARTED, startResult);
+
+        var state = awaitTransaction("valid-card",
+                transaction -> transaction.authResult() == TransactionState.AuthResult.authorised);
+        assertEquals("AUTH-VALID", state.authCode());
+        assertEquals(TransactionState.AuthStatus.ok, state.authStatus());
+        assertEquals("account-valid", state.accountId());
+        assertNotNull(state.captureBy());
+        assertEquals(TransactionState.CaptureResult.declined, state.captureResult());
+    }
+
+    @Test
+    public void testUnknownCardIsDeclined() {
+        componentClient.forWorkflow("unknown-card")
+                .method(TransactionWorkflow::authorizeTransaction)
+                .invoke(new TransactionWorkflow.AuthorizeTransactionRequest(
+                        "unknown-card", "txn-unknown-card", "4000000000000202", "12/30", "123", 1000, "USD"));
+
+        var state = awaitTransaction("unknown-card",
+                transaction -> transaction.authStatus() == TransactionState.AuthStatus.card_not_found);
+        assertEquals(TransactionState.AuthResult.declined, state.authResult());
+        assertEquals("", state.authCode());
+        assertNull(state.captureBy());
+    }
+
+    @Test
+    public void testWrongCvvIsDeclined() {
+        createCard("4000000000000303", "12/30", "789", "account-wrong-cvv");
+
+        componentClient.forWorkflow("wrong-cvv")
+                .method(TransactionWorkflow::authorizeTransaction)
+                .invoke(new TransactionWorkflow.AuthorizeTransactionRequest(
+                        "wrong-cvv", "txn-wrong-cvv", "4000000000000303", "12/30", "000", 1000, "USD"));
+
+        var state = awaitTransaction("wrong-cvv",
+                transaction -> transaction.authStatus() == TransactionState.AuthStatus.card_not_found);
+        assertEquals(TransactionState.AuthResult.declined, state.authResult());
+    }
+
+    @Test
+    public void testAuthorisedTransactionIsCaptured() {
+        stubAuthorisation("AUTH-CAPTURE");
+        mockAccountService.stubFor(
+            method("CaptureTransaction")
+                .willReturn(message(CaptureTransactionResponse.newBuilder()
+                    .setCaptureStatus(CaptureTransStatus.CAPTURE_OK)
+                    .setCaptureResult(CaptureTransResult.CAPTURED)
+                    .build()))
+        );
+        createCard("4000000000000404", "12/30", "123", "account-capture");
+
+        var workflowClient = componentClient.forWorkflow("capture");
+        workflowClient
+                .method(TransactionWorkflow::authorizeTransaction)
+                .invoke(new TransactionWorkflow.AuthorizeTransactionRequest(
+                        "capture", "txn-capture-path", "4000000000000404", "12/30", "123", 2500, "USD"));
+        awaitTransaction("capture", transaction -> transaction.authResult() == TransactionState.AuthResult.authorised);
+
+        var captureResult = workflowClient
+                .method(TransactionWorkflow::captureTransaction)
+                .invoke();
+        assertEquals(TransactionWorkflow.StartCaptureTransactionResult.CAPTURE_STARTED, captureResult);
+
+        awaitTransaction("capture", transaction -> transaction.captureResult() == TransactionState.CaptureResult.captured);
+        assertEquals(TransactionWorkflow.StartCaptureTransactionResult.ALREADY_CAPTURED,
+                workflowClient.method(TransactionWorkflow::captureTransaction).invoke());
+    }
+
+    private void stubAuthorisation(String authCode) {
+        mockAccountService.stubFor(
+            method("AuthorizeTransaction")
+                .willReturn(message(AuthorizeTransactionResponse.newBuilder()
+                    .setAuthCode(authCode)
+                    .setAuthResult(AuthResult.AUTHORISED)
+                    .setAuthStatus(AuthStatus.OK)
+                    .build()))
+        );
+    }
+
+    private void createCard(String pan, String expiryDate, String cvv, String accountId) {
+        componentClient.forEventSourcedEntity(pan)
+                .method(CardEntity::createCard)
+                .invoke(new CardEntity.ApiCard(pan, expiryDate, cvv, accountId));
+    }
+
+    private TransactionState awaitTransaction(String workflowId, Predicate<TransactionState> condition) {
+        var deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        TransactionState state = null;
+        while (System.nanoTime() < deadline) {
+            state = componentClient.forWorkflow(workflowId)
+                    .method(TransactionWorkflow::getTransaction)
+                    .invoke();
+            if (condition.test(state)) {
+                return state;
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return fail("Transaction " + workflowId + " did not reach the expected state, last state: " + state);
+    }
+
 //    @Test
     public void testTransactionWorkflowWithMockedAccountService() throws Exception {
         // Setup WireMock gRPC service to return successful authorization
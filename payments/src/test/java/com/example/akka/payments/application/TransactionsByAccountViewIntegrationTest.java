@@ -0,0 +1,225 @@
+package com.example.akka.payments.application;
+
+import akka.javasdk.DependencyProvider;
+import akka.javasdk.testkit.TestKit;
+import akka.javasdk.testkit.TestKitSupport;
+import akka.stream.javadsl.Sink;
+import com.example.akka.account.api.AuthResult;
+import com.example.akka.account.api.AuthStatus;
+import com.example.akka.account.api.AuthorizeTransactionResponse;
+import com.example.akka.payments.domain.TransactionState;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Queries of the transactions view over rows written by real transaction workflows.
+ */
+public class TransactionsByAccountViewIntegrationTest extends TestKitSupport {
+
+    // corebanking stub: declines every authorisation above this amount for insufficient funds
+    private static final int MAX_AUTHORISED_AMOUNT = 1000;
+
+    private final CardCache cardCache = new CardCache(new CardCache.Settings(1000, Duration.ofHours(1)));
+
+    @Override
+    protected TestKit.Settings testKitSettings() {
+        var authorisationBatcher = AuthorisationBatcher.unbatched(
+                request -> CompletableFuture.completedFuture(request.getAmount() > MAX_AUTHORISED_AMOUNT
+                        ? AuthorizeTransactionResponse.newBuilder()
+                                .setAuthResult(AuthResult.DECLINED)
+                                .setAuthStatus(AuthStatus.INSUFFICIENT_FUNDS)
+                                .build()
+                        : AuthorizeTransactionResponse.newBuilder()
+                                .setAuthCode("AUTH-" + request.getTransactionId())
+                                .setAuthResult(AuthResult.AUTHORISED)
+                                .setAuthStatus(AuthStatus.OK)
+                                .build()));
+        var accountLeases = AccountLeases.disabled(authorisationBatcher::authorize);
+
+        DependencyProvider dependencyProvider = new DependencyProvider() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public <T> T getDependency(Class<T> clazz) {
+                if (clazz.equals(CardCache.class)) {
+                    return (T) cardCache;
+                } else if (clazz.equals(AuthorisationBatcher.class)) {
+                    return (T) authorisationBatcher;
+                } else if (clazz.equals(AccountLeases.class)) {
+                    return (T) accountLeases;
+                } else if (clazz.equals(CaptureTimeoutPolicies.class)) {
+                    return (T) CaptureTimeoutPolicies.fixed(Duration.ofMinutes(5));
+                }
+                return null;
+            }
+        };
+
+        return TestKit.Settings.DEFAULT.withDependencyProvider(dependencyProvider);
+    }
+
+    @Test
+    public void testPagesThroughAllTransactionsOfTheAccount() {
+        createCard("4000000000001001", "paging-account");
+        for (int i = 1; i <= 5; i++) {
+            authorise("4000000000001001", "paging-txn-" + i, 100);
+        }
+        awaitResult(() -> getPage("paging-account", "", 100), page -> page.transactions().size() == 5);
+
+        var first = getPage("paging-account", "", 2);
+        assertEquals(2, first.transactions().size());
+        assertEquals("paging-txn-1", first.transactions().get(0).transactionId());
+        assertEquals("paging-txn-2", first.transactions().get(1).transactionId());
+        assertTrue(first.hasMore());
+
+        var second = getPage("paging-account", first.nextPageToken(), 2);
+        assertEquals("paging-txn-3", second.transactions().get(0).transactionId());
+        assertEquals("paging-txn-4", second.transactions().get(1).transactionId());
+        assertTrue(second.hasMore());
+
+        var last = getPage("paging-account", second.nextPageToken(), 2);
+        assertEquals(1, last.transactions().size());
+        assertEquals("paging-txn-5", last.transactions().get(0).transactionId());
+        assertFalse(last.hasMore());
+        assertEquals("", last.nextPageToken());
+    }
+
+    @Test
+    public void testMalformedPageTokenIsABadRequest() {
+        assertEquals(400, getStatus("/transactions/by-account/paging-account?pageToken=not*a*token"));
+        assertEquals(400, getStatus("/transactions/by-account/paging-account?pageSize=ten"));
+    }
+
+    @Test
+    public void testFiltersTransactionsOfTheAccountByStatus() {
+        createCard("4000000000001002", "status-account");
+        authorise("4000000000001002", "status-txn-1", 100);
+        authorise("4000000000001002", "status-txn-2", 5000);
+        authorise("4000000000001002", "status-txn-3", 100);
+        awaitResult(() -> getPage("status-account", "", 100), page -> page.transactions().size() == 3);
+
+        var uncaptured = getByStatus("status-account", "authorised", null, null);
+        assertEquals(List.of("status-txn-1", "status-txn-3"), transactionIds(uncaptured.transactions()));
+
+        var declined = getByStatus("status-account", "declined", null, null);
+        assertEquals(List.of("status-txn-2"), transactionIds(declined.transactions()));
+
+        var insufficientFunds = componentClient.forView()
+                .method(TransactionsByAccountView::getDeclinedTransactions)
+                .invoke(TransactionsByAccountView.DeclinedQuery.of("insufficient_funds", null, null, null, 100));
+        assertTrue(transactionIds(insufficientFunds.transactions()).contains("status-txn-2"));
+        assertFalse(transactionIds(insufficientFunds.transactions()).contains("status-txn-1"));
+    }
+
+    @Test
+    public void testFiltersTransactionsOfTheAccountByCreationTime() throws Exception {
+        createCard("4000000000001003", "time-account");
+        var earlier = authorise("4000000000001003", "time-txn-1", 100);
+        Thread.sleep(20);
+        var later = authorise("4000000000001003", "time-txn-2", 100);
+        awaitResult(() -> getPage("time-account", "", 100), page -> page.transactions().size() == 2);
+        var cutoff = later.createdAt();
+        assertTrue(earlier.createdAt().isBefore(cutoff));
+
+        // [from, to): the cutoff belongs to the later range only
+        assertEquals(List.of("time-txn-1"),
+                transactionIds(getByStatus("time-account", "authorised", null, cutoff).transactions()));
+        assertEquals(List.of("time-txn-2"),
+                transactionIds(getByStatus("time-account", "authorised", cutoff, null).transactions()));
+        assertEquals(List.of("time-txn-1", "time-txn-2"),
+                transactionIds(getByStatus("time-account", "authorised", earlier.createdAt(), cutoff.plusMillis(1)).transactions()));
+    }
+
+    @Test
+    public void testStreamsUpdatesSinceTheGivenTime() throws Exception {
+        createCard("4000000000001004", "updates-account");
+        authorise("4000000000001004", "updates-txn-1", 100);
+        awaitResult(() -> getPage("updates-account", "", 100), page -> page.transactions().size() == 1);
+        var since = Instant.now();
+        authorise("4000000000001004", "updates-txn-2", 100);
+
+        var update = componentClient.forView()
+                .stream(TransactionsByAccountView::streamTransactionUpdates)
+                .source(TransactionsByAccountView.UpdatesQuery.of("updates-account", since))
+                .runWith(Sink.head(), testKit.getMaterializer())
+                .toCompletableFuture()
+                .get(15, TimeUnit.SECONDS);
+
+        assertEquals("updates-txn-2", update.transactionId());
+    }
+
+    @Test
+    public void testInvalidFilterParametersAreABadRequest() {
+        assertEquals(400, getStatus("/transactions/by-account/status-account/by-status?from=yesterday"));
+        assertEquals(400, getStatus("/transactions/by-account/status-account/by-status?pageSize=ten"));
+        assertEquals(400, getStatus("/transactions/declined/insufficient_funds?to=2025-13-01"));
+        assertEquals(400, getStatus("/transactions/by-account/status-account/updates?since=now"));
+    }
+
+    private TransactionsByAccountView.FilteredPage getByStatus(String accountId, String authResult, Instant from, Instant to) {
+        return componentClient.forView()
+                .method(TransactionsByAccountView::getTransactionsByAccountAndStatus)
+                .invoke(TransactionsByAccountView.AccountStatusQuery.of(accountId, authResult, "N/A", from, to, null, 100));
+    }
+
+    private static List<String> transactionIds(List<TransactionsByAccountView.TransactionSummary> transactions) {
+        return transactions.stream().map(TransactionsByAccountView.TransactionSummary::transactionId).toList();
+    }
+
+    private TransactionsByAccountView.TransactionPage getPage(String accountId, String pageToken, int pageSize) {
+        return componentClient.forView()
+                .method(TransactionsByAccountView::getTransactionsByAccount)
+                .invoke(TransactionsByAccountView.PageRequest.of(accountId, pageToken, pageSize));
+    }
+
+    private void createCard(String pan, String accountId) {
+        componentClient.forEventSourcedEntity(pan)
+                .method(CardEntity::createCard)
+                .invoke(new CardEntity.ApiCard(pan, "12/30", "123", accountId));
+    }
+
+    private TransactionState authorise(String pan, String id, int amount) {
+        componentClient.forWorkflow(id)
+                .method(TransactionWorkflow::authorizeTransaction)
+                .invoke(new TransactionWorkflow.AuthorizeTransactionRequest(id, id, pan, "12/30", "123", amount, "USD", ""));
+        return awaitResult(
+                () -> componentClient.forWorkflow(id).method(TransactionWorkflow::getTransaction).invoke(),
+                state -> state.authResult() == TransactionState.AuthResult.authorised
+                        || state.authStatus() != TransactionState.AuthStatus.ok);
+    }
+
+    private int getStatus(String uri) {
+        try {
+            return httpClient.GET(uri).invoke().status().intValue();
+        } catch (RuntimeException e) {
+            // the test http client fails the call on an error status
+            assertTrue(e.getMessage().contains("400"), e.getMessage());
+            return 400;
+        }
+    }
+
+    private static <T> T awaitResult(Supplier<T> query, Predicate<T> condition) {
+        var deadline = System.nanoTime() + Duration.ofSeconds(15).toNanos();
+        T result = null;
+        while (System.nanoTime() < deadline) {
+            result = query.get();
+            if (condition.test(result)) {
+                return result;
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return fail("Condition not reached, last result: " + result);
+    }
+}
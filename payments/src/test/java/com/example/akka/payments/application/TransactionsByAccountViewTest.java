@@ -0,0 +1,57 @@
+package com.example.akka.payments.application;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionsByAccountViewTest {
+
+    private static TransactionsByAccountView.TransactionSummary summary(String transactionId) {
+        return new TransactionsByAccountView.TransactionSummary(
+                "key-" + transactionId, transactionId, "account-1", "authorised", "ok", "N/A", "N/A", "N/A", "N/A",
+                100, "USD", Instant.EPOCH, Instant.EPOCH);
+    }
+
+    @Test
+    public void testFirstPageStartsAtTheBeginningOfTheAccount() {
+        var request = TransactionsByAccountView.PageRequest.of("account-1", "", 0);
+
+        assertEquals("account-1", request.accountId());
+        assertEquals("", request.afterTransactionId());
+        assertEquals(TransactionsByAccountView.DEFAULT_PAGE_SIZE, request.pageSize());
+    }
+
+    @Test
+    public void testPageSizeIsCapped() {
+        var request = TransactionsByAccountView.PageRequest.of("account-1", null, 50_000);
+
+        assertEquals("", request.afterTransactionId());
+        assertEquals(TransactionsByAccountView.MAX_PAGE_SIZE, request.pageSize());
+    }
+
+    @Test
+    public void testNextPageStartsAfterTheLastTransactionOfThePage() {
+        var page = new TransactionsByAccountView.TransactionPage(List.of(summary("txn-1"), summary("txn-2")), true);
+
+        var next = TransactionsByAccountView.PageRequest.of("account-1", page.nextPageToken(), 2);
+
+        assertEquals("txn-2", next.afterTransactionId());
+        assertEquals(2, next.pageSize());
+    }
+
+    @Test
+    public void testMalformedPageTokenIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> TransactionsByAccountView.PageRequest.of("account-1", "not*a*token", 10));
+    }
+
+    @Test
+    public void testLastPageHasNoNextPageToken() {
+        var page = new TransactionsByAccountView.TransactionPage(List.of(summary("txn-3")), false);
+
+        assertEquals("", page.nextPageToken());
+    }
+}
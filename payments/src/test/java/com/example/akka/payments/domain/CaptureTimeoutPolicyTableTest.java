@@ -0,0 +1,54 @@
+package com.example.akka.payments.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CaptureTimeoutPolicyTableTest {
+
+    private final CaptureTimeoutPolicyTable table = new CaptureTimeoutPolicyTable(List.of(
+            new CaptureTimeoutPolicy("", "USD", 0, 1000, Duration.ofSeconds(30)),
+            new CaptureTimeoutPolicy("", "", 100_000, 0, Duration.ofHours(1)),
+            new CaptureTimeoutPolicy("hotel-1", "", 0, 0, Duration.ofDays(5)),
+            new CaptureTimeoutPolicy("hotel-1", "", 0, 0, Duration.ofDays(3))
+    ), Duration.ofMinutes(5));
+
+    @Test
+    public void testDefaultWhenNoPolicyMatches() {
+        assertEquals(Duration.ofMinutes(5), table.resolve("", "EUR", 500));
+        assertEquals(Duration.ofMinutes(5), table.resolve("", "USD", 1000));
+    }
+
+    @Test
+    public void testAmountBand() {
+        assertEquals(Duration.ofSeconds(30), table.resolve("", "usd", 999));
+        assertEquals(Duration.ofHours(1), table.resolve("shop-1", "EUR", 100_000));
+    }
+
+    @Test
+    public void testMerchantWinsOverCurrencyAndFirstPolicyWinsATie() {
+        assertEquals(Duration.ofDays(5), table.resolve("hotel-1", "USD", 10));
+    }
+
+    @Test
+    public void testTimeoutMustBePositive() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CaptureTimeoutPolicy("", "", 0, 0, Duration.ZERO));
+    }
+
+    @Test
+    public void testTimeoutsBeyondTheHoldExpiryAreInvalid() {
+        assertTrue(table.validate(Duration.ofDays(6)).isEmpty());
+
+        var tooLong = new CaptureTimeoutPolicyTable(List.of(
+                new CaptureTimeoutPolicy("hotel-2", "", 0, 0, Duration.ofDays(7))), Duration.ofMinutes(5));
+        assertTrue(tooLong.validate(Duration.ofDays(6)).orElseThrow().contains("hotel-2"));
+
+        var defaultTooLong = new CaptureTimeoutPolicyTable(List.of(), Duration.ofDays(7));
+        assertTrue(defaultTooLong.validate(Duration.ofDays(6)).isPresent());
+        assertTrue(CaptureTimeoutPolicyTable.empty().validate(Duration.ofDays(6)).isPresent());
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.akka.payments.domain;
+
+import akka.javasdk.JsonSupport;
+import com.fasterxml.jackson.databind.MapperFeature;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionStateSerializationTest {
+
+    private final TransactionState state = TransactionState.empty()
+            .init("idem-1", "tx-1", new TransactionState.CardData("4111111111111111", "12/27", "123", 1500, "EUR"),
+                    Instant.parse("2025-01-01T00:00:00Z"))
+            .withCardValid("account-1")
+            .withAuthResult("auth-1", TransactionState.AuthResult.authorised, TransactionState.AuthStatus.ok);
+
+    @Test
+    public void testRoundTripWithShortNames() throws Exception {
+        var json = JsonSupport.getObjectMapper().writeValueAsString(state);
+
+        assertFalse(json.contains("idempotencyKey"), json);
+        assertFalse(json.contains("empty"), json);
+        assertEquals(state, JsonSupport.getObjectMapper().readValue(json, TransactionState.class));
+    }
+
+    @Test
+    public void testOutcomesNotReachedYetAreNotWritten() throws Exception {
+        var mapper = JsonSupport.getObjectMapper();
+        var started = TransactionState.empty()
+                .init("idem-1", "tx-1", state.cardData(), Instant.parse("2025-01-01T00:00:00Z"));
+        var json = mapper.writeValueAsString(state);
+
+        for (var outcome : new String[]{"\"pr\"", "\"ps\"", "\"xr\"", "\"xs\""}) {
+            assertFalse(json.contains(outcome), json);
+        }
+        assertTrue(json.contains("\"ar\":\"authorised\""), json);
+        assertFalse(mapper.writeValueAsString(started).contains("\"a\""));
+        assertEquals(started, mapper.readValue(mapper.writeValueAsString(started), TransactionState.class));
+    }
+
+    @Test
+    public void testShortNamesShrinkTheStateBytesPerAuthoriseAndCapture() throws Exception {
+        var mapper = JsonSupport.getObjectMapper();
+        // ignores the @JsonProperty and @JsonInclude annotations, i.e. writes the state the way it was persisted before
+        var fullNamesMapper = mapper.copy().disable(MapperFeature.USE_ANNOTATIONS);
+        var now = Instant.parse("2025-01-01T00:00:00Z");
+        var started = TransactionState.empty().init("idem-1", "tx-1", state.cardData(), now);
+        var cardValid = started.withCardValid("account-1").withUpdatedAt(now.plusMillis(20));
+        var authorised = cardValid
+                .withAuthResult("auth-1", TransactionState.AuthResult.authorised, TransactionState.AuthStatus.ok)
+                .withUpdatedAt(now.plusMillis(40));
+        var captured = authorised
+                .withCaptured(TransactionState.CaptureResult.captured, TransactionState.CaptureStatus.ok)
+                .withUpdatedAt(now.plusSeconds(30));
+
+        int shortNames = 0;
+        int fullNames = 0;
+        for (var update : List.of(started, cardValid, authorised, captured)) {
+            shortNames += mapper.writeValueAsBytes(update).length;
+            fullNames += fullNamesMapper.writeValueAsBytes(update).length;
+        }
+
+        assertTrue(shortNames < fullNames, "short names " + shortNames + " bytes, full names " + fullNames + " bytes");
+    }
+
+    @Test
+    public void testDeclinedOutcomeRoundTrips() throws Exception {
+        var declined = state.withAuthResult("", TransactionState.AuthResult.declined, TransactionState.AuthStatus.card_not_found);
+
+        var json = JsonSupport.getObjectMapper().writeValueAsString(declined);
+
+        assertFalse(json.contains("\"ar\""), json);
+        assertTrue(json.contains("\"as\":\"card_not_found\""), json);
+        assertEquals(declined, JsonSupport.getObjectMapper().readValue(json, TransactionState.class));
+    }
+
+    @Test
+    public void testStateWrittenWithFullNamesIsRead() throws Exception {
+        var json = """
+                {"idempotencyKey":"idem-1","transactionId":"tx-1",
+                 "cardData":{"cardPan":"4111111111111111","cardExpiryDate":"12/27","cardCvv":"123","amount":1500,"currency":"EUR"},
+                 "accountId":"account-1","authCode":"auth-1","authResult":"authorised","authStatus":"ok",
+                 "captureResult":"declined","captureStatus":"ok","cancelResult":"declined","cancelStatus":"ok",
+                 "createdAt":"2025-01-01T00:00:00Z","updatedAt":"2025-01-01T00:00:00Z"}
+                """;
+
+        assertEquals(state, JsonSupport.getObjectMapper().readValue(json, TransactionState.class));
+    }
+}